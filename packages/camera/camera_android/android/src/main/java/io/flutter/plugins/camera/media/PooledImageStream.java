@@ -0,0 +1,136 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.camera.media;
+
+import android.media.Image;
+import android.media.ImageReader;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import io.flutter.plugin.common.EventChannel;
+import io.flutter.plugins.camera.types.CameraCaptureProperties;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Sends the frames of an image stream to Dart, reusing the plane buffers and maps of a small pool
+ * of frames instead of allocating them for every frame.
+ *
+ * <p>Planes are copied into the pooled buffers on the thread of the {@link ImageReader}, so that
+ * the image can be closed right away, and the frame is handed to the event sink on the main
+ * thread, which encodes it before the frame goes back to the pool. Frames arriving while every
+ * pooled frame is still waiting for the main thread are dropped rather than queued.
+ */
+public class PooledImageStream implements ImageReader.OnImageAvailableListener {
+  static final int DEFAULT_POOL_SIZE = 3;
+
+  private final EventChannel.EventSink imageStreamSink;
+  private final CameraCaptureProperties captureProps;
+  private final Handler mainHandler;
+  private final ArrayBlockingQueue<Frame> freeFrames;
+  private int droppedFrameCount;
+
+  public PooledImageStream(
+      @NonNull EventChannel.EventSink imageStreamSink,
+      @NonNull CameraCaptureProperties captureProps) {
+    this(imageStreamSink, captureProps, new Handler(Looper.getMainLooper()), DEFAULT_POOL_SIZE);
+  }
+
+  @VisibleForTesting
+  PooledImageStream(
+      EventChannel.EventSink imageStreamSink,
+      CameraCaptureProperties captureProps,
+      Handler mainHandler,
+      int poolSize) {
+    this.imageStreamSink = imageStreamSink;
+    this.captureProps = captureProps;
+    this.mainHandler = mainHandler;
+    this.freeFrames = new ArrayBlockingQueue<>(poolSize);
+    for (int i = 0; i < poolSize; i++) {
+      freeFrames.add(new Frame());
+    }
+  }
+
+  @Override
+  public void onImageAvailable(ImageReader reader) {
+    // Use acquireNextImage since image reader is only for one image.
+    final Image image = reader.acquireNextImage();
+    if (image == null) {
+      return;
+    }
+    send(image);
+  }
+
+  /** Copies {@code image} into a free frame for the main thread to send, and closes it. */
+  @VisibleForTesting
+  void send(Image image) {
+    final Frame frame = freeFrames.poll();
+    if (frame == null) {
+      droppedFrameCount++;
+      image.close();
+      return;
+    }
+    frame.fill(image);
+    image.close();
+    mainHandler.post(frame);
+  }
+
+  /** Returns how many frames were dropped while the main thread was behind. */
+  int getDroppedFrameCount() {
+    return droppedFrameCount;
+  }
+
+  private final class Frame implements Runnable {
+    private final Map<String, Object> imageBuffer = new HashMap<>();
+    private final List<Map<String, Object>> planes = new ArrayList<>();
+
+    void fill(Image image) {
+      final Image.Plane[] imagePlanes = image.getPlanes();
+      while (planes.size() > imagePlanes.length) {
+        planes.remove(planes.size() - 1);
+      }
+      while (planes.size() < imagePlanes.length) {
+        planes.add(new HashMap<>());
+      }
+      for (int i = 0; i < imagePlanes.length; i++) {
+        final Image.Plane plane = imagePlanes[i];
+        final ByteBuffer buffer = plane.getBuffer();
+        final Map<String, Object> planeBuffer = planes.get(i);
+        byte[] bytes = (byte[]) planeBuffer.get("bytes");
+        // Frame sizes only change with a new stream, buffers are reused from the second frame on.
+        if (bytes == null || bytes.length != buffer.remaining()) {
+          bytes = new byte[buffer.remaining()];
+        }
+        buffer.get(bytes, 0, bytes.length);
+
+        planeBuffer.put("bytesPerRow", plane.getRowStride());
+        planeBuffer.put("bytesPerPixel", plane.getPixelStride());
+        planeBuffer.put("bytes", bytes);
+      }
+
+      imageBuffer.put("width", image.getWidth());
+      imageBuffer.put("height", image.getHeight());
+      imageBuffer.put("format", image.getFormat());
+      imageBuffer.put("planes", planes);
+      imageBuffer.put("lensAperture", captureProps.getLastLensAperture());
+      imageBuffer.put("sensorExposureTime", captureProps.getLastSensorExposureTime());
+      final Integer sensorSensitivity = captureProps.getLastSensorSensitivity();
+      imageBuffer.put(
+          "sensorSensitivity", sensorSensitivity == null ? null : (double) sensorSensitivity);
+    }
+
+    @Override
+    public void run() {
+      // The codec copies the frame while encoding it, so it can be reused as soon as this returns.
+      imageStreamSink.success(imageBuffer);
+      freeFrames.offer(this);
+    }
+  }
+}
@@ -0,0 +1,202 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.camera.media;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.graphics.ImageFormat;
+import android.media.Image;
+import android.os.Handler;
+import android.os.Looper;
+import io.flutter.plugin.common.EventChannel;
+import io.flutter.plugins.camera.types.CameraCaptureProperties;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.LooperMode;
+
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class PooledImageStreamTest {
+  private static final int WIDTH = 1920;
+  private static final int HEIGHT = 1080;
+
+  private RecordingSink sink;
+  private CameraCaptureProperties captureProps;
+
+  @Before
+  public void before() {
+    sink = new RecordingSink();
+    captureProps = new CameraCaptureProperties();
+    captureProps.setLastSensorSensitivity(100);
+  }
+
+  @Test
+  public void send_deliversFramesOnTheMainThread() {
+    final PooledImageStream imageStream = createImageStream(3);
+    final Image image = mockYuvImage((byte) 7);
+
+    imageStream.send(image);
+
+    verify(image).close();
+    assertEquals(0, sink.events.size());
+    idleMainLooper();
+    assertEquals(1, sink.events.size());
+    final Map<?, ?> imageBuffer = sink.events.get(0);
+    assertEquals(WIDTH, imageBuffer.get("width"));
+    assertEquals(ImageFormat.YUV_420_888, imageBuffer.get("format"));
+    assertEquals(100.0, imageBuffer.get("sensorSensitivity"));
+    final List<?> planes = (List<?>) imageBuffer.get("planes");
+    assertEquals(3, planes.size());
+    final Map<?, ?> uPlane = (Map<?, ?>) planes.get(1);
+    assertEquals(2, uPlane.get("bytesPerPixel"));
+    final byte[] uBytes = (byte[]) uPlane.get("bytes");
+    assertEquals(WIDTH * HEIGHT / 2 - 1, uBytes.length);
+    assertEquals(7, uBytes[0]);
+  }
+
+  @Test
+  public void send_reusesThePlaneBuffersOfDeliveredFrames() {
+    final PooledImageStream imageStream = createImageStream(1);
+
+    imageStream.send(mockYuvImage((byte) 1));
+    idleMainLooper();
+    final byte[] firstBytes = yBytes(sink.lastEvent);
+    imageStream.send(mockYuvImage((byte) 2));
+    idleMainLooper();
+
+    assertEquals(2, sink.events.size());
+    assertSame(firstBytes, yBytes(sink.lastEvent));
+    assertEquals(2, firstBytes[0]);
+  }
+
+  @Test
+  public void send_dropsFramesWhileEveryPooledFrameIsPending() {
+    final PooledImageStream imageStream = createImageStream(2);
+    final Image dropped = mockYuvImage((byte) 3);
+
+    imageStream.send(mockYuvImage((byte) 1));
+    imageStream.send(mockYuvImage((byte) 2));
+    imageStream.send(dropped);
+    idleMainLooper();
+
+    verify(dropped).close();
+    verify(dropped, never()).getPlanes();
+    assertEquals(1, imageStream.getDroppedFrameCount());
+    assertEquals(2, sink.events.size());
+    assertNotSame(yBytes(sink.events.get(0)), yBytes(sink.events.get(1)));
+  }
+
+  @Test
+  public void send_allocatesFarLessThanAFramePerFrameOnceWarm() {
+    final com.sun.management.ThreadMXBean threadBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+    threadBean.setThreadAllocatedMemoryEnabled(true);
+    final PooledImageStream imageStream = createImageStream(3);
+    final Image image = mockYuvImage((byte) 5);
+    final int frameBytes = WIDTH * HEIGHT + 2 * (WIDTH * HEIGHT / 2 - 1);
+    final int frames = 100;
+    for (int i = 0; i < 10; i++) {
+      imageStream.send(image);
+      idleMainLooper();
+    }
+    sink.keepEvents = false;
+
+    final long threadId = Thread.currentThread().getId();
+    final long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < frames; i++) {
+      imageStream.send(image);
+      idleMainLooper();
+    }
+    final long allocatedPerFrame =
+        (threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore) / frames;
+
+    verify(image, times(10 + frames)).close();
+    assertEquals(10 + frames, sink.eventCount);
+    // Copying the planes into new arrays, as before pooling, allocates at least a whole frame.
+    assertTrue(
+        "Allocated " + allocatedPerFrame + " bytes per frame of " + frameBytes,
+        allocatedPerFrame < frameBytes / 20);
+  }
+
+  private PooledImageStream createImageStream(int poolSize) {
+    return new PooledImageStream(sink, captureProps, new Handler(Looper.getMainLooper()), poolSize);
+  }
+
+  private static void idleMainLooper() {
+    shadowOf(Looper.getMainLooper()).idle();
+  }
+
+  private static byte[] yBytes(Map<?, ?> imageBuffer) {
+    return (byte[]) ((Map<?, ?>) ((List<?>) imageBuffer.get("planes")).get(0)).get("bytes");
+  }
+
+  /** Mocks a YUV_420_888 frame with interleaved chroma planes filled with {@code value}. */
+  private static Image mockYuvImage(byte value) {
+    final Image image = mock(Image.class);
+    final Image.Plane[] planes = {
+      mockPlane(WIDTH * HEIGHT, WIDTH, 1, value),
+      mockPlane(WIDTH * HEIGHT / 2 - 1, WIDTH, 2, value),
+      mockPlane(WIDTH * HEIGHT / 2 - 1, WIDTH, 2, value)
+    };
+    when(image.getPlanes()).thenReturn(planes);
+    when(image.getWidth()).thenReturn(WIDTH);
+    when(image.getHeight()).thenReturn(HEIGHT);
+    when(image.getFormat()).thenReturn(ImageFormat.YUV_420_888);
+    return image;
+  }
+
+  private static Image.Plane mockPlane(int size, int rowStride, int pixelStride, byte value) {
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+    for (int i = 0; i < size; i++) {
+      buffer.put(i, value);
+    }
+    final Image.Plane plane = mock(Image.Plane.class);
+    // Every frame reads the plane from its start, as a new image would.
+    when(plane.getBuffer()).thenAnswer(invocation -> buffer.rewind());
+    when(plane.getRowStride()).thenReturn(rowStride);
+    when(plane.getPixelStride()).thenReturn(pixelStride);
+    return plane;
+  }
+
+  private static class RecordingSink implements EventChannel.EventSink {
+    final List<Map<?, ?>> events = new ArrayList<>();
+    Map<?, ?> lastEvent;
+    int eventCount;
+    boolean keepEvents = true;
+
+    @Override
+    public void success(Object event) {
+      lastEvent = (Map<?, ?>) event;
+      eventCount++;
+      if (keepEvents) {
+        events.add(lastEvent);
+      }
+    }
+
+    @Override
+    public void error(String errorCode, String errorMessage, Object errorDetails) {}
+
+    @Override
+    public void endOfStream() {}
+  }
+}
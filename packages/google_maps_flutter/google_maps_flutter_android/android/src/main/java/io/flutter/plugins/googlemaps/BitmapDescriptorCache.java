@@ -0,0 +1,225 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide LRU cache of the {@link BitmapDescriptor}s of {@code fromAsset} and {@code
+ * fromBytes} marker icons.
+ *
+ * <p>Asset icons are keyed by their asset lookup key, byte icons by the content of their bytes and
+ * the size they are decoded to, so markers and maps showing the same icon share one descriptor and
+ * the bytes are only decoded once. The cache is bounded both by its number of entries and by the
+ * bytes of the encoded and decoded images it keeps.
+ */
+final class BitmapDescriptorCache {
+
+  /** Creates the {@link BitmapDescriptor}s of the cached icons. */
+  interface DescriptorFactory {
+    BitmapDescriptor fromAsset(String assetKey);
+
+    BitmapDescriptor fromBitmap(Bitmap bitmap);
+  }
+
+  static final int DEFAULT_MAX_ENTRIES = 256;
+  static final long DEFAULT_MAX_SIZE_BYTES = 8 * 1024 * 1024;
+
+  private static BitmapDescriptorCache instance;
+
+  private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final DescriptorFactory descriptorFactory;
+  private final int maxEntries;
+  private final long maxSizeBytes;
+  private long sizeBytes;
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+
+  @VisibleForTesting
+  BitmapDescriptorCache(int maxEntries, long maxSizeBytes, DescriptorFactory descriptorFactory) {
+    this.maxEntries = maxEntries;
+    this.maxSizeBytes = maxSizeBytes;
+    this.descriptorFactory = descriptorFactory;
+  }
+
+  static synchronized BitmapDescriptorCache getInstance() {
+    if (instance == null) {
+      instance =
+          new BitmapDescriptorCache(
+              DEFAULT_MAX_ENTRIES,
+              DEFAULT_MAX_SIZE_BYTES,
+              new DescriptorFactory() {
+                @Override
+                public BitmapDescriptor fromAsset(String assetKey) {
+                  return BitmapDescriptorFactory.fromAsset(assetKey);
+                }
+
+                @Override
+                public BitmapDescriptor fromBitmap(Bitmap bitmap) {
+                  return BitmapDescriptorFactory.fromBitmap(bitmap);
+                }
+              });
+    }
+    return instance;
+  }
+
+  @VisibleForTesting
+  static synchronized void setInstance(BitmapDescriptorCache cache) {
+    instance = cache;
+  }
+
+  /** Returns the descriptor of the asset with the given lookup key. */
+  BitmapDescriptor getOrCreateAsset(@NonNull String assetKey) {
+    synchronized (this) {
+      final Entry entry = entries.get(assetKey);
+      if (entry != null) {
+        hitCount++;
+        return entry.descriptor;
+      }
+      missCount++;
+    }
+    return put(assetKey, descriptorFactory.fromAsset(assetKey), 0);
+  }
+
+  /**
+   * Returns the descriptor of the image encoded in {@code bytes}, decoding it on a cache miss.
+   *
+   * <p>When {@code targetWidth} and {@code targetHeight} are positive, the image is subsampled by
+   * the largest power of two that keeps it at least that large.
+   */
+  BitmapDescriptor getOrDecode(@NonNull byte[] bytes, int targetWidth, int targetHeight) {
+    final BytesKey key = new BytesKey(bytes, targetWidth, targetHeight);
+    synchronized (this) {
+      final Entry entry = entries.get(key);
+      if (entry != null) {
+        hitCount++;
+        return entry.descriptor;
+      }
+      missCount++;
+    }
+    final Bitmap bitmap = decode(bytes, targetWidth, targetHeight);
+    final int byteCount = bitmap.getByteCount() + bytes.length;
+    final BitmapDescriptor descriptor = descriptorFactory.fromBitmap(bitmap);
+    bitmap.recycle();
+    return put(key, descriptor, byteCount);
+  }
+
+  synchronized void clear() {
+    entries.clear();
+    sizeBytes = 0;
+  }
+
+  synchronized Map<String, Object> getStats() {
+    final Map<String, Object> stats = new HashMap<>(7);
+    stats.put("hitCount", hitCount);
+    stats.put("missCount", missCount);
+    stats.put("evictionCount", evictionCount);
+    stats.put("entryCount", entries.size());
+    stats.put("maxEntryCount", maxEntries);
+    stats.put("sizeBytes", sizeBytes);
+    stats.put("maxSizeBytes", maxSizeBytes);
+    return stats;
+  }
+
+  @VisibleForTesting
+  static int computeSampleSize(int width, int height, int targetWidth, int targetHeight) {
+    int sampleSize = 1;
+    if (targetWidth <= 0 || targetHeight <= 0) {
+      return sampleSize;
+    }
+    while (width / (sampleSize * 2) >= targetWidth && height / (sampleSize * 2) >= targetHeight) {
+      sampleSize *= 2;
+    }
+    return sampleSize;
+  }
+
+  private synchronized BitmapDescriptor put(
+      Object key, BitmapDescriptor descriptor, int byteCount) {
+    final Entry previous = entries.put(key, new Entry(descriptor, byteCount));
+    if (previous != null) {
+      sizeBytes -= previous.byteCount;
+    }
+    sizeBytes += byteCount;
+    final Iterator<Entry> iterator = entries.values().iterator();
+    while ((sizeBytes > maxSizeBytes || entries.size() > maxEntries) && iterator.hasNext()) {
+      sizeBytes -= iterator.next().byteCount;
+      iterator.remove();
+      evictionCount++;
+    }
+    return descriptor;
+  }
+
+  private static Bitmap decode(byte[] bytes, int targetWidth, int targetHeight) {
+    final BitmapFactory.Options options = new BitmapFactory.Options();
+    if (targetWidth > 0 && targetHeight > 0) {
+      options.inJustDecodeBounds = true;
+      BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+      options.inSampleSize =
+          computeSampleSize(options.outWidth, options.outHeight, targetWidth, targetHeight);
+      options.inJustDecodeBounds = false;
+    }
+    final Bitmap bitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+    if (bitmap == null) {
+      throw new IllegalArgumentException("Unable to decode bytes as a valid bitmap.");
+    }
+    return bitmap;
+  }
+
+  private static final class Entry {
+    final BitmapDescriptor descriptor;
+    final int byteCount;
+
+    Entry(BitmapDescriptor descriptor, int byteCount) {
+      this.descriptor = descriptor;
+      this.byteCount = byteCount;
+    }
+  }
+
+  /** Compares the bytes by content, the hash is computed once per lookup. */
+  private static final class BytesKey {
+    private final byte[] bytes;
+    private final int targetWidth;
+    private final int targetHeight;
+    private final int hashCode;
+
+    BytesKey(byte[] bytes, int targetWidth, int targetHeight) {
+      this.bytes = bytes;
+      this.targetWidth = targetWidth;
+      this.targetHeight = targetHeight;
+      this.hashCode = 31 * (31 * Arrays.hashCode(bytes) + targetWidth) + targetHeight;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof BytesKey)) {
+        return false;
+      }
+      BytesKey other = (BytesKey) o;
+      return hashCode == other.hashCode
+          && targetWidth == other.targetWidth
+          && targetHeight == other.targetHeight
+          && Arrays.equals(bytes, other.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -0,0 +1,161 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+import androidx.annotation.Nullable;
+import com.google.android.gms.maps.model.CameraPosition;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Coalesces the camera positions reported by {@code GoogleMap.OnCameraMoveListener} before they
+ * are sent to Dart as {@code camera#onMove}.
+ *
+ * <p>When enabled, at most one position is sent per frame, or per {@code intervalMillis} when it is
+ * positive, and positions closer to the last sent one than the thresholds are dropped. {@link
+ * #flush} sends the latest position if it was not sent yet, and must be called before {@code
+ * camera#onIdle} so that Dart always sees where the camera stopped. Every method must be called on
+ * the main thread.
+ */
+final class CameraMoveCoalescer {
+
+  static final float DEFAULT_MIN_TARGET_DELTA_PIXELS = 1;
+  static final float DEFAULT_MIN_ZOOM_DELTA = 0.01f;
+
+  // Bearing and tilt are in degrees, smaller changes aren't visible.
+  private static final float MIN_ANGLE_DELTA = 0.1f;
+
+  interface Listener {
+    void onCameraMove(CameraPosition position);
+  }
+
+  private final Listener listener;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> sendLatest(false);
+  private final Runnable intervalCallback = () -> sendLatest(false);
+
+  private boolean enabled = false;
+  private long intervalMillis = 0;
+  private float minTargetDeltaPixels = DEFAULT_MIN_TARGET_DELTA_PIXELS;
+  private float minZoomDelta = DEFAULT_MIN_ZOOM_DELTA;
+
+  @Nullable private CameraPosition latest;
+  @Nullable private CameraPosition lastSent;
+  private long lastSentAtMillis;
+  private boolean scheduled = false;
+
+  private long receivedCount;
+  private long sentCount;
+  private long droppedCount;
+
+  CameraMoveCoalescer(Listener listener) {
+    this.listener = listener;
+  }
+
+  void setOptions(
+      boolean enabled, long intervalMillis, float minTargetDeltaPixels, float minZoomDelta) {
+    if (this.enabled && !enabled) {
+      flush();
+    }
+    this.enabled = enabled;
+    this.intervalMillis = intervalMillis;
+    this.minTargetDeltaPixels = minTargetDeltaPixels;
+    this.minZoomDelta = minZoomDelta;
+  }
+
+  void onCameraMove(CameraPosition position) {
+    receivedCount++;
+    if (!enabled) {
+      send(position);
+      return;
+    }
+    latest = position;
+    if (scheduled) {
+      return;
+    }
+    scheduled = true;
+    if (intervalMillis > 0) {
+      final long elapsed = SystemClock.uptimeMillis() - lastSentAtMillis;
+      handler.postDelayed(intervalCallback, Math.max(0, intervalMillis - elapsed));
+    } else {
+      Choreographer.getInstance().postFrameCallback(frameCallback);
+    }
+  }
+
+  /** Sends the latest position, whatever its distance to the last sent one, if it wasn't sent. */
+  void flush() {
+    cancel();
+    sendLatest(true);
+  }
+
+  void dispose() {
+    cancel();
+    latest = null;
+  }
+
+  Map<String, Object> getStats() {
+    final Map<String, Object> stats = new HashMap<>(3);
+    stats.put("cameraMoveCount", receivedCount);
+    stats.put("cameraMoveSentCount", sentCount);
+    stats.put("cameraMoveDroppedCount", droppedCount);
+    return stats;
+  }
+
+  private void cancel() {
+    if (!scheduled) {
+      return;
+    }
+    scheduled = false;
+    handler.removeCallbacks(intervalCallback);
+    Choreographer.getInstance().removeFrameCallback(frameCallback);
+  }
+
+  private void sendLatest(boolean force) {
+    scheduled = false;
+    final CameraPosition position = latest;
+    if (position == null) {
+      return;
+    }
+    if (!force && !hasMoved(position)) {
+      droppedCount++;
+      return;
+    }
+    latest = null;
+    send(position);
+  }
+
+  private void send(CameraPosition position) {
+    sentCount++;
+    lastSent = position;
+    lastSentAtMillis = SystemClock.uptimeMillis();
+    listener.onCameraMove(position);
+  }
+
+  private boolean hasMoved(CameraPosition position) {
+    if (lastSent == null) {
+      return true;
+    }
+    if (Math.abs(position.zoom - lastSent.zoom) >= minZoomDelta
+        || Math.abs(position.bearing - lastSent.bearing) >= MIN_ANGLE_DELTA
+        || Math.abs(position.tilt - lastSent.tilt) >= MIN_ANGLE_DELTA) {
+      return true;
+    }
+    double dx =
+        Math.abs(
+            SphericalMercator.toX(position.target.longitude)
+                - SphericalMercator.toX(lastSent.target.longitude));
+    // The shortest way may cross the antimeridian.
+    dx = Math.min(dx, 1 - dx);
+    final double dy =
+        SphericalMercator.toY(position.target.latitude)
+            - SphericalMercator.toY(lastSent.target.latitude);
+    final double pixels = Math.sqrt(dx * dx + dy * dy) / SphericalMercator.pixelSize(position.zoom);
+    return pixels >= minTargetDeltaPixels;
+  }
+}
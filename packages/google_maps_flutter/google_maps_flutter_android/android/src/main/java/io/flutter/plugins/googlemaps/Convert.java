@@ -4,9 +4,15 @@
 
 package io.flutter.plugins.googlemaps;
 
+import android.animation.TimeInterpolator;
+import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Point;
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.AccelerateInterpolator;
+import android.view.animation.DecelerateInterpolator;
+import android.view.animation.LinearInterpolator;
+import androidx.annotation.VisibleForTesting;
 import com.google.android.gms.maps.CameraUpdate;
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.model.BitmapDescriptor;
@@ -25,8 +31,10 @@ import com.google.android.gms.maps.model.RoundCap;
 import com.google.android.gms.maps.model.SquareCap;
 import com.google.android.gms.maps.model.Tile;
 import io.flutter.view.FlutterMain;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -50,16 +58,17 @@ class Convert {
         }
       case "fromAsset":
         if (data.size() == 2) {
-          return BitmapDescriptorFactory.fromAsset(
-              FlutterMain.getLookupKeyForAsset(toString(data.get(1))));
+          return BitmapDescriptorCache.getInstance()
+              .getOrCreateAsset(FlutterMain.getLookupKeyForAsset(toString(data.get(1))));
         } else {
-          return BitmapDescriptorFactory.fromAsset(
-              FlutterMain.getLookupKeyForAsset(toString(data.get(1)), toString(data.get(2))));
+          return BitmapDescriptorCache.getInstance()
+              .getOrCreateAsset(
+                  FlutterMain.getLookupKeyForAsset(toString(data.get(1)), toString(data.get(2))));
         }
       case "fromAssetImage":
         if (data.size() == 3) {
-          return BitmapDescriptorFactory.fromAsset(
-              FlutterMain.getLookupKeyForAsset(toString(data.get(1))));
+          return BitmapDescriptorCache.getInstance()
+              .getOrCreateAsset(FlutterMain.getLookupKeyForAsset(toString(data.get(1))));
         } else {
           throw new IllegalArgumentException(
               "'fromAssetImage' Expected exactly 3 arguments, got: " + data.size());
@@ -71,17 +80,28 @@ class Convert {
     }
   }
 
+  /**
+   * Returns the descriptor of a {@code fromBytes} icon, whose optional third argument is the {@code
+   * [width, height]} in pixels to subsample the decoded image to.
+   */
   private static BitmapDescriptor getBitmapFromBytes(List<?> data) {
-    if (data.size() == 2) {
+    if (data.size() == 2 || data.size() == 3) {
       try {
-        Bitmap bitmap = toBitmap(data.get(1));
-        return BitmapDescriptorFactory.fromBitmap(bitmap);
+        int targetWidth = 0;
+        int targetHeight = 0;
+        if (data.size() == 3) {
+          final List<?> targetSize = toList(data.get(2));
+          targetWidth = toInt(targetSize.get(0));
+          targetHeight = toInt(targetSize.get(1));
+        }
+        return BitmapDescriptorCache.getInstance()
+            .getOrDecode((byte[]) data.get(1), targetWidth, targetHeight);
       } catch (Exception e) {
         throw new IllegalArgumentException("Unable to interpret bytes as a valid image.", e);
       }
     } else {
       throw new IllegalArgumentException(
-          "fromBytes should have exactly one argument, interpretTileOverlayOptions the bytes. Got: "
+          "fromBytes should have one or two arguments, the bytes and their target size. Got: "
               + data.size());
     }
   }
@@ -137,6 +157,10 @@ class Convert {
     return ((Number) o).doubleValue();
   }
 
+  private static long toLong(Object o) {
+    return ((Number) o).longValue();
+  }
+
   private static float toFloat(Object o) {
     return ((Number) o).floatValue();
   }
@@ -177,6 +201,13 @@ class Convert {
     return data;
   }
 
+  static Object clusterToJson(MarkerClusterer.Cluster cluster) {
+    final Map<String, Object> data = new HashMap<>(2);
+    data.put("position", latLngToJson(cluster.position));
+    data.put("markerIds", new ArrayList<>(cluster.markerIds));
+    return data;
+  }
+
   static Object polygonIdToJson(String polygonId) {
     if (polygonId == null) {
       return null;
@@ -276,16 +307,6 @@ class Convert {
     return (int) toFractionalPixels(o, density);
   }
 
-  private static Bitmap toBitmap(Object o) {
-    byte[] bmpData = (byte[]) o;
-    Bitmap bitmap = BitmapFactory.decodeByteArray(bmpData, 0, bmpData.length);
-    if (bitmap == null) {
-      throw new IllegalArgumentException("Unable to decode bytes as a valid bitmap.");
-    } else {
-      return bitmap;
-    }
-  }
-
   private static Point toPoint(Object o, float density) {
     final List<?> data = toList(o);
     return new Point(toPixels(data.get(0), density), toPixels(data.get(1), density));
@@ -378,6 +399,105 @@ class Convert {
     if (buildingsEnabled != null) {
       sink.setBuildingsEnabled(toBoolean(buildingsEnabled));
     }
+    if (data.containsKey("markerClustering")) {
+      sink.setMarkerClusterer(toMarkerClusterer(data.get("markerClustering")));
+    }
+    final Object backgroundIconRenderingEnabled = data.get("backgroundIconRenderingEnabled");
+    if (backgroundIconRenderingEnabled != null) {
+      sink.setBackgroundIconRenderingEnabled(toBoolean(backgroundIconRenderingEnabled));
+    }
+    final Object markerCulling = data.get("markerCulling");
+    if (markerCulling != null) {
+      final Map<?, ?> culling = toMap(markerCulling);
+      final Object enabled = culling.get("enabled");
+      final Object margin = culling.get("margin");
+      sink.setMarkerCulling(
+          enabled == null || toBoolean(enabled),
+          margin != null ? toFloat(margin) : MarkersController.DEFAULT_CULLING_MARGIN);
+    }
+    final Object geometrySimplification = data.get("geometrySimplification");
+    if (geometrySimplification != null) {
+      final Map<?, ?> simplification = toMap(geometrySimplification);
+      final Object enabled = simplification.get("enabled");
+      final Object tolerance = simplification.get("tolerance");
+      sink.setGeometrySimplification(
+          enabled == null || toBoolean(enabled),
+          tolerance != null ? toFloat(tolerance) : SimplifiedPath.DEFAULT_TOLERANCE_PIXELS);
+    }
+    final Object cameraMoveCoalescing = data.get("cameraMoveCoalescing");
+    if (cameraMoveCoalescing != null) {
+      final Map<?, ?> coalescing = toMap(cameraMoveCoalescing);
+      final Object enabled = coalescing.get("enabled");
+      final Object intervalMillis = coalescing.get("intervalMillis");
+      final Object minTargetDeltaPixels = coalescing.get("minTargetDeltaPixels");
+      final Object minZoomDelta = coalescing.get("minZoomDelta");
+      sink.setCameraMoveCoalescing(
+          enabled == null || toBoolean(enabled),
+          intervalMillis != null ? toLong(intervalMillis) : 0,
+          minTargetDeltaPixels != null
+              ? toFloat(minTargetDeltaPixels)
+              : CameraMoveCoalescer.DEFAULT_MIN_TARGET_DELTA_PIXELS,
+          minZoomDelta != null
+              ? toFloat(minZoomDelta)
+              : CameraMoveCoalescer.DEFAULT_MIN_ZOOM_DELTA);
+    }
+    final Object performanceMetrics = data.get("performanceMetrics");
+    if (performanceMetrics != null) {
+      final Map<?, ?> metrics = toMap(performanceMetrics);
+      final Object enabled = metrics.get("enabled");
+      final Object reportIntervalMillis = metrics.get("reportIntervalMillis");
+      sink.setPerformanceMetrics(
+          enabled == null || toBoolean(enabled),
+          reportIntervalMillis != null ? toLong(reportIntervalMillis) : 0);
+    }
+    final Object visibleMarkersEvents = data.get("visibleMarkersEvents");
+    if (visibleMarkersEvents != null) {
+      final Map<?, ?> events = toMap(visibleMarkersEvents);
+      final Object enabled = events.get("enabled");
+      final Object debounceMillis = events.get("debounceMillis");
+      sink.setVisibleMarkersEvents(
+          enabled == null || toBoolean(enabled),
+          debounceMillis != null
+              ? toLong(debounceMillis)
+              : MarkersController.DEFAULT_VISIBLE_MARKERS_DEBOUNCE_MILLIS);
+    }
+  }
+
+  /** Returns null when clustering is disabled. */
+  private static MarkerClusterer toMarkerClusterer(Object o) {
+    if (o == null) {
+      return null;
+    }
+    final Map<?, ?> data = toMap(o);
+    final Object enabled = data.get("enabled");
+    if (enabled != null && !toBoolean(enabled)) {
+      return null;
+    }
+    MarkerClusterer.Algorithm algorithm = MarkerClusterer.Algorithm.GRID;
+    final Object algorithmName = data.get("algorithm");
+    if (algorithmName != null) {
+      switch (toString(algorithmName)) {
+        case "grid":
+          algorithm = MarkerClusterer.Algorithm.GRID;
+          break;
+        case "distance":
+          algorithm = MarkerClusterer.Algorithm.DISTANCE;
+          break;
+        default:
+          throw new IllegalArgumentException(
+              "Cannot interpret " + algorithmName + " as a clustering algorithm");
+      }
+    }
+    final Object clusterSize = data.get("clusterSize");
+    final Object maxZoom = data.get("maxZoom");
+    final Object minClusterSize = data.get("minClusterSize");
+    return new MarkerClusterer(
+        algorithm,
+        clusterSize != null ? toInt(clusterSize) : MarkerClusterer.DEFAULT_CLUSTER_SIZE,
+        maxZoom != null ? toFloat(maxZoom) : MarkerClusterer.DEFAULT_MAX_ZOOM,
+        minClusterSize != null
+            ? toInt(minClusterSize)
+            : MarkerClusterer.DEFAULT_MIN_CLUSTER_SIZE);
   }
 
   /** Returns the dartMarkerId of the interpreted marker. */
@@ -416,7 +536,9 @@ class Convert {
         if (icon == null) {
           throw new IllegalArgumentException("markerType was icon but icon was not provided.");
         }
-        sink.setIcon(toBitmapDescriptor(icon));
+        if (sink.needsIcon(toIconKey(icon))) {
+          sink.setIcon(toBitmapDescriptor(icon));
+        }
         break;
       case "price":
       case "count":
@@ -424,9 +546,11 @@ class Convert {
         if (label == null) {
           throw new IllegalArgumentException("markerType was label but label was not provided.");
         }
-        final Bitmap bitmap = cozy.buildMarker(markerType.toString(), label.toString());
-        sink.setIcon(BitmapDescriptorFactory.fromBitmap(bitmap));
-        bitmap.recycle();
+        if (sink.needsIcon(toIconKey(markerType.toString(), label.toString()))) {
+          sink.setIcon(
+              MarkerIconCache.getInstance()
+                  .getOrBuild(cozy, markerType.toString(), label.toString()));
+        }
         break;
       default:
         throw new IllegalArgumentException("markerType must be a pre-selected one.");
@@ -460,6 +584,24 @@ class Convert {
     }
   }
 
+  /** Identifies a price or count bubble, markers with equal keys have the same icon. */
+  static Object toIconKey(String markerType, String label) {
+    return Arrays.asList(markerType, label);
+  }
+
+  /**
+   * Identifies the icon of a marker sent as {@code icon}. The bytes of {@code fromBytes} icons are
+   * compared by content, which is much cheaper than decoding them again.
+   */
+  private static Object toIconKey(Object icon) {
+    final List<?> data = toList(icon);
+    final List<Object> key = new ArrayList<>(data.size());
+    for (Object item : data) {
+      key.add(item instanceof byte[] ? ByteBuffer.wrap((byte[]) item) : item);
+    }
+    return key;
+  }
+
   private static void interpretInfoWindowOptions(
       MarkerOptionsSink sink, Map<String, Object> infoWindow) {
     String title = (String) infoWindow.get("title");
@@ -617,17 +759,89 @@ class Convert {
     }
   }
 
+  /**
+   * Returns the points of a polyline, polygon or hole. They are either a list of {@code [lat, lng]}
+   * lists, a Google encoded polyline string, or a packed {@code double[]} (a {@code Float64List} on
+   * the Dart side) of alternating latitudes and longitudes.
+   */
   private static List<LatLng> toPoints(Object o) {
+    if (o instanceof String) {
+      return decodePolyline((String) o);
+    }
+    if (o instanceof double[]) {
+      return toPackedPoints((double[]) o);
+    }
     final List<?> data = toList(o);
     final List<LatLng> points = new ArrayList<>(data.size());
 
     for (Object rawPoint : data) {
       final List<?> point = toList(rawPoint);
-      points.add(new LatLng(toFloat(point.get(0)), toFloat(point.get(1))));
+      points.add(new LatLng(toDouble(point.get(0)), toDouble(point.get(1))));
+    }
+    return points;
+  }
+
+  @VisibleForTesting
+  static List<LatLng> toPackedPoints(double[] data) {
+    if (data.length % 2 != 0) {
+      throw new IllegalArgumentException("Packed points must have an even length");
+    }
+    final List<LatLng> points = new ArrayList<>(data.length / 2);
+    for (int i = 0; i < data.length; i += 2) {
+      points.add(new LatLng(data[i], data[i + 1]));
+    }
+    return points;
+  }
+
+  /**
+   * Decodes a polyline encoded with the <a
+   * href="https://developers.google.com/maps/documentation/utilities/polylinealgorithm">Encoded
+   * Polyline Algorithm</a>, at its precision of 5 decimal places.
+   */
+  @VisibleForTesting
+  static List<LatLng> decodePolyline(String encoded) {
+    final int length = encoded.length();
+    // Points usually take between 4 and 12 characters.
+    final List<LatLng> points = new ArrayList<>(length / 6 + 1);
+    int index = 0;
+    int latitude = 0;
+    int longitude = 0;
+    while (index < length) {
+      int result = 0;
+      int shift = 0;
+      int b;
+      do {
+        b = polylineChunk(encoded, index++);
+        result |= (b & 0x1f) << shift;
+        shift += 5;
+      } while (b >= 0x20);
+      latitude += (result & 1) != 0 ? ~(result >> 1) : (result >> 1);
+
+      result = 0;
+      shift = 0;
+      do {
+        b = polylineChunk(encoded, index++);
+        result |= (b & 0x1f) << shift;
+        shift += 5;
+      } while (b >= 0x20);
+      longitude += (result & 1) != 0 ? ~(result >> 1) : (result >> 1);
+
+      points.add(new LatLng(latitude * 1e-5, longitude * 1e-5));
     }
     return points;
   }
 
+  private static int polylineChunk(String encoded, int index) {
+    if (index >= encoded.length()) {
+      throw new IllegalArgumentException("Truncated encoded polyline");
+    }
+    final int chunk = encoded.charAt(index) - 63;
+    if (chunk < 0 || chunk > 0x3f) {
+      throw new IllegalArgumentException("Invalid encoded polyline character at " + index);
+    }
+    return chunk;
+  }
+
   private static List<List<LatLng>> toHoles(Object o) {
     final List<?> data = toList(o);
     final List<List<LatLng>> holes = new ArrayList<>(data.size());
@@ -712,6 +926,293 @@ class Convert {
     }
   }
 
+  /** Returns null when the tile overlay doesn't cache its tiles on the Java side. */
+  static TileCache toTileCache(Object o, Context context, String tileOverlayId) {
+    if (o == null) {
+      return null;
+    }
+    final Map<?, ?> data = toMap(o);
+    final Object version = data.get("version");
+    final Object memoryCacheSize = data.get("memoryCacheSizeBytes");
+    final Object diskCacheSize = data.get("diskCacheSizeBytes");
+    final Object ttl = data.get("ttlMillis");
+    return TileCache.obtain(
+        context.getCacheDir(),
+        tileOverlayId,
+        version != null ? toString(version) : "0",
+        memoryCacheSize != null ? toLong(memoryCacheSize) : TileCache.DEFAULT_MAX_MEMORY_BYTES,
+        diskCacheSize != null ? toLong(diskCacheSize) : TileCache.DEFAULT_MAX_DISK_BYTES,
+        ttl != null ? toLong(ttl) : 0);
+  }
+
+  static TilePrefetcher toTilePrefetcher(
+      Object o, TileProviderController tileProviderController) {
+    if (o == null) {
+      return null;
+    }
+    final Map<?, ?> data = toMap(o);
+    final Object ring = data.get("ring");
+    final Object nextZoom = data.get("nextZoom");
+    return new TilePrefetcher(
+        tileProviderController,
+        ring != null ? toInt(ring) : TilePrefetcher.DEFAULT_RING,
+        nextZoom == null || toBoolean(nextZoom));
+  }
+
+  static SnapshotEncoder.Options toSnapshotOptions(Object o) {
+    final SnapshotEncoder.Options options = new SnapshotEncoder.Options();
+    if (o == null) {
+      return options;
+    }
+    final Map<?, ?> data = toMap(o);
+    final Object scale = data.get("scale");
+    if (scale != null) {
+      options.scale = toFloat(scale);
+    }
+    final Object maxWidth = data.get("maxWidth");
+    if (maxWidth != null) {
+      options.maxWidth = toInt(maxWidth);
+    }
+    final Object maxHeight = data.get("maxHeight");
+    if (maxHeight != null) {
+      options.maxHeight = toInt(maxHeight);
+    }
+    final Object quality = data.get("quality");
+    if (quality != null) {
+      options.quality = toInt(quality);
+    }
+    final Object format = data.get("format");
+    if (format != null) {
+      switch (toString(format)) {
+        case "png":
+          options.format = Bitmap.CompressFormat.PNG;
+          break;
+        case "jpeg":
+          options.format = Bitmap.CompressFormat.JPEG;
+          break;
+        case "webp":
+          options.format = SnapshotEncoder.webpFormat(options.quality);
+          break;
+        default:
+          throw new IllegalArgumentException(
+              "Cannot interpret " + format + " as a snapshot format");
+      }
+    }
+    final Object filePath = data.get("filePath");
+    if (filePath != null) {
+      options.filePath = toString(filePath);
+    }
+    return options;
+  }
+
+  /**
+   * Reads a marker animation, either to a single {@code position} or along a {@code path} whose
+   * points may come with {@code timestamps}, in milliseconds from the start of the animation.
+   */
+  static MarkerAnimator.Animation toMarkerAnimation(Object o) {
+    final Map<?, ?> data = toMap(o);
+    final String markerId = toString(data.get("markerId"));
+    final Object position = data.get("position");
+    final List<LatLng> path;
+    if (position != null) {
+      path = new ArrayList<>(1);
+      path.add(toLatLng(position));
+    } else {
+      path = toPoints(data.get("path"));
+    }
+    long[] timestamps = null;
+    final Object rawTimestamps = data.get("timestamps");
+    if (rawTimestamps != null) {
+      final List<?> timestampList = toList(rawTimestamps);
+      timestamps = new long[timestampList.size()];
+      for (int i = 0; i < timestamps.length; i++) {
+        timestamps[i] = toLong(timestampList.get(i));
+      }
+    }
+    final Object duration = data.get("duration");
+    final Object interpolator = data.get("interpolator");
+    return new MarkerAnimator.Animation(
+        markerId,
+        path,
+        timestamps,
+        duration != null ? toLong(duration) : 0,
+        toInterpolator(interpolator != null ? toString(interpolator) : "linear"));
+  }
+
+  /**
+   * Reads the region of a marker query: {@code bounds}, a {@code center} and {@code radius} in
+   * meters, or a polygon of {@code points} with optional {@code holes}.
+   */
+  static MarkerQuery toMarkerQuery(Object o) {
+    final Map<?, ?> data = toMap(o);
+    final Object bounds = data.get("bounds");
+    if (bounds != null) {
+      return MarkerQuery.inBounds(toLatLngBounds(bounds));
+    }
+    final Object center = data.get("center");
+    if (center != null) {
+      return MarkerQuery.inRadius(toLatLng(center), toDouble(data.get("radius")));
+    }
+    final Object points = data.get("points");
+    if (points != null) {
+      final Object holes = data.get("holes");
+      return MarkerQuery.inPolygon(
+          toPoints(points),
+          holes != null ? toHoles(holes) : Collections.<List<LatLng>>emptyList());
+    }
+    throw new IllegalArgumentException("Marker queries need bounds, a center or points");
+  }
+
+  private static TimeInterpolator toInterpolator(String name) {
+    switch (name) {
+      case "linear":
+        return new LinearInterpolator();
+      case "easeIn":
+        return new AccelerateInterpolator();
+      case "easeOut":
+        return new DecelerateInterpolator();
+      case "easeInOut":
+        return new AccelerateDecelerateInterpolator();
+      default:
+        throw new IllegalArgumentException("Cannot interpret " + name + " as an interpolator");
+    }
+  }
+
+  static String interpretHeatmapOptions(Map<String, ?> data, HeatmapOptionsSink sink) {
+    final Object points = data.get("data");
+    if (points != null) {
+      sink.setData((double[]) points);
+    }
+    final Object radius = data.get("radius");
+    if (radius != null) {
+      sink.setRadius(toFloat(radius));
+    }
+    final Object gradient = data.get("gradient");
+    if (gradient != null) {
+      final Map<?, ?> gradientData = toMap(gradient);
+      final List<?> colors = toList(gradientData.get("colors"));
+      final List<?> startPoints = toList(gradientData.get("startPoints"));
+      final int[] gradientColors = new int[colors.size()];
+      for (int i = 0; i < gradientColors.length; i++) {
+        gradientColors[i] = toInt(colors.get(i));
+      }
+      final float[] gradientStartPoints = new float[startPoints.size()];
+      for (int i = 0; i < gradientStartPoints.length; i++) {
+        gradientStartPoints[i] = toFloat(startPoints.get(i));
+      }
+      sink.setGradient(gradientColors, gradientStartPoints);
+    }
+    final Object opacity = data.get("opacity");
+    if (opacity != null) {
+      sink.setOpacity(toFloat(opacity));
+    }
+    final Object maxIntensity = data.get("maxIntensity");
+    if (maxIntensity != null) {
+      sink.setMaxIntensity(toDouble(maxIntensity));
+    }
+    final Object zIndex = data.get("zIndex");
+    if (zIndex != null) {
+      sink.setZIndex(toFloat(zIndex));
+    }
+    final Object visible = data.get("visible");
+    if (visible != null) {
+      sink.setVisible(toBoolean(visible));
+    }
+    final String heatmapId = (String) data.get("heatmapId");
+    if (heatmapId == null) {
+      throw new IllegalArgumentException("heatmapId was null");
+    } else {
+      return heatmapId;
+    }
+  }
+
+  /**
+   * Reads a GeoJSON layer, loaded from either a {@code filePath} or an {@code asset}. Features are
+   * drawn with the layer {@code style}, or with the one of {@code styles} keyed by the value of
+   * their {@code styleProperty}, whose unset values default to the layer style.
+   */
+  @SuppressWarnings("deprecation")
+  static GeoJsonLayerController.Options toGeoJsonLayerOptions(Object o, float density) {
+    final Map<?, ?> data = toMap(o);
+    final Object layerId = data.get("geoJsonLayerId");
+    if (layerId == null) {
+      throw new IllegalArgumentException("geoJsonLayerId was null");
+    }
+    final GeoJsonLayerController.Options options =
+        new GeoJsonLayerController.Options(toString(layerId));
+    final Object filePath = data.get("filePath");
+    final Object asset = data.get("asset");
+    if ((filePath == null) == (asset == null)) {
+      throw new IllegalArgumentException("A GeoJSON layer needs either a filePath or an asset");
+    }
+    if (filePath != null) {
+      options.filePath = toString(filePath);
+    } else {
+      options.assetKey = FlutterMain.getLookupKeyForAsset(toString(asset));
+    }
+    // One logical pixel wide strokes unless styled otherwise.
+    options.style.strokeWidth = density;
+    options.style = toGeoJsonStyle(data.get("style"), options.style, density);
+    final Object styleProperty = data.get("styleProperty");
+    if (styleProperty != null) {
+      options.styleProperty = toString(styleProperty);
+    }
+    final Object styles = data.get("styles");
+    if (styles != null) {
+      for (Map.Entry<?, ?> entry : toMap(styles).entrySet()) {
+        options.styles.put(
+            String.valueOf(entry.getKey()),
+            toGeoJsonStyle(entry.getValue(), options.style, density));
+      }
+    }
+    final Object consumeTapEvents = data.get("consumeTapEvents");
+    if (consumeTapEvents != null) {
+      options.consumeTapEvents = toBoolean(consumeTapEvents);
+    }
+    final Object batchSize = data.get("batchSize");
+    if (batchSize != null) {
+      options.batchSize = toInt(batchSize);
+      if (options.batchSize < 1) {
+        throw new IllegalArgumentException("batchSize must be at least 1");
+      }
+    }
+    return options;
+  }
+
+  private static GeoJsonLayerController.Style toGeoJsonStyle(
+      Object o, GeoJsonLayerController.Style defaults, float density) {
+    final GeoJsonLayerController.Style style = defaults.copy();
+    if (o == null) {
+      return style;
+    }
+    final Map<?, ?> data = toMap(o);
+    final Object fillColor = data.get("fillColor");
+    if (fillColor != null) {
+      style.fillColor = toInt(fillColor);
+    }
+    final Object strokeColor = data.get("strokeColor");
+    if (strokeColor != null) {
+      style.strokeColor = toInt(strokeColor);
+    }
+    final Object strokeWidth = data.get("strokeWidth");
+    if (strokeWidth != null) {
+      style.strokeWidth = toFractionalPixels(strokeWidth, density);
+    }
+    final Object zIndex = data.get("zIndex");
+    if (zIndex != null) {
+      style.zIndex = toFloat(zIndex);
+    }
+    final Object geodesic = data.get("geodesic");
+    if (geodesic != null) {
+      style.geodesic = toBoolean(geodesic);
+    }
+    final Object visible = data.get("visible");
+    if (visible != null) {
+      style.visible = toBoolean(visible);
+    }
+    return style;
+  }
+
   static Tile interpretTile(Map<String, ?> data) {
     int width = toInt(data.get("width"));
     int height = toInt(data.get("height"));
@@ -10,30 +10,88 @@ import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.Rect;
 import android.graphics.RectF;
+import android.graphics.Typeface;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.core.content.res.ResourcesCompat;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Renders the bitmaps of price bubbles and cluster counts.
+ *
+ * <p>Paints, the bubble point and the text layout of recent labels are kept between renders, so
+ * rendering a label again only allocates its bitmap. Markers may be rendered on several threads
+ * at once.
+ */
 public class CozyMarkerBuilder {
+    private static final int MAX_CACHED_LAYOUTS = 512;
+
+    private final int markerSize;
     private final int bubblePointSize;
+    private final int borderRadius;
     private final Bitmap defaultClusterMarker;
     private final Paint clusterTextPaint;
     private final Paint bubbleTextPaint;
+    private final Paint shadowPaint = getShadowPaint();
+    private final Paint backgroundPaint = getBackgroundColor();
+    // Drawn translated under every bubble, the middle of its base is at the origin.
+    private final Path bubblePoint;
+    private final Map<String, TextLayout> clusterLayouts = createLayoutCache();
+    private final Map<String, TextLayout> bubbleLayouts = createLayoutCache();
+    // Every render thread reuses its canvas, pointed at the bitmap being rendered.
+    private final ThreadLocal<Canvas> canvases =
+            new ThreadLocal<Canvas>() {
+                @Override
+                protected Canvas initialValue() {
+                    return new Canvas();
+                }
+            };
+
+    /** Where the text of a label goes, and the size of its bubble. */
+    private static final class TextLayout {
+        final int width;
+        final int height;
+        @Nullable final RectF bubble;
+        final float dx;
+        final float dy;
+
+        TextLayout(int width, int height, @Nullable RectF bubble, float dx, float dy) {
+            this.width = width;
+            this.height = height;
+            this.bubble = bubble;
+            this.dx = dx;
+            this.dy = dy;
+        }
+    }
 
     CozyMarkerBuilder(Context context) {
-        int size = getMarkerSize();
+        this(
+                calculateMarkerSize(),
+                ResourcesCompat.getFont(context, R.font.oatmealpro2_semibold));
+    }
+
+    @VisibleForTesting
+    CozyMarkerBuilder(int size, @Nullable Typeface typeface) {
+        this.markerSize = size;
         this.bubblePointSize = size / 6;
+        double density = Resources.getSystem().getDisplayMetrics().density;
+        this.borderRadius = (int) (5 * density);
         defaultClusterMarker = getClusterBitmap(size);
-        clusterTextPaint = setTextPaint(size / 2.9f, context);
+        clusterTextPaint = setTextPaint(size / 2.9f, typeface);
         int bubbleFontSize = (int) (size / 3.4);
-        bubbleTextPaint = setTextPaint(bubbleFontSize, context);
+        bubbleTextPaint = setTextPaint(bubbleFontSize, typeface);
+        bubblePoint = getBubblePoint(bubblePointSize);
     }
 
     @NonNull
-    private static Paint setTextPaint(float size, Context context) {
+    private static Paint setTextPaint(float size, @Nullable Typeface typeface) {
         Paint paint = new Paint();
         paint.setColor(Color.BLACK);
-        paint.setTypeface(ResourcesCompat.getFont(context, R.font.oatmealpro2_semibold));
+        paint.setTypeface(typeface);
         paint.setTextSize(size);
         paint.setAntiAlias(true);
         paint.setTextAlign(Paint.Align.LEFT);
@@ -60,7 +118,16 @@ public class CozyMarkerBuilder {
         return paint;
     }
 
-    private static int getMarkerSize() {
+    private static Map<String, TextLayout> createLayoutCache() {
+        return new LinkedHashMap<String, TextLayout>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TextLayout> eldest) {
+                return size() > MAX_CACHED_LAYOUTS;
+            }
+        };
+    }
+
+    private static int calculateMarkerSize() {
         int baseScreenHeight = 2467;
         int baseMarkerSize = 167;
         int maxMarkerSize = 172;
@@ -79,63 +146,100 @@ public class CozyMarkerBuilder {
         }
     }
 
-    private static Bitmap getClusterBitmap(int size) {
+    private Bitmap getClusterBitmap(int size) {
         Bitmap marker = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
         Canvas canvas = new Canvas(marker);
-        canvas.drawCircle(size / 2f, size / 2f, size / 2.2f, getShadowPaint());
-        canvas.drawCircle(size / 2f, size / 2f, size / 2.2f, getBackgroundColor());
+        canvas.drawCircle(size / 2f, size / 2f, size / 2.2f, shadowPaint);
+        canvas.drawCircle(size / 2f, size / 2f, size / 2.2f, backgroundPaint);
         return marker;
     }
 
-    private Bitmap addClusterMarkerText(String text) {
-        Bitmap marker = Bitmap.createBitmap(this.defaultClusterMarker);
-        Rect clusterRect = new Rect();
-        clusterTextPaint.getTextBounds(text, 0, text.length(), clusterRect);
-        float dx = (marker.getWidth() / 2f) - (clusterRect.width() / 2f) - clusterRect.left;
-        float dy = (marker.getHeight() / 2f) + (clusterRect.height() / 2f) - clusterRect.bottom;
-        new Canvas(marker).drawText(text, dx, dy, clusterTextPaint);
-        return marker;
-    }
-
-    private Path getBubblePoint(Bitmap marker) {
+    private static Path getBubblePoint(int bubblePointSize) {
         Path pointer = new Path();
         pointer.setFillType(Path.FillType.EVEN_ODD);
-        float width = marker.getWidth();
-        float height = marker.getHeight() - bubblePointSize;
-        pointer.moveTo(width / 2f - bubblePointSize, height);
-        pointer.lineTo(width / 2f + bubblePointSize, height);
-        pointer.lineTo(width / 2f, height + bubblePointSize);
-        pointer.lineTo(width / 2f - bubblePointSize, height);
+        pointer.moveTo(-bubblePointSize, 0);
+        pointer.lineTo(bubblePointSize, 0);
+        pointer.lineTo(0, bubblePointSize);
+        pointer.lineTo(-bubblePointSize, 0);
         pointer.close();
         return pointer;
     }
 
-    private Bitmap addBubbleMarkerText(String text) {
+    private TextLayout getClusterLayout(String text) {
+        synchronized (clusterLayouts) {
+            TextLayout layout = clusterLayouts.get(text);
+            if (layout != null) {
+                return layout;
+            }
+        }
+        Rect clusterRect = new Rect();
+        clusterTextPaint.getTextBounds(text, 0, text.length(), clusterRect);
+        float dx = (markerSize / 2f) - (clusterRect.width() / 2f) - clusterRect.left;
+        float dy = (markerSize / 2f) + (clusterRect.height() / 2f) - clusterRect.bottom;
+        TextLayout layout = new TextLayout(markerSize, markerSize, null, dx, dy);
+        synchronized (clusterLayouts) {
+            clusterLayouts.put(text, layout);
+        }
+        return layout;
+    }
+
+    private TextLayout getBubbleLayout(String text) {
+        synchronized (bubbleLayouts) {
+            TextLayout layout = bubbleLayouts.get(text);
+            if (layout != null) {
+                return layout;
+            }
+        }
         Rect rect = new Rect();
         bubbleTextPaint.getTextBounds(text, 0, text.length(), rect);
 
         int padding = this.bubblePointSize * 2;
         int width = rect.width() + padding;
-
         RectF bubble = new RectF(0, 0, width, rect.height() + padding);
-
         int height = rect.height() + padding + bubblePointSize;
-        Bitmap marker = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(marker);
-
-        double density = Resources.getSystem().getDisplayMetrics().density;
-        int borderRadius = (int) (5 * density);
-        canvas.drawRoundRect(bubble, borderRadius, borderRadius, getShadowPaint());
-        canvas.drawRoundRect(bubble, borderRadius, borderRadius, getBackgroundColor());
-        canvas.drawPath(getBubblePoint(marker), getBackgroundColor());
 
         float dx = (width / 2f) - (rect.width() / 2f) - rect.left;
         float dy = ((rect.height() + padding) / 2f) + (rect.height() / 2f) - rect.bottom;
+        TextLayout layout = new TextLayout(width, height, bubble, dx, dy);
+        synchronized (bubbleLayouts) {
+            bubbleLayouts.put(text, layout);
+        }
+        return layout;
+    }
 
-        canvas.drawText(text, dx, dy, bubbleTextPaint);
+    private Bitmap addClusterMarkerText(String text) {
+        TextLayout layout = getClusterLayout(text);
+        Bitmap marker = defaultClusterMarker.copy(Bitmap.Config.ARGB_8888, true);
+        Canvas canvas = canvases.get();
+        canvas.setBitmap(marker);
+        canvas.drawText(text, layout.dx, layout.dy, clusterTextPaint);
+        canvas.setBitmap(null);
         return marker;
     }
 
+    private Bitmap addBubbleMarkerText(String text) {
+        TextLayout layout = getBubbleLayout(text);
+        Bitmap marker = Bitmap.createBitmap(layout.width, layout.height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = canvases.get();
+        canvas.setBitmap(marker);
+
+        canvas.drawRoundRect(layout.bubble, borderRadius, borderRadius, shadowPaint);
+        canvas.drawRoundRect(layout.bubble, borderRadius, borderRadius, backgroundPaint);
+        canvas.save();
+        canvas.translate(layout.width / 2f, layout.height - bubblePointSize);
+        canvas.drawPath(bubblePoint, backgroundPaint);
+        canvas.restore();
+
+        canvas.drawText(text, layout.dx, layout.dy, bubbleTextPaint);
+        canvas.setBitmap(null);
+        return marker;
+    }
+
+    /** Returns the base marker size in pixels, which every rendered bubble depends on. */
+    public int getMarkerSize() {
+        return markerSize;
+    }
+
     public Bitmap buildMarker(String type, String text) {
         switch (type) {
             case "count":
@@ -147,4 +251,4 @@ public class CozyMarkerBuilder {
         }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,335 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.graphics.Color;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Polygon;
+import com.google.android.gms.maps.model.PolygonOptions;
+import com.google.android.gms.maps.model.Polyline;
+import com.google.android.gms.maps.model.PolylineOptions;
+import io.flutter.plugin.common.MethodChannel;
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Controller of a GeoJSON layer, whose features are drawn as polygons and polylines.
+ *
+ * <p>The document is parsed by {@link GeoJsonParser} on a shared background thread, where the
+ * options of every feature are built with its style. Features are added to the map on the main
+ * thread in batches of {@link Options#batchSize}, with at most {@link #MAX_PENDING_BATCHES} of
+ * them waiting so that parsing never runs far ahead of the map. Taps on features are reported
+ * with their properties when {@link Options#consumeTapEvents} is set.
+ */
+final class GeoJsonLayerController {
+
+  static final int DEFAULT_BATCH_SIZE = 100;
+  private static final int MAX_PENDING_BATCHES = 2;
+
+  /** How the polygons and polylines of a feature are drawn, line colors are stroke colors. */
+  static final class Style {
+    int fillColor = Color.TRANSPARENT;
+    int strokeColor = Color.BLACK;
+    float strokeWidth = 1;
+    float zIndex = 0;
+    boolean geodesic = false;
+    boolean visible = true;
+
+    Style copy() {
+      final Style style = new Style();
+      style.fillColor = fillColor;
+      style.strokeColor = strokeColor;
+      style.strokeWidth = strokeWidth;
+      style.zIndex = zIndex;
+      style.geodesic = geodesic;
+      style.visible = visible;
+      return style;
+    }
+  }
+
+  /** Where a layer is loaded from and how its features are drawn. */
+  static final class Options {
+    final String layerId;
+    @Nullable String filePath;
+    /** Lookup key of a Flutter asset, used when there is no {@link #filePath}. */
+    @Nullable String assetKey;
+    Style style = new Style();
+    /** Property whose value, compared as a string, picks the style of a feature in styles. */
+    @Nullable String styleProperty;
+    final Map<String, Style> styles = new HashMap<>();
+    boolean consumeTapEvents = false;
+    int batchSize = DEFAULT_BATCH_SIZE;
+
+    Options(String layerId) {
+      this.layerId = layerId;
+    }
+
+    Style getStyle(Map<String, Object> properties) {
+      if (styleProperty == null) {
+        return style;
+      }
+      final Object value = properties.get(styleProperty);
+      final Style propertyStyle = value != null ? styles.get(String.valueOf(value)) : null;
+      return propertyStyle != null ? propertyStyle : style;
+    }
+  }
+
+  /** The map objects of a feature, built off the main thread. */
+  private static final class Shapes {
+    final List<PolygonOptions> polygons = new ArrayList<>();
+    final List<PolylineOptions> polylines = new ArrayList<>();
+    int skippedGeometryCount;
+    // Arguments of geoJsonLayer#onFeatureTap, only kept when taps are reported.
+    @Nullable Map<String, Object> tapArguments;
+  }
+
+  private static ExecutorService sharedExecutor;
+
+  private final Options options;
+  private final GoogleMap googleMap;
+  private final MethodChannel methodChannel;
+  private final Executor executor;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Semaphore pendingBatches = new Semaphore(MAX_PENDING_BATCHES);
+  private final AtomicBoolean removed = new AtomicBoolean();
+  private final List<Polygon> polygons = new ArrayList<>();
+  private final List<Polyline> polylines = new ArrayList<>();
+  private final Map<String, Map<String, Object>> googleMapsIdToTapArguments = new HashMap<>();
+  private String state = "loading";
+  private int featureCount;
+  private int skippedGeometryCount;
+  private int batchCount;
+  private long loadMillis;
+
+  GeoJsonLayerController(Options options, GoogleMap googleMap, MethodChannel methodChannel) {
+    this(options, googleMap, methodChannel, getSharedExecutor());
+  }
+
+  @VisibleForTesting
+  GeoJsonLayerController(
+      Options options, GoogleMap googleMap, MethodChannel methodChannel, Executor executor) {
+    this.options = options;
+    this.googleMap = googleMap;
+    this.methodChannel = methodChannel;
+    this.executor = executor;
+  }
+
+  private static synchronized ExecutorService getSharedExecutor() {
+    if (sharedExecutor == null) {
+      sharedExecutor =
+          Executors.newSingleThreadExecutor(
+              runnable -> {
+                final Thread thread =
+                    new Thread(
+                        () -> {
+                          Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                          runnable.run();
+                        },
+                        "GeoJsonLoader");
+                thread.setDaemon(true);
+                return thread;
+              });
+    }
+    return sharedExecutor;
+  }
+
+  /**
+   * Parses the document of {@code source} in the background and adds its features to the map.
+   * Sends {@code geoJsonLayer#onLoaded} once every feature is added, or {@code
+   * geoJsonLayer#onError} if the document can't be read, keeping the features added before.
+   */
+  void load(Callable<InputStream> source) {
+    final long startMillis = SystemClock.elapsedRealtime();
+    executor.execute(() -> loadInBackground(source, startMillis));
+  }
+
+  /** Removes every feature from the map and stops loading the ones left. */
+  void remove() {
+    removed.set(true);
+    for (Polygon polygon : polygons) {
+      polygon.remove();
+    }
+    for (Polyline polyline : polylines) {
+      polyline.remove();
+    }
+    polygons.clear();
+    polylines.clear();
+    googleMapsIdToTapArguments.clear();
+  }
+
+  /** Reports a tap on the polygon or polyline {@code googleMapsId}, if it is one of this layer. */
+  boolean onFeatureTap(String googleMapsId) {
+    final Map<String, Object> tapArguments = googleMapsIdToTapArguments.get(googleMapsId);
+    if (tapArguments == null) {
+      return false;
+    }
+    methodChannel.invokeMethod("geoJsonLayer#onFeatureTap", tapArguments);
+    return true;
+  }
+
+  Map<String, Object> getStats() {
+    final Map<String, Object> stats = new HashMap<>(7);
+    stats.put("state", state);
+    stats.put("featureCount", featureCount);
+    stats.put("polygonCount", polygons.size());
+    stats.put("polylineCount", polylines.size());
+    stats.put("skippedGeometryCount", skippedGeometryCount);
+    stats.put("batchCount", batchCount);
+    stats.put("loadMillis", loadMillis);
+    return stats;
+  }
+
+  private void loadInBackground(Callable<InputStream> source, long startMillis) {
+    final List<Shapes> batch = new ArrayList<>(options.batchSize);
+    try (Reader reader =
+        new BufferedReader(new InputStreamReader(source.call(), StandardCharsets.UTF_8))) {
+      GeoJsonParser.parse(
+          reader,
+          feature -> {
+            batch.add(toShapes(feature));
+            if (batch.size() >= options.batchSize) {
+              flush(batch);
+            }
+            return !removed.get();
+          });
+      flush(batch);
+      handler.post(() -> onLoaded(startMillis));
+    } catch (Exception e) {
+      handler.post(() -> onError(e));
+    }
+  }
+
+  /** Hands {@code batch} over to the main thread, waiting while too many batches are pending. */
+  private void flush(List<Shapes> batch) {
+    if (batch.isEmpty() || removed.get()) {
+      return;
+    }
+    pendingBatches.acquireUninterruptibly();
+    final List<Shapes> shapes = new ArrayList<>(batch);
+    batch.clear();
+    handler.post(
+        () -> {
+          pendingBatches.release();
+          if (!removed.get()) {
+            addShapes(shapes);
+          }
+        });
+  }
+
+  private Shapes toShapes(GeoJsonParser.Feature feature) {
+    final Style style = options.getStyle(feature.properties);
+    final Shapes shapes = new Shapes();
+    for (List<List<LatLng>> rings : feature.polygons) {
+      if (rings.isEmpty() || rings.get(0).isEmpty()) {
+        continue;
+      }
+      final PolygonOptions polygonOptions =
+          new PolygonOptions()
+              .addAll(rings.get(0))
+              .fillColor(style.fillColor)
+              .strokeColor(style.strokeColor)
+              .strokeWidth(style.strokeWidth)
+              .zIndex(style.zIndex)
+              .geodesic(style.geodesic)
+              .visible(style.visible)
+              .clickable(options.consumeTapEvents);
+      for (int i = 1; i < rings.size(); i++) {
+        polygonOptions.addHole(rings.get(i));
+      }
+      shapes.polygons.add(polygonOptions);
+    }
+    for (List<LatLng> line : feature.lines) {
+      if (line.isEmpty()) {
+        continue;
+      }
+      shapes.polylines.add(
+          new PolylineOptions()
+              .addAll(line)
+              .color(style.strokeColor)
+              .width(style.strokeWidth)
+              .zIndex(style.zIndex)
+              .geodesic(style.geodesic)
+              .visible(style.visible)
+              .clickable(options.consumeTapEvents));
+    }
+    shapes.skippedGeometryCount = feature.skippedGeometryCount;
+    if (options.consumeTapEvents) {
+      final Map<String, Object> tapArguments = new HashMap<>(4);
+      tapArguments.put("geoJsonLayerId", options.layerId);
+      tapArguments.put("featureIndex", feature.index);
+      tapArguments.put("featureId", feature.id);
+      tapArguments.put("properties", feature.properties);
+      shapes.tapArguments = tapArguments;
+    }
+    return shapes;
+  }
+
+  private void addShapes(List<Shapes> batch) {
+    batchCount++;
+    for (Shapes shapes : batch) {
+      featureCount++;
+      skippedGeometryCount += shapes.skippedGeometryCount;
+      for (PolygonOptions polygonOptions : shapes.polygons) {
+        final Polygon polygon = googleMap.addPolygon(polygonOptions);
+        polygons.add(polygon);
+        if (shapes.tapArguments != null) {
+          googleMapsIdToTapArguments.put(polygon.getId(), shapes.tapArguments);
+        }
+      }
+      for (PolylineOptions polylineOptions : shapes.polylines) {
+        final Polyline polyline = googleMap.addPolyline(polylineOptions);
+        polylines.add(polyline);
+        if (shapes.tapArguments != null) {
+          googleMapsIdToTapArguments.put(polyline.getId(), shapes.tapArguments);
+        }
+      }
+    }
+  }
+
+  private void onLoaded(long startMillis) {
+    if (removed.get()) {
+      return;
+    }
+    state = "loaded";
+    loadMillis = SystemClock.elapsedRealtime() - startMillis;
+    final Map<String, Object> arguments = new HashMap<>(4);
+    arguments.put("geoJsonLayerId", options.layerId);
+    arguments.put("featureCount", featureCount);
+    arguments.put("polygonCount", polygons.size());
+    arguments.put("polylineCount", polylines.size());
+    methodChannel.invokeMethod("geoJsonLayer#onLoaded", arguments);
+  }
+
+  private void onError(Exception e) {
+    if (removed.get()) {
+      return;
+    }
+    state = "failed";
+    final Map<String, Object> arguments = new HashMap<>(2);
+    arguments.put("geoJsonLayerId", options.layerId);
+    arguments.put("error", String.valueOf(e.getMessage()));
+    methodChannel.invokeMethod("geoJsonLayer#onError", arguments);
+  }
+}
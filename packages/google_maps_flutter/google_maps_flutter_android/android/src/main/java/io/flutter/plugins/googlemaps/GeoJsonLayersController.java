@@ -0,0 +1,105 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.content.Context;
+import com.google.android.gms.maps.GoogleMap;
+import io.flutter.plugin.common.MethodChannel;
+import java.io.FileInputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class GeoJsonLayersController {
+
+  private final Map<String, GeoJsonLayerController> layerIdToController;
+  private final MethodChannel methodChannel;
+  private final Context context;
+  private final float density;
+  private GoogleMap googleMap;
+
+  GeoJsonLayersController(MethodChannel methodChannel, Context context, float density) {
+    this.layerIdToController = new HashMap<>();
+    this.methodChannel = methodChannel;
+    this.context = context;
+    this.density = density;
+  }
+
+  void setGoogleMap(GoogleMap googleMap) {
+    this.googleMap = googleMap;
+  }
+
+  /** Adds and starts loading layers, a layer with the id of an existing one replaces it. */
+  void addGeoJsonLayers(List<Object> layersToAdd) {
+    if (layersToAdd == null) {
+      return;
+    }
+    for (Object layerToAdd : layersToAdd) {
+      addGeoJsonLayer(layerToAdd);
+    }
+  }
+
+  void removeGeoJsonLayers(List<Object> layerIdsToRemove) {
+    if (layerIdsToRemove == null) {
+      return;
+    }
+    for (Object rawLayerId : layerIdsToRemove) {
+      if (rawLayerId == null) {
+        continue;
+      }
+      final GeoJsonLayerController layerController = layerIdToController.remove(rawLayerId);
+      if (layerController != null) {
+        layerController.remove();
+      }
+    }
+  }
+
+  boolean onFeatureTap(String googleMapsId) {
+    for (GeoJsonLayerController layerController : layerIdToController.values()) {
+      if (layerController.onFeatureTap(googleMapsId)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  Map<String, Object> getStats(String layerId) {
+    if (layerId == null) {
+      return null;
+    }
+    final GeoJsonLayerController layerController = layerIdToController.get(layerId);
+    if (layerController == null) {
+      return null;
+    }
+    return layerController.getStats();
+  }
+
+  /** Stops loading every layer, the map is going away with their features. */
+  void dispose() {
+    for (GeoJsonLayerController layerController : layerIdToController.values()) {
+      layerController.remove();
+    }
+    layerIdToController.clear();
+  }
+
+  private void addGeoJsonLayer(Object layer) {
+    if (layer == null) {
+      return;
+    }
+    final GeoJsonLayerController.Options options = Convert.toGeoJsonLayerOptions(layer, density);
+    final GeoJsonLayerController previous = layerIdToController.remove(options.layerId);
+    if (previous != null) {
+      previous.remove();
+    }
+    final GeoJsonLayerController layerController =
+        new GeoJsonLayerController(options, googleMap, methodChannel);
+    layerIdToController.put(options.layerId, layerController);
+    layerController.load(
+        () ->
+            options.filePath != null
+                ? new FileInputStream(options.filePath)
+                : context.getAssets().open(options.assetKey));
+  }
+}
@@ -0,0 +1,312 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+import androidx.annotation.Nullable;
+import com.google.android.gms.maps.model.LatLng;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming parser of GeoJSON documents.
+ *
+ * <p>The document is pulled token by token with a {@link JsonReader} and every feature is handed
+ * to the {@link Listener} as soon as it is read, so only the feature being parsed is held in
+ * memory however large the document is. Feature collections, single features and bare geometries
+ * are accepted. Polygons and line strings are kept, of any multi or collection geometry, points
+ * are counted as skipped.
+ */
+final class GeoJsonParser {
+
+  /** A parsed feature, with its polygons and lines in map coordinates. */
+  static final class Feature {
+    final int index;
+    @Nullable Object id;
+    Map<String, Object> properties = Collections.emptyMap();
+    /** Every polygon as its outline followed by its holes. */
+    final List<List<List<LatLng>>> polygons = new ArrayList<>();
+    final List<List<LatLng>> lines = new ArrayList<>();
+    int skippedGeometryCount;
+
+    Feature(int index) {
+      this.index = index;
+    }
+  }
+
+  interface Listener {
+    /** Receives the next feature, returns false to stop parsing. */
+    boolean onFeature(Feature feature);
+  }
+
+  private GeoJsonParser() {}
+
+  /**
+   * Parses the GeoJSON document of {@code reader}, passing every feature to {@code listener} in
+   * document order. Returns the number of features read.
+   *
+   * @throws IOException when the document can't be read or isn't valid GeoJSON.
+   */
+  static int parse(Reader reader, Listener listener) throws IOException {
+    final JsonReader json = new JsonReader(reader);
+    try {
+      return parseDocument(json, listener);
+    } catch (IllegalStateException | IllegalArgumentException e) {
+      throw new IOException("Invalid GeoJSON: " + e.getMessage(), e);
+    }
+  }
+
+  private static int parseDocument(JsonReader json, Listener listener) throws IOException {
+    // The document itself is read as a feature, unless it holds a feature collection.
+    final Feature document = new Feature(0);
+    final GeometryReader geometry = new GeometryReader();
+    int featureCount = 0;
+    boolean collection = false;
+    json.beginObject();
+    while (json.hasNext()) {
+      final String name = json.nextName();
+      switch (name) {
+        case "features":
+          collection = true;
+          json.beginArray();
+          while (json.hasNext()) {
+            final Feature feature = readFeature(json, featureCount++);
+            if (!listener.onFeature(feature)) {
+              return featureCount;
+            }
+          }
+          json.endArray();
+          break;
+        case "geometry":
+          readGeometry(json, document);
+          break;
+        case "properties":
+          document.properties = readProperties(json);
+          break;
+        case "id":
+          document.id = readValue(json);
+          break;
+        default:
+          geometry.readMember(json, name);
+      }
+    }
+    json.endObject();
+    if (collection) {
+      return featureCount;
+    }
+    if (!"Feature".equals(geometry.type)) {
+      geometry.addTo(document);
+    }
+    listener.onFeature(document);
+    return 1;
+  }
+
+  private static Feature readFeature(JsonReader json, int index) throws IOException {
+    final Feature feature = new Feature(index);
+    json.beginObject();
+    while (json.hasNext()) {
+      switch (json.nextName()) {
+        case "geometry":
+          readGeometry(json, feature);
+          break;
+        case "properties":
+          feature.properties = readProperties(json);
+          break;
+        case "id":
+          feature.id = readValue(json);
+          break;
+        default:
+          json.skipValue();
+      }
+    }
+    json.endObject();
+    return feature;
+  }
+
+  private static void readGeometry(JsonReader json, Feature feature) throws IOException {
+    if (json.peek() == JsonToken.NULL) {
+      json.nextNull();
+      return;
+    }
+    final GeometryReader geometry = new GeometryReader();
+    json.beginObject();
+    while (json.hasNext()) {
+      geometry.readMember(json, json.nextName());
+    }
+    json.endObject();
+    geometry.addTo(feature);
+  }
+
+  /**
+   * Collects the members of a geometry object, which may come in any order: the coordinates can't
+   * be interpreted until the type is known, so they are read as nested lists of positions first.
+   */
+  private static final class GeometryReader {
+    @Nullable String type;
+    @Nullable Object coordinates;
+    @Nullable List<Feature> geometries;
+
+    void readMember(JsonReader json, String name) throws IOException {
+      switch (name) {
+        case "type":
+          type = json.nextString();
+          break;
+        case "coordinates":
+          coordinates = readCoordinates(json);
+          break;
+        case "geometries":
+          geometries = new ArrayList<>();
+          json.beginArray();
+          while (json.hasNext()) {
+            final Feature geometry = new Feature(0);
+            readGeometry(json, geometry);
+            geometries.add(geometry);
+          }
+          json.endArray();
+          break;
+        default:
+          json.skipValue();
+      }
+    }
+
+    void addTo(Feature feature) {
+      if (type == null) {
+        return;
+      }
+      switch (type) {
+        case "Polygon":
+          feature.polygons.add(toPaths(coordinates));
+          break;
+        case "MultiPolygon":
+          for (Object polygon : toList(coordinates)) {
+            feature.polygons.add(toPaths(polygon));
+          }
+          break;
+        case "LineString":
+          feature.lines.add(toPath(coordinates));
+          break;
+        case "MultiLineString":
+          feature.lines.addAll(toPaths(coordinates));
+          break;
+        case "GeometryCollection":
+          if (geometries != null) {
+            for (Feature geometry : geometries) {
+              feature.polygons.addAll(geometry.polygons);
+              feature.lines.addAll(geometry.lines);
+              feature.skippedGeometryCount += geometry.skippedGeometryCount;
+            }
+          }
+          break;
+        case "Point":
+        case "MultiPoint":
+          feature.skippedGeometryCount++;
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown geometry type " + type);
+      }
+    }
+  }
+
+  private static List<?> toList(@Nullable Object coordinates) {
+    if (!(coordinates instanceof List)) {
+      throw new IllegalArgumentException("Expected an array of positions");
+    }
+    return (List<?>) coordinates;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<LatLng> toPath(@Nullable Object coordinates) {
+    for (Object position : toList(coordinates)) {
+      if (!(position instanceof LatLng)) {
+        throw new IllegalArgumentException("Expected a position");
+      }
+    }
+    return (List<LatLng>) coordinates;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<List<LatLng>> toPaths(@Nullable Object coordinates) {
+    for (Object path : toList(coordinates)) {
+      toPath(path);
+    }
+    return (List<List<LatLng>>) coordinates;
+  }
+
+  /** Reads a position as a {@link LatLng}, or nested arrays of positions as lists. */
+  private static Object readCoordinates(JsonReader json) throws IOException {
+    json.beginArray();
+    if (json.peek() == JsonToken.NUMBER) {
+      final double longitude = json.nextDouble();
+      final double latitude = json.nextDouble();
+      // Altitude and any other extra value.
+      while (json.hasNext()) {
+        json.skipValue();
+      }
+      json.endArray();
+      return new LatLng(latitude, longitude);
+    }
+    final List<Object> children = new ArrayList<>();
+    while (json.hasNext()) {
+      children.add(readCoordinates(json));
+    }
+    json.endArray();
+    return children;
+  }
+
+  private static Map<String, Object> readProperties(JsonReader json) throws IOException {
+    if (json.peek() == JsonToken.NULL) {
+      json.nextNull();
+      return Collections.emptyMap();
+    }
+    return readObject(json);
+  }
+
+  private static Map<String, Object> readObject(JsonReader json) throws IOException {
+    final Map<String, Object> object = new HashMap<>();
+    json.beginObject();
+    while (json.hasNext()) {
+      object.put(json.nextName(), readValue(json));
+    }
+    json.endObject();
+    return object;
+  }
+
+  /** Reads any JSON value as a value the standard message codec can send back to Dart. */
+  @Nullable
+  private static Object readValue(JsonReader json) throws IOException {
+    switch (json.peek()) {
+      case BEGIN_OBJECT:
+        return readObject(json);
+      case BEGIN_ARRAY:
+        final List<Object> array = new ArrayList<>();
+        json.beginArray();
+        while (json.hasNext()) {
+          array.add(readValue(json));
+        }
+        json.endArray();
+        return array;
+      case BOOLEAN:
+        return json.nextBoolean();
+      case NULL:
+        json.nextNull();
+        return null;
+      case NUMBER:
+        final String number = json.nextString();
+        try {
+          return Long.parseLong(number);
+        } catch (NumberFormatException e) {
+          return Double.parseDouble(number);
+        }
+      default:
+        return json.nextString();
+    }
+  }
+}
@@ -6,6 +6,7 @@ package io.flutter.plugins.googlemaps;
 
 import android.content.Context;
 import android.graphics.Rect;
+import androidx.annotation.Nullable;
 import com.google.android.gms.maps.GoogleMapOptions;
 import com.google.android.gms.maps.model.CameraPosition;
 import com.google.android.gms.maps.model.LatLngBounds;
@@ -21,6 +22,21 @@ class GoogleMapBuilder implements GoogleMapOptionsSink {
   private boolean indoorEnabled = true;
   private boolean trafficEnabled = false;
   private boolean buildingsEnabled = true;
+  private MarkerClusterer markerClusterer;
+  private boolean markerCullingEnabled = false;
+  private float markerCullingMargin = MarkersController.DEFAULT_CULLING_MARGIN;
+  private boolean backgroundIconRenderingEnabled = false;
+  private float geometrySimplificationTolerance = 0;
+  private boolean cameraMoveCoalescingEnabled = false;
+  private long cameraMoveIntervalMillis = 0;
+  private float cameraMoveMinTargetDeltaPixels =
+      CameraMoveCoalescer.DEFAULT_MIN_TARGET_DELTA_PIXELS;
+  private float cameraMoveMinZoomDelta = CameraMoveCoalescer.DEFAULT_MIN_ZOOM_DELTA;
+  private boolean performanceMetricsEnabled = false;
+  private long performanceReportIntervalMillis = 0;
+  private boolean visibleMarkersEventsEnabled = false;
+  private long visibleMarkersDebounceMillis =
+      MarkersController.DEFAULT_VISIBLE_MARKERS_DEBOUNCE_MILLIS;
   private Object initialMarkers;
   private Object initialPolygons;
   private Object initialPolylines;
@@ -32,9 +48,11 @@ class GoogleMapBuilder implements GoogleMapOptionsSink {
       int id,
       Context context,
       BinaryMessenger binaryMessenger,
-      LifecycleProvider lifecycleProvider) {
+      LifecycleProvider lifecycleProvider,
+      @Nullable MapViewPool mapViewPool) {
     final GoogleMapController controller =
-        new GoogleMapController(id, context, binaryMessenger, lifecycleProvider, options);
+        new GoogleMapController(
+            id, context, binaryMessenger, lifecycleProvider, options, mapViewPool);
     controller.init();
     controller.setMyLocationEnabled(myLocationEnabled);
     controller.setMyLocationButtonEnabled(myLocationButtonEnabled);
@@ -42,6 +60,18 @@ class GoogleMapBuilder implements GoogleMapOptionsSink {
     controller.setTrafficEnabled(trafficEnabled);
     controller.setBuildingsEnabled(buildingsEnabled);
     controller.setTrackCameraPosition(trackCameraPosition);
+    controller.setMarkerClusterer(markerClusterer);
+    controller.setMarkerCulling(markerCullingEnabled, markerCullingMargin);
+    controller.setBackgroundIconRenderingEnabled(backgroundIconRenderingEnabled);
+    controller.setGeometrySimplification(
+        geometrySimplificationTolerance > 0, geometrySimplificationTolerance);
+    controller.setCameraMoveCoalescing(
+        cameraMoveCoalescingEnabled,
+        cameraMoveIntervalMillis,
+        cameraMoveMinTargetDeltaPixels,
+        cameraMoveMinZoomDelta);
+    controller.setPerformanceMetrics(performanceMetricsEnabled, performanceReportIntervalMillis);
+    controller.setVisibleMarkersEvents(visibleMarkersEventsEnabled, visibleMarkersDebounceMillis);
     controller.setInitialMarkers(initialMarkers);
     controller.setInitialPolygons(initialPolygons);
     controller.setInitialPolylines(initialPolylines);
@@ -51,6 +81,10 @@ class GoogleMapBuilder implements GoogleMapOptionsSink {
     return controller;
   }
 
+  GoogleMapOptions getGoogleMapOptions() {
+    return options;
+  }
+
   void setInitialCameraPosition(CameraPosition position) {
     options.camera(position);
   }
@@ -150,6 +184,48 @@ class GoogleMapBuilder implements GoogleMapOptionsSink {
     this.myLocationButtonEnabled = myLocationButtonEnabled;
   }
 
+  @Override
+  public void setMarkerClusterer(MarkerClusterer markerClusterer) {
+    this.markerClusterer = markerClusterer;
+  }
+
+  @Override
+  public void setMarkerCulling(boolean markerCullingEnabled, float markerCullingMargin) {
+    this.markerCullingEnabled = markerCullingEnabled;
+    this.markerCullingMargin = markerCullingMargin;
+  }
+
+  @Override
+  public void setBackgroundIconRenderingEnabled(boolean backgroundIconRenderingEnabled) {
+    this.backgroundIconRenderingEnabled = backgroundIconRenderingEnabled;
+  }
+
+  @Override
+  public void setGeometrySimplification(boolean enabled, float tolerancePixels) {
+    this.geometrySimplificationTolerance = enabled ? tolerancePixels : 0;
+  }
+
+  @Override
+  public void setCameraMoveCoalescing(
+      boolean enabled, long intervalMillis, float minTargetDeltaPixels, float minZoomDelta) {
+    this.cameraMoveCoalescingEnabled = enabled;
+    this.cameraMoveIntervalMillis = intervalMillis;
+    this.cameraMoveMinTargetDeltaPixels = minTargetDeltaPixels;
+    this.cameraMoveMinZoomDelta = minZoomDelta;
+  }
+
+  @Override
+  public void setPerformanceMetrics(boolean enabled, long reportIntervalMillis) {
+    this.performanceMetricsEnabled = enabled;
+    this.performanceReportIntervalMillis = reportIntervalMillis;
+  }
+
+  @Override
+  public void setVisibleMarkersEvents(boolean enabled, long debounceMillis) {
+    this.visibleMarkersEventsEnabled = enabled;
+    this.visibleMarkersDebounceMillis = debounceMillis;
+  }
+
   @Override
   public void setInitialMarkers(Object initialMarkers) {
     this.initialMarkers = initialMarkers;
@@ -61,6 +61,9 @@ final class GoogleMapController
   private final MethodChannel methodChannel;
   private final GoogleMapOptions options;
   @Nullable private MapView mapView;
+  @Nullable private final MapViewPool mapViewPool;
+  // Whether mapView was borrowed from mapViewPool, and so was already created.
+  private final boolean mapViewBorrowed;
   @Nullable private GoogleMap googleMap;
   private boolean trackCameraPosition = false;
   private boolean myLocationEnabled = false;
@@ -79,6 +82,11 @@ final class GoogleMapController
   private final PolylinesController polylinesController;
   private final CirclesController circlesController;
   private final TileOverlaysController tileOverlaysController;
+  private final HeatmapsController heatmapsController;
+  private final GeoJsonLayersController geoJsonLayersController;
+  private final SnapshotEncoder snapshotEncoder = new SnapshotEncoder();
+  private final CameraMoveCoalescer cameraMoveCoalescer;
+  private final PerformanceMetrics performanceMetrics;
   private List<Object> initialMarkers;
   private List<Object> initialPolygons;
   private List<Object> initialPolylines;
@@ -91,11 +99,24 @@ final class GoogleMapController
       BinaryMessenger binaryMessenger,
       LifecycleProvider lifecycleProvider,
       GoogleMapOptions options) {
+    this(id, context, binaryMessenger, lifecycleProvider, options, null);
+  }
+
+  GoogleMapController(
+      int id,
+      Context context,
+      BinaryMessenger binaryMessenger,
+      LifecycleProvider lifecycleProvider,
+      GoogleMapOptions options,
+      @Nullable MapViewPool mapViewPool) {
 
     this.id = id;
     this.context = context;
     this.options = options;
-    this.mapView = new MapView(context, options);
+    this.mapViewPool = mapViewPool;
+    final MapView pooledView = mapViewPool != null ? mapViewPool.acquire(options) : null;
+    this.mapViewBorrowed = pooledView != null;
+    this.mapView = mapViewBorrowed ? pooledView : new MapView(context, options);
     this.density = context.getResources().getDisplayMetrics().density;
     methodChannel =
         new MethodChannel(binaryMessenger, "plugins.flutter.dev/google_maps_android_" + id);
@@ -105,7 +126,13 @@ final class GoogleMapController
     this.polygonsController = new PolygonsController(methodChannel, density);
     this.polylinesController = new PolylinesController(methodChannel, density);
     this.circlesController = new CirclesController(methodChannel, density);
-    this.tileOverlaysController = new TileOverlaysController(methodChannel);
+    this.tileOverlaysController = new TileOverlaysController(methodChannel, context);
+    this.heatmapsController = new HeatmapsController();
+    this.geoJsonLayersController = new GeoJsonLayersController(methodChannel, context, density);
+    this.cameraMoveCoalescer = new CameraMoveCoalescer(this::sendCameraMove);
+    this.performanceMetrics =
+        new PerformanceMetrics(
+            () -> methodChannel.invokeMethod("map#onPerformanceStats", getPerformanceStats()));
   }
 
   @Override
@@ -190,6 +217,9 @@ final class GoogleMapController
   @Override
   public void onMapReady(GoogleMap googleMap) {
     this.googleMap = googleMap;
+    if (mapViewBorrowed) {
+      MapViewPool.applyOptions(googleMap, options);
+    }
     this.googleMap.setIndoorEnabled(this.indoorEnabled);
     this.googleMap.setTrafficEnabled(this.trafficEnabled);
     this.googleMap.setBuildingsEnabled(this.buildingsEnabled);
@@ -205,6 +235,8 @@ final class GoogleMapController
     polylinesController.setGoogleMap(googleMap);
     circlesController.setGoogleMap(googleMap);
     tileOverlaysController.setGoogleMap(googleMap);
+    heatmapsController.setGoogleMap(googleMap);
+    geoJsonLayersController.setGoogleMap(googleMap);
     updateInitialMarkers();
     updateInitialPolygons();
     updateInitialPolylines();
@@ -214,6 +246,16 @@ final class GoogleMapController
 
   @Override
   public void onMethodCall(MethodCall call, MethodChannel.Result result) {
+    if (!performanceMetrics.isEnabled()) {
+      handleMethodCall(call, result);
+      return;
+    }
+    final long start = System.nanoTime();
+    handleMethodCall(call, result);
+    performanceMetrics.recordMethodCall(call.method, System.nanoTime() - start);
+  }
+
+  private void handleMethodCall(MethodCall call, MethodChannel.Result result) {
     switch (call.method) {
       case "map#waitForMap":
         if (googleMap != null) {
@@ -228,6 +270,17 @@ final class GoogleMapController
           result.success(Convert.cameraPositionToJson(getCameraPosition()));
           break;
         }
+      case "map#applyUpdates":
+        {
+          invalidateMapIfNeeded();
+          result.success(applyUpdates(call));
+          break;
+        }
+      case "map#getPerformanceStats":
+        {
+          result.success(getPerformanceStats());
+          break;
+        }
       case "map#getVisibleRegion":
         {
           if (googleMap != null) {
@@ -270,7 +323,7 @@ final class GoogleMapController
       case "map#takeSnapshot":
         {
           if (googleMap != null) {
-            final MethodChannel.Result _result = result;
+            final MethodChannel.Result _result = performanceMetrics.timeSnapshot(result);
             googleMap.snapshot(
                 new SnapshotReadyCallback() {
                   @Override
@@ -287,6 +340,18 @@ final class GoogleMapController
           }
           break;
         }
+      case "map#takeSnapshotWithOptions":
+        {
+          if (googleMap != null) {
+            final SnapshotEncoder.Options options =
+                Convert.toSnapshotOptions(call.argument("options"));
+            final MethodChannel.Result _result = performanceMetrics.timeSnapshot(result);
+            googleMap.snapshot(bitmap -> snapshotEncoder.encode(bitmap, options, _result));
+          } else {
+            result.error("GoogleMap uninitialized", "takeSnapshotWithOptions", null);
+          }
+          break;
+        }
       case "camera#move":
         {
           final CameraUpdate cameraUpdate =
@@ -306,15 +371,70 @@ final class GoogleMapController
       case "markers#update":
         {
           invalidateMapIfNeeded();
-          List<Object> markersToAdd = call.argument("markersToAdd");
-          markersController.addMarkers(markersToAdd);
-          List<Object> markersToChange = call.argument("markersToChange");
-          markersController.changeMarkers(markersToChange);
-          List<Object> markerIdsToRemove = call.argument("markerIdsToRemove");
-          markersController.removeMarkers(markerIdsToRemove);
+          updateMarkers(call);
+          result.success(null);
+          break;
+        }
+      case "markers#updateBinary":
+        {
+          invalidateMapIfNeeded();
+          updateMarkersBinary(call);
+          result.success(null);
+          break;
+        }
+      case "markers#animate":
+        {
+          List<Object> animations = call.argument("animations");
+          markersController.animateMarkers(animations);
+          result.success(null);
+          break;
+        }
+      case "markers#cancelAnimations":
+        {
+          List<Object> markerIds = call.argument("markerIds");
+          markersController.cancelMarkerAnimations(markerIds);
           result.success(null);
           break;
         }
+      case "markers#getIconCacheStats":
+        {
+          result.success(MarkerIconCache.getInstance().getStats());
+          break;
+        }
+      case "markers#setIconMemoryBudget":
+        {
+          final Number maxBytes = call.argument("maxBytes");
+          MarkerIconBudget.getInstance()
+              .setMaxBytes(
+                  maxBytes != null ? maxBytes.longValue() : MarkerIconBudget.DEFAULT_MAX_BYTES);
+          result.success(null);
+          break;
+        }
+      case "markers#getIconBudgetStats":
+        {
+          result.success(MarkerIconBudget.getInstance().getStats());
+          break;
+        }
+      case "markers#getDescriptorCacheStats":
+        {
+          result.success(BitmapDescriptorCache.getInstance().getStats());
+          break;
+        }
+      case "markers#getUpdateStats":
+        {
+          result.success(markersController.getUpdateStats());
+          break;
+        }
+      case "markers#getIconRenderStats":
+        {
+          result.success(markersController.getIconRenderStats());
+          break;
+        }
+      case "markers#query":
+        {
+          markersController.queryMarkers(Convert.toMarkerQuery(call.arguments), result);
+          break;
+        }
       case "markers#showInfoWindow":
         {
           Object markerId = call.argument("markerId");
@@ -336,36 +456,21 @@ final class GoogleMapController
       case "polygons#update":
         {
           invalidateMapIfNeeded();
-          List<Object> polygonsToAdd = call.argument("polygonsToAdd");
-          polygonsController.addPolygons(polygonsToAdd);
-          List<Object> polygonsToChange = call.argument("polygonsToChange");
-          polygonsController.changePolygons(polygonsToChange);
-          List<Object> polygonIdsToRemove = call.argument("polygonIdsToRemove");
-          polygonsController.removePolygons(polygonIdsToRemove);
+          updatePolygons(call);
           result.success(null);
           break;
         }
       case "polylines#update":
         {
           invalidateMapIfNeeded();
-          List<Object> polylinesToAdd = call.argument("polylinesToAdd");
-          polylinesController.addPolylines(polylinesToAdd);
-          List<Object> polylinesToChange = call.argument("polylinesToChange");
-          polylinesController.changePolylines(polylinesToChange);
-          List<Object> polylineIdsToRemove = call.argument("polylineIdsToRemove");
-          polylinesController.removePolylines(polylineIdsToRemove);
+          updatePolylines(call);
           result.success(null);
           break;
         }
       case "circles#update":
         {
           invalidateMapIfNeeded();
-          List<Object> circlesToAdd = call.argument("circlesToAdd");
-          circlesController.addCircles(circlesToAdd);
-          List<Object> circlesToChange = call.argument("circlesToChange");
-          circlesController.changeCircles(circlesToChange);
-          List<Object> circleIdsToRemove = call.argument("circleIdsToRemove");
-          circlesController.removeCircles(circleIdsToRemove);
+          updateCircles(call);
           result.success(null);
           break;
         }
@@ -463,12 +568,7 @@ final class GoogleMapController
       case "tileOverlays#update":
         {
           invalidateMapIfNeeded();
-          List<Map<String, ?>> tileOverlaysToAdd = call.argument("tileOverlaysToAdd");
-          tileOverlaysController.addTileOverlays(tileOverlaysToAdd);
-          List<Map<String, ?>> tileOverlaysToChange = call.argument("tileOverlaysToChange");
-          tileOverlaysController.changeTileOverlays(tileOverlaysToChange);
-          List<String> tileOverlaysToRemove = call.argument("tileOverlayIdsToRemove");
-          tileOverlaysController.removeTileOverlays(tileOverlaysToRemove);
+          updateTileOverlays(call);
           result.success(null);
           break;
         }
@@ -480,6 +580,38 @@ final class GoogleMapController
           result.success(null);
           break;
         }
+      case "tileOverlays#getTileStats":
+        {
+          String tileOverlayId = call.argument("tileOverlayId");
+          result.success(tileOverlaysController.getTileStats(tileOverlayId));
+          break;
+        }
+      case "heatmaps#update":
+        {
+          invalidateMapIfNeeded();
+          updateHeatmaps(call);
+          result.success(null);
+          break;
+        }
+      case "heatmaps#getStats":
+        {
+          String heatmapId = call.argument("heatmapId");
+          result.success(heatmapsController.getStats(heatmapId));
+          break;
+        }
+      case "geoJsonLayers#update":
+        {
+          invalidateMapIfNeeded();
+          updateGeoJsonLayers(call);
+          result.success(null);
+          break;
+        }
+      case "geoJsonLayers#getStats":
+        {
+          String geoJsonLayerId = call.argument("geoJsonLayerId");
+          result.success(geoJsonLayersController.getStats(geoJsonLayerId));
+          break;
+        }
       case "map#getTileOverlayInfo":
         {
           String tileOverlayId = call.argument("tileOverlayId");
@@ -491,6 +623,146 @@ final class GoogleMapController
     }
   }
 
+  private void updateMarkers(MethodCall call) {
+    List<Object> markersToAdd = call.argument("markersToAdd");
+    markersController.addMarkers(markersToAdd);
+    List<Object> markersToChange = call.argument("markersToChange");
+    markersController.changeMarkers(markersToChange);
+    List<Object> markerIdsToRemove = call.argument("markerIdsToRemove");
+    markersController.removeMarkers(markerIdsToRemove);
+  }
+
+  private void updateMarkersBinary(MethodCall call) {
+    byte[] markersToAdd = call.argument("markersToAdd");
+    if (markersToAdd != null) {
+      markersController.addMarkers(MarkerBatch.fromBytes(markersToAdd));
+    }
+    byte[] markersToChange = call.argument("markersToChange");
+    if (markersToChange != null) {
+      markersController.changeMarkers(MarkerBatch.fromBytes(markersToChange));
+    }
+    List<Object> markerIdsToRemove = call.argument("markerIdsToRemove");
+    markersController.removeMarkers(markerIdsToRemove);
+  }
+
+  private void updatePolygons(MethodCall call) {
+    List<Object> polygonsToAdd = call.argument("polygonsToAdd");
+    polygonsController.addPolygons(polygonsToAdd);
+    List<Object> polygonsToChange = call.argument("polygonsToChange");
+    polygonsController.changePolygons(polygonsToChange);
+    List<Object> polygonIdsToRemove = call.argument("polygonIdsToRemove");
+    polygonsController.removePolygons(polygonIdsToRemove);
+  }
+
+  private void updatePolylines(MethodCall call) {
+    List<Object> polylinesToAdd = call.argument("polylinesToAdd");
+    polylinesController.addPolylines(polylinesToAdd);
+    List<Object> polylinesToChange = call.argument("polylinesToChange");
+    polylinesController.changePolylines(polylinesToChange);
+    List<Object> polylineIdsToRemove = call.argument("polylineIdsToRemove");
+    polylinesController.removePolylines(polylineIdsToRemove);
+  }
+
+  private void updateCircles(MethodCall call) {
+    List<Object> circlesToAdd = call.argument("circlesToAdd");
+    circlesController.addCircles(circlesToAdd);
+    List<Object> circlesToChange = call.argument("circlesToChange");
+    circlesController.changeCircles(circlesToChange);
+    List<Object> circleIdsToRemove = call.argument("circleIdsToRemove");
+    circlesController.removeCircles(circleIdsToRemove);
+  }
+
+  private void updateTileOverlays(MethodCall call) {
+    List<Map<String, ?>> tileOverlaysToAdd = call.argument("tileOverlaysToAdd");
+    tileOverlaysController.addTileOverlays(tileOverlaysToAdd);
+    List<Map<String, ?>> tileOverlaysToChange = call.argument("tileOverlaysToChange");
+    tileOverlaysController.changeTileOverlays(tileOverlaysToChange);
+    List<String> tileOverlaysToRemove = call.argument("tileOverlayIdsToRemove");
+    tileOverlaysController.removeTileOverlays(tileOverlaysToRemove);
+  }
+
+  private void updateHeatmaps(MethodCall call) {
+    List<Map<String, ?>> heatmapsToAdd = call.argument("heatmapsToAdd");
+    heatmapsController.addHeatmaps(heatmapsToAdd);
+    List<Map<String, ?>> heatmapsToChange = call.argument("heatmapsToChange");
+    heatmapsController.changeHeatmaps(heatmapsToChange);
+    List<String> heatmapIdsToRemove = call.argument("heatmapIdsToRemove");
+    heatmapsController.removeHeatmaps(heatmapIdsToRemove);
+  }
+
+  private void updateGeoJsonLayers(MethodCall call) {
+    List<Object> geoJsonLayersToAdd = call.argument("geoJsonLayersToAdd");
+    geoJsonLayersController.addGeoJsonLayers(geoJsonLayersToAdd);
+    List<Object> geoJsonLayerIdsToRemove = call.argument("geoJsonLayerIdsToRemove");
+    geoJsonLayersController.removeGeoJsonLayers(geoJsonLayerIdsToRemove);
+  }
+
+  /**
+   * Applies the updates of several kinds of map objects at once, in a single pass on the main
+   * thread, so that the map never draws a partially updated state.
+   *
+   * <p>Each optional argument holds the arguments of the matching {@code <kind>#update} method,
+   * {@code markersBinary} the ones of {@code markers#updateBinary}. Returns how long each kind took
+   * to apply, in microseconds.
+   */
+  private Map<String, Object> applyUpdates(MethodCall call) {
+    final Map<String, Object> timings = new HashMap<>();
+    final long start = System.nanoTime();
+    long kindStart = start;
+    if (call.hasArgument("markers")) {
+      updateMarkers(new MethodCall("markers#update", call.argument("markers")));
+      kindStart = putElapsedMicros(timings, "markersMicros", kindStart);
+    }
+    if (call.hasArgument("markersBinary")) {
+      updateMarkersBinary(new MethodCall("markers#updateBinary", call.argument("markersBinary")));
+      kindStart = putElapsedMicros(timings, "markersBinaryMicros", kindStart);
+    }
+    if (call.hasArgument("polygons")) {
+      updatePolygons(new MethodCall("polygons#update", call.argument("polygons")));
+      kindStart = putElapsedMicros(timings, "polygonsMicros", kindStart);
+    }
+    if (call.hasArgument("polylines")) {
+      updatePolylines(new MethodCall("polylines#update", call.argument("polylines")));
+      kindStart = putElapsedMicros(timings, "polylinesMicros", kindStart);
+    }
+    if (call.hasArgument("circles")) {
+      updateCircles(new MethodCall("circles#update", call.argument("circles")));
+      kindStart = putElapsedMicros(timings, "circlesMicros", kindStart);
+    }
+    if (call.hasArgument("tileOverlays")) {
+      updateTileOverlays(new MethodCall("tileOverlays#update", call.argument("tileOverlays")));
+      kindStart = putElapsedMicros(timings, "tileOverlaysMicros", kindStart);
+    }
+    if (call.hasArgument("heatmaps")) {
+      updateHeatmaps(new MethodCall("heatmaps#update", call.argument("heatmaps")));
+      putElapsedMicros(timings, "heatmapsMicros", kindStart);
+    }
+    putElapsedMicros(timings, "totalMicros", start);
+    return timings;
+  }
+
+  /**
+   * Returns the method call and snapshot latencies collected while performance metrics are enabled,
+   * with the marker counts, icon budget, icon render and tile request latencies that are always
+   * tracked.
+   */
+  private Map<String, Object> getPerformanceStats() {
+    final Map<String, Object> stats = performanceMetrics.getStats();
+    stats.put("markers", markersController.getUpdateStats());
+    stats.put("iconRenders", MarkerIconCache.getInstance().getRenderLatencies().toMap());
+    stats.put("iconBudget", MarkerIconBudget.getInstance().getStats());
+    stats.put("tileRequests", tileOverlaysController.getTileLatencies().toMap());
+    stats.put("cameraMoves", cameraMoveCoalescer.getStats());
+    return stats;
+  }
+
+  /** Puts the microseconds elapsed since {@code startNanos} under {@code key}, returns now. */
+  private static long putElapsedMicros(Map<String, Object> timings, String key, long startNanos) {
+    final long now = System.nanoTime();
+    timings.put(key, (now - startNanos) / 1000);
+    return now;
+  }
+
   @Override
   public void onMapClick(LatLng latLng) {
     final Map<String, Object> arguments = new HashMap<>(2);
@@ -520,16 +792,27 @@ final class GoogleMapController
 
   @Override
   public void onCameraMove() {
+    markersController.onCameraMove();
+    tileOverlaysController.onCameraMove();
     if (!trackCameraPosition) {
       return;
     }
+    cameraMoveCoalescer.onCameraMove(googleMap.getCameraPosition());
+  }
+
+  private void sendCameraMove(CameraPosition position) {
     final Map<String, Object> arguments = new HashMap<>(2);
-    arguments.put("position", Convert.cameraPositionToJson(googleMap.getCameraPosition()));
+    arguments.put("position", Convert.cameraPositionToJson(position));
     methodChannel.invokeMethod("camera#onMove", arguments);
   }
 
   @Override
   public void onCameraIdle() {
+    markersController.onCameraIdle();
+    polylinesController.onCameraIdle();
+    polygonsController.onCameraIdle();
+    tileOverlaysController.onCameraIdle();
+    cameraMoveCoalescer.flush();
     methodChannel.invokeMethod("camera#onIdle", Collections.singletonMap("map", id));
   }
 
@@ -556,11 +839,13 @@ final class GoogleMapController
   @Override
   public void onPolygonClick(Polygon polygon) {
     polygonsController.onPolygonTap(polygon.getId());
+    geoJsonLayersController.onFeatureTap(polygon.getId());
   }
 
   @Override
   public void onPolylineClick(Polyline polyline) {
     polylinesController.onPolylineTap(polyline.getId());
+    geoJsonLayersController.onFeatureTap(polyline.getId());
   }
 
   @Override
@@ -575,8 +860,13 @@ final class GoogleMapController
     }
     disposed = true;
     methodChannel.setMethodCallHandler(null);
+    markersController.dispose();
+    geoJsonLayersController.dispose();
+    tileOverlaysController.dispose();
+    cameraMoveCoalescer.dispose();
+    performanceMetrics.dispose();
     setGoogleMapListener(null);
-    destroyMapViewIfNecessary();
+    releaseMapView();
     Lifecycle lifecycle = lifecycleProvider.getLifecycle();
     if (lifecycle != null) {
       lifecycle.removeObserver(this);
@@ -618,7 +908,7 @@ final class GoogleMapController
 
   @Override
   public void onCreate(@NonNull LifecycleOwner owner) {
-    if (disposed) {
+    if (disposed || mapViewBorrowed) {
       return;
     }
     mapView.onCreate(null);
@@ -667,7 +957,7 @@ final class GoogleMapController
 
   @Override
   public void onRestoreInstanceState(Bundle bundle) {
-    if (disposed) {
+    if (disposed || mapViewBorrowed) {
       return;
     }
     mapView.onCreate(bundle);
@@ -789,6 +1079,43 @@ final class GoogleMapController
     }
   }
 
+  @Override
+  public void setMarkerClusterer(MarkerClusterer markerClusterer) {
+    markersController.setMarkerClusterer(markerClusterer);
+  }
+
+  @Override
+  public void setMarkerCulling(boolean markerCullingEnabled, float markerCullingMargin) {
+    markersController.setMarkerCulling(markerCullingEnabled, markerCullingMargin);
+  }
+
+  @Override
+  public void setBackgroundIconRenderingEnabled(boolean backgroundIconRenderingEnabled) {
+    markersController.setBackgroundIconRenderingEnabled(backgroundIconRenderingEnabled);
+  }
+
+  @Override
+  public void setGeometrySimplification(boolean enabled, float tolerancePixels) {
+    polylinesController.setSimplificationTolerance(enabled ? tolerancePixels : 0);
+    polygonsController.setSimplificationTolerance(enabled ? tolerancePixels : 0);
+  }
+
+  @Override
+  public void setCameraMoveCoalescing(
+      boolean enabled, long intervalMillis, float minTargetDeltaPixels, float minZoomDelta) {
+    cameraMoveCoalescer.setOptions(enabled, intervalMillis, minTargetDeltaPixels, minZoomDelta);
+  }
+
+  @Override
+  public void setPerformanceMetrics(boolean enabled, long reportIntervalMillis) {
+    performanceMetrics.setOptions(enabled, reportIntervalMillis);
+  }
+
+  @Override
+  public void setVisibleMarkersEvents(boolean enabled, long debounceMillis) {
+    markersController.setVisibleMarkersEvents(enabled, debounceMillis);
+  }
+
   @Override
   public void setInitialMarkers(Object initialMarkers) {
     ArrayList<?> markers = (ArrayList<?>) initialMarkers;
@@ -885,6 +1212,27 @@ final class GoogleMapController
         permission, android.os.Process.myPid(), android.os.Process.myUid());
   }
 
+  /**
+   * Returns the map view to the pool if it keeps it, without the objects, listeners, style and
+   * padding of this map. The settings a map applies when it is ready are left as they are.
+   */
+  private void releaseMapView() {
+    if (mapView == null || mapViewPool == null || googleMap == null) {
+      destroyMapViewIfNecessary();
+      return;
+    }
+    googleMap.clear();
+    googleMap.setOnInfoWindowClickListener(null);
+    googleMap.setOnMapLoadedCallback(null);
+    googleMap.setMapStyle(null);
+    googleMap.setPadding(0, 0, 0, 0);
+    if (mapViewPool.release(mapView, options)) {
+      mapView = null;
+    } else {
+      destroyMapViewIfNecessary();
+    }
+  }
+
   private void destroyMapViewIfNecessary() {
     if (mapView == null) {
       return;
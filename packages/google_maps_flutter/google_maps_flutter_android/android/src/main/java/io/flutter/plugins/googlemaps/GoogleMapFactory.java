@@ -17,11 +17,16 @@ public class GoogleMapFactory extends PlatformViewFactory {
 
   private final BinaryMessenger binaryMessenger;
   private final LifecycleProvider lifecycleProvider;
+  private final MapViewPool mapViewPool;
 
-  GoogleMapFactory(BinaryMessenger binaryMessenger, LifecycleProvider lifecycleProvider) {
+  GoogleMapFactory(
+      BinaryMessenger binaryMessenger,
+      LifecycleProvider lifecycleProvider,
+      MapViewPool mapViewPool) {
     super(StandardMessageCodec.INSTANCE);
     this.binaryMessenger = binaryMessenger;
     this.lifecycleProvider = lifecycleProvider;
+    this.mapViewPool = mapViewPool;
   }
 
   @SuppressWarnings("unchecked")
@@ -50,6 +55,6 @@ public class GoogleMapFactory extends PlatformViewFactory {
     if (params.containsKey("tileOverlaysToAdd")) {
       builder.setInitialTileOverlays((List<Map<String, ?>>) params.get("tileOverlaysToAdd"));
     }
-    return builder.build(id, context, binaryMessenger, lifecycleProvider);
+    return builder.build(id, context, binaryMessenger, lifecycleProvider, mapViewPool);
   }
 }
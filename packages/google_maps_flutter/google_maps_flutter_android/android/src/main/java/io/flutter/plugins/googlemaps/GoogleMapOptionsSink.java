@@ -46,6 +46,21 @@ interface GoogleMapOptionsSink {
 
   void setBuildingsEnabled(boolean buildingsEnabled);
 
+  void setMarkerClusterer(MarkerClusterer markerClusterer);
+
+  void setMarkerCulling(boolean markerCullingEnabled, float markerCullingMargin);
+
+  void setBackgroundIconRenderingEnabled(boolean backgroundIconRenderingEnabled);
+
+  void setGeometrySimplification(boolean enabled, float tolerancePixels);
+
+  void setCameraMoveCoalescing(
+      boolean enabled, long intervalMillis, float minTargetDeltaPixels, float minZoomDelta);
+
+  void setPerformanceMetrics(boolean enabled, long reportIntervalMillis);
+
+  void setVisibleMarkersEvents(boolean enabled, long debounceMillis);
+
   void setInitialMarkers(Object initialMarkers);
 
   void setInitialPolygons(Object initialPolygons);
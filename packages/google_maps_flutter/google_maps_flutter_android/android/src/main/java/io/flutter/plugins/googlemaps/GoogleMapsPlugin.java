@@ -6,6 +6,9 @@ package io.flutter.plugins.googlemaps;
 
 import android.app.Activity;
 import android.app.Application.ActivityLifecycleCallbacks;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
 import android.os.Bundle;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -27,6 +30,10 @@ import io.flutter.embedding.engine.plugins.lifecycle.FlutterLifecycleAdapter;
 public class GoogleMapsPlugin implements FlutterPlugin, ActivityAware {
 
   @Nullable private Lifecycle lifecycle;
+  @Nullable private MapViewPoolChannel mapViewPoolChannel;
+  private final MapViewPool mapViewPool = new MapViewPool();
+  @Nullable private Context applicationContext;
+  private final ComponentCallbacks2 memoryCallbacks = new MemoryCallbacks(mapViewPool);
 
   private static final String VIEW_TYPE = "plugins.flutter.dev/google_maps_android";
 
@@ -39,6 +46,9 @@ public class GoogleMapsPlugin implements FlutterPlugin, ActivityAware {
       // We stop the registration process as this plugin is foreground only.
       return;
     }
+    final MapViewPool mapViewPool = new MapViewPool();
+    new MapViewPoolChannel(registrar.messenger(), mapViewPool).setContext(activity);
+    registrar.context().registerComponentCallbacks(new MemoryCallbacks(mapViewPool));
     if (activity instanceof LifecycleOwner) {
       registrar
           .platformViewRegistry()
@@ -51,13 +61,15 @@ public class GoogleMapsPlugin implements FlutterPlugin, ActivityAware {
                     public Lifecycle getLifecycle() {
                       return ((LifecycleOwner) activity).getLifecycle();
                     }
-                  }));
+                  },
+                  mapViewPool));
     } else {
       registrar
           .platformViewRegistry()
           .registerViewFactory(
               VIEW_TYPE,
-              new GoogleMapFactory(registrar.messenger(), new ProxyLifecycleProvider(activity)));
+              new GoogleMapFactory(
+                  registrar.messenger(), new ProxyLifecycleProvider(activity), mapViewPool));
     }
   }
 
@@ -67,6 +79,9 @@ public class GoogleMapsPlugin implements FlutterPlugin, ActivityAware {
 
   @Override
   public void onAttachedToEngine(FlutterPluginBinding binding) {
+    mapViewPoolChannel = new MapViewPoolChannel(binding.getBinaryMessenger(), mapViewPool);
+    applicationContext = binding.getApplicationContext();
+    applicationContext.registerComponentCallbacks(memoryCallbacks);
     binding
         .getPlatformViewRegistry()
         .registerViewFactory(
@@ -79,22 +94,39 @@ public class GoogleMapsPlugin implements FlutterPlugin, ActivityAware {
                   public Lifecycle getLifecycle() {
                     return lifecycle;
                   }
-                }));
+                },
+                mapViewPool));
   }
 
   @Override
-  public void onDetachedFromEngine(FlutterPluginBinding binding) {}
+  public void onDetachedFromEngine(FlutterPluginBinding binding) {
+    if (applicationContext != null) {
+      applicationContext.unregisterComponentCallbacks(memoryCallbacks);
+      applicationContext = null;
+    }
+    if (mapViewPoolChannel != null) {
+      mapViewPoolChannel.dispose();
+      mapViewPoolChannel = null;
+    }
+  }
 
   // ActivityAware
 
   @Override
   public void onAttachedToActivity(ActivityPluginBinding binding) {
     lifecycle = FlutterLifecycleAdapter.getActivityLifecycle(binding);
+    if (mapViewPoolChannel != null) {
+      mapViewPoolChannel.setContext(binding.getActivity());
+    }
   }
 
   @Override
   public void onDetachedFromActivity() {
     lifecycle = null;
+    // Pooled views belong to the activity, which is going away.
+    if (mapViewPoolChannel != null) {
+      mapViewPoolChannel.setContext(null);
+    }
   }
 
   @Override
@@ -107,6 +139,35 @@ public class GoogleMapsPlugin implements FlutterPlugin, ActivityAware {
     onDetachedFromActivity();
   }
 
+  /**
+   * Gives back the memory held by marker icons and idle pooled map views when the system runs low
+   * on it.
+   */
+  private static final class MemoryCallbacks implements ComponentCallbacks2 {
+
+    private final MapViewPool mapViewPool;
+
+    MemoryCallbacks(MapViewPool mapViewPool) {
+      this.mapViewPool = mapViewPool;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+      MarkerIconBudget.getInstance().onTrimMemory(level);
+      if (level >= TRIM_MEMORY_RUNNING_LOW) {
+        mapViewPool.clear();
+      }
+    }
+
+    @Override
+    public void onLowMemory() {
+      onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration configuration) {}
+  }
+
   /**
    * This class provides a {@link LifecycleOwner} for the activity driven by {@link
    * ActivityLifecycleCallbacks}.
@@ -0,0 +1,73 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import com.google.android.gms.maps.model.TileOverlay;
+import java.util.Map;
+
+/** Controller of a single heatmap, drawn as a tile overlay of {@link HeatmapTileProvider}. */
+class HeatmapController implements HeatmapOptionsSink {
+
+  private final TileOverlay tileOverlay;
+  private final HeatmapTileProvider tileProvider;
+  // Whether the options read since the last commitChanges changed how tiles look.
+  private boolean tilesChanged;
+
+  HeatmapController(TileOverlay tileOverlay, HeatmapTileProvider tileProvider) {
+    this.tileOverlay = tileOverlay;
+    this.tileProvider = tileProvider;
+  }
+
+  void remove() {
+    tileOverlay.remove();
+  }
+
+  Map<String, Object> getStats() {
+    return tileProvider.getStats();
+  }
+
+  /** Clears the tiles the SDK cached, once per change and only when they look different now. */
+  void commitChanges() {
+    if (tilesChanged) {
+      tilesChanged = false;
+      tileOverlay.clearTileCache();
+    }
+  }
+
+  @Override
+  public void setData(double[] data) {
+    tilesChanged |= tileProvider.setData(data);
+  }
+
+  @Override
+  public void setRadius(float radius) {
+    tilesChanged |= tileProvider.setRadius(radius);
+  }
+
+  @Override
+  public void setGradient(int[] colors, float[] startPoints) {
+    tilesChanged |= tileProvider.setGradient(colors, startPoints);
+  }
+
+  @Override
+  public void setOpacity(float opacity) {
+    tilesChanged |= tileProvider.setOpacity(opacity);
+  }
+
+  @Override
+  public void setMaxIntensity(double maxIntensity) {
+    tilesChanged |= tileProvider.setMaxIntensity(maxIntensity);
+  }
+
+  @Override
+  public void setZIndex(float zIndex) {
+    tileOverlay.setZIndex(zIndex);
+  }
+
+  @Override
+  public void setVisible(boolean visible) {
+    tileOverlay.setVisible(visible);
+  }
+}
@@ -0,0 +1,22 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+/** Receiver of Heatmap configuration options. */
+interface HeatmapOptionsSink {
+  void setData(double[] data);
+
+  void setRadius(float radius);
+
+  void setGradient(int[] colors, float[] startPoints);
+
+  void setOpacity(float opacity);
+
+  void setMaxIntensity(double maxIntensity);
+
+  void setZIndex(float zIndex);
+
+  void setVisible(boolean visible);
+}
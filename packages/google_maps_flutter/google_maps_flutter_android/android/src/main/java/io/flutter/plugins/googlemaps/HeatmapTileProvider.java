@@ -0,0 +1,413 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import androidx.annotation.VisibleForTesting;
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders kernel density heatmap tiles from a set of weighted points.
+ *
+ * <p>Points are indexed once when they are set. Every tile sums the weights of the points around it
+ * into a grid, blurs it with a Gaussian kernel of {@code radius} density independent pixels and
+ * maps the intensities to the gradient. Rendered tiles are kept in an LRU cache bounded by their
+ * encoded size, which is emptied whenever the points or the options change.
+ *
+ * <p>The Maps SDK calls {@link #getTile} on its own background tile threads, so the options are
+ * swapped as an immutable snapshot and may be set from the main thread while tiles are rendered.
+ */
+final class HeatmapTileProvider implements TileProvider {
+
+  /** Tiles are 256 density independent pixels wide, rendered at twice that for sharp edges. */
+  static final int TILE_SIZE = 512;
+
+  static final float DEFAULT_RADIUS = 10;
+  static final float DEFAULT_OPACITY = 0.7f;
+  static final int[] DEFAULT_GRADIENT_COLORS = {Color.rgb(102, 225, 0), Color.rgb(255, 0, 0)};
+  static final float[] DEFAULT_GRADIENT_START_POINTS = {0.2f, 1f};
+  static final long DEFAULT_MAX_CACHE_BYTES = 8 * 1024 * 1024;
+
+  private static final int COLOR_MAP_SIZE = 1000;
+  private static final int MAX_ZOOM = 22;
+
+  private volatile State state =
+      new State(
+          new WeightedPoint[0],
+          DEFAULT_RADIUS,
+          createColorMap(DEFAULT_GRADIENT_COLORS, DEFAULT_GRADIENT_START_POINTS, DEFAULT_OPACITY),
+          0);
+  private double[] data = new double[0];
+  private float opacity = DEFAULT_OPACITY;
+  private int[] gradientColors = DEFAULT_GRADIENT_COLORS;
+  private float[] gradientStartPoints = DEFAULT_GRADIENT_START_POINTS;
+
+  private final long maxCacheBytes;
+  private final LinkedHashMap<Long, Tile> cache = new LinkedHashMap<>(16, 0.75f, true);
+  private long cacheBytes;
+  private long cacheHitCount;
+  private long renderedTileCount;
+  private long emptyTileCount;
+  private long totalRenderNanos;
+
+  HeatmapTileProvider() {
+    this(DEFAULT_MAX_CACHE_BYTES);
+  }
+
+  HeatmapTileProvider(long maxCacheBytes) {
+    this.maxCacheBytes = maxCacheBytes;
+  }
+
+  /**
+   * Sets the points, as consecutive latitude, longitude and weight triples. Returns whether they
+   * changed, the points are only indexed again when they did.
+   */
+  boolean setData(double[] data) {
+    if (data.length % 3 != 0) {
+      throw new IllegalArgumentException(
+          "Heatmap data must be latitude, longitude and weight triples");
+    }
+    if (Arrays.equals(data, this.data)) {
+      return false;
+    }
+    this.data = data;
+    final WeightedPoint[] points = new WeightedPoint[data.length / 3];
+    for (int i = 0; i < points.length; i++) {
+      points[i] =
+          new WeightedPoint(
+              SphericalMercator.toX(data[3 * i + 1]),
+              SphericalMercator.toY(data[3 * i]),
+              data[3 * i + 2]);
+    }
+    final State current = state;
+    setState(new State(points, current.radius, current.colorMap, current.maxIntensity));
+    return true;
+  }
+
+  boolean setRadius(float radius) {
+    if (radius <= 0) {
+      throw new IllegalArgumentException("Heatmap radius must be positive");
+    }
+    final State current = state;
+    if (radius == current.radius) {
+      return false;
+    }
+    setState(new State(current, radius, current.colorMap, current.maxIntensity));
+    return true;
+  }
+
+  boolean setGradient(int[] colors, float[] startPoints) {
+    if (Arrays.equals(colors, gradientColors) && Arrays.equals(startPoints, gradientStartPoints)) {
+      return false;
+    }
+    gradientColors = colors;
+    gradientStartPoints = startPoints;
+    updateColorMap();
+    return true;
+  }
+
+  boolean setOpacity(float opacity) {
+    if (opacity == this.opacity) {
+      return false;
+    }
+    this.opacity = opacity;
+    updateColorMap();
+    return true;
+  }
+
+  /** Sets the intensity shown with the last gradient color, 0 to derive it from the points. */
+  boolean setMaxIntensity(double maxIntensity) {
+    final State current = state;
+    if (maxIntensity == current.maxIntensity) {
+      return false;
+    }
+    setState(new State(current, current.radius, current.colorMap, maxIntensity));
+    return true;
+  }
+
+  private void updateColorMap() {
+    final int[] colorMap = createColorMap(gradientColors, gradientStartPoints, opacity);
+    final State current = state;
+    setState(new State(current, current.radius, colorMap, current.maxIntensity));
+  }
+
+  private void setState(State state) {
+    synchronized (cache) {
+      this.state = state;
+      cache.clear();
+      cacheBytes = 0;
+    }
+  }
+
+  @Override
+  public Tile getTile(int x, int y, int zoom) {
+    final long key = ((long) zoom << 48) | ((long) x << 24) | y;
+    final State state;
+    synchronized (cache) {
+      final Tile cached = cache.get(key);
+      if (cached != null) {
+        cacheHitCount++;
+        return cached;
+      }
+      state = this.state;
+    }
+    final long start = System.nanoTime();
+    final int[] pixels = renderPixels(state, x, y, zoom);
+    if (pixels == null) {
+      synchronized (cache) {
+        emptyTileCount++;
+      }
+      return NO_TILE;
+    }
+    final Bitmap bitmap =
+        Bitmap.createBitmap(pixels, TILE_SIZE, TILE_SIZE, Bitmap.Config.ARGB_8888);
+    final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    bitmap.compress(Bitmap.CompressFormat.PNG, 100, stream);
+    bitmap.recycle();
+    final Tile tile = new Tile(TILE_SIZE, TILE_SIZE, stream.toByteArray());
+    synchronized (cache) {
+      renderedTileCount++;
+      totalRenderNanos += System.nanoTime() - start;
+      // Tiles rendered from points or options that changed meanwhile are not cached.
+      if (state == this.state && tile.data.length <= maxCacheBytes) {
+        cache.put(key, tile);
+        cacheBytes += tile.data.length;
+        final Iterator<Tile> iterator = cache.values().iterator();
+        while (cacheBytes > maxCacheBytes && iterator.hasNext()) {
+          cacheBytes -= iterator.next().data.length;
+          iterator.remove();
+        }
+      }
+    }
+    return tile;
+  }
+
+  Map<String, Object> getStats() {
+    final Map<String, Object> stats = new HashMap<>(6);
+    synchronized (cache) {
+      stats.put("pointCount", state.points.length);
+      stats.put("renderedTileCount", renderedTileCount);
+      stats.put("emptyTileCount", emptyTileCount);
+      stats.put("cacheHitCount", cacheHitCount);
+      stats.put("cacheBytes", cacheBytes);
+      stats.put(
+          "averageRenderMillis",
+          renderedTileCount == 0 ? 0.0 : totalRenderNanos / 1e6 / renderedTileCount);
+    }
+    return stats;
+  }
+
+  /** Returns the ARGB pixels of a tile, or null when no point is close enough to color it. */
+  @VisibleForTesting
+  int[] renderPixels(int x, int y, int zoom) {
+    return renderPixels(state, x, y, zoom);
+  }
+
+  private static int[] renderPixels(State state, int x, int y, int zoom) {
+    final int radius = Math.max(1, Math.round(state.radius * TILE_SIZE / 256f));
+    final double tileSize = 1.0 / (1L << zoom);
+    final double pixelSize = tileSize / TILE_SIZE;
+    final double minX = x * tileSize - radius * pixelSize;
+    final double minY = y * tileSize - radius * pixelSize;
+    final double maxX = (x + 1) * tileSize + radius * pixelSize;
+    final double maxY = (y + 1) * tileSize + radius * pixelSize;
+
+    // Weights summed per pixel, with a border of radius pixels for the points around the tile.
+    final int gridSize = TILE_SIZE + 2 * radius;
+    final double[] grid = new double[gridSize * gridSize];
+    final List<WeightedPoint> points = new ArrayList<>();
+    boolean empty = true;
+    // The world wraps around, tiles on its edges also use points from the other side.
+    for (int wrap = -1; wrap <= 1; wrap++) {
+      if (minX > wrap + 1 || maxX < wrap) {
+        continue;
+      }
+      points.clear();
+      state.tree.search(minX - wrap, minY, maxX - wrap, maxY, points);
+      for (WeightedPoint point : points) {
+        final int column = (int) ((point.x + wrap - minX) / pixelSize);
+        final int row = (int) ((point.y - minY) / pixelSize);
+        if (column >= 0 && column < gridSize && row >= 0 && row < gridSize) {
+          grid[row * gridSize + column] += point.weight;
+          empty = false;
+        }
+      }
+    }
+    if (empty) {
+      return null;
+    }
+
+    final double[] kernel = createKernel(radius);
+    // Blurs the rows, then the columns, only spreading the cells that have a weight.
+    final double[] rows = new double[gridSize * TILE_SIZE];
+    for (int row = 0; row < gridSize; row++) {
+      for (int column = 0; column < gridSize; column++) {
+        final double weight = grid[row * gridSize + column];
+        if (weight == 0) {
+          continue;
+        }
+        final int from = Math.max(0, column - 2 * radius);
+        final int to = Math.min(TILE_SIZE - 1, column);
+        for (int target = from; target <= to; target++) {
+          rows[row * TILE_SIZE + target] += weight * kernel[column - target];
+        }
+      }
+    }
+    final double[] intensities = new double[TILE_SIZE * TILE_SIZE];
+    for (int row = 0; row < gridSize; row++) {
+      final int from = Math.max(0, row - 2 * radius);
+      final int to = Math.min(TILE_SIZE - 1, row);
+      for (int column = 0; column < TILE_SIZE; column++) {
+        final double weight = rows[row * TILE_SIZE + column];
+        if (weight == 0) {
+          continue;
+        }
+        for (int target = from; target <= to; target++) {
+          intensities[target * TILE_SIZE + column] += weight * kernel[row - target];
+        }
+      }
+    }
+
+    final double maxIntensity =
+        state.maxIntensity > 0 ? state.maxIntensity : state.getMaxIntensity(zoom);
+    final int[] colorMap = state.colorMap;
+    final int[] pixels = new int[TILE_SIZE * TILE_SIZE];
+    for (int i = 0; i < pixels.length; i++) {
+      final double intensity = intensities[i];
+      if (intensity > 0) {
+        final int index = (int) (intensity / maxIntensity * (colorMap.length - 1));
+        pixels[i] = colorMap[Math.min(index, colorMap.length - 1)];
+      }
+    }
+    return pixels;
+  }
+
+  /** Returns a Gaussian kernel of {@code 2 * radius + 1} values that peaks at 1 in its middle. */
+  private static double[] createKernel(int radius) {
+    final double[] kernel = new double[2 * radius + 1];
+    final double sigma = radius / 3.0;
+    for (int i = -radius; i <= radius; i++) {
+      kernel[i + radius] = Math.exp(-i * i / (2 * sigma * sigma));
+    }
+    return kernel;
+  }
+
+  /**
+   * Interpolates the gradient into {@link #COLOR_MAP_SIZE} colors. Intensities below the first
+   * start point fade from transparent into the first color.
+   */
+  @VisibleForTesting
+  static int[] createColorMap(int[] colors, float[] startPoints, float opacity) {
+    if (colors.length == 0 || colors.length != startPoints.length) {
+      throw new IllegalArgumentException("Heatmap gradient needs as many colors as start points");
+    }
+    final int[] colorMap = new int[COLOR_MAP_SIZE];
+    int stop = 0;
+    for (int i = 0; i < COLOR_MAP_SIZE; i++) {
+      final float position = (float) i / (COLOR_MAP_SIZE - 1);
+      while (stop < startPoints.length && position > startPoints[stop]) {
+        stop++;
+      }
+      final int color;
+      if (stop == 0) {
+        final float fraction = startPoints[0] > 0 ? position / startPoints[0] : 1;
+        color = interpolate(colors[0] & 0x00ffffff, colors[0], fraction);
+      } else if (stop == startPoints.length) {
+        color = colors[colors.length - 1];
+      } else {
+        final float fraction =
+            (position - startPoints[stop - 1]) / (startPoints[stop] - startPoints[stop - 1]);
+        color = interpolate(colors[stop - 1], colors[stop], fraction);
+      }
+      final int alpha = Math.round(Color.alpha(color) * opacity);
+      colorMap[i] = (alpha << 24) | (color & 0x00ffffff);
+    }
+    return colorMap;
+  }
+
+  private static int interpolate(int from, int to, float fraction) {
+    return Color.argb(
+        Math.round(Color.alpha(from) + (Color.alpha(to) - Color.alpha(from)) * fraction),
+        Math.round(Color.red(from) + (Color.red(to) - Color.red(from)) * fraction),
+        Math.round(Color.green(from) + (Color.green(to) - Color.green(from)) * fraction),
+        Math.round(Color.blue(from) + (Color.blue(to) - Color.blue(from)) * fraction));
+  }
+
+  private static final class WeightedPoint {
+    final double x;
+    final double y;
+    final double weight;
+
+    WeightedPoint(double x, double y, double weight) {
+      this.x = x;
+      this.y = y;
+      this.weight = weight;
+    }
+  }
+
+  /** The points and options tiles are rendered from. */
+  private static final class State {
+    final WeightedPoint[] points;
+    final PointQuadTree<WeightedPoint> tree;
+    final float radius;
+    final int[] colorMap;
+    final double maxIntensity;
+    // Derived from the points per zoom level when maxIntensity isn't set, NaN until needed.
+    private final double[] maxIntensities = new double[MAX_ZOOM + 1];
+
+    State(WeightedPoint[] points, float radius, int[] colorMap, double maxIntensity) {
+      this.points = points;
+      this.radius = radius;
+      this.colorMap = colorMap;
+      this.maxIntensity = maxIntensity;
+      this.tree = new PointQuadTree<>();
+      for (WeightedPoint point : points) {
+        tree.add(point, point.x, point.y);
+      }
+      Arrays.fill(maxIntensities, Double.NaN);
+    }
+
+    State(State state, float radius, int[] colorMap, double maxIntensity) {
+      this.points = state.points;
+      this.tree = state.tree;
+      this.radius = radius;
+      this.colorMap = colorMap;
+      this.maxIntensity = maxIntensity;
+      Arrays.fill(maxIntensities, Double.NaN);
+    }
+
+    /**
+     * Estimates the highest intensity at {@code zoom} as the largest sum of weights in a grid of
+     * cells one radius wide, which is what a dense cluster of points blurs into.
+     */
+    synchronized double getMaxIntensity(int zoom) {
+      zoom = Math.min(zoom, MAX_ZOOM);
+      if (Double.isNaN(maxIntensities[zoom])) {
+        final double cellSize = radius / 256.0 / (1L << zoom);
+        final Map<Long, Double> cells = new HashMap<>();
+        double max = 0;
+        for (WeightedPoint point : points) {
+          final long key = ((long) (point.x / cellSize) << 32) | (long) (point.y / cellSize);
+          final Double previous = cells.get(key);
+          final double sum = (previous != null ? previous : 0) + point.weight;
+          cells.put(key, sum);
+          max = Math.max(max, sum);
+        }
+        maxIntensities[zoom] = max > 0 ? max : 1;
+      }
+      return maxIntensities[zoom];
+    }
+  }
+}
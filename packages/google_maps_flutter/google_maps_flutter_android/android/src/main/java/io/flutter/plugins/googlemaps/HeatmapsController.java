@@ -0,0 +1,92 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.TileOverlay;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class HeatmapsController {
+
+  private final Map<String, HeatmapController> heatmapIdToController;
+  private GoogleMap googleMap;
+
+  HeatmapsController() {
+    this.heatmapIdToController = new HashMap<>();
+  }
+
+  void setGoogleMap(GoogleMap googleMap) {
+    this.googleMap = googleMap;
+  }
+
+  void addHeatmaps(List<Map<String, ?>> heatmapsToAdd) {
+    if (heatmapsToAdd == null) {
+      return;
+    }
+    for (Map<String, ?> heatmapToAdd : heatmapsToAdd) {
+      addHeatmap(heatmapToAdd);
+    }
+  }
+
+  void changeHeatmaps(List<Map<String, ?>> heatmapsToChange) {
+    if (heatmapsToChange == null) {
+      return;
+    }
+    for (Map<String, ?> heatmapToChange : heatmapsToChange) {
+      changeHeatmap(heatmapToChange);
+    }
+  }
+
+  void removeHeatmaps(List<String> heatmapIdsToRemove) {
+    if (heatmapIdsToRemove == null) {
+      return;
+    }
+    for (String heatmapId : heatmapIdsToRemove) {
+      if (heatmapId == null) {
+        continue;
+      }
+      final HeatmapController heatmapController = heatmapIdToController.remove(heatmapId);
+      if (heatmapController != null) {
+        heatmapController.remove();
+      }
+    }
+  }
+
+  Map<String, Object> getStats(String heatmapId) {
+    if (heatmapId == null) {
+      return null;
+    }
+    HeatmapController heatmapController = heatmapIdToController.get(heatmapId);
+    if (heatmapController == null) {
+      return null;
+    }
+    return heatmapController.getStats();
+  }
+
+  private void addHeatmap(Map<String, ?> heatmapOptions) {
+    if (heatmapOptions == null) {
+      return;
+    }
+    HeatmapTileProvider tileProvider = new HeatmapTileProvider();
+    HeatmapBuilder heatmapBuilder = new HeatmapBuilder(tileProvider);
+    String heatmapId = Convert.interpretHeatmapOptions(heatmapOptions, heatmapBuilder);
+    TileOverlay tileOverlay = googleMap.addTileOverlay(heatmapBuilder.build());
+    heatmapIdToController.put(heatmapId, new HeatmapController(tileOverlay, tileProvider));
+  }
+
+  private void changeHeatmap(Map<String, ?> heatmapOptions) {
+    if (heatmapOptions == null) {
+      return;
+    }
+    HeatmapController heatmapController =
+        heatmapIdToController.get((String) heatmapOptions.get("heatmapId"));
+    if (heatmapController != null) {
+      Convert.interpretHeatmapOptions(heatmapOptions, heatmapController);
+      heatmapController.commitChanges();
+    }
+  }
+}
@@ -0,0 +1,90 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Histogram of durations with a fixed set of power of two buckets, from 1 microsecond to about 35
+ * minutes.
+ *
+ * <p>Recording a duration does not allocate, so it can be done on hot paths. Percentiles are
+ * reported as the upper bound of the bucket they fall in, so they are at most twice the actual
+ * value. Every method is thread safe.
+ */
+final class LatencyHistogram {
+
+  // Bucket i holds durations below 2^i microseconds, the last one everything longer.
+  private static final int BUCKET_COUNT = 32;
+
+  private final long[] buckets = new long[BUCKET_COUNT];
+  private long count;
+  private long totalNanos;
+  private long maxNanos;
+
+  synchronized void record(long nanos) {
+    final long micros = Math.max(0, nanos / 1000);
+    final int bucket = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+    buckets[bucket]++;
+    count++;
+    totalNanos += nanos;
+    maxNanos = Math.max(maxNanos, nanos);
+  }
+
+  /** Adds the durations recorded by {@code other} to this histogram. */
+  void add(LatencyHistogram other) {
+    final long[] otherBuckets = new long[BUCKET_COUNT];
+    final long otherCount;
+    final long otherTotalNanos;
+    final long otherMaxNanos;
+    synchronized (other) {
+      System.arraycopy(other.buckets, 0, otherBuckets, 0, BUCKET_COUNT);
+      otherCount = other.count;
+      otherTotalNanos = other.totalNanos;
+      otherMaxNanos = other.maxNanos;
+    }
+    synchronized (this) {
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        buckets[i] += otherBuckets[i];
+      }
+      count += otherCount;
+      totalNanos += otherTotalNanos;
+      maxNanos = Math.max(maxNanos, otherMaxNanos);
+    }
+  }
+
+  synchronized long getCount() {
+    return count;
+  }
+
+  /** Returns the upper bound, in milliseconds, of the bucket of the given percentile. */
+  synchronized double getPercentileMillis(double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    final long rank = (long) Math.ceil(count * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT - 1; i++) {
+      seen += buckets[i];
+      if (seen >= Math.max(1, rank)) {
+        // The max is a tighter bound for the slowest bucket.
+        return Math.min((1L << i) / 1e3, maxNanos / 1e6);
+      }
+    }
+    return maxNanos / 1e6;
+  }
+
+  synchronized Map<String, Object> toMap() {
+    final Map<String, Object> data = new HashMap<>(6);
+    data.put("count", count);
+    data.put("averageMillis", count == 0 ? 0.0 : totalNanos / 1e6 / count);
+    data.put("maxMillis", maxNanos / 1e6);
+    data.put("p50Millis", getPercentileMillis(50));
+    data.put("p90Millis", getPercentileMillis(90));
+    data.put("p99Millis", getPercentileMillis(99));
+    return data;
+  }
+}
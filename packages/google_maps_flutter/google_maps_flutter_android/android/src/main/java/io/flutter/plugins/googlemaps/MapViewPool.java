@@ -0,0 +1,216 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.content.Context;
+import android.view.ViewGroup;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import com.google.android.gms.maps.CameraUpdateFactory;
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.GoogleMapOptions;
+import com.google.android.gms.maps.MapView;
+import com.google.android.gms.maps.UiSettings;
+import com.google.android.gms.maps.model.CameraPosition;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * Bounded pool of created {@link MapView}s that maps borrow instead of creating their own.
+ *
+ * <p>Views are pooled by the options that cannot be changed once a view is created, whether it is
+ * in lite mode and its map type; every other option is applied again when a pooled view is
+ * borrowed. A pooled view has been created and stopped, the map that returned it cleared its
+ * objects and listeners. The pool is empty unless its maximum size is set or it is prewarmed, and
+ * must be cleared when the activity its views were created for goes away. Every method must be
+ * called on the main thread.
+ */
+final class MapViewPool {
+
+  /** Creates the views of the pool. */
+  interface MapViewFactory {
+    MapView create(Context context, GoogleMapOptions options);
+  }
+
+  private static final class PooledView {
+    final Object key;
+    final MapView mapView;
+
+    PooledView(Object key, MapView mapView) {
+      this.key = key;
+      this.mapView = mapView;
+    }
+  }
+
+  // Idle views, the least recently returned first.
+  private final LinkedList<PooledView> idleViews = new LinkedList<>();
+  private final MapViewFactory mapViewFactory;
+  private int maxSize = 0;
+  private long hitCount;
+  private long missCount;
+  private long createdCount;
+  private long evictionCount;
+
+  MapViewPool() {
+    this(MapView::new);
+  }
+
+  @VisibleForTesting
+  MapViewPool(MapViewFactory mapViewFactory) {
+    this.mapViewFactory = mapViewFactory;
+  }
+
+  /** Sets how many idle views the pool keeps, destroying the least recently returned ones. */
+  void setMaxSize(int maxSize) {
+    this.maxSize = Math.max(0, maxSize);
+    trimToSize();
+  }
+
+  int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Creates and pools views with {@code options} until {@code count} of them are idle, raising the
+   * maximum size of the pool if needed.
+   */
+  void prewarm(Context context, @Nullable GoogleMapOptions options, int count) {
+    if (count > maxSize) {
+      maxSize = count;
+    }
+    final Object key = keyOf(options);
+    int idle = 0;
+    for (PooledView view : idleViews) {
+      if (view.key.equals(key)) {
+        idle++;
+      }
+    }
+    for (; idle < count; idle++) {
+      final MapView mapView = mapViewFactory.create(context, options);
+      createdCount++;
+      mapView.onCreate(null);
+      // Loads the map, so that the first map to borrow the view does not wait for it.
+      mapView.getMapAsync(googleMap -> {});
+      idleViews.add(new PooledView(key, mapView));
+    }
+    trimToSize();
+  }
+
+  /** Returns an idle view created with the same lite mode and map type, or null. */
+  @Nullable
+  MapView acquire(@Nullable GoogleMapOptions options) {
+    final Object key = keyOf(options);
+    final Iterator<PooledView> iterator = idleViews.descendingIterator();
+    while (iterator.hasNext()) {
+      final PooledView view = iterator.next();
+      if (view.key.equals(key)) {
+        iterator.remove();
+        hitCount++;
+        return view.mapView;
+      }
+    }
+    missCount++;
+    return null;
+  }
+
+  /**
+   * Stops {@code mapView} and keeps it for the next map created with the same lite mode and map
+   * type, returns false if the pool keeps no views and {@code mapView} should be destroyed instead.
+   */
+  boolean release(MapView mapView, @Nullable GoogleMapOptions options) {
+    if (maxSize == 0) {
+      return false;
+    }
+    if (mapView.getParent() instanceof ViewGroup) {
+      ((ViewGroup) mapView.getParent()).removeView(mapView);
+    }
+    mapView.onPause();
+    mapView.onStop();
+    idleViews.add(new PooledView(keyOf(options), mapView));
+    trimToSize();
+    return true;
+  }
+
+  /** Destroys every idle view. */
+  void clear() {
+    for (PooledView view : idleViews) {
+      view.mapView.onDestroy();
+    }
+    idleViews.clear();
+  }
+
+  int getIdleCount() {
+    return idleViews.size();
+  }
+
+  Map<String, Object> getStats() {
+    final Map<String, Object> stats = new HashMap<>(6);
+    stats.put("idleCount", idleViews.size());
+    stats.put("maxSize", maxSize);
+    stats.put("hitCount", hitCount);
+    stats.put("missCount", missCount);
+    stats.put("createdCount", createdCount);
+    stats.put("evictionCount", evictionCount);
+    return stats;
+  }
+
+  /**
+   * Applies to the map of a borrowed view the options it would have been created with, and the
+   * defaults of those that are not set.
+   */
+  static void applyOptions(GoogleMap googleMap, @Nullable GoogleMapOptions options) {
+    if (options == null) {
+      options = new GoogleMapOptions();
+    }
+    final UiSettings uiSettings = googleMap.getUiSettings();
+    uiSettings.setCompassEnabled(valueOrTrue(options.getCompassEnabled()));
+    uiSettings.setMapToolbarEnabled(valueOrTrue(options.getMapToolbarEnabled()));
+    uiSettings.setRotateGesturesEnabled(valueOrTrue(options.getRotateGesturesEnabled()));
+    uiSettings.setScrollGesturesEnabled(valueOrTrue(options.getScrollGesturesEnabled()));
+    uiSettings.setTiltGesturesEnabled(valueOrTrue(options.getTiltGesturesEnabled()));
+    uiSettings.setZoomGesturesEnabled(valueOrTrue(options.getZoomGesturesEnabled()));
+    uiSettings.setZoomControlsEnabled(valueOrTrue(options.getZoomControlsEnabled()));
+    googleMap.setMapType(mapTypeOf(options));
+    googleMap.setLatLngBoundsForCameraTarget(options.getLatLngBoundsForCameraTarget());
+    googleMap.resetMinMaxZoomPreference();
+    if (options.getMinZoomPreference() != null) {
+      googleMap.setMinZoomPreference(options.getMinZoomPreference());
+    }
+    if (options.getMaxZoomPreference() != null) {
+      googleMap.setMaxZoomPreference(options.getMaxZoomPreference());
+    }
+    final CameraPosition camera = options.getCamera();
+    if (camera != null) {
+      googleMap.moveCamera(CameraUpdateFactory.newCameraPosition(camera));
+    }
+  }
+
+  private static boolean valueOrTrue(@Nullable Boolean value) {
+    return value == null || value;
+  }
+
+  private static int mapTypeOf(GoogleMapOptions options) {
+    // Options without a map type have a negative one.
+    return options.getMapType() >= 0 ? options.getMapType() : GoogleMap.MAP_TYPE_NORMAL;
+  }
+
+  private static Object keyOf(@Nullable GoogleMapOptions options) {
+    if (options == null) {
+      return Arrays.asList(false, GoogleMap.MAP_TYPE_NORMAL);
+    }
+    final boolean liteMode = options.getLiteMode() != null && options.getLiteMode();
+    return Arrays.asList(liteMode, mapTypeOf(options));
+  }
+
+  private void trimToSize() {
+    while (idleViews.size() > maxSize) {
+      idleViews.removeFirst().mapView.onDestroy();
+      evictionCount++;
+    }
+  }
+}
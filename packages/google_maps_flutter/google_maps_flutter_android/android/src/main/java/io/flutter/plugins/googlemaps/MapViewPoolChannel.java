@@ -0,0 +1,85 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.content.Context;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.MethodCall;
+import io.flutter.plugin.common.MethodChannel;
+
+/** Handles the plugin wide method calls that manage the {@link MapViewPool}. */
+final class MapViewPoolChannel implements MethodChannel.MethodCallHandler {
+
+  private static final String CHANNEL_NAME = "plugins.flutter.dev/google_maps_android";
+
+  private final MethodChannel methodChannel;
+  private final MapViewPool mapViewPool;
+  // The activity the pooled views are created for, null while the plugin has none.
+  @Nullable private Context context;
+
+  MapViewPoolChannel(BinaryMessenger binaryMessenger, MapViewPool mapViewPool) {
+    this.mapViewPool = mapViewPool;
+    methodChannel = new MethodChannel(binaryMessenger, CHANNEL_NAME);
+    methodChannel.setMethodCallHandler(this);
+  }
+
+  /** Sets the activity new pooled views are created for, dropping the views of the previous one. */
+  void setContext(@Nullable Context context) {
+    if (this.context != context) {
+      mapViewPool.clear();
+    }
+    this.context = context;
+  }
+
+  void dispose() {
+    methodChannel.setMethodCallHandler(null);
+    mapViewPool.clear();
+    context = null;
+  }
+
+  @Override
+  public void onMethodCall(@NonNull MethodCall call, @NonNull MethodChannel.Result result) {
+    switch (call.method) {
+      case "mapViewPool#prewarm":
+        {
+          if (context == null) {
+            result.error("No activity", "mapViewPool#prewarm called without an activity", null);
+            return;
+          }
+          final GoogleMapBuilder builder = new GoogleMapBuilder();
+          final Object options = call.argument("options");
+          if (options != null) {
+            Convert.interpretGoogleMapOptions(options, builder);
+          }
+          final Integer count = call.argument("count");
+          mapViewPool.prewarm(context, builder.getGoogleMapOptions(), count != null ? count : 1);
+          result.success(mapViewPool.getStats());
+          break;
+        }
+      case "mapViewPool#setMaxSize":
+        {
+          final Integer maxSize = call.argument("maxSize");
+          mapViewPool.setMaxSize(maxSize != null ? maxSize : 0);
+          result.success(null);
+          break;
+        }
+      case "mapViewPool#clear":
+        {
+          mapViewPool.clear();
+          result.success(null);
+          break;
+        }
+      case "mapViewPool#getStats":
+        {
+          result.success(mapViewPool.getStats());
+          break;
+        }
+      default:
+        result.notImplemented();
+    }
+  }
+}
@@ -0,0 +1,232 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.animation.TimeInterpolator;
+import android.view.Choreographer;
+import androidx.annotation.Nullable;
+import com.google.android.gms.maps.model.LatLng;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Moves markers along paths on {@link Choreographer} frames.
+ *
+ * <p>An animation starts from the current position of its marker and goes through every point of
+ * its path, either at the given timestamps or at a constant speed. The interpolator eases the time
+ * of the whole animation. Every method must be called on the main thread.
+ */
+final class MarkerAnimator {
+
+  interface Listener {
+    void onMarkerAnimationFrame(String markerId, LatLng position);
+
+    /**
+     * Called once the animation of {@code markerId} finished or was cancelled, with the position
+     * it started from and the one it stopped at.
+     */
+    void onMarkerAnimationEnd(String markerId, LatLng from, LatLng position, boolean finished);
+  }
+
+  /** Where and how a marker is animated, parsed from {@code markers#animate}. */
+  static final class Animation {
+    final String markerId;
+    final List<LatLng> path;
+    // Milliseconds from the start at which each point of the path is reached, or null.
+    @Nullable final long[] timestamps;
+    final long durationMillis;
+    final TimeInterpolator interpolator;
+
+    Animation(
+        String markerId,
+        List<LatLng> path,
+        @Nullable long[] timestamps,
+        long durationMillis,
+        TimeInterpolator interpolator) {
+      if (path.isEmpty()) {
+        throw new IllegalArgumentException("Marker animations need a target position");
+      }
+      if (timestamps != null && timestamps.length != path.size()) {
+        throw new IllegalArgumentException("Marker animations need a timestamp per position");
+      }
+      this.markerId = markerId;
+      this.path = path;
+      this.timestamps = timestamps;
+      this.durationMillis = timestamps != null ? timestamps[timestamps.length - 1] : durationMillis;
+      this.interpolator = interpolator;
+    }
+  }
+
+  private static final class Running {
+    final Animation animation;
+    final LatLng[] points;
+    // Fraction of the duration at which each point is reached.
+    final double[] fractions;
+    LatLng position;
+    long startNanos = -1;
+
+    Running(Animation animation, LatLng from) {
+      this.animation = animation;
+      this.position = from;
+      final int size = animation.path.size() + 1;
+      points = new LatLng[size];
+      fractions = new double[size];
+      points[0] = from;
+      for (int i = 1; i < size; i++) {
+        points[i] = animation.path.get(i - 1);
+      }
+      if (animation.timestamps != null) {
+        for (int i = 1; i < size; i++) {
+          fractions[i] =
+              animation.durationMillis > 0
+                  ? (double) animation.timestamps[i - 1] / animation.durationMillis
+                  : 1;
+        }
+        return;
+      }
+      // Without timestamps the marker moves at a constant speed along the path.
+      double length = 0;
+      for (int i = 1; i < size; i++) {
+        length += distance(points[i - 1], points[i]);
+        fractions[i] = length;
+      }
+      for (int i = 1; i < size; i++) {
+        fractions[i] = length > 0 ? fractions[i] / length : (double) i / (size - 1);
+      }
+    }
+
+    LatLng getFrom() {
+      return points[0];
+    }
+
+    LatLng getTarget() {
+      return points[points.length - 1];
+    }
+
+    LatLng positionAt(double fraction) {
+      int segment = 1;
+      while (segment < fractions.length - 1 && fractions[segment] < fraction) {
+        segment++;
+      }
+      final double start = fractions[segment - 1];
+      final double end = fractions[segment];
+      final double segmentFraction = end > start ? (fraction - start) / (end - start) : 1;
+      return interpolate(points[segment - 1], points[segment], segmentFraction);
+    }
+  }
+
+  private final Listener listener;
+  private final Map<String, Running> animations = new LinkedHashMap<>();
+  private final Choreographer.FrameCallback frameCallback = this::onFrame;
+  private boolean frameScheduled = false;
+
+  MarkerAnimator(Listener listener) {
+    this.listener = listener;
+  }
+
+  /** Starts {@code animation} from {@code from}, cancelling the running one of its marker. */
+  void start(Animation animation, LatLng from) {
+    cancel(animation.markerId);
+    animations.put(animation.markerId, new Running(animation, from));
+    if (!frameScheduled) {
+      frameScheduled = true;
+      Choreographer.getInstance().postFrameCallback(frameCallback);
+    }
+  }
+
+  boolean isAnimating(String markerId) {
+    return animations.containsKey(markerId);
+  }
+
+  /** Whether {@code position} is where the animation of {@code markerId} started or ends. */
+  boolean isStartOrTarget(String markerId, @Nullable LatLng position) {
+    final Running running = animations.get(markerId);
+    return running != null
+        && (running.getFrom().equals(position) || running.getTarget().equals(position));
+  }
+
+  /** Stops the marker where it is, and reports the animation as cancelled. */
+  void cancel(String markerId) {
+    final Running running = animations.remove(markerId);
+    if (running != null) {
+      listener.onMarkerAnimationEnd(markerId, running.getFrom(), running.position, false);
+    }
+  }
+
+  /** Stops every animation without reporting them. */
+  void dispose() {
+    animations.clear();
+    if (frameScheduled) {
+      frameScheduled = false;
+      Choreographer.getInstance().removeFrameCallback(frameCallback);
+    }
+  }
+
+  Set<String> getMarkerIds() {
+    return animations.keySet();
+  }
+
+  int getAnimationCount() {
+    return animations.size();
+  }
+
+  private void onFrame(long frameTimeNanos) {
+    frameScheduled = false;
+    final List<Running> finished = new ArrayList<>();
+    for (Running running : animations.values()) {
+      if (running.startNanos < 0) {
+        running.startNanos = frameTimeNanos;
+      }
+      final long durationNanos = running.animation.durationMillis * 1_000_000;
+      final double elapsed =
+          durationNanos > 0 ? (double) (frameTimeNanos - running.startNanos) / durationNanos : 1;
+      if (elapsed >= 1) {
+        running.position = running.getTarget();
+        finished.add(running);
+      } else {
+        final float fraction = running.animation.interpolator.getInterpolation((float) elapsed);
+        running.position = running.positionAt(fraction);
+      }
+      listener.onMarkerAnimationFrame(running.animation.markerId, running.position);
+    }
+    for (Running running : finished) {
+      animations.remove(running.animation.markerId);
+      listener.onMarkerAnimationEnd(
+          running.animation.markerId, running.getFrom(), running.position, true);
+    }
+    if (!animations.isEmpty() && !frameScheduled) {
+      frameScheduled = true;
+      Choreographer.getInstance().postFrameCallback(frameCallback);
+    }
+  }
+
+  /** Interpolates linearly, taking the shortest way across the antimeridian. */
+  static LatLng interpolate(LatLng from, LatLng to, double fraction) {
+    double longitudeDelta = to.longitude - from.longitude;
+    if (longitudeDelta > 180) {
+      longitudeDelta -= 360;
+    } else if (longitudeDelta < -180) {
+      longitudeDelta += 360;
+    }
+    double longitude = from.longitude + longitudeDelta * fraction;
+    if (longitude > 180) {
+      longitude -= 360;
+    } else if (longitude < -180) {
+      longitude += 360;
+    }
+    return new LatLng(from.latitude + (to.latitude - from.latitude) * fraction, longitude);
+  }
+
+  private static double distance(LatLng from, LatLng to) {
+    double dx =
+        Math.abs(SphericalMercator.toX(to.longitude) - SphericalMercator.toX(from.longitude));
+    dx = Math.min(dx, 1 - dx);
+    final double dy = SphericalMercator.toY(to.latitude) - SphericalMercator.toY(from.latitude);
+    return Math.sqrt(dx * dx + dy * dy);
+  }
+}
@@ -0,0 +1,208 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import com.google.android.gms.maps.model.LatLng;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+/**
+ * A batch of price and count markers decoded from the packed payload of {@code
+ * markers#updateBinary}.
+ *
+ * <p>The payload is little endian and laid out column by column, so that decoding it does not
+ * allocate anything per field:
+ *
+ * <pre>
+ * int32      version, currently 1
+ * int32      markerCount (n)
+ * int32      stringCount, then for each string: int32 byteLength, UTF-8 bytes
+ * int32[n]   markerId, index in the string table
+ * float64[n] latitude
+ * float64[n] longitude
+ * int8[n]    markerType, 0 for "price" and 1 for "count"
+ * int32[n]   label, index in the string table
+ * int32[n]   infoWindow title, index in the string table or -1
+ * int32[n]   infoWindow snippet, index in the string table or -1
+ * int8[n]    flags, see the FLAG_* constants
+ * float32[n] alpha
+ * float32[n] rotation
+ * float32[n] zIndex
+ * </pre>
+ *
+ * <p>Anchors and the info window anchor keep the defaults of the bubbles rendered by {@link
+ * CozyMarkerBuilder}, markers that need other options should use {@code markers#update}.
+ */
+final class MarkerBatch {
+
+  static final int VERSION = 1;
+  static final int TYPE_PRICE = 0;
+  static final int TYPE_COUNT = 1;
+  static final int FLAG_CONSUME_TAP_EVENTS = 1;
+  static final int FLAG_DRAGGABLE = 1 << 1;
+  static final int FLAG_FLAT = 1 << 2;
+  static final int FLAG_VISIBLE = 1 << 3;
+
+  /** Bytes taken by the columns of a single marker. */
+  private static final int MARKER_BYTES = 46;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final String[] strings;
+  private final int[] markerIds;
+  private final double[] latitudes;
+  private final double[] longitudes;
+  private final byte[] types;
+  private final int[] labels;
+  private final int[] titles;
+  private final int[] snippets;
+  private final byte[] flags;
+  private final float[] alphas;
+  private final float[] rotations;
+  private final float[] zIndexes;
+
+  private MarkerBatch(int size, String[] strings) {
+    this.strings = strings;
+    this.markerIds = new int[size];
+    this.latitudes = new double[size];
+    this.longitudes = new double[size];
+    this.types = new byte[size];
+    this.labels = new int[size];
+    this.titles = new int[size];
+    this.snippets = new int[size];
+    this.flags = new byte[size];
+    this.alphas = new float[size];
+    this.rotations = new float[size];
+    this.zIndexes = new float[size];
+  }
+
+  static MarkerBatch fromBytes(byte[] bytes) {
+    try {
+      final ByteBuffer header = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+      final int version = header.getInt(0);
+      if (version != VERSION) {
+        throw new IllegalArgumentException("Unsupported marker batch version " + version);
+      }
+      final int size = header.getInt(4);
+      final int stringCount = header.getInt(8);
+      // Checked before allocating, so that a corrupt header can't ask for huge arrays.
+      if (size < 0 || stringCount < 0 || 12 + 4L * stringCount > bytes.length) {
+        throw new IllegalArgumentException("Truncated marker batch");
+      }
+      final String[] strings = new String[stringCount];
+      int offset = 12;
+      for (int i = 0; i < strings.length; i++) {
+        final int length = header.getInt(offset);
+        strings[i] = new String(bytes, offset + 4, length, UTF_8);
+        offset += 4 + length;
+      }
+      if (offset + (long) MARKER_BYTES * size > bytes.length) {
+        throw new IllegalArgumentException("Truncated marker batch");
+      }
+      final MarkerBatch batch = new MarkerBatch(size, strings);
+      column(bytes, offset, 4 * size).asIntBuffer().get(batch.markerIds);
+      offset += 4 * size;
+      column(bytes, offset, 8 * size).asDoubleBuffer().get(batch.latitudes);
+      offset += 8 * size;
+      column(bytes, offset, 8 * size).asDoubleBuffer().get(batch.longitudes);
+      offset += 8 * size;
+      column(bytes, offset, size).get(batch.types);
+      offset += size;
+      column(bytes, offset, 4 * size).asIntBuffer().get(batch.labels);
+      offset += 4 * size;
+      column(bytes, offset, 4 * size).asIntBuffer().get(batch.titles);
+      offset += 4 * size;
+      column(bytes, offset, 4 * size).asIntBuffer().get(batch.snippets);
+      offset += 4 * size;
+      column(bytes, offset, size).get(batch.flags);
+      offset += size;
+      column(bytes, offset, 4 * size).asFloatBuffer().get(batch.alphas);
+      offset += 4 * size;
+      column(bytes, offset, 4 * size).asFloatBuffer().get(batch.rotations);
+      offset += 4 * size;
+      column(bytes, offset, 4 * size).asFloatBuffer().get(batch.zIndexes);
+      checkStringIndexes(batch.markerIds, strings.length, false, "markerId");
+      checkStringIndexes(batch.labels, strings.length, false, "label");
+      checkStringIndexes(batch.titles, strings.length, true, "title");
+      checkStringIndexes(batch.snippets, strings.length, true, "snippet");
+      return batch;
+    } catch (BufferUnderflowException
+        | IndexOutOfBoundsException
+        | NegativeArraySizeException e) {
+      throw new IllegalArgumentException("Truncated marker batch", e);
+    }
+  }
+
+  /** Checks that {@code indexes} are in the string table, or negative when {@code optional}. */
+  private static void checkStringIndexes(
+      int[] indexes, int stringCount, boolean optional, String column) {
+    for (int index : indexes) {
+      if (index >= stringCount || (index < 0 && !optional)) {
+        throw new IllegalArgumentException(
+            "Invalid " + column + " string index " + index + " in marker batch");
+      }
+    }
+  }
+
+  private static ByteBuffer column(byte[] bytes, int offset, int length) {
+    return ByteBuffer.wrap(bytes, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  int size() {
+    return markerIds.length;
+  }
+
+  String getMarkerId(int index) {
+    return strings[markerIds[index]];
+  }
+
+  String getMarkerType(int index) {
+    return types[index] == TYPE_COUNT ? "count" : "price";
+  }
+
+  String getLabel(int index) {
+    return strings[labels[index]];
+  }
+
+  /**
+   * Applies the options of the marker at {@code index} to {@code sink}, the same way {@link
+   * Convert#interpretMarkerOptions} does for a marker sent with {@code markers#update}.
+   */
+  String interpretMarkerOptions(int index, MarkerOptionsSink sink, CozyMarkerBuilder cozy) {
+    final int markerFlags = flags[index];
+    sink.setAlpha(alphas[index]);
+    sink.setConsumeTapEvents((markerFlags & FLAG_CONSUME_TAP_EVENTS) != 0);
+    sink.setDraggable((markerFlags & FLAG_DRAGGABLE) != 0);
+    sink.setFlat((markerFlags & FLAG_FLAT) != 0);
+    final String markerType;
+    switch (types[index]) {
+      case TYPE_PRICE:
+        markerType = "price";
+        break;
+      case TYPE_COUNT:
+        markerType = "count";
+        break;
+      default:
+        throw new IllegalArgumentException("markerType must be a pre-selected one.");
+    }
+    final String label = strings[labels[index]];
+    if (sink.needsIcon(Convert.toIconKey(markerType, label))) {
+      sink.setIcon(MarkerIconCache.getInstance().getOrBuild(cozy, markerType, label));
+    }
+    final int title = titles[index];
+    final int snippet = snippets[index];
+    if (title >= 0 || snippet >= 0) {
+      sink.setInfoWindowText(
+          title >= 0 ? strings[title] : null, snippet >= 0 ? strings[snippet] : null);
+    }
+    sink.setPosition(new LatLng(latitudes[index], longitudes[index]));
+    sink.setRotation(rotations[index]);
+    sink.setVisible((markerFlags & FLAG_VISIBLE) != 0);
+    sink.setZIndex(zIndexes[index]);
+    return getMarkerId(index);
+  }
+}
@@ -4,6 +4,7 @@
 
 package io.flutter.plugins.googlemaps;
 
+import androidx.annotation.Nullable;
 import com.google.android.gms.maps.model.BitmapDescriptor;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.MarkerOptions;
@@ -11,6 +12,8 @@ import com.google.android.gms.maps.model.MarkerOptions;
 class MarkerBuilder implements MarkerOptionsSink {
   private final MarkerOptions markerOptions;
   private boolean consumeTapEvents;
+  @Nullable private Object iconKey;
+  private int iconByteCount;
 
   MarkerBuilder() {
     this.markerOptions = new MarkerOptions();
@@ -24,6 +27,24 @@ class MarkerBuilder implements MarkerOptionsSink {
     return consumeTapEvents;
   }
 
+  @Nullable
+  Object getIconKey() {
+    return iconKey;
+  }
+
+  /** The size of the bitmap of the icon, recorded while it was still in the icon cache. */
+  int getIconByteCount() {
+    return iconByteCount;
+  }
+
+  void setIconByteCount(int iconByteCount) {
+    this.iconByteCount = iconByteCount;
+  }
+
+  LatLng getPosition() {
+    return markerOptions.getPosition();
+  }
+
   @Override
   public void setAlpha(float alpha) {
     markerOptions.alpha(alpha);
@@ -49,6 +70,16 @@ class MarkerBuilder implements MarkerOptionsSink {
     markerOptions.flat(flat);
   }
 
+  @Override
+  public boolean needsIcon(Object iconKey) {
+    if (iconKey.equals(this.iconKey)) {
+      return false;
+    }
+    this.iconKey = iconKey;
+    iconByteCount = 0;
+    return true;
+  }
+
   @Override
   public void setIcon(BitmapDescriptor bitmapDescriptor) {
     markerOptions.icon(bitmapDescriptor);
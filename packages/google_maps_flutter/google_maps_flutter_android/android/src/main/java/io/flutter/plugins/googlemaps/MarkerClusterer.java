@@ -0,0 +1,170 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** Groups the markers that are close to each other on screen into clusters. */
+final class MarkerClusterer {
+
+  enum Algorithm {
+    /** Buckets markers into square cells of {@code clusterSize} pixels aligned to the world. */
+    GRID,
+    /** Greedily groups the markers in a {@code clusterSize} pixels square around each marker. */
+    DISTANCE
+  }
+
+  /** A group of markers that is shown as a single "count" bubble. */
+  static final class Cluster {
+    final LatLng position;
+    final List<String> markerIds;
+
+    Cluster(LatLng position, List<String> markerIds) {
+      this.position = position;
+      this.markerIds = markerIds;
+    }
+  }
+
+  static final int DEFAULT_CLUSTER_SIZE = 100;
+  static final float DEFAULT_MAX_ZOOM = 20;
+  static final int DEFAULT_MIN_CLUSTER_SIZE = 2;
+
+  private final Algorithm algorithm;
+  private final int clusterSize;
+  private final float maxZoom;
+  private final int minClusterSize;
+
+  MarkerClusterer(Algorithm algorithm, int clusterSize, float maxZoom, int minClusterSize) {
+    this.algorithm = algorithm;
+    this.clusterSize = clusterSize;
+    this.maxZoom = maxZoom;
+    this.minClusterSize = minClusterSize;
+  }
+
+  /**
+   * Clusters the markers of {@code index} that are inside {@code visibleBounds} at {@code zoom}.
+   *
+   * <p>Markers that do not belong to a group of at least {@code minClusterSize} markers are
+   * returned as clusters of a single marker.
+   */
+  List<Cluster> cluster(
+      PointQuadTree<String> index,
+      Map<String, MarkerBuilder> markers,
+      LatLngBounds visibleBounds,
+      float zoom) {
+    // Clustering at integer zoom levels keeps clusters stable while the user zooms in and out.
+    final float clusterZoom = (float) Math.floor(zoom);
+    final double cellSize = clusterSize * SphericalMercator.pixelSize(clusterZoom);
+    final List<String> candidates = new ArrayList<>();
+    SphericalMercator.search(index, visibleBounds, cellSize, candidates);
+
+    final List<Cluster> result = new ArrayList<>();
+    if (clusterZoom > maxZoom) {
+      for (String markerId : candidates) {
+        result.add(singleton(markerId, markers));
+      }
+      return result;
+    }
+    final List<Cluster> clusters =
+        algorithm == Algorithm.GRID
+            ? gridClusters(candidates, markers, cellSize)
+            : distanceClusters(index, candidates, markers, cellSize);
+    for (Cluster cluster : clusters) {
+      if (cluster.markerIds.size() >= minClusterSize) {
+        result.add(cluster);
+      } else {
+        for (String markerId : cluster.markerIds) {
+          result.add(singleton(markerId, markers));
+        }
+      }
+    }
+    return result;
+  }
+
+  private static List<Cluster> gridClusters(
+      List<String> candidates, Map<String, MarkerBuilder> markers, double cellSize) {
+    final long cellsPerRow = (long) Math.ceil(1 / cellSize);
+    final Map<Long, GridCell> cells = new LinkedHashMap<>();
+    for (String markerId : candidates) {
+      final LatLng position = markers.get(markerId).getPosition();
+      final double x = SphericalMercator.toX(position.longitude);
+      final double y = SphericalMercator.toY(position.latitude);
+      final long key = (long) (y / cellSize) * cellsPerRow + (long) (x / cellSize);
+      GridCell cell = cells.get(key);
+      if (cell == null) {
+        cell = new GridCell();
+        cells.put(key, cell);
+      }
+      cell.add(markerId, x, y);
+    }
+    final List<Cluster> clusters = new ArrayList<>(cells.size());
+    for (GridCell cell : cells.values()) {
+      clusters.add(cell.toCluster());
+    }
+    return clusters;
+  }
+
+  private static List<Cluster> distanceClusters(
+      PointQuadTree<String> index,
+      List<String> candidates,
+      Map<String, MarkerBuilder> markers,
+      double cellSize) {
+    final double halfSize = cellSize / 2;
+    final Set<String> visited = new HashSet<>();
+    final List<Cluster> clusters = new ArrayList<>();
+    final List<String> nearby = new ArrayList<>();
+    for (String markerId : candidates) {
+      if (visited.contains(markerId)) {
+        continue;
+      }
+      final LatLng position = markers.get(markerId).getPosition();
+      final double x = SphericalMercator.toX(position.longitude);
+      final double y = SphericalMercator.toY(position.latitude);
+      nearby.clear();
+      index.search(x - halfSize, y - halfSize, x + halfSize, y + halfSize, nearby);
+      final List<String> members = new ArrayList<>(nearby.size());
+      for (String nearbyId : nearby) {
+        if (visited.add(nearbyId)) {
+          members.add(nearbyId);
+        }
+      }
+      if (visited.add(markerId)) {
+        members.add(markerId);
+      }
+      clusters.add(new Cluster(position, members));
+    }
+    return clusters;
+  }
+
+  private static Cluster singleton(String markerId, Map<String, MarkerBuilder> markers) {
+    return new Cluster(
+        markers.get(markerId).getPosition(), Collections.singletonList(markerId));
+  }
+
+  private static final class GridCell {
+    private final List<String> markerIds = new ArrayList<>();
+    private double sumX;
+    private double sumY;
+
+    void add(String markerId, double x, double y) {
+      markerIds.add(markerId);
+      sumX += x;
+      sumY += y;
+    }
+
+    Cluster toCluster() {
+      final int size = markerIds.size();
+      return new Cluster(SphericalMercator.toLatLng(sumX / size, sumY / size), markerIds);
+    }
+  }
+}
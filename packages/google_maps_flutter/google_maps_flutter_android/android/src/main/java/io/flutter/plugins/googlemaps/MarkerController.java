@@ -4,21 +4,62 @@
 
 package io.flutter.plugins.googlemaps;
 
+import androidx.annotation.Nullable;
 import com.google.android.gms.maps.model.BitmapDescriptor;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.Marker;
-
-/** Controller of a single Marker on the map. */
+import com.google.android.gms.maps.model.MarkerOptions;
+
+/**
+ * Controller of a single Marker on the map.
+ *
+ * <p>It remembers the options last applied to the marker, and skips the calls to the Maps SDK that
+ * would not change any of them.
+ */
 class MarkerController implements MarkerOptionsSink {
 
   private final Marker marker;
   private final String googleMapsMarkerId;
   private boolean consumeTapEvents;
 
-  MarkerController(Marker marker, boolean consumeTapEvents) {
+  private float alpha;
+  private float anchorU;
+  private float anchorV;
+  private boolean draggable;
+  private boolean flat;
+  @Nullable private Object iconKey;
+  private float infoWindowAnchorU;
+  private float infoWindowAnchorV;
+  @Nullable private String title;
+  @Nullable private String snippet;
+  @Nullable private LatLng position;
+  private float rotation;
+  private boolean visible;
+  private float zIndex;
+
+  private int appliedCount;
+  private int skippedCount;
+
+  /** {@code options} and {@code iconKey} are the ones {@code marker} was added with. */
+  MarkerController(
+      Marker marker, MarkerOptions options, boolean consumeTapEvents, @Nullable Object iconKey) {
     this.marker = marker;
     this.consumeTapEvents = consumeTapEvents;
     this.googleMapsMarkerId = marker.getId();
+    this.alpha = options.getAlpha();
+    this.anchorU = options.getAnchorU();
+    this.anchorV = options.getAnchorV();
+    this.draggable = options.isDraggable();
+    this.flat = options.isFlat();
+    this.iconKey = iconKey;
+    this.infoWindowAnchorU = options.getInfoWindowAnchorU();
+    this.infoWindowAnchorV = options.getInfoWindowAnchorV();
+    this.title = options.getTitle();
+    this.snippet = options.getSnippet();
+    this.position = options.getPosition();
+    this.rotation = options.getRotation();
+    this.visible = options.isVisible();
+    this.zIndex = options.getZIndex();
   }
 
   void remove() {
@@ -27,11 +68,20 @@ class MarkerController implements MarkerOptionsSink {
 
   @Override
   public void setAlpha(float alpha) {
+    if (skip(alpha == this.alpha)) {
+      return;
+    }
+    this.alpha = alpha;
     marker.setAlpha(alpha);
   }
 
   @Override
   public void setAnchor(float u, float v) {
+    if (skip(u == anchorU && v == anchorV)) {
+      return;
+    }
+    anchorU = u;
+    anchorV = v;
     marker.setAnchor(u, v);
   }
 
@@ -42,14 +92,31 @@ class MarkerController implements MarkerOptionsSink {
 
   @Override
   public void setDraggable(boolean draggable) {
+    if (skip(draggable == this.draggable)) {
+      return;
+    }
+    this.draggable = draggable;
     marker.setDraggable(draggable);
   }
 
   @Override
   public void setFlat(boolean flat) {
+    if (skip(flat == this.flat)) {
+      return;
+    }
+    this.flat = flat;
     marker.setFlat(flat);
   }
 
+  @Override
+  public boolean needsIcon(Object iconKey) {
+    if (skip(iconKey.equals(this.iconKey))) {
+      return false;
+    }
+    this.iconKey = iconKey;
+    return true;
+  }
+
   @Override
   public void setIcon(BitmapDescriptor bitmapDescriptor) {
     marker.setIcon(bitmapDescriptor);
@@ -57,35 +124,67 @@ class MarkerController implements MarkerOptionsSink {
 
   @Override
   public void setInfoWindowAnchor(float u, float v) {
+    if (skip(u == infoWindowAnchorU && v == infoWindowAnchorV)) {
+      return;
+    }
+    infoWindowAnchorU = u;
+    infoWindowAnchorV = v;
     marker.setInfoWindowAnchor(u, v);
   }
 
   @Override
   public void setInfoWindowText(String title, String snippet) {
+    if (skip(equals(title, this.title) && equals(snippet, this.snippet))) {
+      return;
+    }
+    this.title = title;
+    this.snippet = snippet;
     marker.setTitle(title);
     marker.setSnippet(snippet);
   }
 
   @Override
   public void setPosition(LatLng position) {
+    if (skip(position.equals(this.position))) {
+      return;
+    }
+    this.position = position;
     marker.setPosition(position);
   }
 
   @Override
   public void setRotation(float rotation) {
+    if (skip(rotation == this.rotation)) {
+      return;
+    }
+    this.rotation = rotation;
     marker.setRotation(rotation);
   }
 
   @Override
   public void setVisible(boolean visible) {
+    if (skip(visible == this.visible)) {
+      return;
+    }
+    this.visible = visible;
     marker.setVisible(visible);
   }
 
   @Override
   public void setZIndex(float zIndex) {
+    if (skip(zIndex == this.zIndex)) {
+      return;
+    }
+    this.zIndex = zIndex;
     marker.setZIndex(zIndex);
   }
 
+  /** Key of the icon the marker shows, null when it shows the default one. */
+  @Nullable
+  Object getIconKey() {
+    return iconKey;
+  }
+
   String getGoogleMapsMarkerId() {
     return googleMapsMarkerId;
   }
@@ -94,6 +193,16 @@ class MarkerController implements MarkerOptionsSink {
     return consumeTapEvents;
   }
 
+  /** Number of options that were applied to the marker since it was added. */
+  int getAppliedCount() {
+    return appliedCount;
+  }
+
+  /** Number of options that were skipped because the marker already had them. */
+  int getSkippedCount() {
+    return skippedCount;
+  }
+
   public void showInfoWindow() {
     marker.showInfoWindow();
   }
@@ -105,4 +214,17 @@ class MarkerController implements MarkerOptionsSink {
   public boolean isInfoWindowShown() {
     return marker.isInfoWindowShown();
   }
+
+  private boolean skip(boolean unchanged) {
+    if (unchanged) {
+      skippedCount++;
+    } else {
+      appliedCount++;
+    }
+    return unchanged;
+  }
+
+  private static boolean equals(@Nullable String a, @Nullable String b) {
+    return a == null ? b == null : a.equals(b);
+  }
 }
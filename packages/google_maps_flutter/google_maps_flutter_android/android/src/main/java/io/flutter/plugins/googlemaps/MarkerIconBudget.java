@@ -0,0 +1,213 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.VisibleForTesting;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide memory budget of the price and count icons shown by markers.
+ *
+ * <p>Every {@link MarkersController} reports the icons its markers are added and changed with, and
+ * the bytes of each distinct icon are counted once for as long as a marker shows it. Once the
+ * bytes exceed the budget every listener is asked, on the next loop, to swap the icons of the
+ * markers far from the visible region for {@link #getPlaceholder}, and to render them again when
+ * they come back into view. {@link #onTrimMemory} lowers the bytes kept by the icon caches too.
+ *
+ * <p>Every method must be called on the main thread.
+ */
+final class MarkerIconBudget {
+
+  /** Asked to give back the icons of the markers out of view. */
+  interface Listener {
+    void onTrimIcons();
+  }
+
+  static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+  /** Icon key of the markers showing the placeholder, it is never counted. */
+  static final Object PLACEHOLDER_KEY = "placeholder";
+
+  private static final int PLACEHOLDER_SIZE = 12;
+
+  private static MarkerIconBudget instance;
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final MarkerIconCache.DescriptorFactory descriptorFactory;
+  // Bytes and number of markers of every icon shown, keyed by icon key.
+  private final Map<Object, long[]> usages = new HashMap<>();
+  private final List<Listener> listeners = new ArrayList<>();
+  private final Runnable enforceCallback = this::enforce;
+  private BitmapDescriptor placeholder;
+  private long maxBytes;
+  private long bytes;
+  private boolean enforceScheduled = false;
+  private long exceededCount;
+  private long downgradeCount;
+  private long restoreCount;
+
+  @VisibleForTesting
+  MarkerIconBudget(long maxBytes, MarkerIconCache.DescriptorFactory descriptorFactory) {
+    this.maxBytes = maxBytes;
+    this.descriptorFactory = descriptorFactory;
+  }
+
+  static MarkerIconBudget getInstance() {
+    if (instance == null) {
+      instance = new MarkerIconBudget(DEFAULT_MAX_BYTES, BitmapDescriptorFactory::fromBitmap);
+    }
+    return instance;
+  }
+
+  @VisibleForTesting
+  static void setInstance(MarkerIconBudget budget) {
+    instance = budget;
+  }
+
+  /** Whether {@code iconKey} is a price or count icon, the only ones the budget counts. */
+  static boolean isBudgeted(Object iconKey) {
+    if (!(iconKey instanceof List) || ((List<?>) iconKey).size() != 2) {
+      return false;
+    }
+    final Object markerType = ((List<?>) iconKey).get(0);
+    return "price".equals(markerType) || "count".equals(markerType);
+  }
+
+  void addListener(Listener listener) {
+    listeners.add(listener);
+  }
+
+  void removeListener(Listener listener) {
+    listeners.remove(listener);
+  }
+
+  /** Counts a marker showing {@code iconKey}, whose bitmap has {@code byteCount} bytes. */
+  void acquire(Object iconKey, int byteCount) {
+    if (!isBudgeted(iconKey)) {
+      return;
+    }
+    long[] usage = usages.get(iconKey);
+    if (usage == null) {
+      usage = new long[] {byteCount, 0};
+      usages.put(iconKey, usage);
+      bytes += byteCount;
+    }
+    usage[1]++;
+    if (bytes > maxBytes) {
+      scheduleEnforce();
+    }
+  }
+
+  /** Stops counting a marker that showed {@code iconKey}. */
+  void release(Object iconKey) {
+    if (!isBudgeted(iconKey)) {
+      return;
+    }
+    final long[] usage = usages.get(iconKey);
+    if (usage == null) {
+      return;
+    }
+    if (--usage[1] == 0) {
+      usages.remove(iconKey);
+      bytes -= usage[0];
+    }
+  }
+
+  boolean isExceeded() {
+    return bytes > maxBytes;
+  }
+
+  void setMaxBytes(long maxBytes) {
+    this.maxBytes = maxBytes;
+    if (bytes > maxBytes) {
+      scheduleEnforce();
+    }
+  }
+
+  void onIconDowngraded() {
+    downgradeCount++;
+  }
+
+  void onIconRestored() {
+    restoreCount++;
+  }
+
+  /** The icon shown instead of the ones given back, shared by every marker and map. */
+  BitmapDescriptor getPlaceholder() {
+    if (placeholder == null) {
+      final Bitmap bitmap =
+          Bitmap.createBitmap(PLACEHOLDER_SIZE, PLACEHOLDER_SIZE, Bitmap.Config.ARGB_8888);
+      final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+      paint.setColor(Color.WHITE);
+      new Canvas(bitmap)
+          .drawCircle(PLACEHOLDER_SIZE / 2f, PLACEHOLDER_SIZE / 2f, PLACEHOLDER_SIZE / 2f, paint);
+      placeholder = descriptorFactory.fromBitmap(bitmap);
+      bitmap.recycle();
+    }
+    return placeholder;
+  }
+
+  /**
+   * Gives back memory for {@code level}, as passed to {@link ComponentCallbacks2#onTrimMemory}.
+   *
+   * <p>Icons of markers out of view are given back from {@code TRIM_MEMORY_RUNNING_MODERATE} on.
+   * The icon cache is halved from {@code TRIM_MEMORY_RUNNING_LOW} on, and both icon caches are
+   * cleared once the UI is hidden.
+   */
+  void onTrimMemory(int level) {
+    if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+      MarkerIconCache.getInstance().clear();
+      BitmapDescriptorCache.getInstance().clear();
+    } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+      final MarkerIconCache cache = MarkerIconCache.getInstance();
+      cache.trimToSizeBytes(cache.getSizeBytes() / 2);
+    } else if (level < ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+      return;
+    }
+    enforce();
+  }
+
+  Map<String, Object> getStats() {
+    final Map<String, Object> stats = new HashMap<>(6);
+    stats.put("iconCount", usages.size());
+    stats.put("sizeBytes", bytes);
+    stats.put("maxSizeBytes", maxBytes);
+    stats.put("exceededCount", exceededCount);
+    stats.put("downgradeCount", downgradeCount);
+    stats.put("restoreCount", restoreCount);
+    return stats;
+  }
+
+  private void scheduleEnforce() {
+    if (enforceScheduled) {
+      return;
+    }
+    enforceScheduled = true;
+    handler.post(enforceCallback);
+  }
+
+  private void enforce() {
+    handler.removeCallbacks(enforceCallback);
+    enforceScheduled = false;
+    if (bytes > maxBytes) {
+      exceededCount++;
+    }
+    for (Listener listener : new ArrayList<>(listeners)) {
+      listener.onTrimIcons();
+    }
+  }
+}
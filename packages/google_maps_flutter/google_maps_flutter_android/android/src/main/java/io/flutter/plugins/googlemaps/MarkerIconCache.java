@@ -0,0 +1,222 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.graphics.Bitmap;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide LRU cache of the {@link BitmapDescriptor}s rendered by {@link CozyMarkerBuilder}.
+ *
+ * <p>Entries are keyed by marker type, label and marker size, and the cache is bounded by the
+ * number of bytes of the bitmaps that backed each descriptor. It is shared by every {@link
+ * GoogleMapController} so that maps showing the same price and count bubbles only render them
+ * once.
+ */
+final class MarkerIconCache {
+
+  /** Creates a {@link BitmapDescriptor} out of a rendered marker bitmap. */
+  interface DescriptorFactory {
+    BitmapDescriptor fromBitmap(Bitmap bitmap);
+  }
+
+  static final long DEFAULT_MAX_SIZE_BYTES = 8 * 1024 * 1024;
+
+  private static MarkerIconCache instance;
+
+  private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final DescriptorFactory descriptorFactory;
+  private long maxSizeBytes;
+  private long sizeBytes;
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+  private final LatencyHistogram renderLatencies = new LatencyHistogram();
+
+  @VisibleForTesting
+  MarkerIconCache(long maxSizeBytes, DescriptorFactory descriptorFactory) {
+    this.maxSizeBytes = maxSizeBytes;
+    this.descriptorFactory = descriptorFactory;
+  }
+
+  static synchronized MarkerIconCache getInstance() {
+    if (instance == null) {
+      instance =
+          new MarkerIconCache(
+              DEFAULT_MAX_SIZE_BYTES,
+              new DescriptorFactory() {
+                @Override
+                public BitmapDescriptor fromBitmap(Bitmap bitmap) {
+                  return BitmapDescriptorFactory.fromBitmap(bitmap);
+                }
+              });
+    }
+    return instance;
+  }
+
+  @VisibleForTesting
+  static synchronized void setInstance(MarkerIconCache cache) {
+    instance = cache;
+  }
+
+  /**
+   * Returns the descriptor for the given marker type and label, rendering it with {@code builder}
+   * on a cache miss.
+   */
+  BitmapDescriptor getOrBuild(
+      @NonNull CozyMarkerBuilder builder, @NonNull String markerType, @NonNull String label) {
+    final Key key = new Key(markerType, label, builder.getMarkerSize());
+    synchronized (this) {
+      final Entry entry = entries.get(key);
+      if (entry != null) {
+        hitCount++;
+        return entry.descriptor;
+      }
+      missCount++;
+    }
+    final long start = System.nanoTime();
+    final Bitmap bitmap = builder.buildMarker(markerType, label);
+    renderLatencies.record(System.nanoTime() - start);
+    if (bitmap == null) {
+      throw new IllegalArgumentException("Unable to build a marker of type " + markerType);
+    }
+    final int byteCount = bitmap.getByteCount();
+    final BitmapDescriptor descriptor = descriptorFactory.fromBitmap(bitmap);
+    bitmap.recycle();
+    synchronized (this) {
+      final Entry previous = entries.put(key, new Entry(descriptor, byteCount));
+      if (previous != null) {
+        sizeBytes -= previous.byteCount;
+      }
+      sizeBytes += byteCount;
+      trimToSize(maxSizeBytes);
+    }
+    return descriptor;
+  }
+
+  /** Whether the given icon can be returned by {@link #getOrBuild} without rendering it. */
+  synchronized boolean contains(
+      @NonNull CozyMarkerBuilder builder, @NonNull String markerType, @NonNull String label) {
+    return entries.containsKey(new Key(markerType, label, builder.getMarkerSize()));
+  }
+
+  synchronized void setMaxSizeBytes(long maxSizeBytes) {
+    this.maxSizeBytes = maxSizeBytes;
+    trimToSize(maxSizeBytes);
+  }
+
+  /** Evicts the least recently used icons until the cache holds at most {@code sizeBytes}. */
+  synchronized void trimToSizeBytes(long sizeBytes) {
+    trimToSize(sizeBytes);
+  }
+
+  /** Returns the bytes of the bitmap the given icon was rendered to, or 0 when it isn't cached. */
+  synchronized int getByteCount(
+      @NonNull CozyMarkerBuilder builder, @NonNull String markerType, @NonNull String label) {
+    final Entry entry = entries.get(new Key(markerType, label, builder.getMarkerSize()));
+    return entry != null ? entry.byteCount : 0;
+  }
+
+  synchronized void clear() {
+    entries.clear();
+    sizeBytes = 0;
+  }
+
+  synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  synchronized long getMissCount() {
+    return missCount;
+  }
+
+  synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  synchronized long getSizeBytes() {
+    return sizeBytes;
+  }
+
+  synchronized int getEntryCount() {
+    return entries.size();
+  }
+
+  /** Time taken by {@link CozyMarkerBuilder} to render each icon on a cache miss. */
+  LatencyHistogram getRenderLatencies() {
+    return renderLatencies;
+  }
+
+  synchronized Map<String, Object> getStats() {
+    final Map<String, Object> stats = new HashMap<>(6);
+    stats.put("hitCount", hitCount);
+    stats.put("missCount", missCount);
+    stats.put("evictionCount", evictionCount);
+    stats.put("entryCount", entries.size());
+    stats.put("sizeBytes", sizeBytes);
+    stats.put("maxSizeBytes", maxSizeBytes);
+    return stats;
+  }
+
+  private void trimToSize(long maxSizeBytes) {
+    final Iterator<Entry> iterator = entries.values().iterator();
+    while (sizeBytes > maxSizeBytes && iterator.hasNext()) {
+      sizeBytes -= iterator.next().byteCount;
+      iterator.remove();
+      evictionCount++;
+    }
+  }
+
+  private static final class Entry {
+    final BitmapDescriptor descriptor;
+    final int byteCount;
+
+    Entry(BitmapDescriptor descriptor, int byteCount) {
+      this.descriptor = descriptor;
+      this.byteCount = byteCount;
+    }
+  }
+
+  private static final class Key {
+    private final String markerType;
+    private final String label;
+    private final int markerSize;
+
+    Key(String markerType, String label, int markerSize) {
+      this.markerType = markerType;
+      this.label = label;
+      this.markerSize = markerSize;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return markerSize == other.markerSize
+          && markerType.equals(other.markerType)
+          && label.equals(other.label);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = markerType.hashCode();
+      result = 31 * result + label.hashCode();
+      result = 31 * result + markerSize;
+      return result;
+    }
+  }
+}
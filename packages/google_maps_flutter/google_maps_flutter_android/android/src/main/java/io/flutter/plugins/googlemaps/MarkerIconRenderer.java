@@ -0,0 +1,229 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.view.Choreographer;
+import androidx.annotation.VisibleForTesting;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders {@link CozyMarkerBuilder} icons on a background pool and hands the markers waiting for
+ * them back to the main thread in frame sized batches.
+ *
+ * <p>Rendered icons are stored in {@link MarkerIconCache}, so a marker is ready once its icon can
+ * be read from the cache without rendering. Markers whose icon failed to render are handed back
+ * too, flagged so that they are not rendered again. Every method must be called on the main
+ * thread, and {@link Listener#onMarkerIconReady} is called from a {@link Choreographer} frame
+ * callback until the frame budget is used.
+ */
+final class MarkerIconRenderer {
+
+  private static final String TAG = "MarkerIconRenderer";
+
+  /** Time spent applying ready markers in a single frame, leaves room for the map to draw. */
+  static final long FRAME_BUDGET_NANOS = 8_000_000;
+
+  interface Listener {
+    /** Called with {@code rendered} false when rendering the icon of {@code markerId} threw. */
+    void onMarkerIconReady(String markerId, boolean rendered);
+  }
+
+  private static ExecutorService sharedExecutor;
+
+  private final CozyMarkerBuilder cozyMarkerBuilder;
+  private final Listener listener;
+  private final Executor executor;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  // Ids of the markers waiting for each icon being rendered, keyed by markerType and label.
+  private final Map<String, List<String>> waitingMarkerIds = new HashMap<>();
+  private final List<String[]> batch = new ArrayList<>();
+  private final ArrayDeque<String> readyMarkerIds = new ArrayDeque<>();
+  // Ready markers whose icon failed to render.
+  private final Set<String> failedMarkerIds = new HashSet<>();
+  private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> applyReadyMarkers();
+  private boolean frameScheduled = false;
+  private boolean disposed = false;
+
+  private long renderedIconCount;
+  private long failedIconCount;
+  private long renderBatchCount;
+  private long lastRenderBatchNanos;
+  private long maxRenderBatchNanos;
+  private long frameBatchCount;
+  private long appliedMarkerCount;
+  private long lastFrameBatchNanos;
+  private long maxFrameBatchNanos;
+
+  MarkerIconRenderer(CozyMarkerBuilder cozyMarkerBuilder, Listener listener) {
+    this(cozyMarkerBuilder, listener, getSharedExecutor());
+  }
+
+  @VisibleForTesting
+  MarkerIconRenderer(CozyMarkerBuilder cozyMarkerBuilder, Listener listener, Executor executor) {
+    this.cozyMarkerBuilder = cozyMarkerBuilder;
+    this.listener = listener;
+    this.executor = executor;
+  }
+
+  private static synchronized ExecutorService getSharedExecutor() {
+    if (sharedExecutor == null) {
+      final int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+      sharedExecutor = Executors.newFixedThreadPool(threads, new RenderThreadFactory());
+    }
+    return sharedExecutor;
+  }
+
+  /** Queues the icon of {@code markerId}, queued icons are rendered by {@link #submit}. */
+  void request(String markerId, String markerType, String label) {
+    final String key = markerType + '\n' + label;
+    List<String> markerIds = waitingMarkerIds.get(key);
+    if (markerIds == null) {
+      markerIds = new ArrayList<>();
+      waitingMarkerIds.put(key, markerIds);
+      batch.add(new String[] {key, markerType, label});
+    }
+    markerIds.add(markerId);
+  }
+
+  /** Whether the given icon was requested and has not been rendered yet. */
+  boolean isRendering(String markerType, String label) {
+    return waitingMarkerIds.containsKey(markerType + '\n' + label);
+  }
+
+  /** Renders the icons requested since the last call in parallel. */
+  void submit() {
+    if (batch.isEmpty()) {
+      return;
+    }
+    final List<String[]> icons = new ArrayList<>(batch);
+    batch.clear();
+    final long start = System.nanoTime();
+    final AtomicInteger remaining = new AtomicInteger(icons.size());
+    for (final String[] icon : icons) {
+      executor.execute(
+          () -> {
+            boolean rendered = true;
+            try {
+              MarkerIconCache.getInstance().getOrBuild(cozyMarkerBuilder, icon[1], icon[2]);
+            } catch (RuntimeException e) {
+              Log.e(TAG, "Failed to render a " + icon[1] + " marker", e);
+              rendered = false;
+            }
+            final boolean iconRendered = rendered;
+            final boolean lastIcon = remaining.decrementAndGet() == 0;
+            final long elapsed = System.nanoTime() - start;
+            handler.post(() -> onIconRendered(icon[0], iconRendered, lastIcon, elapsed));
+          });
+    }
+  }
+
+  void dispose() {
+    disposed = true;
+    waitingMarkerIds.clear();
+    batch.clear();
+    readyMarkerIds.clear();
+    failedMarkerIds.clear();
+    handler.removeCallbacksAndMessages(null);
+    if (frameScheduled) {
+      Choreographer.getInstance().removeFrameCallback(frameCallback);
+      frameScheduled = false;
+    }
+  }
+
+  Map<String, Object> getStats() {
+    final Map<String, Object> stats = new HashMap<>(11);
+    stats.put("renderedIconCount", renderedIconCount);
+    stats.put("failedIconCount", failedIconCount);
+    stats.put("renderBatchCount", renderBatchCount);
+    stats.put("lastRenderBatchMillis", lastRenderBatchNanos / 1e6);
+    stats.put("maxRenderBatchMillis", maxRenderBatchNanos / 1e6);
+    stats.put("frameBatchCount", frameBatchCount);
+    stats.put("appliedMarkerCount", appliedMarkerCount);
+    stats.put("lastFrameBatchMillis", lastFrameBatchNanos / 1e6);
+    stats.put("maxFrameBatchMillis", maxFrameBatchNanos / 1e6);
+    stats.put("pendingIconCount", waitingMarkerIds.size());
+    stats.put("readyMarkerCount", readyMarkerIds.size());
+    return stats;
+  }
+
+  private void onIconRendered(String key, boolean rendered, boolean lastIcon, long elapsedNanos) {
+    if (disposed) {
+      return;
+    }
+    if (rendered) {
+      renderedIconCount++;
+    } else {
+      failedIconCount++;
+    }
+    if (lastIcon) {
+      renderBatchCount++;
+      lastRenderBatchNanos = elapsedNanos;
+      maxRenderBatchNanos = Math.max(maxRenderBatchNanos, elapsedNanos);
+    }
+    final List<String> markerIds = waitingMarkerIds.remove(key);
+    if (markerIds == null) {
+      return;
+    }
+    readyMarkerIds.addAll(markerIds);
+    if (!rendered) {
+      failedMarkerIds.addAll(markerIds);
+    }
+    if (!frameScheduled) {
+      frameScheduled = true;
+      Choreographer.getInstance().postFrameCallback(frameCallback);
+    }
+  }
+
+  private void applyReadyMarkers() {
+    frameScheduled = false;
+    final long start = System.nanoTime();
+    long elapsed = 0;
+    while (!readyMarkerIds.isEmpty() && elapsed < FRAME_BUDGET_NANOS) {
+      final String markerId = readyMarkerIds.poll();
+      listener.onMarkerIconReady(markerId, !failedMarkerIds.remove(markerId));
+      appliedMarkerCount++;
+      elapsed = System.nanoTime() - start;
+    }
+    frameBatchCount++;
+    lastFrameBatchNanos = elapsed;
+    maxFrameBatchNanos = Math.max(maxFrameBatchNanos, elapsed);
+    if (!readyMarkerIds.isEmpty() && !disposed) {
+      frameScheduled = true;
+      Choreographer.getInstance().postFrameCallback(frameCallback);
+    }
+  }
+
+  private static final class RenderThreadFactory implements ThreadFactory {
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    @Override
+    public Thread newThread(final Runnable runnable) {
+      final Thread thread =
+          new Thread(
+              () -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+              },
+              "MarkerIconRenderer-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -19,6 +19,12 @@ interface MarkerOptionsSink {
 
   void setFlat(boolean flat);
 
+  /**
+   * Returns whether the icon identified by {@code iconKey} has to be built and passed to {@link
+   * #setIcon}, false when the sink already has it.
+   */
+  boolean needsIcon(Object iconKey);
+
   void setIcon(BitmapDescriptor bitmapDescriptor);
 
   void setInfoWindowAnchor(float u, float v);
@@ -0,0 +1,195 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.os.Process;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A region markers are searched in, parsed from {@code markers#query}.
+ *
+ * <p>Markers are first looked up in the marker index with the unit square rectangle that encloses
+ * the region, then {@link #filter} keeps those actually inside it. Filtering does not touch the
+ * markers, so it runs on {@link #getSharedExecutor}.
+ */
+abstract class MarkerQuery {
+
+  private static final double EARTH_RADIUS_METERS = 6371009;
+
+  private static ExecutorService sharedExecutor;
+
+  // Unit square rectangle enclosing the region, it may extend past the antimeridian.
+  final double minX;
+  final double minY;
+  final double maxX;
+  final double maxY;
+
+  private MarkerQuery(double minX, double minY, double maxX, double maxY) {
+    this.minX = minX;
+    this.minY = minY;
+    this.maxX = maxX;
+    this.maxY = maxY;
+  }
+
+  /** Returns whether {@code latitude, longitude} is inside the region. */
+  abstract boolean contains(double latitude, double longitude);
+
+  /**
+   * Returns the ids of the markers inside the region, {@code positions} holding the latitude and
+   * longitude of each of {@code markerIds} in turn.
+   */
+  List<String> filter(List<String> markerIds, double[] positions) {
+    final List<String> matches = new ArrayList<>();
+    for (int i = 0; i < markerIds.size(); i++) {
+      if (contains(positions[2 * i], positions[2 * i + 1])) {
+        matches.add(markerIds.get(i));
+      }
+    }
+    return matches;
+  }
+
+  static synchronized ExecutorService getSharedExecutor() {
+    if (sharedExecutor == null) {
+      sharedExecutor =
+          Executors.newSingleThreadExecutor(
+              runnable -> {
+                final Thread thread =
+                    new Thread(
+                        () -> {
+                          Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                          runnable.run();
+                        },
+                        "MarkerQuery");
+                thread.setDaemon(true);
+                return thread;
+              });
+    }
+    return sharedExecutor;
+  }
+
+  /** Markers inside {@code bounds}, which may cross the antimeridian. */
+  static MarkerQuery inBounds(final LatLngBounds bounds) {
+    final double south = bounds.southwest.latitude;
+    final double north = bounds.northeast.latitude;
+    final double west = bounds.southwest.longitude;
+    final double east = bounds.northeast.longitude;
+    return new MarkerQuery(
+        SphericalMercator.toX(west),
+        SphericalMercator.toY(north),
+        SphericalMercator.toX(east),
+        SphericalMercator.toY(south)) {
+      @Override
+      boolean contains(double latitude, double longitude) {
+        if (latitude < south || latitude > north) {
+          return false;
+        }
+        return west <= east
+            ? longitude >= west && longitude <= east
+            : longitude >= west || longitude <= east;
+      }
+    };
+  }
+
+  /** Markers at most {@code radiusMeters} away from {@code center} along the earth's surface. */
+  static MarkerQuery inRadius(LatLng center, final double radiusMeters) {
+    if (radiusMeters < 0) {
+      throw new IllegalArgumentException("Marker queries need a positive radius");
+    }
+    final double centerLatitude = Math.toRadians(center.latitude);
+    final double centerLongitude = Math.toRadians(center.longitude);
+    final double angle = radiusMeters / EARTH_RADIUS_METERS;
+    final double south = Math.max(-90, center.latitude - Math.toDegrees(angle));
+    final double north = Math.min(90, center.latitude + Math.toDegrees(angle));
+    // The circle is widest at the latitude closest to a pole.
+    final double cos = Math.cos(Math.toRadians(Math.max(Math.abs(south), Math.abs(north))));
+    final double longitudeDelta = cos > 0 ? Math.toDegrees(angle) / cos : 180;
+    final double minX;
+    final double maxX;
+    if (longitudeDelta >= 180) {
+      minX = 0;
+      maxX = 1;
+    } else {
+      minX = SphericalMercator.toX(center.longitude - longitudeDelta);
+      maxX = SphericalMercator.toX(center.longitude + longitudeDelta);
+    }
+    return new MarkerQuery(minX, SphericalMercator.toY(north), maxX, SphericalMercator.toY(south)) {
+      @Override
+      boolean contains(double latitude, double longitude) {
+        final double lat = Math.toRadians(latitude);
+        final double sinLat = Math.sin((lat - centerLatitude) / 2);
+        final double sinLng = Math.sin((Math.toRadians(longitude) - centerLongitude) / 2);
+        final double a =
+            sinLat * sinLat + Math.cos(centerLatitude) * Math.cos(lat) * sinLng * sinLng;
+        return 2 * Math.asin(Math.min(1, Math.sqrt(a))) <= angle;
+      }
+    };
+  }
+
+  /**
+   * Markers inside the polygon {@code points}, and outside all of its {@code holes}.
+   *
+   * <p>Edges are straight lines in latitude and longitude, as drawn by a non geodesic polygon, and
+   * the polygon must not cross the antimeridian.
+   */
+  static MarkerQuery inPolygon(List<LatLng> points, List<List<LatLng>> holes) {
+    if (points.size() < 3) {
+      throw new IllegalArgumentException("Marker queries need a polygon of at least 3 points");
+    }
+    final double[][] rings = new double[holes.size() + 1][];
+    rings[0] = toRing(points);
+    for (int i = 0; i < holes.size(); i++) {
+      rings[i + 1] = toRing(holes.get(i));
+    }
+    double south = 90;
+    double north = -90;
+    double west = 180;
+    double east = -180;
+    for (LatLng point : points) {
+      south = Math.min(south, point.latitude);
+      north = Math.max(north, point.latitude);
+      west = Math.min(west, point.longitude);
+      east = Math.max(east, point.longitude);
+    }
+    return new MarkerQuery(
+        SphericalMercator.toX(west),
+        SphericalMercator.toY(north),
+        SphericalMercator.toX(east),
+        SphericalMercator.toY(south)) {
+      @Override
+      boolean contains(double latitude, double longitude) {
+        // Even-odd rule, a point inside a hole crosses the edges of the hole once more.
+        boolean inside = false;
+        for (double[] ring : rings) {
+          for (int i = 0, j = ring.length - 2; i < ring.length; j = i, i += 2) {
+            final double latI = ring[i];
+            final double lngI = ring[i + 1];
+            final double latJ = ring[j];
+            final double lngJ = ring[j + 1];
+            if ((latI > latitude) != (latJ > latitude)
+                && longitude < (lngJ - lngI) * (latitude - latI) / (latJ - latI) + lngI) {
+              inside = !inside;
+            }
+          }
+        }
+        return inside;
+      }
+    };
+  }
+
+  /** Packs the latitudes and longitudes of {@code points} in turn. */
+  private static double[] toRing(List<LatLng> points) {
+    final double[] ring = new double[2 * points.size()];
+    for (int i = 0; i < points.size(); i++) {
+      ring[2 * i] = points.get(i).latitude;
+      ring[2 * i + 1] = points.get(i).longitude;
+    }
+    return ring;
+  }
+}
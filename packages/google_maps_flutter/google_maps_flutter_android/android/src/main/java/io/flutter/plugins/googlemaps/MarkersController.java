@@ -4,47 +4,406 @@
 
 package io.flutter.plugins.googlemaps;
 
-import android.graphics.Bitmap;
-
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import com.google.android.gms.maps.GoogleMap;
-import com.google.android.gms.maps.model.BitmapDescriptorFactory;
+import com.google.android.gms.maps.model.BitmapDescriptor;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
-
+import io.flutter.plugin.common.MethodChannel;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-
-import io.flutter.plugin.common.MethodChannel;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 class MarkersController {
 
+  private static final String TAG = "MarkersController";
+
+  /** Fraction of the visible region added on every side of it when culling markers. */
+  static final float DEFAULT_CULLING_MARGIN = 0.5f;
+
+  /** Time the camera must stay idle before the markers in view are reported. */
+  static final long DEFAULT_VISIBLE_MARKERS_DEBOUNCE_MILLIS = 200;
+
+  // Options of every marker, including the ones that are not currently on the map.
+  private final Map<String, MarkerBuilder> markerIdToOptions;
   private final Map<String, MarkerController> markerIdToController;
   private final Map<String, String> googleMapsMarkerIdToDartMarkerId;
+  private final PointQuadTree<String> markerIndex;
+  private final Map<String, Marker> clusterKeyToMarker;
+  private final Map<String, MarkerClusterer.Cluster> googleMapsMarkerIdToCluster;
   private final MethodChannel methodChannel;
+  private final Handler handler = new Handler(Looper.getMainLooper());
   private GoogleMap googleMap;
   private final CozyMarkerBuilder cozyMarkerBuilder;
+  @Nullable private MarkerClusterer markerClusterer;
+  private boolean cullingEnabled = false;
+  private float cullingMargin = DEFAULT_CULLING_MARGIN;
+  // Unit square region, visible region plus margin, whose markers are currently on the map.
+  private boolean hasCulledRegion = false;
+  private double culledMinX;
+  private double culledMinY;
+  private double culledMaxX;
+  private double culledMaxY;
+  private boolean updateScheduled = false;
+  // Markers waiting for their icon to be rendered in the background, they are not on the map yet.
+  private final Map<String, PendingMarker> pendingMarkers = new HashMap<>();
+  @Nullable private MarkerIconRenderer iconRenderer;
+  private final MarkerAnimator markerAnimator;
+  private Executor queryExecutor = MarkerQuery.getSharedExecutor();
+  private boolean visibleMarkersEventsEnabled = false;
+  private long visibleMarkersDebounceMillis = DEFAULT_VISIBLE_MARKERS_DEBOUNCE_MILLIS;
+  // Markers inside the visible region when it was last reported.
+  private final Set<String> visibleMarkerIds = new HashSet<>();
+  private final Runnable visibleMarkersCallback = this::sendVisibleMarkers;
+  private final MarkerIconBudget iconBudget;
+  private final MarkerIconBudget.Listener iconBudgetListener = this::trimIcons;
+  // Markers showing the budget placeholder instead of their icon, until they come back into view.
+  private final Set<String> placeholderMarkerIds = new HashSet<>();
+  // Counts of markers#update changes, and of the marker options they applied or skipped.
+  private long markerAddCount;
+  private long markerRemoveCount;
+  private long markerChangeCount;
+  private long fieldAppliedCount;
+  private long fieldSkippedCount;
+  private long iconSkippedCount;
 
   MarkersController(MethodChannel methodChannel, CozyMarkerBuilder cozyMarkerBuilder) {
+    this.markerIdToOptions = new HashMap<>();
     this.markerIdToController = new HashMap<>();
     this.googleMapsMarkerIdToDartMarkerId = new HashMap<>();
+    this.markerIndex = new PointQuadTree<>();
+    this.clusterKeyToMarker = new HashMap<>();
+    this.googleMapsMarkerIdToCluster = new HashMap<>();
     this.methodChannel = methodChannel;
     this.cozyMarkerBuilder = cozyMarkerBuilder;
-  }
+    this.iconBudget = MarkerIconBudget.getInstance();
+    iconBudget.addListener(iconBudgetListener);
+    this.markerAnimator =
+        new MarkerAnimator(
+            new MarkerAnimator.Listener() {
+              @Override
+              public void onMarkerAnimationFrame(String markerId, LatLng position) {
+                moveMarker(markerId, position);
+              }
 
+              @Override
+              public void onMarkerAnimationEnd(
+                  String markerId, LatLng from, LatLng position, boolean finished) {
+                onMarkerAnimationStopped(markerId, from, position, finished);
+              }
+            });
+  }
 
   void setGoogleMap(GoogleMap googleMap) {
     this.googleMap = googleMap;
   }
 
+  /**
+   * Enables native clustering of markers when {@code markerClusterer} is not null.
+   *
+   * <p>While clustering, markers are only added to the map when they are not part of a cluster,
+   * and clusters are recomputed every time the camera becomes idle.
+   */
+  void setMarkerClusterer(@Nullable MarkerClusterer markerClusterer) {
+    this.markerClusterer = markerClusterer;
+    if (markerClusterer != null) {
+      scheduleMarkerUpdate();
+      return;
+    }
+    removeClusterMarkers();
+    if (cullingEnabled) {
+      hasCulledRegion = false;
+      scheduleMarkerUpdate();
+    } else {
+      materializeAllMarkers();
+    }
+  }
+
+  /**
+   * Only keeps the markers inside the visible region on the map when {@code enabled}.
+   *
+   * <p>The visible region is grown by {@code margin} times its size on every side, so that panning
+   * does not reveal missing markers before the next update. Markers are added and removed as the
+   * camera moves, and their ids and callbacks are the same as when they are always on the map.
+   * Clustering already culls the markers it does not show, so this has no effect while it is on.
+   */
+  void setMarkerCulling(boolean enabled, float margin) {
+    this.cullingEnabled = enabled;
+    this.cullingMargin = margin;
+    this.hasCulledRegion = false;
+    if (markerClusterer != null) {
+      return;
+    }
+    if (enabled) {
+      scheduleMarkerUpdate();
+    } else {
+      materializeAllMarkers();
+    }
+  }
+
+  /**
+   * Reports the markers entering and leaving the visible region when {@code enabled}, once the
+   * camera stayed idle for {@code debounceMillis}.
+   */
+  void setVisibleMarkersEvents(boolean enabled, long debounceMillis) {
+    this.visibleMarkersEventsEnabled = enabled;
+    this.visibleMarkersDebounceMillis = debounceMillis;
+    if (!enabled) {
+      handler.removeCallbacks(visibleMarkersCallback);
+      visibleMarkerIds.clear();
+    }
+  }
+
+  /**
+   * Renders the icons of new price and count markers in the background when {@code enabled}.
+   *
+   * <p>Markers whose icon is not cached are only added to the map once it is rendered, a few at a
+   * time on every frame.
+   */
+  void setBackgroundIconRenderingEnabled(boolean enabled) {
+    if (enabled == (iconRenderer != null)) {
+      return;
+    }
+    if (enabled) {
+      iconRenderer = new MarkerIconRenderer(cozyMarkerBuilder, this::onMarkerIconReady);
+      return;
+    }
+    iconRenderer.dispose();
+    iconRenderer = null;
+    for (String markerId : new ArrayList<>(pendingMarkers.keySet())) {
+      addPendingMarker(markerId, pendingMarkers.remove(markerId));
+    }
+  }
+
+  Map<String, Object> getIconRenderStats() {
+    if (iconRenderer == null) {
+      return new HashMap<>();
+    }
+    return iconRenderer.getStats();
+  }
+
+  /**
+   * Returns how many markers there are, how many were added, removed and changed, and how many
+   * options the changes set on markers on the map or skipped because they were unchanged.
+   * Unchanged icons are neither rebuilt nor set again.
+   */
+  Map<String, Object> getUpdateStats() {
+    final Map<String, Object> stats = new HashMap<>(8);
+    stats.put("markerCount", markerIdToOptions.size() + pendingMarkers.size());
+    stats.put("markerOnMapCount", markerIdToController.size());
+    stats.put("markerAddCount", markerAddCount);
+    stats.put("markerRemoveCount", markerRemoveCount);
+    stats.put("markerChangeCount", markerChangeCount);
+    stats.put("markerFieldAppliedCount", fieldAppliedCount);
+    stats.put("markerFieldSkippedCount", fieldSkippedCount);
+    stats.put("markerIconSkippedCount", iconSkippedCount);
+    return stats;
+  }
+
+  /**
+   * Answers {@code result}, on the main thread, with the ids of the markers inside the region of
+   * {@code query}.
+   *
+   * <p>Candidates are looked up in the marker index here, and only their positions are handed to
+   * the query executor, which keeps those inside the region. Markers still waiting for their icon
+   * are not searched.
+   */
+  void queryMarkers(MarkerQuery query, final MethodChannel.Result result) {
+    final List<String> markerIds = new ArrayList<>();
+    SphericalMercator.search(
+        markerIndex, query.minX, query.minY, query.maxX, query.maxY, markerIds);
+    // Moving markers are indexed where their animation started.
+    final Set<String> animatingMarkerIds = markerAnimator.getMarkerIds();
+    if (!animatingMarkerIds.isEmpty()) {
+      markerIds.removeAll(animatingMarkerIds);
+      markerIds.addAll(animatingMarkerIds);
+    }
+    final double[] positions = new double[2 * markerIds.size()];
+    for (int i = 0; i < markerIds.size(); i++) {
+      final LatLng position = markerIdToOptions.get(markerIds.get(i)).getPosition();
+      positions[2 * i] = position.latitude;
+      positions[2 * i + 1] = position.longitude;
+    }
+    queryExecutor.execute(
+        () -> {
+          final List<String> matches = query.filter(markerIds, positions);
+          handler.post(() -> result.success(matches));
+        });
+  }
+
+  @VisibleForTesting
+  void setQueryExecutor(Executor queryExecutor) {
+    this.queryExecutor = queryExecutor;
+  }
+
+  void dispose() {
+    handler.removeCallbacksAndMessages(null);
+    iconBudget.removeListener(iconBudgetListener);
+    for (MarkerController markerController : markerIdToController.values()) {
+      iconBudget.release(markerController.getIconKey());
+    }
+    markerAnimator.dispose();
+    if (iconRenderer != null) {
+      iconRenderer.dispose();
+    }
+    pendingMarkers.clear();
+  }
+
+  /**
+   * Moves markers along the given paths on every frame, until they reach their target.
+   *
+   * <p>Only the start, end and cancellation of each animation are sent to Dart. Markers keep their
+   * index position while they move, and are reindexed once their animation stops. Markers that are
+   * unknown or still waiting for their icon are skipped.
+   */
+  void animateMarkers(List<Object> animations) {
+    if (animations == null) {
+      return;
+    }
+    for (Object rawAnimation : animations) {
+      final MarkerAnimator.Animation animation = Convert.toMarkerAnimation(rawAnimation);
+      final MarkerBuilder markerBuilder = markerIdToOptions.get(animation.markerId);
+      if (markerBuilder == null || markerBuilder.getPosition() == null) {
+        continue;
+      }
+      markerAnimator.start(animation, markerBuilder.getPosition());
+      methodChannel.invokeMethod(
+          "marker#onAnimationStart", Convert.markerIdToJson(animation.markerId));
+    }
+  }
+
+  /** Stops the animations of the given markers where they are. */
+  void cancelMarkerAnimations(List<Object> markerIds) {
+    if (markerIds == null) {
+      return;
+    }
+    for (Object markerId : markerIds) {
+      if (markerId != null) {
+        markerAnimator.cancel((String) markerId);
+      }
+    }
+  }
+
+  void onCameraMove() {
+    // The camera is not idle anymore, its pending visible region is outdated.
+    handler.removeCallbacks(visibleMarkersCallback);
+    if (!isCulling() || googleMap == null || !hasCulledRegion) {
+      return;
+    }
+    final LatLngBounds visibleBounds =
+        googleMap.getProjection().getVisibleRegion().latLngBounds;
+    final double minX = SphericalMercator.toX(visibleBounds.southwest.longitude);
+    final double maxX = SphericalMercator.toX(visibleBounds.northeast.longitude);
+    final double minY = SphericalMercator.toY(visibleBounds.northeast.latitude);
+    final double maxY = SphericalMercator.toY(visibleBounds.southwest.latitude);
+    // The margin covers small moves, only look for markers again once the camera leaves it.
+    if (minX > maxX || !isInCulledRegion(minX, minY) || !isInCulledRegion(maxX, maxY)) {
+      updateCulledMarkers();
+    }
+  }
+
+  void onCameraIdle() {
+    updateMarkers();
+    restoreIcons();
+    if (visibleMarkersEventsEnabled) {
+      handler.removeCallbacks(visibleMarkersCallback);
+      handler.postDelayed(visibleMarkersCallback, visibleMarkersDebounceMillis);
+    }
+  }
+
+  /**
+   * Sends the visible region with the ids of the markers that entered and left it since it was
+   * last sent. Removed markers that were in view are reported as having left.
+   */
+  private void sendVisibleMarkers() {
+    if (googleMap == null) {
+      return;
+    }
+    final LatLngBounds visibleBounds =
+        googleMap.getProjection().getVisibleRegion().latLngBounds;
+    final List<String> markerIds = new ArrayList<>();
+    SphericalMercator.search(markerIndex, visibleBounds, 0, markerIds);
+    final List<String> entered = new ArrayList<>();
+    final Set<String> left = new HashSet<>(visibleMarkerIds);
+    for (String markerId : markerIds) {
+      if (!left.remove(markerId)) {
+        entered.add(markerId);
+      }
+    }
+    visibleMarkerIds.removeAll(left);
+    visibleMarkerIds.addAll(entered);
+    final Map<String, Object> data = new HashMap<>(3);
+    data.put("bounds", Convert.latlngBoundsToJson(visibleBounds));
+    data.put("enteredMarkerIds", entered);
+    data.put("leftMarkerIds", new ArrayList<>(left));
+    methodChannel.invokeMethod("map#onVisibleMarkersChanged", data);
+  }
+
   void addMarkers(List<Object> markersToAdd) {
     if (markersToAdd != null) {
       for (Object markerToAdd : markersToAdd) {
         addMarker(markerToAdd);
       }
+      submitIconRendering();
+    }
+  }
+
+  void addMarkers(MarkerBatch markersToAdd) {
+    markerAddCount += markersToAdd.size();
+    for (int i = 0; i < markersToAdd.size(); i++) {
+      String markerId = markersToAdd.getMarkerId(i);
+      if (deferUntilIconIsRendered(markerId, new PendingMarker(markersToAdd, i))) {
+        continue;
+      }
+      MarkerBuilder markerBuilder = new MarkerBuilder();
+      markersToAdd.interpretMarkerOptions(i, markerBuilder, cozyMarkerBuilder);
+      addMarker(markerId, markerBuilder);
     }
+    submitIconRendering();
+  }
+
+  void changeMarkers(MarkerBatch markersToChange) {
+    for (int i = 0; i < markersToChange.size(); i++) {
+      String markerId = markersToChange.getMarkerId(i);
+      if (pendingMarkers.containsKey(markerId)) {
+        changePendingMarker(markerId, new PendingMarker(markersToChange, i));
+        continue;
+      }
+      MarkerBuilder markerBuilder = markerIdToOptions.get(markerId);
+      if (markerBuilder == null) {
+        continue;
+      }
+      LatLng previousPosition = markerBuilder.getPosition();
+      Object previousIconKey = markerBuilder.getIconKey();
+      markersToChange.interpretMarkerOptions(i, markerBuilder, cozyMarkerBuilder);
+      MarkerController markerController = markerIdToController.get(markerId);
+      Object previousMarkerIconKey = null;
+      if (markerController != null) {
+        previousMarkerIconKey = markerController.getIconKey();
+        int applied = markerController.getAppliedCount();
+        int skipped = markerController.getSkippedCount();
+        markersToChange.interpretMarkerOptions(i, markerController, cozyMarkerBuilder);
+        countFieldChanges(markerController, applied, skipped);
+      }
+      recordIconByteCount(markerBuilder);
+      countMarkerChange(previousIconKey, markerBuilder.getIconKey());
+      onMarkerIconChanged(
+          markerId, markerBuilder, markerController, previousIconKey, previousMarkerIconKey);
+      if (!keepAnimating(markerId, markerBuilder, previousPosition)) {
+        onMarkerChanged(markerId, previousPosition, markerBuilder.getPosition());
+      }
+    }
+    submitIconRendering();
   }
 
   void changeMarkers(List<Object> markersToChange) {
@@ -52,6 +411,7 @@ class MarkersController {
       for (Object markerToChange : markersToChange) {
         changeMarker(markerToChange);
       }
+      submitIconRendering();
     }
   }
 
@@ -64,11 +424,18 @@ class MarkersController {
         continue;
       }
       String markerId = (String) rawMarkerId;
-      final MarkerController markerController = markerIdToController.remove(markerId);
-      if (markerController != null) {
-        markerController.remove();
-        googleMapsMarkerIdToDartMarkerId.remove(markerController.getGoogleMapsMarkerId());
+      markerRemoveCount++;
+      pendingMarkers.remove(markerId);
+      placeholderMarkerIds.remove(markerId);
+      markerAnimator.cancel(markerId);
+      final MarkerBuilder markerBuilder = markerIdToOptions.remove(markerId);
+      if (markerBuilder != null) {
+        unindexMarker(markerId, markerBuilder.getPosition());
       }
+      removeMarkerFromMap(markerId);
+    }
+    if (markerClusterer != null) {
+      scheduleMarkerUpdate();
     }
   }
 
@@ -102,6 +469,11 @@ class MarkersController {
   }
 
   boolean onMarkerTap(String googleMarkerId) {
+    MarkerClusterer.Cluster cluster = googleMapsMarkerIdToCluster.get(googleMarkerId);
+    if (cluster != null) {
+      methodChannel.invokeMethod("cluster#onTap", Convert.clusterToJson(cluster));
+      return true;
+    }
     String markerId = googleMapsMarkerIdToDartMarkerId.get(googleMarkerId);
     if (markerId == null) {
       return false;
@@ -119,6 +491,7 @@ class MarkersController {
     if (markerId == null) {
       return;
     }
+    markerAnimator.cancel(markerId);
     final Map<String, Object> data = new HashMap<>();
     data.put("markerId", markerId);
     data.put("position", Convert.latLngToJson(latLng));
@@ -141,6 +514,13 @@ class MarkersController {
     if (markerId == null) {
       return;
     }
+    markerAnimator.cancel(markerId);
+    MarkerBuilder markerBuilder = markerIdToOptions.get(markerId);
+    if (markerBuilder != null) {
+      unindexMarker(markerId, markerBuilder.getPosition());
+      markerBuilder.setPosition(latLng);
+      indexMarker(markerId, latLng);
+    }
     final Map<String, Object> data = new HashMap<>();
     data.put("markerId", markerId);
     data.put("position", Convert.latLngToJson(latLng));
@@ -160,18 +540,139 @@ class MarkersController {
     if (marker == null) {
       return;
     }
+    markerAddCount++;
+    if (deferUntilIconIsRendered(getMarkerId(marker), new PendingMarker(marker))) {
+      return;
+    }
     MarkerBuilder markerBuilder = new MarkerBuilder();
     String markerId = Convert.interpretMarkerOptions(marker, markerBuilder, cozyMarkerBuilder);
-    MarkerOptions options = markerBuilder.build();
-    addMarker(markerId, options, markerBuilder.consumeTapEvents());
+    addMarker(markerId, markerBuilder);
+  }
+
+  /**
+   * Keeps {@code pendingMarker} aside while its icon is rendered in the background.
+   *
+   * <p>Returns false when the marker can be added right away, because background rendering is
+   * disabled, the marker does not use a {@link CozyMarkerBuilder} icon or the icon is cached.
+   */
+  private boolean deferUntilIconIsRendered(String markerId, PendingMarker pendingMarker) {
+    pendingMarkers.remove(markerId);
+    if (iconRenderer == null
+        || pendingMarker.label == null
+        || !("price".equals(pendingMarker.markerType) || "count".equals(pendingMarker.markerType))
+        || MarkerIconCache.getInstance()
+            .contains(cozyMarkerBuilder, pendingMarker.markerType, pendingMarker.label)) {
+      return false;
+    }
+    pendingMarkers.put(markerId, pendingMarker);
+    iconRenderer.request(markerId, pendingMarker.markerType, pendingMarker.label);
+    return true;
+  }
+
+  private void submitIconRendering() {
+    if (iconRenderer != null) {
+      iconRenderer.submit();
+    }
+  }
+
+  /**
+   * Adds a marker whose icon was rendered in the background. Markers whose icon failed to render
+   * are left out, since rendering it again would throw from the frame callback this is called in.
+   */
+  private void onMarkerIconReady(String markerId, boolean rendered) {
+    final PendingMarker pendingMarker = pendingMarkers.get(markerId);
+    // The marker may have been removed, or changed to an icon that is still being rendered.
+    if (pendingMarker == null
+        || (iconRenderer != null
+            && iconRenderer.isRendering(pendingMarker.markerType, pendingMarker.label))) {
+      return;
+    }
+    pendingMarkers.remove(markerId);
+    if (!rendered) {
+      Log.e(TAG, "Skipped marker " + markerId + ", its icon could not be rendered");
+      return;
+    }
+    try {
+      addPendingMarker(markerId, pendingMarker);
+    } catch (RuntimeException e) {
+      // The icon was evicted from the cache and failed to render again.
+      Log.e(TAG, "Skipped marker " + markerId + ", its icon could not be rendered", e);
+    }
+  }
+
+  private void addPendingMarker(String markerId, PendingMarker pendingMarker) {
+    final MarkerBuilder markerBuilder = new MarkerBuilder();
+    if (pendingMarker.batch != null) {
+      pendingMarker.batch.interpretMarkerOptions(
+          pendingMarker.index, markerBuilder, cozyMarkerBuilder);
+    } else {
+      Convert.interpretMarkerOptions(pendingMarker.options, markerBuilder, cozyMarkerBuilder);
+    }
+    addMarker(markerId, markerBuilder);
+  }
+
+  /** Changes to a marker that is not on the map yet replace the options it will be added with. */
+  private void changePendingMarker(String markerId, PendingMarker pendingMarker) {
+    if (!deferUntilIconIsRendered(markerId, pendingMarker)) {
+      addPendingMarker(markerId, pendingMarker);
+    }
+  }
+
+  private void addMarker(String markerId, MarkerBuilder markerBuilder) {
+    markerAnimator.cancel(markerId);
+    recordIconByteCount(markerBuilder);
+    MarkerBuilder previous = markerIdToOptions.put(markerId, markerBuilder);
+    if (previous != null) {
+      unindexMarker(markerId, previous.getPosition());
+      removeMarkerFromMap(markerId);
+      placeholderMarkerIds.remove(markerId);
+    }
+    final LatLng position = markerBuilder.getPosition();
+    indexMarker(markerId, position);
+    if (markerClusterer != null) {
+      scheduleMarkerUpdate();
+    } else if (!cullingEnabled || position == null) {
+      materializeMarker(markerId, markerBuilder);
+    } else if (!hasCulledRegion) {
+      scheduleMarkerUpdate();
+    } else if (isInCulledRegion(
+        SphericalMercator.toX(position.longitude), SphericalMercator.toY(position.latitude))) {
+      materializeMarker(markerId, markerBuilder);
+    }
+  }
+
+  private void materializeAllMarkers() {
+    if (googleMap == null) {
+      return;
+    }
+    for (Map.Entry<String, MarkerBuilder> entry : markerIdToOptions.entrySet()) {
+      if (!markerIdToController.containsKey(entry.getKey())) {
+        materializeMarker(entry.getKey(), entry.getValue());
+      }
+    }
   }
 
-  private void addMarker(String markerId, MarkerOptions markerOptions, boolean consumeTapEvents) {
-    final Marker marker = googleMap
-            .addMarker(markerOptions);
-    MarkerController controller = new MarkerController(marker, consumeTapEvents);
+  private void materializeMarker(String markerId, MarkerBuilder markerBuilder) {
+    final MarkerOptions options = markerBuilder.build();
+    final Marker marker = googleMap.addMarker(options);
+    final Object iconKey =
+        placeholderMarkerIds.contains(markerId)
+            ? MarkerIconBudget.PLACEHOLDER_KEY
+            : markerBuilder.getIconKey();
+    MarkerController controller =
+        new MarkerController(marker, options, markerBuilder.consumeTapEvents(), iconKey);
     markerIdToController.put(markerId, controller);
     googleMapsMarkerIdToDartMarkerId.put(marker.getId(), markerId);
+    iconBudget.acquire(iconKey, getIconByteCount(markerBuilder, iconKey));
+  }
+
+  private void removeMarkerFromMap(String markerId) {
+    final MarkerController markerController = markerIdToController.remove(markerId);
+    if (markerController != null) {
+      iconBudget.release(markerController.getIconKey());
+      markerController.remove();
+      googleMapsMarkerIdToDartMarkerId.remove(markerController.getGoogleMapsMarkerId());
+    }
   }
 
   private void changeMarker(Object marker) {
@@ -179,15 +680,414 @@ class MarkersController {
       return;
     }
     String markerId = getMarkerId(marker);
+    if (pendingMarkers.containsKey(markerId)) {
+      changePendingMarker(markerId, new PendingMarker(marker));
+      return;
+    }
+    MarkerBuilder markerBuilder = markerIdToOptions.get(markerId);
+    if (markerBuilder == null) {
+      return;
+    }
+    LatLng previousPosition = markerBuilder.getPosition();
+    Object previousIconKey = markerBuilder.getIconKey();
+    Convert.interpretMarkerOptions(marker, markerBuilder, cozyMarkerBuilder);
     MarkerController markerController = markerIdToController.get(markerId);
+    Object previousMarkerIconKey = null;
     if (markerController != null) {
+      previousMarkerIconKey = markerController.getIconKey();
+      int applied = markerController.getAppliedCount();
+      int skipped = markerController.getSkippedCount();
       Convert.interpretMarkerOptions(marker, markerController, cozyMarkerBuilder);
+      countFieldChanges(markerController, applied, skipped);
+    }
+    recordIconByteCount(markerBuilder);
+    countMarkerChange(previousIconKey, markerBuilder.getIconKey());
+    onMarkerIconChanged(
+        markerId, markerBuilder, markerController, previousIconKey, previousMarkerIconKey);
+    if (!keepAnimating(markerId, markerBuilder, previousPosition)) {
+      onMarkerChanged(markerId, previousPosition, markerBuilder.getPosition());
+    }
+  }
+
+  /**
+   * Keeps the icon budget in step with a change of the icon of a marker. Changes to a marker on the
+   * map give it its actual icon back, and a new icon replaces the placeholder of any marker.
+   */
+  private void onMarkerIconChanged(
+      String markerId,
+      MarkerBuilder markerBuilder,
+      @Nullable MarkerController markerController,
+      @Nullable Object previousIconKey,
+      @Nullable Object previousMarkerIconKey) {
+    final Object iconKey = markerBuilder.getIconKey();
+    if (iconKey != null && !iconKey.equals(previousIconKey)) {
+      placeholderMarkerIds.remove(markerId);
+    }
+    if (markerController == null) {
+      return;
+    }
+    final Object markerIconKey = markerController.getIconKey();
+    if (markerIconKey == null || markerIconKey.equals(previousMarkerIconKey)) {
+      return;
+    }
+    if (placeholderMarkerIds.remove(markerId)) {
+      markerBuilder.setIcon(buildIcon(markerIconKey));
+      iconBudget.onIconRestored();
+    }
+    iconBudget.release(previousMarkerIconKey);
+    iconBudget.acquire(markerIconKey, getIconByteCount(markerBuilder, markerIconKey));
+  }
+
+  /**
+   * Shows the placeholder instead of the price and count icons of the markers far from the visible
+   * region, so that the Maps SDK can free their bitmaps. Called by the icon budget.
+   */
+  private void trimIcons() {
+    if (googleMap == null) {
+      return;
+    }
+    final Set<String> nearbyMarkerIds = searchNearVisibleRegion();
+    final BitmapDescriptor placeholder = iconBudget.getPlaceholder();
+    for (Map.Entry<String, MarkerBuilder> entry : markerIdToOptions.entrySet()) {
+      final String markerId = entry.getKey();
+      final MarkerBuilder markerBuilder = entry.getValue();
+      if (nearbyMarkerIds.contains(markerId)
+          || placeholderMarkerIds.contains(markerId)
+          || markerBuilder.getPosition() == null
+          || markerAnimator.isAnimating(markerId)
+          || !MarkerIconBudget.isBudgeted(markerBuilder.getIconKey())) {
+        continue;
+      }
+      markerBuilder.setIcon(placeholder);
+      placeholderMarkerIds.add(markerId);
+      iconBudget.onIconDowngraded();
+      final MarkerController markerController = markerIdToController.get(markerId);
+      if (markerController != null) {
+        final Object markerIconKey = markerController.getIconKey();
+        if (markerController.needsIcon(MarkerIconBudget.PLACEHOLDER_KEY)) {
+          markerController.setIcon(placeholder);
+          iconBudget.release(markerIconKey);
+        }
+      }
     }
   }
 
+  /** Renders the icons of the markers showing the placeholder that came back into view. */
+  private void restoreIcons() {
+    if (googleMap == null || placeholderMarkerIds.isEmpty()) {
+      return;
+    }
+    for (String markerId : searchNearVisibleRegion()) {
+      if (!placeholderMarkerIds.remove(markerId)) {
+        continue;
+      }
+      final MarkerBuilder markerBuilder = markerIdToOptions.get(markerId);
+      final Object iconKey = markerBuilder.getIconKey();
+      final BitmapDescriptor icon = buildIcon(iconKey);
+      markerBuilder.setIcon(icon);
+      recordIconByteCount(markerBuilder);
+      iconBudget.onIconRestored();
+      final MarkerController markerController = markerIdToController.get(markerId);
+      if (markerController != null && markerController.needsIcon(iconKey)) {
+        markerController.setIcon(icon);
+        iconBudget.acquire(iconKey, markerBuilder.getIconByteCount());
+      }
+    }
+  }
+
+  /** Returns the markers inside the visible region grown by the default culling margin. */
+  private Set<String> searchNearVisibleRegion() {
+    final LatLngBounds visibleBounds =
+        googleMap.getProjection().getVisibleRegion().latLngBounds;
+    final double minX = SphericalMercator.toX(visibleBounds.southwest.longitude);
+    double maxX = SphericalMercator.toX(visibleBounds.northeast.longitude);
+    if (maxX < minX) {
+      maxX += 1;
+    }
+    final double minY = SphericalMercator.toY(visibleBounds.northeast.latitude);
+    final double maxY = SphericalMercator.toY(visibleBounds.southwest.latitude);
+    final double margin = DEFAULT_CULLING_MARGIN * Math.max(maxX - minX, maxY - minY);
+    final List<String> markerIds = new ArrayList<>();
+    SphericalMercator.search(markerIndex, visibleBounds, margin, markerIds);
+    return new HashSet<>(markerIds);
+  }
+
+  /** Renders, or reads from the icon cache, the price or count icon of {@code iconKey}. */
+  private BitmapDescriptor buildIcon(Object iconKey) {
+    final List<?> key = (List<?>) iconKey;
+    return MarkerIconCache.getInstance()
+        .getOrBuild(cozyMarkerBuilder, (String) key.get(0), (String) key.get(1));
+  }
+
+  /**
+   * Records the size of the icon of {@code markerBuilder} right after it was rendered or read from
+   * the icon cache, so that the icon budget gets it even once the cache has evicted the icon.
+   */
+  private void recordIconByteCount(MarkerBuilder markerBuilder) {
+    final Object iconKey = markerBuilder.getIconKey();
+    if (markerBuilder.getIconByteCount() != 0 || !MarkerIconBudget.isBudgeted(iconKey)) {
+      return;
+    }
+    final List<?> key = (List<?>) iconKey;
+    markerBuilder.setIconByteCount(
+        MarkerIconCache.getInstance()
+            .getByteCount(cozyMarkerBuilder, (String) key.get(0), (String) key.get(1)));
+  }
+
+  private static int getIconByteCount(MarkerBuilder markerBuilder, @Nullable Object iconKey) {
+    return iconKey != null && iconKey.equals(markerBuilder.getIconKey())
+        ? markerBuilder.getIconByteCount()
+        : 0;
+  }
+
+  private void countFieldChanges(MarkerController markerController, int applied, int skipped) {
+    fieldAppliedCount += markerController.getAppliedCount() - applied;
+    fieldSkippedCount += markerController.getSkippedCount() - skipped;
+  }
+
+  private void countMarkerChange(@Nullable Object previousIconKey, @Nullable Object iconKey) {
+    markerChangeCount++;
+    if (previousIconKey != null && previousIconKey.equals(iconKey)) {
+      iconSkippedCount++;
+    }
+  }
+
+  /**
+   * Changes that still have the position a marker is animated from or to keep it animating, from
+   * {@code animatedPosition}. Any other position cancels the animation and takes effect.
+   */
+  private boolean keepAnimating(
+      String markerId, MarkerBuilder markerBuilder, @Nullable LatLng animatedPosition) {
+    if (!markerAnimator.isAnimating(markerId)) {
+      return false;
+    }
+    if (!markerAnimator.isStartOrTarget(markerId, markerBuilder.getPosition())) {
+      markerAnimator.cancel(markerId);
+      return false;
+    }
+    moveMarker(markerId, animatedPosition);
+    return true;
+  }
+
+  private void moveMarker(String markerId, LatLng position) {
+    final MarkerBuilder markerBuilder = markerIdToOptions.get(markerId);
+    if (markerBuilder != null) {
+      markerBuilder.setPosition(position);
+    }
+    final MarkerController markerController = markerIdToController.get(markerId);
+    if (markerController != null) {
+      markerController.setPosition(position);
+    }
+  }
+
+  private void onMarkerAnimationStopped(
+      String markerId, LatLng from, LatLng position, boolean finished) {
+    onMarkerChanged(markerId, from, position);
+    final Map<String, Object> data = new HashMap<>();
+    data.put("markerId", markerId);
+    data.put("position", Convert.latLngToJson(position));
+    methodChannel.invokeMethod(
+        finished ? "marker#onAnimationEnd" : "marker#onAnimationCancel", data);
+  }
+
+  private void onMarkerChanged(
+      String markerId, @Nullable LatLng previousPosition, @Nullable LatLng position) {
+    if (position == null || position.equals(previousPosition)) {
+      return;
+    }
+    unindexMarker(markerId, previousPosition);
+    indexMarker(markerId, position);
+    if (markerClusterer != null || isCulling()) {
+      scheduleMarkerUpdate();
+    }
+  }
+
+  private void indexMarker(String markerId, @Nullable LatLng position) {
+    if (position != null) {
+      markerIndex.add(
+          markerId,
+          SphericalMercator.toX(position.longitude),
+          SphericalMercator.toY(position.latitude));
+    }
+  }
+
+  private void unindexMarker(String markerId, @Nullable LatLng position) {
+    if (position != null) {
+      markerIndex.remove(
+          markerId,
+          SphericalMercator.toX(position.longitude),
+          SphericalMercator.toY(position.latitude));
+    }
+  }
+
+  private boolean isCulling() {
+    return cullingEnabled && markerClusterer == null;
+  }
+
+  private boolean isInCulledRegion(double x, double y) {
+    if (y < culledMinY || y > culledMaxY) {
+      return false;
+    }
+    // The culled region may extend past the antimeridian.
+    return (x >= culledMinX && x <= culledMaxX)
+        || (x + 1 >= culledMinX && x + 1 <= culledMaxX)
+        || (x - 1 >= culledMinX && x - 1 <= culledMaxX);
+  }
+
+  private void scheduleMarkerUpdate() {
+    if (updateScheduled) {
+      return;
+    }
+    updateScheduled = true;
+    handler.post(
+        () -> {
+          updateScheduled = false;
+          updateMarkers();
+        });
+  }
+
+  private void updateMarkers() {
+    if (markerClusterer != null) {
+      updateClusters();
+    } else if (cullingEnabled) {
+      updateCulledMarkers();
+    }
+  }
+
+  private void updateCulledMarkers() {
+    if (googleMap == null) {
+      return;
+    }
+    final LatLngBounds visibleBounds =
+        googleMap.getProjection().getVisibleRegion().latLngBounds;
+    final double minX = SphericalMercator.toX(visibleBounds.southwest.longitude);
+    double maxX = SphericalMercator.toX(visibleBounds.northeast.longitude);
+    if (maxX < minX) {
+      maxX += 1;
+    }
+    final double minY = SphericalMercator.toY(visibleBounds.northeast.latitude);
+    final double maxY = SphericalMercator.toY(visibleBounds.southwest.latitude);
+    final double margin = cullingMargin * Math.max(maxX - minX, maxY - minY);
+
+    final List<String> candidates = new ArrayList<>();
+    SphericalMercator.search(markerIndex, visibleBounds, margin, candidates);
+    final Set<String> visibleMarkerIds = new HashSet<>(candidates);
+    for (String markerId : visibleMarkerIds) {
+      if (!markerIdToController.containsKey(markerId)) {
+        materializeMarker(markerId, markerIdToOptions.get(markerId));
+      }
+    }
+    for (String markerId : new ArrayList<>(markerIdToController.keySet())) {
+      if (!visibleMarkerIds.contains(markerId)
+          && markerIdToOptions.get(markerId).getPosition() != null) {
+        removeMarkerFromMap(markerId);
+      }
+    }
+    culledMinX = minX - margin;
+    culledMaxX = maxX + margin;
+    culledMinY = minY - margin;
+    culledMaxY = maxY + margin;
+    hasCulledRegion = true;
+  }
+
+  private void updateClusters() {
+    if (googleMap == null || markerClusterer == null) {
+      return;
+    }
+    final LatLngBounds visibleBounds =
+        googleMap.getProjection().getVisibleRegion().latLngBounds;
+    final float zoom = googleMap.getCameraPosition().zoom;
+    final List<MarkerClusterer.Cluster> clusters =
+        markerClusterer.cluster(markerIndex, markerIdToOptions, visibleBounds, zoom);
+
+    final Map<String, Marker> previousClusterMarkers = new HashMap<>(clusterKeyToMarker);
+    final Set<String> unclusteredMarkerIds = new HashSet<>();
+    clusterKeyToMarker.clear();
+    for (MarkerClusterer.Cluster cluster : clusters) {
+      if (cluster.markerIds.size() == 1) {
+        final String markerId = cluster.markerIds.get(0);
+        unclusteredMarkerIds.add(markerId);
+        if (!markerIdToController.containsKey(markerId)) {
+          materializeMarker(markerId, markerIdToOptions.get(markerId));
+        }
+        continue;
+      }
+      final String key = getClusterKey(cluster);
+      Marker clusterMarker = previousClusterMarkers.remove(key);
+      if (clusterMarker == null) {
+        clusterMarker = googleMap.addMarker(buildClusterMarkerOptions(cluster));
+      }
+      clusterKeyToMarker.put(key, clusterMarker);
+      googleMapsMarkerIdToCluster.put(clusterMarker.getId(), cluster);
+    }
+    for (Marker clusterMarker : previousClusterMarkers.values()) {
+      googleMapsMarkerIdToCluster.remove(clusterMarker.getId());
+      clusterMarker.remove();
+    }
+    for (String markerId : new ArrayList<>(markerIdToController.keySet())) {
+      if (!unclusteredMarkerIds.contains(markerId)) {
+        removeMarkerFromMap(markerId);
+      }
+    }
+  }
+
+  private MarkerOptions buildClusterMarkerOptions(MarkerClusterer.Cluster cluster) {
+    return new MarkerOptions()
+        .position(cluster.position)
+        .anchor(0.5f, 0.5f)
+        .icon(
+            MarkerIconCache.getInstance()
+                .getOrBuild(
+                    cozyMarkerBuilder, "count", String.valueOf(cluster.markerIds.size())));
+  }
+
+  private void removeClusterMarkers() {
+    for (Marker clusterMarker : clusterKeyToMarker.values()) {
+      clusterMarker.remove();
+    }
+    clusterKeyToMarker.clear();
+    googleMapsMarkerIdToCluster.clear();
+  }
+
+  private static String getClusterKey(MarkerClusterer.Cluster cluster) {
+    return cluster.markerIds.size()
+        + "@"
+        + cluster.position.latitude
+        + ","
+        + cluster.position.longitude;
+  }
+
   @SuppressWarnings("unchecked")
   private static String getMarkerId(Object marker) {
     Map<String, Object> markerMap = (Map<String, Object>) marker;
     return (String) markerMap.get("markerId");
   }
+
+  /** The options of a marker sent either with markers#update or markers#updateBinary. */
+  private static final class PendingMarker {
+    @Nullable final Object options;
+    @Nullable final MarkerBatch batch;
+    final int index;
+    @Nullable final String markerType;
+    @Nullable final String label;
+
+    PendingMarker(Object options) {
+      final Map<?, ?> data = (Map<?, ?>) options;
+      final Object markerType = data.get("markerType");
+      final Object label = data.get("label");
+      this.options = options;
+      this.batch = null;
+      this.index = -1;
+      this.markerType = markerType != null ? markerType.toString() : null;
+      this.label = label != null ? label.toString() : null;
+    }
+
+    PendingMarker(MarkerBatch batch, int index) {
+      this.options = null;
+      this.batch = batch;
+      this.index = index;
+      this.markerType = batch.getMarkerType(index);
+      this.label = batch.getLabel(index);
+    }
+  }
 }
@@ -0,0 +1,118 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.os.Handler;
+import android.os.Looper;
+import io.flutter.plugin.common.MethodChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Opt-in collector of the time a map spends handling method calls and taking snapshots.
+ *
+ * <p>Durations go into {@link LatencyHistogram}s, so recording them does not allocate once a
+ * method has been seen. When a report interval is set, {@code reporter} runs on the main thread
+ * at that interval while the collector is enabled. Every method except {@link #recordSnapshot}
+ * must be called on the main thread.
+ */
+final class PerformanceMetrics {
+
+  private final Runnable reporter;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Map<String, LatencyHistogram> methodCallLatencies = new HashMap<>();
+  private final LatencyHistogram snapshotLatencies = new LatencyHistogram();
+  private final Runnable reportCallback = this::report;
+
+  private volatile boolean enabled = false;
+  private long reportIntervalMillis = 0;
+
+  PerformanceMetrics(Runnable reporter) {
+    this.reporter = reporter;
+  }
+
+  /** Starts or stops collecting, a positive {@code reportIntervalMillis} reports periodically. */
+  void setOptions(boolean enabled, long reportIntervalMillis) {
+    this.enabled = enabled;
+    this.reportIntervalMillis = reportIntervalMillis;
+    handler.removeCallbacks(reportCallback);
+    if (enabled && reportIntervalMillis > 0) {
+      handler.postDelayed(reportCallback, reportIntervalMillis);
+    }
+  }
+
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  void recordMethodCall(String method, long nanos) {
+    if (!enabled) {
+      return;
+    }
+    LatencyHistogram histogram = methodCallLatencies.get(method);
+    if (histogram == null) {
+      histogram = new LatencyHistogram();
+      methodCallLatencies.put(method, histogram);
+    }
+    histogram.record(nanos);
+  }
+
+  /** Returns {@code result}, timed from now until it is answered when the collector is enabled. */
+  MethodChannel.Result timeSnapshot(final MethodChannel.Result result) {
+    if (!enabled) {
+      return result;
+    }
+    final long start = System.nanoTime();
+    return new MethodChannel.Result() {
+      @Override
+      public void success(Object value) {
+        recordSnapshot(System.nanoTime() - start);
+        result.success(value);
+      }
+
+      @Override
+      public void error(String errorCode, String errorMessage, Object errorDetails) {
+        recordSnapshot(System.nanoTime() - start);
+        result.error(errorCode, errorMessage, errorDetails);
+      }
+
+      @Override
+      public void notImplemented() {
+        result.notImplemented();
+      }
+    };
+  }
+
+  void recordSnapshot(long nanos) {
+    if (enabled) {
+      snapshotLatencies.record(nanos);
+    }
+  }
+
+  Map<String, Object> getStats() {
+    final Map<String, Object> methodCalls = new HashMap<>(methodCallLatencies.size());
+    for (Map.Entry<String, LatencyHistogram> entry : methodCallLatencies.entrySet()) {
+      methodCalls.put(entry.getKey(), entry.getValue().toMap());
+    }
+    final Map<String, Object> stats = new HashMap<>(3);
+    stats.put("enabled", enabled);
+    stats.put("methodCalls", methodCalls);
+    stats.put("snapshots", snapshotLatencies.toMap());
+    return stats;
+  }
+
+  void dispose() {
+    enabled = false;
+    handler.removeCallbacks(reportCallback);
+  }
+
+  private void report() {
+    if (!enabled || reportIntervalMillis <= 0) {
+      return;
+    }
+    reporter.run();
+    handler.postDelayed(reportCallback, reportIntervalMillis);
+  }
+}
@@ -0,0 +1,157 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A region quadtree of items located at points of the unit square.
+ *
+ * <p>Items are positioned with {@link SphericalMercator} coordinates, so every point of the world
+ * maps to {@code [0, 1] x [0, 1]}. The tree is not thread safe.
+ */
+final class PointQuadTree<T> {
+
+  private static final int MAX_ITEMS = 32;
+  private static final int MAX_DEPTH = 24;
+
+  private final double minX;
+  private final double minY;
+  private final double maxX;
+  private final double maxY;
+  private final int depth;
+  private List<Entry<T>> entries;
+  private List<PointQuadTree<T>> children;
+  private int size;
+
+  PointQuadTree() {
+    this(0, 0, 1, 1, 0);
+  }
+
+  private PointQuadTree(double minX, double minY, double maxX, double maxY, int depth) {
+    this.minX = minX;
+    this.minY = minY;
+    this.maxX = maxX;
+    this.maxY = maxY;
+    this.depth = depth;
+  }
+
+  int size() {
+    return size;
+  }
+
+  void add(T item, double x, double y) {
+    insert(new Entry<>(item, x, y));
+  }
+
+  /** Removes {@code item}, which must have been added at {@code (x, y)}. */
+  boolean remove(T item, double x, double y) {
+    if (!contains(x, y)) {
+      return false;
+    }
+    if (children != null) {
+      for (PointQuadTree<T> child : children) {
+        if (child.remove(item, x, y)) {
+          size--;
+          return true;
+        }
+      }
+      return false;
+    }
+    if (entries == null) {
+      return false;
+    }
+    for (int i = 0; i < entries.size(); i++) {
+      Entry<T> entry = entries.get(i);
+      if (entry.x == x && entry.y == y && entry.item.equals(item)) {
+        entries.remove(i);
+        size--;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  void clear() {
+    entries = null;
+    children = null;
+    size = 0;
+  }
+
+  /** Adds every item inside the given rectangle, edges included, to {@code out}. */
+  void search(double minX, double minY, double maxX, double maxY, List<T> out) {
+    if (size == 0 || !intersects(minX, minY, maxX, maxY)) {
+      return;
+    }
+    if (children != null) {
+      for (PointQuadTree<T> child : children) {
+        child.search(minX, minY, maxX, maxY, out);
+      }
+      return;
+    }
+    for (Entry<T> entry : entries) {
+      if (entry.x >= minX && entry.x <= maxX && entry.y >= minY && entry.y <= maxY) {
+        out.add(entry.item);
+      }
+    }
+  }
+
+  private void insert(Entry<T> entry) {
+    size++;
+    if (children != null) {
+      children.get(childIndex(entry.x, entry.y)).insert(entry);
+      return;
+    }
+    if (entries == null) {
+      entries = new ArrayList<>();
+    }
+    entries.add(entry);
+    if (entries.size() > MAX_ITEMS && depth < MAX_DEPTH) {
+      split();
+    }
+  }
+
+  private void split() {
+    final double midX = (minX + maxX) / 2;
+    final double midY = (minY + maxY) / 2;
+    children = new ArrayList<>(4);
+    children.add(new PointQuadTree<T>(minX, minY, midX, midY, depth + 1));
+    children.add(new PointQuadTree<T>(midX, minY, maxX, midY, depth + 1));
+    children.add(new PointQuadTree<T>(minX, midY, midX, maxY, depth + 1));
+    children.add(new PointQuadTree<T>(midX, midY, maxX, maxY, depth + 1));
+    final List<Entry<T>> items = entries;
+    entries = null;
+    for (Entry<T> item : items) {
+      children.get(childIndex(item.x, item.y)).insert(item);
+    }
+  }
+
+  private int childIndex(double x, double y) {
+    final double midX = (minX + maxX) / 2;
+    final double midY = (minY + maxY) / 2;
+    return (x < midX ? 0 : 1) + (y < midY ? 0 : 2);
+  }
+
+  private boolean contains(double x, double y) {
+    return x >= minX && x <= maxX && y >= minY && y <= maxY;
+  }
+
+  private boolean intersects(double minX, double minY, double maxX, double maxY) {
+    return minX <= this.maxX && maxX >= this.minX && minY <= this.maxY && maxY >= this.minY;
+  }
+
+  private static final class Entry<T> {
+    final T item;
+    final double x;
+    final double y;
+
+    Entry(T item, double x, double y) {
+      this.item = item;
+      this.x = x;
+      this.y = y;
+    }
+  }
+}
@@ -4,18 +4,30 @@
 
 package io.flutter.plugins.googlemaps;
 
+import androidx.annotation.Nullable;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.PolygonOptions;
+import java.util.ArrayList;
 import java.util.List;
 
 class PolygonBuilder implements PolygonOptionsSink {
   private final PolygonOptions polygonOptions;
   private final float density;
   private boolean consumeTapEvents;
+  private final float simplificationTolerance;
+  private final int zoomBucket;
+  @Nullable private SimplifiedPath simplifiedPoints;
+  @Nullable private List<SimplifiedPath> simplifiedHoles;
 
   PolygonBuilder(float density) {
+    this(density, 0, SimplifiedPath.MAX_ZOOM_BUCKET);
+  }
+
+  PolygonBuilder(float density, float simplificationTolerance, int zoomBucket) {
     this.polygonOptions = new PolygonOptions();
     this.density = density;
+    this.simplificationTolerance = simplificationTolerance;
+    this.zoomBucket = zoomBucket;
   }
 
   PolygonOptions build() {
@@ -26,6 +38,18 @@ class PolygonBuilder implements PolygonOptionsSink {
     return consumeTapEvents;
   }
 
+  /** Returns the full outline when it is simplified, null otherwise. */
+  @Nullable
+  SimplifiedPath getSimplifiedPoints() {
+    return simplifiedPoints;
+  }
+
+  /** Returns the full holes when they are simplified, null otherwise. */
+  @Nullable
+  List<SimplifiedPath> getSimplifiedHoles() {
+    return simplifiedHoles;
+  }
+
   @Override
   public void setFillColor(int color) {
     polygonOptions.fillColor(color);
@@ -38,11 +62,25 @@ class PolygonBuilder implements PolygonOptionsSink {
 
   @Override
   public void setPoints(List<LatLng> points) {
-    polygonOptions.addAll(points);
+    if (simplificationTolerance > 0) {
+      simplifiedPoints = new SimplifiedPath(points);
+      polygonOptions.addAll(simplifiedPoints.getPoints(zoomBucket, simplificationTolerance));
+    } else {
+      polygonOptions.addAll(points);
+    }
   }
 
   @Override
   public void setHoles(List<List<LatLng>> holes) {
+    if (simplificationTolerance > 0) {
+      simplifiedHoles = new ArrayList<>(holes.size());
+      for (List<LatLng> hole : holes) {
+        final SimplifiedPath simplifiedHole = new SimplifiedPath(hole);
+        simplifiedHoles.add(simplifiedHole);
+        polygonOptions.addHole(simplifiedHole.getPoints(zoomBucket, simplificationTolerance));
+      }
+      return;
+    }
     for (List<LatLng> hole : holes) {
       polygonOptions.addHole(hole);
     }
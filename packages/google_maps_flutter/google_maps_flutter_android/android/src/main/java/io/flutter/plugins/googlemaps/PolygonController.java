@@ -4,8 +4,10 @@
 
 package io.flutter.plugins.googlemaps;
 
+import androidx.annotation.Nullable;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.Polygon;
+import java.util.ArrayList;
 import java.util.List;
 
 /** Controller of a single Polygon on the map. */
@@ -14,12 +16,39 @@ class PolygonController implements PolygonOptionsSink {
   private final String googleMapsPolygonId;
   private final float density;
   private boolean consumeTapEvents;
+  private float simplificationTolerance;
+  private int zoomBucket;
+  // The full outline and holes while they are simplified, and the ones drawn for zoomBucket.
+  @Nullable private SimplifiedPath simplifiedPoints;
+  @Nullable private List<SimplifiedPath> simplifiedHoles;
+  @Nullable private List<LatLng> drawnPoints;
+  @Nullable private List<List<LatLng>> drawnHoles;
 
   PolygonController(Polygon polygon, boolean consumeTapEvents, float density) {
+    this(polygon, consumeTapEvents, density, null, null, 0, SimplifiedPath.MAX_ZOOM_BUCKET);
+  }
+
+  PolygonController(
+      Polygon polygon,
+      boolean consumeTapEvents,
+      float density,
+      @Nullable SimplifiedPath simplifiedPoints,
+      @Nullable List<SimplifiedPath> simplifiedHoles,
+      float simplificationTolerance,
+      int zoomBucket) {
     this.polygon = polygon;
     this.density = density;
     this.consumeTapEvents = consumeTapEvents;
     this.googleMapsPolygonId = polygon.getId();
+    this.simplificationTolerance = simplifiedPoints != null ? simplificationTolerance : 0;
+    this.zoomBucket = zoomBucket;
+    if (simplifiedPoints != null) {
+      this.simplifiedPoints = simplifiedPoints;
+      this.simplifiedHoles =
+          simplifiedHoles != null ? simplifiedHoles : new ArrayList<SimplifiedPath>();
+      drawnPoints = simplifiedPoints.getPoints(zoomBucket, simplificationTolerance);
+      drawnHoles = getPoints(this.simplifiedHoles, zoomBucket, simplificationTolerance);
+    }
   }
 
   void remove() {
@@ -49,11 +78,93 @@ class PolygonController implements PolygonOptionsSink {
 
   @Override
   public void setPoints(List<LatLng> points) {
-    polygon.setPoints(points);
+    if (simplificationTolerance > 0) {
+      simplifiedPoints = new SimplifiedPath(points);
+      drawnPoints = simplifiedPoints.getPoints(zoomBucket, simplificationTolerance);
+      polygon.setPoints(drawnPoints);
+    } else {
+      polygon.setPoints(points);
+    }
   }
 
   public void setHoles(List<List<LatLng>> holes) {
-    polygon.setHoles(holes);
+    if (simplificationTolerance > 0) {
+      simplifiedHoles = toSimplifiedPaths(holes);
+      drawnHoles = getPoints(simplifiedHoles, zoomBucket, simplificationTolerance);
+      polygon.setHoles(drawnHoles);
+    } else {
+      polygon.setHoles(holes);
+    }
+  }
+
+  /**
+   * Draws the outline and holes simplified for {@code zoomBucket}, or all of their points when
+   * {@code tolerancePixels} is 0. Points are only sent to the Maps SDK again when they changed.
+   */
+  void setSimplification(float tolerancePixels, int zoomBucket) {
+    if (tolerancePixels == simplificationTolerance && zoomBucket == this.zoomBucket) {
+      return;
+    }
+    simplificationTolerance = tolerancePixels;
+    this.zoomBucket = zoomBucket;
+    if (tolerancePixels <= 0) {
+      if (simplifiedPoints != null) {
+        polygon.setPoints(simplifiedPoints.getPoints());
+        polygon.setHoles(getPoints(simplifiedHoles, zoomBucket, 0));
+        simplifiedPoints = null;
+        simplifiedHoles = null;
+        drawnPoints = null;
+        drawnHoles = null;
+      }
+      return;
+    }
+    if (simplifiedPoints == null) {
+      simplifiedPoints = new SimplifiedPath(polygon.getPoints());
+      simplifiedHoles = toSimplifiedPaths(polygon.getHoles());
+      drawnPoints = simplifiedPoints.getPoints();
+      drawnHoles = getPoints(simplifiedHoles, zoomBucket, 0);
+    }
+    final List<LatLng> points = simplifiedPoints.getPoints(zoomBucket, tolerancePixels);
+    if (points != drawnPoints) {
+      drawnPoints = points;
+      polygon.setPoints(points);
+    }
+    final List<List<LatLng>> holes = getPoints(simplifiedHoles, zoomBucket, tolerancePixels);
+    if (!isSameLists(holes, drawnHoles)) {
+      drawnHoles = holes;
+      polygon.setHoles(holes);
+    }
+  }
+
+  private static boolean isSameLists(List<List<LatLng>> a, @Nullable List<List<LatLng>> b) {
+    if (b == null || a.size() != b.size()) {
+      return false;
+    }
+    for (int i = 0; i < a.size(); i++) {
+      if (a.get(i) != b.get(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static List<SimplifiedPath> toSimplifiedPaths(List<? extends List<LatLng>> paths) {
+    final List<SimplifiedPath> simplifiedPaths = new ArrayList<>(paths.size());
+    for (List<LatLng> path : paths) {
+      simplifiedPaths.add(new SimplifiedPath(path));
+    }
+    return simplifiedPaths;
+  }
+
+  /** Returns the points of {@code paths} for {@code zoomBucket}, all of them for a 0 tolerance. */
+  private static List<List<LatLng>> getPoints(
+      List<SimplifiedPath> paths, int zoomBucket, float tolerancePixels) {
+    final List<List<LatLng>> points = new ArrayList<>(paths.size());
+    for (SimplifiedPath path : paths) {
+      points.add(
+          tolerancePixels > 0 ? path.getPoints(zoomBucket, tolerancePixels) : path.getPoints());
+    }
+    return points;
   }
 
   @Override
@@ -4,6 +4,7 @@
 
 package io.flutter.plugins.googlemaps;
 
+import androidx.annotation.Nullable;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.model.Polygon;
 import com.google.android.gms.maps.model.PolygonOptions;
@@ -19,6 +20,8 @@ class PolygonsController {
   private final MethodChannel methodChannel;
   private final float density;
   private GoogleMap googleMap;
+  private float simplificationTolerance = 0;
+  private int zoomBucket = SimplifiedPath.MAX_ZOOM_BUCKET;
 
   PolygonsController(MethodChannel methodChannel, float density) {
     this.polygonIdToController = new HashMap<>();
@@ -29,6 +32,40 @@ class PolygonsController {
 
   void setGoogleMap(GoogleMap googleMap) {
     this.googleMap = googleMap;
+    if (simplificationTolerance > 0) {
+      zoomBucket = SimplifiedPath.toZoomBucket(googleMap.getCameraPosition().zoom);
+    }
+  }
+
+  /**
+   * Draws polygons simplified to within {@code tolerancePixels} of their full outlines and holes
+   * at the current zoom level, or at full resolution when it is 0.
+   */
+  void setSimplificationTolerance(float tolerancePixels) {
+    if (tolerancePixels == simplificationTolerance) {
+      return;
+    }
+    simplificationTolerance = tolerancePixels;
+    if (googleMap != null && tolerancePixels > 0) {
+      zoomBucket = SimplifiedPath.toZoomBucket(googleMap.getCameraPosition().zoom);
+    }
+    for (PolygonController controller : polygonIdToController.values()) {
+      controller.setSimplification(simplificationTolerance, zoomBucket);
+    }
+  }
+
+  void onCameraIdle() {
+    if (simplificationTolerance <= 0) {
+      return;
+    }
+    final int zoomBucket = SimplifiedPath.toZoomBucket(googleMap.getCameraPosition().zoom);
+    if (zoomBucket == this.zoomBucket) {
+      return;
+    }
+    this.zoomBucket = zoomBucket;
+    for (PolygonController controller : polygonIdToController.values()) {
+      controller.setSimplification(simplificationTolerance, zoomBucket);
+    }
   }
 
   void addPolygons(List<Object> polygonsToAdd) {
@@ -81,16 +118,34 @@ class PolygonsController {
     if (polygon == null) {
       return;
     }
-    PolygonBuilder polygonBuilder = new PolygonBuilder(density);
+    PolygonBuilder polygonBuilder =
+        new PolygonBuilder(density, simplificationTolerance, zoomBucket);
     String polygonId = Convert.interpretPolygonOptions(polygon, polygonBuilder);
     PolygonOptions options = polygonBuilder.build();
-    addPolygon(polygonId, options, polygonBuilder.consumeTapEvents());
+    addPolygon(
+        polygonId,
+        options,
+        polygonBuilder.consumeTapEvents(),
+        polygonBuilder.getSimplifiedPoints(),
+        polygonBuilder.getSimplifiedHoles());
   }
 
   private void addPolygon(
-      String polygonId, PolygonOptions polygonOptions, boolean consumeTapEvents) {
+      String polygonId,
+      PolygonOptions polygonOptions,
+      boolean consumeTapEvents,
+      @Nullable SimplifiedPath simplifiedPoints,
+      @Nullable List<SimplifiedPath> simplifiedHoles) {
     final Polygon polygon = googleMap.addPolygon(polygonOptions);
-    PolygonController controller = new PolygonController(polygon, consumeTapEvents, density);
+    PolygonController controller =
+        new PolygonController(
+            polygon,
+            consumeTapEvents,
+            density,
+            simplifiedPoints,
+            simplifiedHoles,
+            simplificationTolerance,
+            zoomBucket);
     polygonIdToController.put(polygonId, controller);
     googleMapsPolygonIdToDartPolygonId.put(polygon.getId(), polygonId);
   }
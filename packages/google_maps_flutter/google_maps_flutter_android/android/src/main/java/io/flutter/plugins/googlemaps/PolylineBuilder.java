@@ -4,6 +4,7 @@
 
 package io.flutter.plugins.googlemaps;
 
+import androidx.annotation.Nullable;
 import com.google.android.gms.maps.model.Cap;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.PatternItem;
@@ -14,10 +15,19 @@ class PolylineBuilder implements PolylineOptionsSink {
   private final PolylineOptions polylineOptions;
   private boolean consumeTapEvents;
   private final float density;
+  private final float simplificationTolerance;
+  private final int zoomBucket;
+  @Nullable private SimplifiedPath simplifiedPath;
 
   PolylineBuilder(float density) {
+    this(density, 0, SimplifiedPath.MAX_ZOOM_BUCKET);
+  }
+
+  PolylineBuilder(float density, float simplificationTolerance, int zoomBucket) {
     this.polylineOptions = new PolylineOptions();
     this.density = density;
+    this.simplificationTolerance = simplificationTolerance;
+    this.zoomBucket = zoomBucket;
   }
 
   PolylineOptions build() {
@@ -28,6 +38,12 @@ class PolylineBuilder implements PolylineOptionsSink {
     return consumeTapEvents;
   }
 
+  /** Returns the full points when they are simplified, null otherwise. */
+  @Nullable
+  SimplifiedPath getSimplifiedPath() {
+    return simplifiedPath;
+  }
+
   @Override
   public void setColor(int color) {
     polylineOptions.color(color);
@@ -50,7 +66,12 @@ class PolylineBuilder implements PolylineOptionsSink {
 
   @Override
   public void setPoints(List<LatLng> points) {
-    polylineOptions.addAll(points);
+    if (simplificationTolerance > 0) {
+      simplifiedPath = new SimplifiedPath(points);
+      polylineOptions.addAll(simplifiedPath.getPoints(zoomBucket, simplificationTolerance));
+    } else {
+      polylineOptions.addAll(points);
+    }
   }
 
   @Override
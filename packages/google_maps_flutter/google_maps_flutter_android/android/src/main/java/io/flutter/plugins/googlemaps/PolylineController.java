@@ -4,6 +4,7 @@
 
 package io.flutter.plugins.googlemaps;
 
+import androidx.annotation.Nullable;
 import com.google.android.gms.maps.model.Cap;
 import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.PatternItem;
@@ -16,12 +17,33 @@ class PolylineController implements PolylineOptionsSink {
   private final String googleMapsPolylineId;
   private boolean consumeTapEvents;
   private final float density;
+  private float simplificationTolerance;
+  private int zoomBucket;
+  // The full points while they are simplified, and the ones drawn for zoomBucket.
+  @Nullable private SimplifiedPath simplifiedPath;
+  @Nullable private List<LatLng> drawnPoints;
 
   PolylineController(Polyline polyline, boolean consumeTapEvents, float density) {
+    this(polyline, consumeTapEvents, density, null, 0, SimplifiedPath.MAX_ZOOM_BUCKET);
+  }
+
+  PolylineController(
+      Polyline polyline,
+      boolean consumeTapEvents,
+      float density,
+      @Nullable SimplifiedPath simplifiedPath,
+      float simplificationTolerance,
+      int zoomBucket) {
     this.polyline = polyline;
     this.consumeTapEvents = consumeTapEvents;
     this.density = density;
     this.googleMapsPolylineId = polyline.getId();
+    this.simplifiedPath = simplifiedPath;
+    this.simplificationTolerance = simplifiedPath != null ? simplificationTolerance : 0;
+    this.zoomBucket = zoomBucket;
+    if (simplifiedPath != null) {
+      drawnPoints = simplifiedPath.getPoints(zoomBucket, simplificationTolerance);
+    }
   }
 
   void remove() {
@@ -61,7 +83,42 @@ class PolylineController implements PolylineOptionsSink {
 
   @Override
   public void setPoints(List<LatLng> points) {
-    polyline.setPoints(points);
+    if (simplificationTolerance > 0) {
+      simplifiedPath = new SimplifiedPath(points);
+      drawnPoints = simplifiedPath.getPoints(zoomBucket, simplificationTolerance);
+      polyline.setPoints(drawnPoints);
+    } else {
+      polyline.setPoints(points);
+    }
+  }
+
+  /**
+   * Draws the points simplified for {@code zoomBucket}, or all of them when {@code
+   * tolerancePixels} is 0. Points are only sent to the Maps SDK again when they changed.
+   */
+  void setSimplification(float tolerancePixels, int zoomBucket) {
+    if (tolerancePixels == simplificationTolerance && zoomBucket == this.zoomBucket) {
+      return;
+    }
+    simplificationTolerance = tolerancePixels;
+    this.zoomBucket = zoomBucket;
+    if (tolerancePixels <= 0) {
+      if (simplifiedPath != null) {
+        polyline.setPoints(simplifiedPath.getPoints());
+        simplifiedPath = null;
+        drawnPoints = null;
+      }
+      return;
+    }
+    if (simplifiedPath == null) {
+      simplifiedPath = new SimplifiedPath(polyline.getPoints());
+      drawnPoints = simplifiedPath.getPoints();
+    }
+    final List<LatLng> points = simplifiedPath.getPoints(zoomBucket, tolerancePixels);
+    if (points != drawnPoints) {
+      drawnPoints = points;
+      polyline.setPoints(points);
+    }
   }
 
   @Override
@@ -4,6 +4,7 @@
 
 package io.flutter.plugins.googlemaps;
 
+import androidx.annotation.Nullable;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.model.Polyline;
 import com.google.android.gms.maps.model.PolylineOptions;
@@ -19,6 +20,8 @@ class PolylinesController {
   private final MethodChannel methodChannel;
   private GoogleMap googleMap;
   private final float density;
+  private float simplificationTolerance = 0;
+  private int zoomBucket = SimplifiedPath.MAX_ZOOM_BUCKET;
 
   PolylinesController(MethodChannel methodChannel, float density) {
     this.polylineIdToController = new HashMap<>();
@@ -29,6 +32,40 @@ class PolylinesController {
 
   void setGoogleMap(GoogleMap googleMap) {
     this.googleMap = googleMap;
+    if (simplificationTolerance > 0) {
+      zoomBucket = SimplifiedPath.toZoomBucket(googleMap.getCameraPosition().zoom);
+    }
+  }
+
+  /**
+   * Draws polylines simplified to within {@code tolerancePixels} of their full points at the
+   * current zoom level, or at full resolution when it is 0.
+   */
+  void setSimplificationTolerance(float tolerancePixels) {
+    if (tolerancePixels == simplificationTolerance) {
+      return;
+    }
+    simplificationTolerance = tolerancePixels;
+    if (googleMap != null && tolerancePixels > 0) {
+      zoomBucket = SimplifiedPath.toZoomBucket(googleMap.getCameraPosition().zoom);
+    }
+    for (PolylineController controller : polylineIdToController.values()) {
+      controller.setSimplification(simplificationTolerance, zoomBucket);
+    }
+  }
+
+  void onCameraIdle() {
+    if (simplificationTolerance <= 0) {
+      return;
+    }
+    final int zoomBucket = SimplifiedPath.toZoomBucket(googleMap.getCameraPosition().zoom);
+    if (zoomBucket == this.zoomBucket) {
+      return;
+    }
+    this.zoomBucket = zoomBucket;
+    for (PolylineController controller : polylineIdToController.values()) {
+      controller.setSimplification(simplificationTolerance, zoomBucket);
+    }
   }
 
   void addPolylines(List<Object> polylinesToAdd) {
@@ -81,16 +118,31 @@ class PolylinesController {
     if (polyline == null) {
       return;
     }
-    PolylineBuilder polylineBuilder = new PolylineBuilder(density);
+    PolylineBuilder polylineBuilder =
+        new PolylineBuilder(density, simplificationTolerance, zoomBucket);
     String polylineId = Convert.interpretPolylineOptions(polyline, polylineBuilder);
     PolylineOptions options = polylineBuilder.build();
-    addPolyline(polylineId, options, polylineBuilder.consumeTapEvents());
+    addPolyline(
+        polylineId,
+        options,
+        polylineBuilder.consumeTapEvents(),
+        polylineBuilder.getSimplifiedPath());
   }
 
   private void addPolyline(
-      String polylineId, PolylineOptions polylineOptions, boolean consumeTapEvents) {
+      String polylineId,
+      PolylineOptions polylineOptions,
+      boolean consumeTapEvents,
+      @Nullable SimplifiedPath simplifiedPath) {
     final Polyline polyline = googleMap.addPolyline(polylineOptions);
-    PolylineController controller = new PolylineController(polyline, consumeTapEvents, density);
+    PolylineController controller =
+        new PolylineController(
+            polyline,
+            consumeTapEvents,
+            density,
+            simplifiedPath,
+            simplificationTolerance,
+            zoomBucket);
     polylineIdToController.put(polylineId, controller);
     googleMapsPolylineIdToDartPolylineId.put(polyline.getId(), polylineId);
   }
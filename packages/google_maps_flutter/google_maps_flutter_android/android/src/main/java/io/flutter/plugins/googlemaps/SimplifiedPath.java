@@ -0,0 +1,160 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import com.google.android.gms.maps.model.LatLng;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The points of a polyline, polygon or hole, with Douglas-Peucker simplified versions of them for
+ * each integer zoom level.
+ *
+ * <p>The simplification runs once, in Web Mercator coordinates, and records for every point the
+ * tolerance above which Douglas-Peucker would drop it. The points for a zoom bucket are then the
+ * ones whose tolerance is larger than {@code tolerancePixels} at the next zoom level, so every
+ * dropped point is at most {@code tolerancePixels} density independent pixels away from the drawn
+ * path anywhere in the bucket. Simplified versions are cached until the tolerance changes.
+ */
+final class SimplifiedPath {
+
+  static final float DEFAULT_TOLERANCE_PIXELS = 1;
+
+  /** Zoom levels are clamped to this bucket, the Maps SDK does not zoom further. */
+  static final int MAX_ZOOM_BUCKET = 21;
+
+  private final List<LatLng> points;
+  // Squared tolerance, in unit square units, above which each point is dropped.
+  private final double[] tolerances;
+  @SuppressWarnings("unchecked")
+  private final List<LatLng>[] simplifiedPoints = new List[MAX_ZOOM_BUCKET + 1];
+
+  private float tolerancePixels;
+
+  SimplifiedPath(List<LatLng> points) {
+    this.points = points;
+    this.tolerances = computeTolerances(points);
+  }
+
+  static int toZoomBucket(float zoom) {
+    return Math.max(0, Math.min(MAX_ZOOM_BUCKET, (int) Math.floor(zoom)));
+  }
+
+  List<LatLng> getPoints() {
+    return points;
+  }
+
+  /** Returns the points to draw within {@code zoomBucket}, the full list when none is dropped. */
+  List<LatLng> getPoints(int zoomBucket, float tolerancePixels) {
+    if (tolerancePixels != this.tolerancePixels) {
+      this.tolerancePixels = tolerancePixels;
+      for (int i = 0; i < simplifiedPoints.length; i++) {
+        simplifiedPoints[i] = null;
+      }
+    }
+    List<LatLng> simplified = simplifiedPoints[zoomBucket];
+    if (simplified == null) {
+      simplified = simplify(zoomBucket, tolerancePixels);
+      simplifiedPoints[zoomBucket] = simplified;
+    }
+    return simplified;
+  }
+
+  private List<LatLng> simplify(int zoomBucket, float tolerancePixels) {
+    final double tolerance = tolerancePixels * SphericalMercator.pixelSize(zoomBucket + 1);
+    final double squaredTolerance = tolerance * tolerance;
+    int count = 0;
+    for (double pointTolerance : tolerances) {
+      if (pointTolerance > squaredTolerance) {
+        count++;
+      }
+    }
+    if (count == points.size()) {
+      return points;
+    }
+    final List<LatLng> simplified = new ArrayList<>(count);
+    for (int i = 0; i < tolerances.length; i++) {
+      if (tolerances[i] > squaredTolerance) {
+        simplified.add(points.get(i));
+      }
+    }
+    return simplified;
+  }
+
+  /**
+   * Runs Douglas-Peucker down to a zero tolerance. Every point gets the distance that made it the
+   * farthest point of its segment, capped by the one of the point that split the parent segment,
+   * so that a point is kept at a given tolerance exactly when Douglas-Peucker would keep it.
+   */
+  private static double[] computeTolerances(List<LatLng> points) {
+    final int size = points.size();
+    final double[] tolerances = new double[size];
+    if (size == 0) {
+      return tolerances;
+    }
+    final double[] xs = new double[size];
+    final double[] ys = new double[size];
+    for (int i = 0; i < size; i++) {
+      final LatLng point = points.get(i);
+      xs[i] = SphericalMercator.toX(point.longitude);
+      ys[i] = SphericalMercator.toY(point.latitude);
+    }
+    tolerances[0] = Double.POSITIVE_INFINITY;
+    tolerances[size - 1] = Double.POSITIVE_INFINITY;
+    // Segments still to split, as start, end pairs. An explicit stack avoids deep recursion on
+    // paths with tens of thousands of points.
+    int[] stack = new int[64];
+    int stackSize = 0;
+    stack[stackSize++] = 0;
+    stack[stackSize++] = size - 1;
+    while (stackSize > 0) {
+      final int end = stack[--stackSize];
+      final int start = stack[--stackSize];
+      if (end - start < 2) {
+        continue;
+      }
+      int farthest = start + 1;
+      double maxDistance = -1;
+      for (int i = start + 1; i < end; i++) {
+        final double distance =
+            squaredSegmentDistance(xs[i], ys[i], xs[start], ys[start], xs[end], ys[end]);
+        if (distance > maxDistance) {
+          maxDistance = distance;
+          farthest = i;
+        }
+      }
+      tolerances[farthest] = Math.min(maxDistance, Math.min(tolerances[start], tolerances[end]));
+      if (stackSize + 4 > stack.length) {
+        final int[] grown = new int[stack.length * 2];
+        System.arraycopy(stack, 0, grown, 0, stackSize);
+        stack = grown;
+      }
+      stack[stackSize++] = start;
+      stack[stackSize++] = farthest;
+      stack[stackSize++] = farthest;
+      stack[stackSize++] = end;
+    }
+    return tolerances;
+  }
+
+  private static double squaredSegmentDistance(
+      double x, double y, double startX, double startY, double endX, double endY) {
+    double dx = endX - startX;
+    double dy = endY - startY;
+    if (dx != 0 || dy != 0) {
+      final double t = ((x - startX) * dx + (y - startY) * dy) / (dx * dx + dy * dy);
+      if (t > 1) {
+        startX = endX;
+        startY = endY;
+      } else if (t > 0) {
+        startX += dx * t;
+        startY += dy * t;
+      }
+    }
+    dx = x - startX;
+    dy = y - startY;
+    return dx * dx + dy * dy;
+  }
+}
@@ -0,0 +1,160 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import io.flutter.plugin.common.MethodChannel;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Downscales and encodes map snapshots off the main thread, into bytes or straight into a file.
+ *
+ * <p>The result is always delivered on the main thread, with the encoded bytes, or with the path
+ * of the file they were written to when {@link Options#filePath} is set.
+ */
+final class SnapshotEncoder {
+
+  /** How a snapshot is encoded, the defaults match {@code map#takeSnapshot}. */
+  static final class Options {
+    float scale = 1;
+    int maxWidth = 0;
+    int maxHeight = 0;
+    Bitmap.CompressFormat format = Bitmap.CompressFormat.PNG;
+    int quality = 100;
+    @Nullable String filePath;
+  }
+
+  private static ExecutorService sharedExecutor;
+
+  private final Executor executor;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+
+  SnapshotEncoder() {
+    this(getSharedExecutor());
+  }
+
+  @VisibleForTesting
+  SnapshotEncoder(Executor executor) {
+    this.executor = executor;
+  }
+
+  private static synchronized ExecutorService getSharedExecutor() {
+    if (sharedExecutor == null) {
+      sharedExecutor =
+          Executors.newSingleThreadExecutor(
+              runnable -> {
+                final Thread thread =
+                    new Thread(
+                        () -> {
+                          Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                          runnable.run();
+                        },
+                        "SnapshotEncoder");
+                thread.setDaemon(true);
+                return thread;
+              });
+    }
+    return sharedExecutor;
+  }
+
+  /**
+   * Encodes {@code bitmap}, which is recycled once it isn't needed anymore. The result always gets
+   * an answer, an error when the map had no snapshot or when it couldn't be encoded.
+   */
+  void encode(
+      @Nullable final Bitmap bitmap, final Options options, final MethodChannel.Result result) {
+    if (bitmap == null) {
+      handler.post(() -> result.error("Snapshot failed", "The map didn't take a snapshot", null));
+      return;
+    }
+    executor.execute(
+        () -> {
+          Bitmap scaled = bitmap;
+          try {
+            scaled = scale(bitmap, options);
+            if (scaled != bitmap) {
+              bitmap.recycle();
+            }
+            final Object encoded = write(scaled, options);
+            handler.post(() -> result.success(encoded));
+          } catch (IOException | RuntimeException | OutOfMemoryError e) {
+            handler.post(() -> result.error("Snapshot failed", e.toString(), null));
+          } finally {
+            bitmap.recycle();
+            if (scaled != bitmap) {
+              scaled.recycle();
+            }
+          }
+        });
+  }
+
+  /**
+   * Returns the WebP format for {@code quality}, lossless at 100 like {@code
+   * Bitmap.CompressFormat.WEBP}, which is deprecated since Android 11.
+   */
+  @SuppressWarnings("deprecation")
+  static Bitmap.CompressFormat webpFormat(int quality) {
+    if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R) {
+      return Bitmap.CompressFormat.WEBP;
+    }
+    return quality >= 100 ? Bitmap.CompressFormat.WEBP_LOSSLESS : Bitmap.CompressFormat.WEBP_LOSSY;
+  }
+
+  private static Object write(Bitmap bitmap, Options options) throws IOException {
+    if (options.filePath == null) {
+      final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+      if (!bitmap.compress(options.format, options.quality, stream)) {
+        throw new IOException("Couldn't encode the snapshot as " + options.format);
+      }
+      return stream.toByteArray();
+    }
+    final File file = new File(options.filePath);
+    final File directory = file.getParentFile();
+    if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Couldn't create " + directory);
+    }
+    try (OutputStream stream = new BufferedOutputStream(new FileOutputStream(file))) {
+      if (!bitmap.compress(options.format, options.quality, stream)) {
+        throw new IOException("Couldn't encode the snapshot as " + options.format);
+      }
+    }
+    return file.getAbsolutePath();
+  }
+
+  /**
+   * Returns {@code bitmap} scaled by {@link Options#scale} and shrunk, keeping its aspect ratio, to
+   * fit within the maximum size. Snapshots are never scaled up.
+   */
+  @VisibleForTesting
+  static Bitmap scale(Bitmap bitmap, Options options) {
+    float scale = Math.min(1, options.scale);
+    if (options.maxWidth > 0) {
+      scale = Math.min(scale, (float) options.maxWidth / bitmap.getWidth());
+    }
+    if (options.maxHeight > 0) {
+      scale = Math.min(scale, (float) options.maxHeight / bitmap.getHeight());
+    }
+    if (scale >= 1) {
+      return bitmap;
+    }
+    final int width = Math.max(1, Math.round(bitmap.getWidth() * scale));
+    final int height = Math.max(1, Math.round(bitmap.getHeight() * scale));
+    return Bitmap.createScaledBitmap(bitmap, width, height, true);
+  }
+}
@@ -0,0 +1,86 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import java.util.List;
+
+/**
+ * Web Mercator projection of {@link LatLng}s onto the unit square, as used by the map tiles.
+ *
+ * <p>{@code x} grows eastwards from the antimeridian and {@code y} grows southwards from the
+ * northern edge of the map. At zoom level {@code z} the unit square spans {@code 256 * 2^z}
+ * density independent pixels.
+ */
+final class SphericalMercator {
+
+  private static final double MAX_LATITUDE = 85.05112878;
+
+  private SphericalMercator() {}
+
+  static double toX(double longitude) {
+    return longitude / 360 + 0.5;
+  }
+
+  static double toY(double latitude) {
+    final double clamped = Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, latitude));
+    final double sin = Math.sin(Math.toRadians(clamped));
+    return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+  }
+
+  static double toLongitude(double x) {
+    return (x - 0.5) * 360;
+  }
+
+  static double toLatitude(double y) {
+    return 90 - 360 * Math.atan(Math.exp((y - 0.5) * 2 * Math.PI)) / Math.PI;
+  }
+
+  static LatLng toLatLng(double x, double y) {
+    return new LatLng(toLatitude(y), toLongitude(x));
+  }
+
+  /** Returns the size of one density independent pixel in unit square units at {@code zoom}. */
+  static double pixelSize(float zoom) {
+    return 1 / (256 * Math.pow(2, zoom));
+  }
+
+  /**
+   * Adds the items of {@code tree} within {@code bounds}, grown by {@code margin} unit square units
+   * on every side, to {@code out}. Bounds crossing the antimeridian are split in two.
+   */
+  static <T> void search(PointQuadTree<T> tree, LatLngBounds bounds, double margin, List<T> out) {
+    search(
+        tree,
+        toX(bounds.southwest.longitude) - margin,
+        toY(bounds.northeast.latitude) - margin,
+        toX(bounds.northeast.longitude) + margin,
+        toY(bounds.southwest.latitude) + margin,
+        out);
+  }
+
+  /**
+   * Adds the items of {@code tree} within the given rectangle to {@code out}. The rectangle may
+   * extend past the antimeridian on either side, or cross it with {@code minX > maxX}.
+   */
+  static <T> void search(
+      PointQuadTree<T> tree, double minX, double minY, double maxX, double maxY, List<T> out) {
+    if (maxX - minX >= 1) {
+      tree.search(0, minY, 1, maxY, out);
+    } else if (minX > maxX) {
+      tree.search(minX, minY, 1, maxY, out);
+      tree.search(0, minY, maxX, maxY, out);
+    } else if (minX < 0) {
+      tree.search(minX + 1, minY, 1, maxY, out);
+      tree.search(0, minY, maxX, maxY, out);
+    } else if (maxX > 1) {
+      tree.search(minX, minY, 1, maxY, out);
+      tree.search(0, minY, maxX - 1, maxY, out);
+    } else {
+      tree.search(minX, minY, maxX, maxY, out);
+    }
+  }
+}
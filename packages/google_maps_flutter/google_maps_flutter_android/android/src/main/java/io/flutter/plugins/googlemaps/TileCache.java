@@ -0,0 +1,523 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.os.Process;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import com.google.android.gms.maps.model.Tile;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Memory and disk cache of the tiles that Dart provided for a tile overlay.
+ *
+ * <p>Both tiers are LRU caches bounded by the number of bytes of tile data. Disk entries live in
+ * their own directory, one file per tile named after its coordinates and the cache version, so
+ * they survive process restarts. Bumping the version makes every cached tile stale. Entries older
+ * than the time to live, when there is one, are treated as missing.
+ *
+ * <p>The cache is used from the Maps SDK tile threads. The memory tier is guarded by the cache
+ * itself, while tiles are read from disk outside of any lock, and written, evicted and deleted on a
+ * shared writer thread, so that a slow disk doesn't hold up tiles served from memory. The overlays
+ * of every map with the same id share one instance through {@link #obtain}, as they share its
+ * directory.
+ */
+final class TileCache {
+
+  private static final String TAG = "TileCache";
+  private static final String SUFFIX = ".tile";
+
+  /** Directory of the app cache dir that holds one directory per tile overlay. */
+  static final String DIRECTORY_NAME = "google_maps_tile_cache";
+
+  static final long DEFAULT_MAX_MEMORY_BYTES = 4 * 1024 * 1024;
+  static final long DEFAULT_MAX_DISK_BYTES = 32 * 1024 * 1024;
+
+  private static final Map<File, TileCache> sharedCaches = new HashMap<>();
+  private static ExecutorService sharedWriter;
+
+  private final File directory;
+  private final Clock clock;
+  private final Executor diskExecutor;
+  private volatile String version;
+  private volatile long maxMemoryBytes;
+  private volatile long maxDiskBytes;
+  private volatile long ttlMillis;
+  // Guarded by TileCache.class, the number of overlays that obtained this instance.
+  private int referenceCount;
+
+  private final LinkedHashMap<String, MemoryEntry> memory = new LinkedHashMap<>(16, 0.75f, true);
+  private long memoryBytes;
+
+  private final Object diskLock = new Object();
+  // File name to file size, in access order. Null until the writer scanned the directory.
+  @Nullable private LinkedHashMap<String, Long> disk;
+  private long diskBytes;
+
+  private long memoryHitCount;
+  private long diskHitCount;
+  private long missCount;
+
+  interface Clock {
+    long currentTimeMillis();
+  }
+
+  TileCache(
+      File directory, String version, long maxMemoryBytes, long maxDiskBytes, long ttlMillis) {
+    this(
+        directory,
+        version,
+        maxMemoryBytes,
+        maxDiskBytes,
+        ttlMillis,
+        System::currentTimeMillis,
+        getSharedWriter());
+  }
+
+  @VisibleForTesting
+  TileCache(
+      File directory,
+      String version,
+      long maxMemoryBytes,
+      long maxDiskBytes,
+      long ttlMillis,
+      Clock clock,
+      Executor diskExecutor) {
+    this.directory = directory;
+    this.version = sanitizeVersion(version);
+    this.maxMemoryBytes = maxMemoryBytes;
+    this.maxDiskBytes = maxDiskBytes;
+    this.ttlMillis = ttlMillis;
+    this.clock = clock;
+    this.diskExecutor = diskExecutor;
+    diskExecutor.execute(this::loadDiskIndex);
+  }
+
+  /**
+   * Returns the cache of the tile overlay with {@code tileOverlayId}, shared with the overlays of
+   * other maps with the same id, which then use the options passed last. Every call is paired with
+   * a call to {@link #release}.
+   */
+  static TileCache obtain(
+      File cacheDir,
+      String tileOverlayId,
+      String version,
+      long maxMemoryBytes,
+      long maxDiskBytes,
+      long ttlMillis) {
+    final File directory =
+        new File(new File(cacheDir, DIRECTORY_NAME), directoryName(tileOverlayId));
+    synchronized (TileCache.class) {
+      TileCache tileCache = sharedCaches.get(directory);
+      if (tileCache == null) {
+        tileCache = new TileCache(directory, version, maxMemoryBytes, maxDiskBytes, ttlMillis);
+        sharedCaches.put(directory, tileCache);
+      } else {
+        tileCache.configure(version, maxMemoryBytes, maxDiskBytes, ttlMillis);
+      }
+      tileCache.referenceCount++;
+      return tileCache;
+    }
+  }
+
+  /** Gives back a cache returned by {@link #obtain}, the last overlay using it frees its memory. */
+  void release() {
+    synchronized (TileCache.class) {
+      if (--referenceCount > 0 || sharedCaches.get(directory) != this) {
+        return;
+      }
+      sharedCaches.remove(directory);
+    }
+    synchronized (this) {
+      memory.clear();
+      memoryBytes = 0;
+    }
+  }
+
+  /**
+   * Names the directory of a tile overlay after a hash of its id, so that any two ids get their
+   * own directory whatever characters they contain.
+   */
+  @VisibleForTesting
+  static String directoryName(String tileOverlayId) {
+    final byte[] hash;
+    try {
+      hash =
+          MessageDigest.getInstance("SHA-256")
+              .digest(tileOverlayId.getBytes(StandardCharsets.UTF_8));
+    } catch (NoSuchAlgorithmException e) {
+      // Every Android device provides SHA-256.
+      throw new IllegalStateException(e);
+    }
+    final StringBuilder name = new StringBuilder(hash.length * 2);
+    for (byte b : hash) {
+      name.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return name.toString();
+  }
+
+  /** Returns the cached tile, or null when it is not cached or expired. */
+  @Nullable
+  Tile get(int x, int y, int zoom) {
+    final String key = key(x, y, zoom);
+    synchronized (this) {
+      final MemoryEntry entry = memory.get(key);
+      if (entry != null) {
+        if (!isExpired(entry.createdAtMillis)) {
+          memoryHitCount++;
+          return entry.tile;
+        }
+        removeFromMemory(key);
+      }
+    }
+    final Tile tile = readFromDisk(key);
+    synchronized (this) {
+      if (tile == null) {
+        missCount++;
+      } else {
+        diskHitCount++;
+      }
+    }
+    return tile;
+  }
+
+  /** Returns whether the tile is cached and not expired, without counting a hit or a miss. */
+  boolean contains(int x, int y, int zoom) {
+    final String key = key(x, y, zoom);
+    synchronized (this) {
+      final MemoryEntry entry = memory.get(key);
+      if (entry != null && !isExpired(entry.createdAtMillis)) {
+        return true;
+      }
+    }
+    if (!mayBeOnDisk(key + SUFFIX)) {
+      return false;
+    }
+    final long lastModified = new File(directory, key + SUFFIX).lastModified();
+    return lastModified != 0 && !isExpired(lastModified);
+  }
+
+  void put(int x, int y, int zoom, Tile tile) {
+    if (tile.data == null) {
+      return;
+    }
+    final String key = key(x, y, zoom);
+    synchronized (this) {
+      putInMemory(key, tile, clock.currentTimeMillis());
+    }
+    if (tile.data.length + 8 <= maxDiskBytes) {
+      diskExecutor.execute(() -> writeToDisk(key, tile));
+    }
+  }
+
+  /** Removes every cached tile, from memory and from disk. */
+  void clear() {
+    synchronized (this) {
+      memory.clear();
+      memoryBytes = 0;
+    }
+    // Tiles are missing right away, their files are deleted after the writes queued before.
+    resetDiskIndex();
+    diskExecutor.execute(
+        () -> {
+          final File[] files = directory.listFiles();
+          if (files != null) {
+            for (File file : files) {
+              if (!file.delete()) {
+                Log.w(TAG, "Couldn't delete " + file);
+              }
+            }
+          }
+          resetDiskIndex();
+        });
+  }
+
+  Map<String, Object> getStats() {
+    final Map<String, Object> stats = new HashMap<>(6);
+    synchronized (this) {
+      stats.put("memoryHitCount", memoryHitCount);
+      stats.put("diskHitCount", diskHitCount);
+      stats.put("cacheMissCount", missCount);
+      stats.put("memoryCacheBytes", memoryBytes);
+    }
+    synchronized (diskLock) {
+      stats.put("diskCacheBytes", diskBytes);
+    }
+    return stats;
+  }
+
+  /** Applies the options of another overlay obtaining this cache, a new version drops every tile. */
+  private void configure(String version, long maxMemoryBytes, long maxDiskBytes, long ttlMillis) {
+    final String newVersion = sanitizeVersion(version);
+    final boolean versionChanged = !newVersion.equals(this.version);
+    this.maxDiskBytes = maxDiskBytes;
+    this.ttlMillis = ttlMillis;
+    synchronized (this) {
+      this.version = newVersion;
+      this.maxMemoryBytes = maxMemoryBytes;
+      if (versionChanged) {
+        memory.clear();
+        memoryBytes = 0;
+      }
+      trimMemory();
+    }
+    if (versionChanged) {
+      synchronized (diskLock) {
+        disk = null;
+      }
+      // Drops the files of the previous version.
+      diskExecutor.execute(this::loadDiskIndex);
+    }
+  }
+
+  private static String sanitizeVersion(String version) {
+    return version.replaceAll("[^A-Za-z0-9.-]", "-");
+  }
+
+  private String key(int x, int y, int zoom) {
+    return zoom + "_" + x + "_" + y + "_" + version;
+  }
+
+  private boolean isExpired(long createdAtMillis) {
+    return ttlMillis > 0 && clock.currentTimeMillis() - createdAtMillis > ttlMillis;
+  }
+
+  private void putInMemory(String key, Tile tile, long createdAtMillis) {
+    if (tile.data.length > maxMemoryBytes) {
+      return;
+    }
+    final MemoryEntry previous = memory.put(key, new MemoryEntry(tile, createdAtMillis));
+    if (previous != null) {
+      memoryBytes -= previous.tile.data.length;
+    }
+    memoryBytes += tile.data.length;
+    trimMemory();
+  }
+
+  private void trimMemory() {
+    final Iterator<MemoryEntry> iterator = memory.values().iterator();
+    while (memoryBytes > maxMemoryBytes && iterator.hasNext()) {
+      memoryBytes -= iterator.next().tile.data.length;
+      iterator.remove();
+    }
+  }
+
+  private void removeFromMemory(String key) {
+    final MemoryEntry entry = memory.remove(key);
+    if (entry != null) {
+      memoryBytes -= entry.tile.data.length;
+    }
+  }
+
+  /**
+   * Returns false when the file is known to be missing. Until the writer scanned the directory
+   * every file may be there, so reads don't wait for the scan.
+   */
+  private boolean mayBeOnDisk(String fileName) {
+    if (maxDiskBytes <= 0) {
+      return false;
+    }
+    synchronized (diskLock) {
+      // Also marks the file as recently used.
+      return disk == null || disk.get(fileName) != null;
+    }
+  }
+
+  @Nullable
+  private Tile readFromDisk(String key) {
+    final String fileName = key + SUFFIX;
+    if (!mayBeOnDisk(fileName)) {
+      return null;
+    }
+    final File file = new File(directory, fileName);
+    try (FileInputStream fileIn = new FileInputStream(file);
+        DataInputStream in = new DataInputStream(fileIn)) {
+      // The writer replaces files by renaming new ones over them, read the one that was opened.
+      final long lastModified = file.lastModified();
+      if (isExpired(lastModified)) {
+        deleteFromDisk(fileName);
+        return null;
+      }
+      final int width = in.readInt();
+      final int height = in.readInt();
+      final byte[] data = new byte[(int) fileIn.getChannel().size() - 8];
+      in.readFully(data);
+      final Tile tile = new Tile(width, height, data);
+      synchronized (this) {
+        putInMemory(key, tile, lastModified);
+      }
+      return tile;
+    } catch (FileNotFoundException e) {
+      // Not cached, or evicted since the index was checked.
+      return null;
+    } catch (IOException e) {
+      Log.w(TAG, "Couldn't read cached tile " + file, e);
+      deleteFromDisk(fileName);
+      return null;
+    }
+  }
+
+  /** Runs on the writer, after the writes and deletions queued before. */
+  private void writeToDisk(String key, Tile tile) {
+    final long size = tile.data.length + 8;
+    if (size > maxDiskBytes) {
+      return;
+    }
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      Log.w(TAG, "Couldn't create " + directory);
+      return;
+    }
+    final String fileName = key + SUFFIX;
+    final File temporary = new File(directory, fileName + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new FileOutputStream(temporary))) {
+      out.writeInt(tile.width);
+      out.writeInt(tile.height);
+      out.write(tile.data);
+    } catch (IOException e) {
+      Log.w(TAG, "Couldn't write cached tile " + temporary, e);
+      temporary.delete();
+      return;
+    }
+    final File file = new File(directory, fileName);
+    if (!temporary.renameTo(file)) {
+      temporary.delete();
+      return;
+    }
+    file.setLastModified(clock.currentTimeMillis());
+    final List<String> evicted = new ArrayList<>();
+    synchronized (diskLock) {
+      final LinkedHashMap<String, Long> index = loadDiskIndex();
+      final Long previous = index.remove(fileName);
+      if (previous != null) {
+        diskBytes -= previous;
+      }
+      index.put(fileName, size);
+      diskBytes += size;
+      final Iterator<Map.Entry<String, Long>> iterator = index.entrySet().iterator();
+      while (diskBytes > maxDiskBytes && iterator.hasNext()) {
+        final Map.Entry<String, Long> eldest = iterator.next();
+        evicted.add(eldest.getKey());
+        diskBytes -= eldest.getValue();
+        iterator.remove();
+      }
+    }
+    for (String evictedFileName : evicted) {
+      new File(directory, evictedFileName).delete();
+    }
+  }
+
+  private void deleteFromDisk(String fileName) {
+    diskExecutor.execute(
+        () -> {
+          synchronized (diskLock) {
+            final Long size = loadDiskIndex().remove(fileName);
+            if (size != null) {
+              diskBytes -= size;
+            }
+          }
+          new File(directory, fileName).delete();
+        });
+  }
+
+  private void resetDiskIndex() {
+    synchronized (diskLock) {
+      disk = new LinkedHashMap<>(16, 0.75f, true);
+      diskBytes = 0;
+    }
+  }
+
+  /**
+   * Scans the cache directory, dropping the files of other versions, the first time it's used.
+   * Only runs on the writer, the lock is only held to publish the index.
+   */
+  private LinkedHashMap<String, Long> loadDiskIndex() {
+    synchronized (diskLock) {
+      if (disk != null) {
+        return disk;
+      }
+    }
+    final LinkedHashMap<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+    long indexBytes = 0;
+    final File[] files = directory.listFiles();
+    if (files != null) {
+      final List<File> sorted = new ArrayList<>(Arrays.asList(files));
+      Collections.sort(
+          sorted,
+          new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+              return Long.compare(a.lastModified(), b.lastModified());
+            }
+          });
+      final String suffix = "_" + version + SUFFIX;
+      for (File file : sorted) {
+        if (!file.getName().endsWith(suffix)) {
+          file.delete();
+          continue;
+        }
+        index.put(file.getName(), file.length());
+        indexBytes += file.length();
+      }
+    }
+    synchronized (diskLock) {
+      if (disk == null) {
+        disk = index;
+        diskBytes = indexBytes;
+      }
+      return disk;
+    }
+  }
+
+  private static synchronized ExecutorService getSharedWriter() {
+    if (sharedWriter == null) {
+      sharedWriter =
+          Executors.newSingleThreadExecutor(
+              runnable -> {
+                final Thread thread =
+                    new Thread(
+                        () -> {
+                          Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                          runnable.run();
+                        },
+                        "TileCacheWriter");
+                thread.setDaemon(true);
+                return thread;
+              });
+    }
+    return sharedWriter;
+  }
+
+  private static final class MemoryEntry {
+    final Tile tile;
+    final long createdAtMillis;
+
+    MemoryEntry(Tile tile, long createdAtMillis) {
+      this.tile = tile;
+      this.createdAtMillis = createdAtMillis;
+    }
+  }
+}
@@ -4,6 +4,8 @@
 
 package io.flutter.plugins.googlemaps;
 
+import androidx.annotation.Nullable;
+import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.TileOverlay;
 import com.google.android.gms.maps.model.TileProvider;
 import java.util.HashMap;
@@ -12,16 +14,52 @@ import java.util.Map;
 class TileOverlayController implements TileOverlaySink {
 
   private final TileOverlay tileOverlay;
+  private final TileProviderController tileProviderController;
+  @Nullable private final TilePrefetcher tilePrefetcher;
 
-  TileOverlayController(TileOverlay tileOverlay) {
+  TileOverlayController(
+      TileOverlay tileOverlay,
+      TileProviderController tileProviderController,
+      @Nullable TilePrefetcher tilePrefetcher) {
     this.tileOverlay = tileOverlay;
+    this.tileProviderController = tileProviderController;
+    this.tilePrefetcher = tilePrefetcher;
   }
 
   void remove() {
+    cancelPrefetch();
+    tileProviderController.cancelAll();
+    tileProviderController.releaseTileCache();
     tileOverlay.remove();
   }
 
+  void setVisibleZoomRange(int minZoom, int maxZoom) {
+    tileProviderController.setVisibleZoomRange(minZoom, maxZoom);
+  }
+
+  /** Prefetches the tiles around the visible region, when the overlay opted in. */
+  void prefetch(LatLngBounds visibleBounds, float zoom) {
+    if (tilePrefetcher != null) {
+      tilePrefetcher.prefetch(visibleBounds, zoom);
+    }
+  }
+
+  void cancelPrefetch() {
+    if (tilePrefetcher != null) {
+      tilePrefetcher.cancel();
+    }
+  }
+
+  LatencyHistogram getTileLatencies() {
+    return tileProviderController.getLatencies();
+  }
+
+  Map<String, Object> getTileStats() {
+    return tileProviderController.getStats();
+  }
+
   void clearTileCache() {
+    tileProviderController.clearTileCache();
     tileOverlay.clearTileCache();
   }
 
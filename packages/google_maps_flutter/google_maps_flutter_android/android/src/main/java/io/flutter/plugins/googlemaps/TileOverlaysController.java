@@ -4,10 +4,13 @@
 
 package io.flutter.plugins.googlemaps;
 
+import android.content.Context;
 import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.TileOverlay;
 import com.google.android.gms.maps.model.TileOverlayOptions;
 import io.flutter.plugin.common.MethodChannel;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -16,11 +19,13 @@ class TileOverlaysController {
 
   private final Map<String, TileOverlayController> tileOverlayIdToController;
   private final MethodChannel methodChannel;
+  private final Context context;
   private GoogleMap googleMap;
 
-  TileOverlaysController(MethodChannel methodChannel) {
+  TileOverlaysController(MethodChannel methodChannel, Context context) {
     this.tileOverlayIdToController = new HashMap<>();
     this.methodChannel = methodChannel;
+    this.context = context;
   }
 
   void setGoogleMap(GoogleMap googleMap) {
@@ -57,6 +62,14 @@ class TileOverlaysController {
     }
   }
 
+  /** Removes every tile overlay, cancelling their requests and giving back their tile caches. */
+  void dispose() {
+    for (TileOverlayController tileOverlayController : tileOverlayIdToController.values()) {
+      tileOverlayController.remove();
+    }
+    tileOverlayIdToController.clear();
+  }
+
   void clearTileCache(String tileOverlayId) {
     if (tileOverlayId == null) {
       return;
@@ -78,6 +91,59 @@ class TileOverlaysController {
     return tileOverlayController.getTileOverlayInfo();
   }
 
+  /** Returns the tile request latencies of every tile overlay on the map. */
+  LatencyHistogram getTileLatencies() {
+    final LatencyHistogram latencies = new LatencyHistogram();
+    for (TileOverlayController tileOverlayController : tileOverlayIdToController.values()) {
+      latencies.add(tileOverlayController.getTileLatencies());
+    }
+    return latencies;
+  }
+
+  Map<String, Object> getTileStats(String tileOverlayId) {
+    if (tileOverlayId == null) {
+      return null;
+    }
+    TileOverlayController tileOverlayController = tileOverlayIdToController.get(tileOverlayId);
+    if (tileOverlayController == null) {
+      return null;
+    }
+    return tileOverlayController.getTileStats();
+  }
+
+  /** Stops prefetching and cancels the tile requests of zoom levels that are no longer shown. */
+  void onCameraMove() {
+    if (googleMap == null || tileOverlayIdToController.isEmpty()) {
+      return;
+    }
+    for (TileOverlayController tileOverlayController : tileOverlayIdToController.values()) {
+      tileOverlayController.cancelPrefetch();
+    }
+    updateVisibleZoomRange();
+  }
+
+  /** Cancels stale tile requests, then prefetches the tiles around the new visible region. */
+  void onCameraIdle() {
+    if (googleMap == null || tileOverlayIdToController.isEmpty()) {
+      return;
+    }
+    updateVisibleZoomRange();
+    final LatLngBounds visibleBounds = googleMap.getProjection().getVisibleRegion().latLngBounds;
+    final float zoom = googleMap.getCameraPosition().zoom;
+    for (TileOverlayController tileOverlayController : tileOverlayIdToController.values()) {
+      tileOverlayController.prefetch(visibleBounds, zoom);
+    }
+  }
+
+  private void updateVisibleZoomRange() {
+    final float zoom = googleMap.getCameraPosition().zoom;
+    final int minZoom = (int) Math.floor(zoom);
+    final int maxZoom = (int) Math.ceil(zoom);
+    for (TileOverlayController tileOverlayController : tileOverlayIdToController.values()) {
+      tileOverlayController.setVisibleZoomRange(minZoom, maxZoom);
+    }
+  }
+
   private void addTileOverlay(Map<String, ?> tileOverlayOptions) {
     if (tileOverlayOptions == null) {
       return;
@@ -85,12 +151,22 @@ class TileOverlaysController {
     TileOverlayBuilder tileOverlayOptionsBuilder = new TileOverlayBuilder();
     String tileOverlayId =
         Convert.interpretTileOverlayOptions(tileOverlayOptions, tileOverlayOptionsBuilder);
+    Object prefetchOptions = tileOverlayOptions.get("prefetch");
+    Object tileCacheOptions = tileOverlayOptions.get("tileCache");
+    if (tileCacheOptions == null && prefetchOptions != null) {
+      // Prefetched tiles wait in the tile cache for the SDK, keep them in memory only.
+      tileCacheOptions = Collections.singletonMap("diskCacheSizeBytes", 0);
+    }
+    TileCache tileCache = Convert.toTileCache(tileCacheOptions, context, tileOverlayId);
     TileProviderController tileProviderController =
-        new TileProviderController(methodChannel, tileOverlayId);
+        new TileProviderController(methodChannel, tileOverlayId, tileCache);
+    TilePrefetcher tilePrefetcher =
+        Convert.toTilePrefetcher(prefetchOptions, tileProviderController);
     tileOverlayOptionsBuilder.setTileProvider(tileProviderController);
     TileOverlayOptions options = tileOverlayOptionsBuilder.build();
     TileOverlay tileOverlay = googleMap.addTileOverlay(options);
-    TileOverlayController tileOverlayController = new TileOverlayController(tileOverlay);
+    TileOverlayController tileOverlayController =
+        new TileOverlayController(tileOverlay, tileProviderController, tilePrefetcher);
     tileOverlayIdToController.put(tileOverlayId, tileOverlayController);
   }
 
@@ -0,0 +1,199 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.os.Process;
+import androidx.annotation.VisibleForTesting;
+import com.google.android.gms.maps.model.LatLngBounds;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warms the tile cache of a tile overlay with the tiles around the visible region.
+ *
+ * <p>When the camera goes idle the tiles of a ring around the visible ones are prefetched, nearest
+ * first, followed by the visible tiles of the next zoom level. Requests go one at a time through
+ * {@link TileProviderController#prefetchTile} on a shared background thread, and back off while
+ * the SDK keeps every request slot busy. Moving the camera again stops the prefetch.
+ */
+final class TilePrefetcher {
+
+  static final int DEFAULT_RING = 1;
+  /** Most tiles prefetched per camera idle, so that wide rings stay cheap on large screens. */
+  static final int MAX_TILES = 64;
+  private static final int MAX_ZOOM = 22;
+  private static final long BUSY_BACKOFF_MILLIS = 50;
+
+  private static ExecutorService sharedExecutor;
+
+  private final TileProviderController tileProviderController;
+  private final int ring;
+  private final boolean nextZoom;
+  private final Executor executor;
+  // Bumped by every prefetch and cancel, a running prefetch stops once it changes.
+  private final AtomicInteger generation = new AtomicInteger();
+
+  TilePrefetcher(TileProviderController tileProviderController, int ring, boolean nextZoom) {
+    this(tileProviderController, ring, nextZoom, getSharedExecutor());
+  }
+
+  @VisibleForTesting
+  TilePrefetcher(
+      TileProviderController tileProviderController,
+      int ring,
+      boolean nextZoom,
+      Executor executor) {
+    if (ring < 0) {
+      throw new IllegalArgumentException("Tile prefetching needs a ring of at least 0 tiles");
+    }
+    this.tileProviderController = tileProviderController;
+    this.ring = ring;
+    this.nextZoom = nextZoom;
+    this.executor = executor;
+  }
+
+  /** Prefetches the tiles around {@code bounds}, replacing any prefetch still running. */
+  void prefetch(LatLngBounds bounds, float zoom) {
+    final int current = generation.incrementAndGet();
+    final List<int[]> tiles = tilesAround(bounds, (int) Math.floor(zoom), ring, nextZoom);
+    if (tiles.isEmpty()) {
+      return;
+    }
+    executor.execute(() -> run(current, tiles));
+  }
+
+  /** Stops the running prefetch, including the tile request it is waiting on. */
+  void cancel() {
+    generation.incrementAndGet();
+    tileProviderController.cancelPrefetch();
+  }
+
+  private void run(int current, List<int[]> tiles) {
+    for (int[] tile : tiles) {
+      while (true) {
+        if (generation.get() != current) {
+          return;
+        }
+        if (tileProviderController.prefetchTile(tile[0], tile[1], tile[2])) {
+          break;
+        }
+        try {
+          Thread.sleep(BUSY_BACKOFF_MILLIS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the {@code x, y, zoom} of the tiles of {@code ring} rings around the tiles covering
+   * {@code bounds} at {@code zoom}, nearest ring first, then the tiles covering {@code bounds} one
+   * zoom level closer when {@code nextZoom} is set. At most {@link #MAX_TILES} are returned.
+   */
+  @VisibleForTesting
+  static List<int[]> tilesAround(LatLngBounds bounds, int zoom, int ring, boolean nextZoom) {
+    final List<int[]> tiles = new ArrayList<>();
+    final Set<Long> seen = new HashSet<>();
+    if (zoom < 0 || zoom > MAX_ZOOM) {
+      return tiles;
+    }
+    final int[] visible = tileRange(bounds, zoom);
+    final int count = 1 << zoom;
+    // The visible tiles are requested by the SDK itself.
+    for (int x = visible[0]; x <= visible[2]; x++) {
+      for (int y = visible[1]; y <= visible[3]; y++) {
+        seen.add(tileKey(wrap(x, count), y, zoom));
+      }
+    }
+    for (int r = 1; r <= ring; r++) {
+      final int minX = visible[0] - r;
+      final int minY = visible[1] - r;
+      final int maxX = visible[2] + r;
+      final int maxY = visible[3] + r;
+      for (int x = minX; x <= maxX; x++) {
+        for (int y = minY; y <= maxY; y++) {
+          if (x == minX || x == maxX || y == minY || y == maxY) {
+            addTile(tiles, seen, x, y, zoom);
+          }
+        }
+      }
+    }
+    if (nextZoom && zoom < MAX_ZOOM) {
+      final int[] next = tileRange(bounds, zoom + 1);
+      for (int x = next[0]; x <= next[2]; x++) {
+        for (int y = next[1]; y <= next[3]; y++) {
+          addTile(tiles, seen, x, y, zoom + 1);
+        }
+      }
+    }
+    return tiles.size() > MAX_TILES ? new ArrayList<>(tiles.subList(0, MAX_TILES)) : tiles;
+  }
+
+  /**
+   * Returns the {@code minX, minY, maxX, maxY} tile coordinates covering {@code bounds} at {@code
+   * zoom}. Bounds crossing the antimeridian give a {@code maxX} past the last tile.
+   */
+  private static int[] tileRange(LatLngBounds bounds, int zoom) {
+    final int count = 1 << zoom;
+    final int minX = toTile(SphericalMercator.toX(bounds.southwest.longitude), count);
+    int maxX = toTile(SphericalMercator.toX(bounds.northeast.longitude), count);
+    if (bounds.southwest.longitude > bounds.northeast.longitude) {
+      maxX += count;
+    }
+    final int minY = toTile(SphericalMercator.toY(bounds.northeast.latitude), count);
+    final int maxY = toTile(SphericalMercator.toY(bounds.southwest.latitude), count);
+    return new int[] {minX, minY, maxX, maxY};
+  }
+
+  private static int toTile(double unit, int count) {
+    return Math.max(0, Math.min(count - 1, (int) Math.floor(unit * count)));
+  }
+
+  private static void addTile(List<int[]> tiles, Set<Long> seen, int x, int y, int zoom) {
+    final int count = 1 << zoom;
+    if (y < 0 || y >= count) {
+      return;
+    }
+    final int wrappedX = wrap(x, count);
+    if (seen.add(tileKey(wrappedX, y, zoom))) {
+      tiles.add(new int[] {wrappedX, y, zoom});
+    }
+  }
+
+  private static int wrap(int x, int count) {
+    return ((x % count) + count) % count;
+  }
+
+  private static long tileKey(int x, int y, int zoom) {
+    return ((long) zoom << 48) | ((long) x << 24) | y;
+  }
+
+  private static synchronized ExecutorService getSharedExecutor() {
+    if (sharedExecutor == null) {
+      sharedExecutor =
+          Executors.newSingleThreadExecutor(
+              runnable -> {
+                final Thread thread =
+                    new Thread(
+                        () -> {
+                          Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                          runnable.run();
+                        },
+                        "TilePrefetcher");
+                thread.setDaemon(true);
+                return thread;
+              });
+    }
+    return sharedExecutor;
+  }
+}
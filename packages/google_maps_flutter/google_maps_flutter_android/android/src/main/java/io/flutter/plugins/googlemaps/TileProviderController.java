@@ -7,77 +7,404 @@ package io.flutter.plugins.googlemaps;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
-import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import com.google.android.gms.maps.model.Tile;
 import com.google.android.gms.maps.model.TileProvider;
 import io.flutter.plugin.common.MethodChannel;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Provides the tiles of a tile overlay by asking the Dart side for them.
+ *
+ * <p>The Maps SDK calls {@link #getTile} on its tile threads and expects it to block until the tile
+ * is available. At most {@code maxConcurrentRequests} requests are sent to Dart at a time, every
+ * request waits at most {@code timeoutMillis}, and requests for zoom levels the camera left are
+ * cancelled. Timed out and cancelled tiles return null so that the SDK requests them again later,
+ * while tiles Dart failed to provide return {@link TileProvider#NO_TILE}. A request keeps its slot
+ * until Dart answers it, even when the tile thread stopped waiting, so a slow provider is never
+ * sent more than {@code maxConcurrentRequests} requests.
+ *
+ * <p>Tiles can also be prefetched into the tile cache with {@link #prefetchTile}. Prefetching only
+ * takes a request slot that is free right away, and one at most, so it never queues ahead of the
+ * tiles the SDK waits for.
+ */
 class TileProviderController implements TileProvider {
 
   private static final String TAG = "TileProviderController";
 
+  static final long DEFAULT_TIMEOUT_MILLIS = 5000;
+  static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 4;
+
   private final String tileOverlayId;
   private final MethodChannel methodChannel;
   private final Handler handler = new Handler(Looper.getMainLooper());
+  private final long timeoutMillis;
+  private final int maxConcurrentRequests;
+  private final Semaphore requestPermits;
+  @Nullable private final TileCache tileCache;
+  private final Set<Worker> workers =
+      Collections.newSetFromMap(new ConcurrentHashMap<Worker, Boolean>());
+  private volatile int minZoom = Integer.MIN_VALUE;
+  private volatile int maxZoom = Integer.MAX_VALUE;
+  @Nullable private volatile Worker prefetchWorker;
+
+  private final Object statsLock = new Object();
+  private long requestCount;
+  private long successCount;
+  private long noTileCount;
+  private long timeoutCount;
+  private long cancelledCount;
+  private long prefetchCount;
+  private long totalLatencyNanos;
+  private long maxLatencyNanos;
+  private int queueDepth;
+  private int maxQueueDepth;
+  private final LatencyHistogram latencies = new LatencyHistogram();
+
+  TileProviderController(
+      MethodChannel methodChannel, String tileOverlayId, @Nullable TileCache tileCache) {
+    this(
+        methodChannel,
+        tileOverlayId,
+        tileCache,
+        DEFAULT_TIMEOUT_MILLIS,
+        DEFAULT_MAX_CONCURRENT_REQUESTS);
+  }
 
-  TileProviderController(MethodChannel methodChannel, String tileOverlayId) {
+  @VisibleForTesting
+  TileProviderController(
+      MethodChannel methodChannel,
+      String tileOverlayId,
+      @Nullable TileCache tileCache,
+      long timeoutMillis,
+      int maxConcurrentRequests) {
     this.tileOverlayId = tileOverlayId;
     this.methodChannel = methodChannel;
+    this.tileCache = tileCache;
+    this.timeoutMillis = timeoutMillis;
+    this.maxConcurrentRequests = maxConcurrentRequests;
+    this.requestPermits = new Semaphore(maxConcurrentRequests, true);
   }
 
   @Override
+  @Nullable
   public Tile getTile(final int x, final int y, final int zoom) {
-    Worker worker = new Worker(x, y, zoom);
-    return worker.getTile();
+    if (tileCache != null) {
+      final Tile cachedTile = tileCache.get(x, y, zoom);
+      if (cachedTile != null) {
+        return cachedTile;
+      }
+    }
+    Worker worker = new Worker(x, y, zoom, false);
+    final Tile tile = worker.getTile();
+    if (tileCache != null && tile != null && tile != TileProvider.NO_TILE) {
+      tileCache.put(x, y, zoom, tile);
+    }
+    return tile;
+  }
+
+  /**
+   * Requests a tile into the tile cache ahead of the SDK asking for it. Returns false, without
+   * requesting anything, when every request slot is taken or Dart has yet to answer the previous
+   * prefetch, and true once the tile is cached or could not be fetched.
+   */
+  boolean prefetchTile(int x, int y, int zoom) {
+    if (tileCache == null || tileCache.contains(x, y, zoom)) {
+      return true;
+    }
+    // A cancelled prefetch keeps its slot until Dart answers, don't pile up more behind it.
+    if (prefetchWorker != null) {
+      return false;
+    }
+    // Barges in on a free slot instead of queueing behind the SDK's requests.
+    if (!requestPermits.tryAcquire()) {
+      return false;
+    }
+    synchronized (statsLock) {
+      prefetchCount++;
+    }
+    final Worker worker = new Worker(x, y, zoom, true);
+    // Cleared by the worker once its slot is released.
+    prefetchWorker = worker;
+    final Tile tile = worker.getTile();
+    if (tile != null && tile != TileProvider.NO_TILE) {
+      tileCache.put(x, y, zoom, tile);
+    }
+    return true;
+  }
+
+  /**
+   * Stops waiting for the pending prefetch request, if any. Its tile is dropped when Dart answers,
+   * which is also when its slot is released.
+   */
+  void cancelPrefetch() {
+    final Worker worker = prefetchWorker;
+    if (worker != null) {
+      worker.cancel();
+    }
+  }
+
+  /** Drops the tiles cached on the Java side, the Maps SDK cache is cleared separately. */
+  void clearTileCache() {
+    if (tileCache != null) {
+      tileCache.clear();
+    }
+  }
+
+  /**
+   * Cancels the pending requests for tiles outside of {@code [minZoom, maxZoom]}, and makes new
+   * ones return right away until the range changes again.
+   */
+  void setVisibleZoomRange(int minZoom, int maxZoom) {
+    if (minZoom == this.minZoom && maxZoom == this.maxZoom) {
+      return;
+    }
+    this.minZoom = minZoom;
+    this.maxZoom = maxZoom;
+    for (Worker worker : workers) {
+      if (!isVisibleZoom(worker.zoom)) {
+        worker.cancel();
+      }
+    }
+  }
+
+  /** Cancels every pending request, the overlay was removed. */
+  void cancelAll() {
+    minZoom = Integer.MAX_VALUE;
+    maxZoom = Integer.MIN_VALUE;
+    for (Worker worker : workers) {
+      worker.cancel();
+    }
+  }
+
+  /** Gives the tile cache back, the overlay was removed. */
+  void releaseTileCache() {
+    if (tileCache != null) {
+      tileCache.release();
+    }
+  }
+
+  /** Time Dart took to answer each tile request. */
+  LatencyHistogram getLatencies() {
+    return latencies;
+  }
+
+  Map<String, Object> getStats() {
+    final Map<String, Object> stats = new HashMap<>(12);
+    synchronized (statsLock) {
+      final long answered = successCount + noTileCount;
+      stats.put("requestCount", requestCount);
+      stats.put("successCount", successCount);
+      stats.put("noTileCount", noTileCount);
+      stats.put("timeoutCount", timeoutCount);
+      stats.put("cancelledCount", cancelledCount);
+      stats.put("prefetchCount", prefetchCount);
+      stats.put("averageLatencyMillis", answered == 0 ? 0.0 : totalLatencyNanos / 1e6 / answered);
+      stats.put("maxLatencyMillis", maxLatencyNanos / 1e6);
+      stats.put("queueDepth", queueDepth);
+      stats.put("maxQueueDepth", maxQueueDepth);
+    }
+    stats.put("inFlightCount", maxConcurrentRequests - requestPermits.availablePermits());
+    if (tileCache != null) {
+      stats.putAll(tileCache.getStats());
+    }
+    return stats;
+  }
+
+  private boolean isVisibleZoom(int zoom) {
+    return zoom >= minZoom && zoom <= maxZoom;
   }
 
   private final class Worker implements MethodChannel.Result {
 
     private final CountDownLatch countDownLatch = new CountDownLatch(1);
+    private final AtomicBoolean permitReleased = new AtomicBoolean(false);
     private final int x;
     private final int y;
     private final int zoom;
+    // Prefetch workers hold their permit already, and aren't tied to the visible zoom levels.
+    private final boolean prefetch;
+    private volatile boolean cancelled;
+    private volatile boolean answered;
+    // The tile thread stopped waiting, the answer is dropped when it comes.
+    private volatile boolean abandoned;
     private Map<String, ?> result;
 
-    Worker(int x, int y, int zoom) {
+    Worker(int x, int y, int zoom, boolean prefetch) {
       this.x = x;
       this.y = y;
       this.zoom = zoom;
+      this.prefetch = prefetch;
     }
 
-    @NonNull
+    @Nullable
     Tile getTile() {
-      handler.post(
-          () ->
-              methodChannel.invokeMethod(
-                  "tileOverlay#getTile",
-                  Convert.tileOverlayArgumentsToJson(tileOverlayId, x, y, zoom),
-                  this));
+      synchronized (statsLock) {
+        requestCount++;
+      }
+      if (!prefetch && !isVisibleZoom(zoom)) {
+        onCancelled();
+        return null;
+      }
+      workers.add(this);
       try {
-        // Because `methodChannel.invokeMethod` is async, we use a `countDownLatch` make it synchronized.
-        countDownLatch.await();
+        return requestTile();
+      } finally {
+        workers.remove(this);
+      }
+    }
+
+    @Nullable
+    private Tile requestTile() {
+      final long start = System.nanoTime();
+      if (!prefetch && !acquirePermit()) {
+        return null;
+      }
+      if (cancelled) {
+        releasePermit();
+        onCancelled();
+        return null;
+      }
+      handler.post(this::invoke);
+      final long remainingNanos =
+          TimeUnit.MILLISECONDS.toNanos(timeoutMillis) - (System.nanoTime() - start);
+      try {
+        // `methodChannel.invokeMethod` is async, the latch makes it synchronous for the Maps SDK.
+        if (!countDownLatch.await(remainingNanos, TimeUnit.NANOSECONDS)) {
+          abandoned = true;
+          onTimeout();
+          return null;
+        }
       } catch (InterruptedException e) {
-        Log.e(
-            TAG,
-            String.format("countDownLatch: can't get tile: x = %d, y= %d, zoom = %d", x, y, zoom),
-            e);
+        Thread.currentThread().interrupt();
+        abandoned = true;
+        onCancelled();
+        return null;
+      }
+      if (cancelled && !answered) {
+        abandoned = true;
+        onCancelled();
+        return null;
+      }
+      final long latency = System.nanoTime() - start;
+      if (result == null) {
+        onAnswered(latency, false);
         return TileProvider.NO_TILE;
       }
       try {
-        return Convert.interpretTile(result);
+        final Tile tile = Convert.interpretTile(result);
+        onAnswered(latency, tile != TileProvider.NO_TILE);
+        return tile;
       } catch (Exception e) {
         Log.e(TAG, "Can't parse tile data", e);
+        onAnswered(latency, false);
         return TileProvider.NO_TILE;
       }
     }
 
+    private boolean acquirePermit() {
+      synchronized (statsLock) {
+        queueDepth++;
+        maxQueueDepth = Math.max(maxQueueDepth, queueDepth);
+      }
+      try {
+        if (requestPermits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+        onTimeout();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        onCancelled();
+      } finally {
+        synchronized (statsLock) {
+          queueDepth--;
+        }
+      }
+      // The permit was never acquired, make sure it is not released either.
+      permitReleased.set(true);
+      return false;
+    }
+
+    /**
+     * Sends the request on the platform thread, unless the tile thread gave up on it while it was
+     * waiting to be sent.
+     */
+    private void invoke() {
+      if (abandoned) {
+        releasePermit();
+        return;
+      }
+      methodChannel.invokeMethod(
+          "tileOverlay#getTile",
+          Convert.tileOverlayArgumentsToJson(tileOverlayId, x, y, zoom),
+          this);
+    }
+
+    /** Releases the request slot once, when Dart answers or when the request is never sent. */
+    private void releasePermit() {
+      if (permitReleased.compareAndSet(false, true)) {
+        if (prefetch) {
+          prefetchWorker = null;
+        }
+        requestPermits.release();
+      }
+    }
+
+    void cancel() {
+      cancelled = true;
+      countDownLatch.countDown();
+    }
+
+    private void onAnswered(long latencyNanos, boolean hasTile) {
+      latencies.record(latencyNanos);
+      synchronized (statsLock) {
+        if (hasTile) {
+          successCount++;
+        } else {
+          noTileCount++;
+        }
+        totalLatencyNanos += latencyNanos;
+        maxLatencyNanos = Math.max(maxLatencyNanos, latencyNanos);
+      }
+    }
+
+    private void onTimeout() {
+      Log.w(
+          TAG,
+          String.format(
+              "Timed out getting tile: x = %d, y = %d, zoom = %d, tileOverlayId = %s",
+              x, y, zoom, tileOverlayId));
+      synchronized (statsLock) {
+        timeoutCount++;
+      }
+    }
+
+    private void onCancelled() {
+      synchronized (statsLock) {
+        cancelledCount++;
+      }
+    }
+
+    private void answer(Map<String, ?> data) {
+      result = data;
+      answered = true;
+      releasePermit();
+      countDownLatch.countDown();
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public void success(Object data) {
-      result = (Map<String, ?>) data;
-      countDownLatch.countDown();
+      answer((Map<String, ?>) data);
     }
 
     @Override
@@ -86,16 +413,14 @@ class TileProviderController implements TileProvider {
           TAG,
           String.format(
               "Can't get tile: errorCode = %s, errorMessage = %s, date = %s",
-              errorCode, errorCode, data));
-      result = null;
-      countDownLatch.countDown();
+              errorCode, errorMessage, data));
+      answer(null);
     }
 
     @Override
     public void notImplemented() {
       Log.e(TAG, "Can't get tile: notImplemented");
-      result = null;
-      countDownLatch.countDown();
+      answer(null);
     }
   }
 }
@@ -0,0 +1,118 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import java.io.ByteArrayOutputStream;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class BitmapDescriptorCacheTest {
+
+  private BitmapDescriptorCache.DescriptorFactory descriptorFactory;
+
+  @Before
+  public void before() {
+    descriptorFactory =
+        spy(
+            new BitmapDescriptorCache.DescriptorFactory() {
+              @Override
+              public BitmapDescriptor fromAsset(String assetKey) {
+                return mock(BitmapDescriptor.class);
+              }
+
+              @Override
+              public BitmapDescriptor fromBitmap(Bitmap bitmap) {
+                return mock(BitmapDescriptor.class);
+              }
+            });
+  }
+
+  private static byte[] png(int size) {
+    final Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+    final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    bitmap.compress(Bitmap.CompressFormat.PNG, 100, stream);
+    return stream.toByteArray();
+  }
+
+  @Test
+  public void equalBytesAreDecodedOnce() {
+    final BitmapDescriptorCache cache =
+        new BitmapDescriptorCache(16, 1024 * 1024, descriptorFactory);
+    final byte[] bytes = png(8);
+
+    final BitmapDescriptor first = cache.getOrDecode(bytes, 0, 0);
+    final BitmapDescriptor second = cache.getOrDecode(bytes.clone(), 0, 0);
+
+    assertSame(first, second);
+    verify(descriptorFactory, times(1)).fromBitmap(any(Bitmap.class));
+    assertEquals(1L, cache.getStats().get("hitCount"));
+    assertEquals(1L, cache.getStats().get("missCount"));
+  }
+
+  @Test
+  public void targetSizesAreCachedSeparately() {
+    final BitmapDescriptorCache cache =
+        new BitmapDescriptorCache(16, 1024 * 1024, descriptorFactory);
+    final byte[] bytes = png(8);
+
+    final BitmapDescriptor full = cache.getOrDecode(bytes, 0, 0);
+    final BitmapDescriptor small = cache.getOrDecode(bytes, 2, 2);
+
+    assertNotSame(full, small);
+  }
+
+  @Test
+  public void assetsAreCreatedOnce() {
+    final BitmapDescriptorCache cache =
+        new BitmapDescriptorCache(16, 1024 * 1024, descriptorFactory);
+
+    final BitmapDescriptor first = cache.getOrCreateAsset("flutter_assets/pin.png");
+    final BitmapDescriptor second = cache.getOrCreateAsset("flutter_assets/pin.png");
+
+    assertSame(first, second);
+    verify(descriptorFactory, times(1)).fromAsset(anyString());
+  }
+
+  @Test
+  public void evictsTheLeastRecentlyUsedEntries() {
+    final BitmapDescriptorCache cache =
+        new BitmapDescriptorCache(2, 1024 * 1024, descriptorFactory);
+
+    final BitmapDescriptor a = cache.getOrCreateAsset("a");
+    cache.getOrCreateAsset("b");
+    cache.getOrCreateAsset("a");
+    cache.getOrCreateAsset("c");
+
+    assertSame(a, cache.getOrCreateAsset("a"));
+    assertEquals(1L, cache.getStats().get("evictionCount"));
+    assertEquals(2, cache.getStats().get("entryCount"));
+  }
+
+  @Test
+  public void sampleSizeKeepsTheImageAtLeastAsLargeAsTheTarget() {
+    assertEquals(1, BitmapDescriptorCache.computeSampleSize(100, 100, 0, 0));
+    assertEquals(1, BitmapDescriptorCache.computeSampleSize(100, 100, 60, 60));
+    assertEquals(2, BitmapDescriptorCache.computeSampleSize(100, 100, 50, 50));
+    assertEquals(4, BitmapDescriptorCache.computeSampleSize(400, 200, 64, 48));
+  }
+}
@@ -0,0 +1,108 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import android.os.Build;
+import com.google.android.gms.maps.model.CameraPosition;
+import com.google.android.gms.maps.model.LatLng;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class CameraMoveCoalescerTest {
+
+  private final List<CameraPosition> sent = new ArrayList<>();
+  private CameraMoveCoalescer coalescer;
+
+  @Before
+  public void before() {
+    ShadowLooper.pauseMainLooper();
+    coalescer = new CameraMoveCoalescer(sent::add);
+  }
+
+  private static CameraPosition position(double longitude, float zoom) {
+    return new CameraPosition(new LatLng(0, longitude), zoom, 0, 0);
+  }
+
+  @Test
+  public void sendsEveryPositionWhenDisabled() {
+    coalescer.onCameraMove(position(0, 10));
+    coalescer.onCameraMove(position(1, 10));
+
+    assertEquals(2, sent.size());
+  }
+
+  @Test
+  public void sendsTheLatestPositionOncePerFrame() {
+    coalescer.setOptions(true, 0, 1, 0.01f);
+    coalescer.onCameraMove(position(0, 10));
+    coalescer.onCameraMove(position(1, 10));
+    final CameraPosition latest = position(2, 10);
+    coalescer.onCameraMove(latest);
+    assertEquals(0, sent.size());
+
+    ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+    assertEquals(1, sent.size());
+    assertSame(latest, sent.get(0));
+    assertEquals(3L, coalescer.getStats().get("cameraMoveCount"));
+  }
+
+  @Test
+  public void dropsSmallMovesUntilFlushed() {
+    coalescer.setOptions(true, 0, 10, 0.01f);
+    coalescer.onCameraMove(position(0, 10));
+    ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    // At zoom 10 the map is 262144 pixels wide, so 0.001 degrees is about 0.7 pixels.
+    final CameraPosition small = position(0.001, 10);
+    coalescer.onCameraMove(small);
+    ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    assertEquals(1, sent.size());
+    assertEquals(1L, coalescer.getStats().get("cameraMoveDroppedCount"));
+
+    coalescer.flush();
+
+    assertEquals(2, sent.size());
+    assertSame(small, sent.get(1));
+    coalescer.flush();
+    assertEquals(2, sent.size());
+  }
+
+  @Test
+  public void sendsZoomChanges() {
+    coalescer.setOptions(true, 0, 10, 0.01f);
+    coalescer.onCameraMove(position(0, 10));
+    ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    coalescer.onCameraMove(position(0, 10.5f));
+    ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+    assertEquals(2, sent.size());
+  }
+
+  @Test
+  public void waitsForTheInterval() {
+    coalescer.setOptions(true, 100, 1, 0.01f);
+    coalescer.onCameraMove(position(0, 10));
+    ShadowLooper.idleMainLooper(0, TimeUnit.MILLISECONDS);
+    assertEquals(1, sent.size());
+
+    coalescer.onCameraMove(position(1, 10));
+    ShadowLooper.idleMainLooper(50, TimeUnit.MILLISECONDS);
+    assertEquals(1, sent.size());
+    ShadowLooper.idleMainLooper(50, TimeUnit.MILLISECONDS);
+    assertEquals(2, sent.size());
+  }
+}
@@ -0,0 +1,113 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.google.android.gms.maps.model.LatLng;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class ConvertTest {
+
+  private static void assertLatLng(double latitude, double longitude, LatLng actual) {
+    assertEquals(latitude, actual.latitude, 1e-9);
+    assertEquals(longitude, actual.longitude, 1e-9);
+  }
+
+  @Test
+  public void decodePolyline() {
+    final List<LatLng> points = Convert.decodePolyline("_p~iF~ps|U_ulLnnqC_mqNvxq`@");
+
+    assertEquals(3, points.size());
+    assertLatLng(38.5, -120.2, points.get(0));
+    assertLatLng(40.7, -120.95, points.get(1));
+    assertLatLng(43.252, -126.453, points.get(2));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void decodePolyline_Truncated() {
+    Convert.decodePolyline("_p~iF~ps|U_ulL");
+  }
+
+  @Test
+  public void toPackedPoints() {
+    final List<LatLng> points = Convert.toPackedPoints(new double[] {1.123456789, 2, -3, 4});
+
+    assertEquals(2, points.size());
+    assertLatLng(1.123456789, 2, points.get(0));
+    assertLatLng(-3, 4, points.get(1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void toPackedPoints_OddLength() {
+    Convert.toPackedPoints(new double[] {1, 2, 3});
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void interpretPolylineOptions_KeepsDoublePrecision() {
+    final Map<String, Object> data = new HashMap<>();
+    data.put("polylineId", "polyline");
+    data.put("points", Arrays.asList(Arrays.asList(52.123456789, 13.123456789)));
+    final PolylineOptionsSink sink = mock(PolylineOptionsSink.class);
+
+    Convert.interpretPolylineOptions(data, sink);
+
+    final ArgumentCaptor<List<LatLng>> points = ArgumentCaptor.forClass(List.class);
+    verify(sink).setPoints(points.capture());
+    assertLatLng(52.123456789, 13.123456789, points.getValue().get(0));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void interpretPolygonOptions_AcceptsEncodedHoles() {
+    final Map<String, Object> data = new HashMap<>();
+    data.put("polygonId", "polygon");
+    data.put("points", new double[] {0, 0, 0, 1, 1, 1});
+    data.put("holes", Arrays.asList("_p~iF~ps|U_ulLnnqC_mqNvxq`@"));
+    final PolygonOptionsSink sink = mock(PolygonOptionsSink.class);
+
+    Convert.interpretPolygonOptions(data, sink);
+
+    final ArgumentCaptor<List<List<LatLng>>> holes = ArgumentCaptor.forClass(List.class);
+    verify(sink).setHoles(holes.capture());
+    assertEquals(3, holes.getValue().get(0).size());
+  }
+
+  @Test
+  public void toGeoJsonLayerOptions_StylesDefaultToTheLayerStyle() {
+    final Map<String, Object> style = new HashMap<>();
+    style.put("strokeColor", 0xFF0000FF);
+    style.put("strokeWidth", 2);
+    final Map<String, Object> data = new HashMap<>();
+    data.put("geoJsonLayerId", "zones");
+    data.put("filePath", "/data/zones.geojson");
+    data.put("style", style);
+    data.put("styleProperty", "zone");
+    data.put("styles", Collections.singletonMap("park", Collections.singletonMap("fillColor", 7)));
+
+    final GeoJsonLayerController.Options options = Convert.toGeoJsonLayerOptions(data, 3);
+
+    assertEquals("zones", options.layerId);
+    assertEquals(6, options.style.strokeWidth, 0);
+    final GeoJsonLayerController.Style park = options.styles.get("park");
+    assertEquals(7, park.fillColor);
+    assertEquals(0xFF0000FF, park.strokeColor);
+    assertEquals(6, park.strokeWidth, 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void toGeoJsonLayerOptions_NeedsASource() {
+    Convert.toGeoJsonLayerOptions(Collections.singletonMap("geoJsonLayerId", "zones"), 1);
+  }
+}
@@ -0,0 +1,97 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import android.graphics.Bitmap;
+import android.graphics.Typeface;
+import android.os.Build;
+import java.lang.management.ManagementFactory;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Measures the time and the bytes allocated per bubble rendered by {@link CozyMarkerBuilder}.
+ *
+ * <p>Labels repeat like the prices of a listing feed do. The bytes of the output bitmap are
+ * measured separately, the rest is what the builder allocates on its own. Run it manually, the
+ * results are printed to stdout.
+ */
+@Ignore("Benchmark, run manually")
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class CozyMarkerBuilderBenchmark {
+
+  private static final int LABEL_COUNT = 200;
+  private static final int WARMUP_ITERATIONS = 5;
+  private static final int ITERATIONS = 20;
+
+  @Test
+  public void renderBubbles() {
+    final CozyMarkerBuilder builder = new CozyMarkerBuilder(167, Typeface.DEFAULT);
+    final String[] prices = new String[LABEL_COUNT];
+    final String[] counts = new String[LABEL_COUNT];
+    for (int i = 0; i < LABEL_COUNT; i++) {
+      prices[i] = "R$ " + (1000 + i * 37);
+      counts[i] = String.valueOf(i + 2);
+    }
+    measure("price", builder, prices);
+    measure("count", builder, counts);
+  }
+
+  private static void measure(String type, CozyMarkerBuilder builder, String[] labels) {
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      render(type, builder, labels);
+    }
+    final long bitmapBytes = measureBitmaps(type, builder, labels);
+    final long startBytes = allocatedBytes();
+    final long start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      render(type, builder, labels);
+    }
+    final long nanos = System.nanoTime() - start;
+    final long bytes = allocatedBytes() - startBytes;
+    final int operations = ITERATIONS * labels.length;
+    System.out.println(
+        String.format(
+            "%s: %d ns/op, %d bytes/op, of which %d bytes/op outside the output bitmap",
+            type,
+            nanos / operations,
+            bytes / operations,
+            (bytes - bitmapBytes) / operations));
+  }
+
+  private static void render(String type, CozyMarkerBuilder builder, String[] labels) {
+    for (String label : labels) {
+      builder.buildMarker(type, label).recycle();
+    }
+  }
+
+  /** Returns the bytes allocated by creating bitmaps of the sizes of the rendered ones. */
+  private static long measureBitmaps(String type, CozyMarkerBuilder builder, String[] labels) {
+    final int[] widths = new int[labels.length];
+    final int[] heights = new int[labels.length];
+    for (int i = 0; i < labels.length; i++) {
+      final Bitmap bitmap = builder.buildMarker(type, labels[i]);
+      widths[i] = bitmap.getWidth();
+      heights[i] = bitmap.getHeight();
+      bitmap.recycle();
+    }
+    final long startBytes = allocatedBytes();
+    for (int i = 0; i < ITERATIONS; i++) {
+      for (int j = 0; j < labels.length; j++) {
+        Bitmap.createBitmap(widths[j], heights[j], Bitmap.Config.ARGB_8888).recycle();
+      }
+    }
+    return allocatedBytes() - startBytes;
+  }
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+        .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
@@ -0,0 +1,46 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+import android.graphics.Typeface;
+import android.os.Build;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class CozyMarkerBuilderTest {
+
+  private final CozyMarkerBuilder builder = new CozyMarkerBuilder(167, Typeface.DEFAULT);
+
+  @Test
+  public void repeatedLabelsRenderNewBitmapsOfTheSameSize() {
+    final Bitmap first = builder.buildMarker("price", "R$ 1200");
+    final Bitmap second = builder.buildMarker("price", "R$ 1200");
+
+    assertNotSame(first, second);
+    assertEquals(first.getWidth(), second.getWidth());
+    assertEquals(first.getHeight(), second.getHeight());
+  }
+
+  @Test
+  public void clustersAreRenderedOnMutableCopies() {
+    final Bitmap first = builder.buildMarker("count", "12");
+    final Bitmap second = builder.buildMarker("count", "12");
+
+    assertNotSame(first, second);
+    assertTrue(first.isMutable());
+    assertEquals(167, first.getWidth());
+    assertNull(builder.buildMarker("unknown", "12"));
+  }
+}
@@ -0,0 +1,185 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.os.Build;
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.model.Polygon;
+import com.google.android.gms.maps.model.PolygonOptions;
+import com.google.android.gms.maps.model.Polyline;
+import com.google.android.gms.maps.model.PolylineOptions;
+import io.flutter.plugin.common.BinaryMessenger;
+import io.flutter.plugin.common.MethodChannel;
+import io.flutter.plugin.common.MethodCodec;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class GeoJsonLayerControllerTest {
+
+  private static final String ZONES =
+      "{\"type\": \"FeatureCollection\", \"features\": ["
+          + zone("a", "residential")
+          + ","
+          + zone("b", "industrial")
+          + ","
+          + zone("c", "residential")
+          + ",{\"type\": \"Feature\", \"properties\": {\"name\": \"river\"},"
+          + " \"geometry\": {\"type\": \"LineString\", \"coordinates\": [[0, 0], [1, 1]]}}"
+          + "]}";
+
+  private GoogleMap googleMap;
+  private MethodChannel methodChannel;
+  private List<Polygon> polygons;
+
+  @Before
+  public void before() {
+    ShadowLooper.pauseMainLooper();
+    googleMap = mock(GoogleMap.class);
+    methodChannel =
+        spy(new MethodChannel(mock(BinaryMessenger.class), "no-name", mock(MethodCodec.class)));
+    polygons = new ArrayList<>();
+    when(googleMap.addPolygon(any(PolygonOptions.class)))
+        .thenAnswer(
+            invocation -> {
+              final Polygon polygon = mock(Polygon.class);
+              when(polygon.getId()).thenReturn("p" + polygons.size());
+              polygons.add(polygon);
+              return polygon;
+            });
+    when(googleMap.addPolyline(any(PolylineOptions.class)))
+        .thenAnswer(
+            invocation -> {
+              final Polyline polyline = mock(Polyline.class);
+              when(polyline.getId()).thenReturn("l0");
+              return polyline;
+            });
+  }
+
+  @Test
+  public void featuresAreAddedInBatchesOnTheMainThread() {
+    final GeoJsonLayerController.Options options = new GeoJsonLayerController.Options("zones");
+    options.batchSize = 3;
+    final GeoJsonLayerController controller = load(options, ZONES);
+
+    verify(googleMap, never()).addPolygon(any(PolygonOptions.class));
+    ShadowLooper.idleMainLooper();
+
+    verify(googleMap, times(3)).addPolygon(any(PolygonOptions.class));
+    verify(googleMap).addPolyline(any(PolylineOptions.class));
+    final Map<String, Object> stats = controller.getStats();
+    assertEquals("loaded", stats.get("state"));
+    assertEquals(4, stats.get("featureCount"));
+    assertEquals(2, stats.get("batchCount"));
+    verify(methodChannel)
+        .invokeMethod(
+            eq("geoJsonLayer#onLoaded"), argThat(arguments -> hasFeatureCount(4, arguments)));
+  }
+
+  @Test
+  public void stylesArePickedByProperty() {
+    final GeoJsonLayerController.Options options = new GeoJsonLayerController.Options("zones");
+    options.styleProperty = "zone";
+    final GeoJsonLayerController.Style residential = new GeoJsonLayerController.Style();
+    options.styles.put("residential", residential);
+    options.styles.put("3", new GeoJsonLayerController.Style());
+
+    assertSame(residential, options.getStyle(Collections.singletonMap("zone", "residential")));
+    assertSame(options.styles.get("3"), options.getStyle(Collections.singletonMap("zone", 3L)));
+    assertSame(options.style, options.getStyle(Collections.singletonMap("zone", "park")));
+    assertSame(options.style, options.getStyle(Collections.emptyMap()));
+  }
+
+  @Test
+  public void featureTapsAreReportedWithTheirProperties() {
+    final GeoJsonLayerController.Options options = new GeoJsonLayerController.Options("zones");
+    options.consumeTapEvents = true;
+    final GeoJsonLayerController controller = load(options, ZONES);
+    ShadowLooper.idleMainLooper();
+
+    assertTrue(controller.onFeatureTap("p1"));
+    assertTrue(controller.onFeatureTap("l0"));
+    assertFalse(controller.onFeatureTap("unknown"));
+
+    verify(methodChannel)
+        .invokeMethod(
+            eq("geoJsonLayer#onFeatureTap"),
+            argThat(
+                arguments -> {
+                  final Map<?, ?> map = (Map<?, ?>) arguments;
+                  return "b".equals(map.get("featureId"))
+                      && "industrial".equals(((Map<?, ?>) map.get("properties")).get("zone"));
+                }));
+  }
+
+  @Test
+  public void removingStopsPendingBatches() {
+    final GeoJsonLayerController.Options options = new GeoJsonLayerController.Options("zones");
+    options.batchSize = 2;
+    final GeoJsonLayerController controller = load(options, ZONES);
+
+    controller.remove();
+    ShadowLooper.idleMainLooper();
+
+    verify(googleMap, never()).addPolygon(any(PolygonOptions.class));
+    verify(methodChannel, never()).invokeMethod(eq("geoJsonLayer#onLoaded"), anyMap());
+  }
+
+  @Test
+  public void invalidDocumentsAreReported() {
+    final GeoJsonLayerController controller =
+        load(new GeoJsonLayerController.Options("zones"), "{\"features\": [{\"geometry\": 1}]}");
+    ShadowLooper.idleMainLooper();
+
+    assertEquals("failed", controller.getStats().get("state"));
+    verify(methodChannel).invokeMethod(eq("geoJsonLayer#onError"), anyMap());
+  }
+
+  private GeoJsonLayerController load(GeoJsonLayerController.Options options, String json) {
+    final GeoJsonLayerController controller =
+        new GeoJsonLayerController(options, googleMap, methodChannel, Runnable::run);
+    controller.load(() -> new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    return controller;
+  }
+
+  private static boolean hasFeatureCount(int featureCount, Object arguments) {
+    return Integer.valueOf(featureCount).equals(((Map<?, ?>) arguments).get("featureCount"));
+  }
+
+  private static String zone(String id, String zone) {
+    return "{\"type\": \"Feature\", \"id\": \""
+        + id
+        + "\", \"properties\": {\"zone\": \""
+        + zone
+        + "\"}, \"geometry\": {\"type\": \"Polygon\","
+        + " \"coordinates\": [[[0, 0], [1, 0], [1, 1], [0, 0]]]}}";
+  }
+}
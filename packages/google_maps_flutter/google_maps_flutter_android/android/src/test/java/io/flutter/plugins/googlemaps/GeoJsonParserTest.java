@@ -0,0 +1,139 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Build;
+import com.google.android.gms.maps.model.LatLng;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class GeoJsonParserTest {
+
+  private static final String COLLECTION =
+      "{\"type\": \"FeatureCollection\", \"features\": ["
+          + "{\"type\": \"Feature\", \"id\": \"park\","
+          + " \"properties\": {\"zone\": \"green\", \"area\": 12.5, \"lots\": 3,"
+          + " \"tags\": [\"a\", null], \"owner\": {\"public\": true}},"
+          + " \"geometry\": {\"type\": \"Polygon\", \"coordinates\": ["
+          + "[[13, 52], [14, 52], [14, 53], [13, 52]],"
+          + "[[13.2, 52.2], [13.4, 52.2], [13.4, 52.4], [13.2, 52.2]]]}},"
+          + "{\"type\": \"Feature\", \"id\": 7, \"properties\": null,"
+          + " \"geometry\": {\"type\": \"GeometryCollection\", \"geometries\": ["
+          + "{\"type\": \"Point\", \"coordinates\": [1, 2]},"
+          + "{\"type\": \"MultiLineString\","
+          + " \"coordinates\": [[[1, 2], [3, 4]], [[5, 6], [7, 8]]]},"
+          + "{\"type\": \"MultiPolygon\", \"coordinates\": [[[[0, 0], [1, 0], [0, 1], [0, 0]]]]}"
+          + "]}},"
+          + "{\"type\": \"Feature\", \"geometry\": null}"
+          + "]}";
+
+  @Test
+  public void featuresKeepTheirPolygonsLinesAndProperties() throws IOException {
+    final List<GeoJsonParser.Feature> features = parse(COLLECTION);
+
+    assertEquals(3, features.size());
+    final GeoJsonParser.Feature park = features.get(0);
+    assertEquals("park", park.id);
+    assertEquals(1, park.polygons.size());
+    assertEquals(2, park.polygons.get(0).size());
+    assertLatLng(52, 13, park.polygons.get(0).get(0).get(0));
+    assertLatLng(52.4, 13.4, park.polygons.get(0).get(1).get(2));
+    assertEquals("green", park.properties.get("zone"));
+    assertEquals(12.5, park.properties.get("area"));
+    assertEquals(3L, park.properties.get("lots"));
+    assertNull(((List<?>) park.properties.get("tags")).get(1));
+    assertEquals(true, ((Map<?, ?>) park.properties.get("owner")).get("public"));
+
+    final GeoJsonParser.Feature collection = features.get(1);
+    assertEquals(7L, collection.id);
+    assertEquals(1, collection.index);
+    assertTrue(collection.properties.isEmpty());
+    assertEquals(2, collection.lines.size());
+    assertLatLng(8, 7, collection.lines.get(1).get(1));
+    assertEquals(1, collection.polygons.size());
+    assertEquals(1, collection.skippedGeometryCount);
+
+    assertTrue(features.get(2).polygons.isEmpty());
+    assertTrue(features.get(2).lines.isEmpty());
+  }
+
+  @Test
+  public void membersMayComeInAnyOrder() throws IOException {
+    final List<GeoJsonParser.Feature> features =
+        parse(
+            "{\"features\": [{\"geometry\": {\"coordinates\": [[1, 2, 100], [3, 4, 100]],"
+                + " \"type\": \"LineString\"}, \"type\": \"Feature\"}],"
+                + " \"type\": \"FeatureCollection\"}");
+
+    assertEquals(1, features.size());
+    assertLatLng(4, 3, features.get(0).lines.get(0).get(1));
+  }
+
+  @Test
+  public void singleFeaturesAndBareGeometriesAreOneFeature() throws IOException {
+    final List<GeoJsonParser.Feature> feature =
+        parse(
+            "{\"type\": \"Feature\", \"properties\": {\"name\": \"a\"},"
+                + " \"geometry\": {\"type\": \"LineString\", \"coordinates\": [[1, 2], [3, 4]]}}");
+    final List<GeoJsonParser.Feature> geometry =
+        parse("{\"coordinates\": [[[0, 0], [1, 0], [0, 1], [0, 0]]], \"type\": \"Polygon\"}");
+
+    assertEquals(1, feature.size());
+    assertEquals("a", feature.get(0).properties.get("name"));
+    assertEquals(1, feature.get(0).lines.size());
+    assertEquals(1, geometry.size());
+    assertEquals(4, geometry.get(0).polygons.get(0).get(0).size());
+  }
+
+  @Test
+  public void parsingStopsWhenTheListenerAsksTo() throws IOException {
+    final List<GeoJsonParser.Feature> features = new ArrayList<>();
+
+    final int count =
+        GeoJsonParser.parse(
+            new StringReader(COLLECTION),
+            feature -> {
+              features.add(feature);
+              return false;
+            });
+
+    assertEquals(1, count);
+    assertEquals(1, features.size());
+  }
+
+  @Test(expected = IOException.class)
+  public void misnestedCoordinatesAreRejected() throws IOException {
+    parse("{\"type\": \"LineString\", \"coordinates\": [[[1, 2], [3, 4]]]}");
+  }
+
+  @Test(expected = IOException.class)
+  public void truncatedDocumentsAreRejected() throws IOException {
+    parse(COLLECTION.substring(0, COLLECTION.length() / 2));
+  }
+
+  private static List<GeoJsonParser.Feature> parse(String json) throws IOException {
+    final List<GeoJsonParser.Feature> features = new ArrayList<>();
+    GeoJsonParser.parse(new StringReader(json), features::add);
+    return features;
+  }
+
+  private static void assertLatLng(double latitude, double longitude, LatLng actual) {
+    assertEquals(latitude, actual.latitude, 1e-9);
+    assertEquals(longitude, actual.longitude, 1e-9);
+  }
+}
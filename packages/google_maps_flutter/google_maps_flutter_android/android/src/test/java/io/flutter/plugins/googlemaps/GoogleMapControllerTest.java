@@ -4,8 +4,10 @@
 
 package io.flutter.plugins.googlemaps;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -20,6 +22,7 @@ import io.flutter.plugin.common.BinaryMessenger;
 import io.flutter.plugin.common.MethodCall;
 import io.flutter.plugin.common.MethodChannel;
 import java.util.HashMap;
+import java.util.Map;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -76,7 +79,8 @@ public class GoogleMapControllerTest {
       "circles#update",
       "map#setStyle",
       "tileOverlays#update",
-      "tileOverlays#clearTileCache"
+      "tileOverlays#clearTileCache",
+      "map#applyUpdates"
     };
 
     for (String methodName : methodsThatTriggerInvalidation) {
@@ -127,6 +131,27 @@ public class GoogleMapControllerTest {
     verify(mapView).invalidate();
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void ApplyUpdatesReportsTheTimingOfEachKind() {
+    googleMapController.onMapReady(mockGoogleMap);
+    final HashMap<String, Object> arguments = new HashMap<>();
+    arguments.put("markers", new HashMap<String, Object>());
+    arguments.put("polygons", new HashMap<String, Object>());
+
+    MethodChannel.Result result = mock(MethodChannel.Result.class);
+    googleMapController.onMethodCall(new MethodCall("map#applyUpdates", arguments), result);
+
+    ArgumentCaptor<Object> timings = ArgumentCaptor.forClass(Object.class);
+    verify(result).success(timings.capture());
+    final Map<String, Object> timingMap = (Map<String, Object>) timings.getValue();
+    assertTrue(timingMap.containsKey("markersMicros"));
+    assertTrue(timingMap.containsKey("polygonsMicros"));
+    assertTrue(timingMap.containsKey("totalMicros"));
+    assertFalse(timingMap.containsKey("circlesMicros"));
+    verify(mockGoogleMap).setOnMapLoadedCallback(any(GoogleMap.OnMapLoadedCallback.class));
+  }
+
   @Test
   public void MethodCalledAfterControllerIsDestroyed() throws InterruptedException {
     googleMapController.onMapReady(mockGoogleMap);
@@ -0,0 +1,87 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import android.os.Build;
+import com.google.android.gms.maps.model.TileOverlay;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class HeatmapControllerTest {
+
+  private TileOverlay tileOverlay;
+  private HeatmapTileProvider tileProvider;
+  private HeatmapController controller;
+
+  @Before
+  public void before() {
+    tileOverlay = mock(TileOverlay.class);
+    tileProvider = new HeatmapTileProvider();
+    controller = new HeatmapController(tileOverlay, tileProvider);
+    change(options(new double[] {52, 13, 1}, 20));
+  }
+
+  @Test
+  public void changesClearTheTileCacheOnce() {
+    verify(tileOverlay).clearTileCache();
+
+    change(options(new double[] {52, 13, 2}, 30));
+
+    verify(tileOverlay, times(2)).clearTileCache();
+  }
+
+  @Test
+  public void unchangedOptionsAreSkipped() {
+    change(options(new double[] {52, 13, 1}, 20));
+
+    verify(tileOverlay).clearTileCache();
+    assertFalse(tileProvider.setData(new double[] {52, 13, 1}));
+  }
+
+  @Test
+  public void styleChangesClearTheTileCacheOnceToo() {
+    final Map<String, Object> options = options(new double[] {52, 13, 1}, 25);
+    options.put("opacity", 0.5);
+    options.put("maxIntensity", 4.0);
+
+    change(options);
+
+    verify(tileOverlay, times(2)).clearTileCache();
+  }
+
+  private void change(Map<String, Object> options) {
+    Convert.interpretHeatmapOptions(options, controller);
+    controller.commitChanges();
+  }
+
+  private static Map<String, Object> options(double[] data, double radius) {
+    final Map<String, Object> options = new HashMap<>();
+    options.put("heatmapId", "heatmap");
+    options.put("data", data);
+    options.put("radius", radius);
+    options.put("gradient", gradient());
+    return options;
+  }
+
+  private static Map<String, Object> gradient() {
+    final Map<String, Object> gradient = new HashMap<>();
+    gradient.put("colors", Arrays.asList(0xff00ff00, 0xffff0000));
+    gradient.put("startPoints", Arrays.asList(0.2, 1.0));
+    return gradient;
+  }
+}
@@ -0,0 +1,119 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Color;
+import android.os.Build;
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.Tile;
+import com.google.android.gms.maps.model.TileProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class HeatmapTileProviderTest {
+
+  private static final int PEAK_COLOR = (Math.round(255 * 0.7f) << 24) | 0xff0000;
+
+  private HeatmapTileProvider provider;
+
+  @Before
+  public void before() {
+    provider = new HeatmapTileProvider();
+  }
+
+  /** Returns the coordinates of the middle of tile {@code (x, y)} at {@code zoom}. */
+  private static LatLng tileCenter(int x, int y, int zoom) {
+    final double size = 1.0 / (1 << zoom);
+    return SphericalMercator.toLatLng((x + 0.5) * size, (y + 0.5) * size);
+  }
+
+  private static int pixel(int[] pixels, int x, int y) {
+    return pixels[y * HeatmapTileProvider.TILE_SIZE + x];
+  }
+
+  @Test
+  public void rendersTheGradientAroundPoints() {
+    final LatLng center = tileCenter(5, 6, 4);
+    provider.setData(new double[] {center.latitude, center.longitude, 3});
+
+    final int[] pixels = provider.renderPixels(5, 6, 4);
+
+    assertNotNull(pixels);
+    final int middle = HeatmapTileProvider.TILE_SIZE / 2;
+    // The point falls on one of the middle pixels, depending on rounding.
+    boolean hasPeak = false;
+    for (int y = middle - 1; y <= middle; y++) {
+      for (int x = middle - 1; x <= middle; x++) {
+        assertEquals(Color.alpha(PEAK_COLOR), Color.alpha(pixel(pixels, x, y)));
+        hasPeak |= pixel(pixels, x, y) == PEAK_COLOR;
+      }
+    }
+    assertTrue(hasPeak);
+    // The radius is 10 dp, which is 20 pixels of a tile.
+    assertTrue(Color.alpha(pixel(pixels, middle + 15, middle)) > 0);
+    assertEquals(0, pixel(pixels, middle + 30, middle));
+    assertEquals(0, pixel(pixels, 0, 0));
+  }
+
+  @Test
+  public void returnsNoTileAwayFromPoints() {
+    final LatLng center = tileCenter(5, 6, 4);
+    provider.setData(new double[] {center.latitude, center.longitude, 1});
+
+    assertSame(TileProvider.NO_TILE, provider.getTile(7, 6, 4));
+    assertNull(provider.renderPixels(5, 8, 4));
+  }
+
+  @Test
+  public void wrapsAroundTheAntimeridian() {
+    provider.setData(new double[] {45, 179.5, 1});
+
+    assertNotNull(provider.renderPixels(0, 0, 1));
+  }
+
+  @Test
+  public void cachesTilesUntilTheDataChanges() {
+    final LatLng center = tileCenter(1, 1, 2);
+    provider.setData(new double[] {center.latitude, center.longitude, 1});
+
+    final Tile tile = provider.getTile(1, 1, 2);
+    assertSame(tile, provider.getTile(1, 1, 2));
+    assertEquals(1L, provider.getStats().get("cacheHitCount"));
+
+    provider.setData(new double[] {center.latitude, center.longitude, 2});
+
+    assertNotSame(tile, provider.getTile(1, 1, 2));
+    assertEquals(2L, provider.getStats().get("renderedTileCount"));
+  }
+
+  @Test
+  public void colorMapFadesInTheFirstColor() {
+    final int[] colorMap =
+        HeatmapTileProvider.createColorMap(
+            new int[] {Color.BLUE, Color.RED}, new float[] {0.5f, 1f}, 1f);
+
+    assertEquals(Color.BLUE & 0x00ffffff, colorMap[0]);
+    assertEquals(Color.RED, colorMap[colorMap.length - 1]);
+    assertEquals(255, Color.alpha(colorMap[colorMap.length / 2]));
+    assertEquals(Color.BLUE, colorMap[colorMap.length / 2 - 1] | 0xff000000);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsIncompleteData() {
+    provider.setData(new double[] {1, 2});
+  }
+}
@@ -0,0 +1,60 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+  private static final long MILLIS = 1_000_000;
+
+  @Test
+  public void reportsBucketUpperBoundsAsPercentiles() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 90; i++) {
+      histogram.record(MILLIS);
+    }
+    for (int i = 0; i < 10; i++) {
+      histogram.record(100 * MILLIS);
+    }
+
+    // 1000 microseconds fall in the bucket below 1024 microseconds.
+    assertEquals(1.024, histogram.getPercentileMillis(50), 1e-9);
+    assertEquals(1.024, histogram.getPercentileMillis(90), 1e-9);
+    // The slowest bucket is bounded by the max.
+    assertEquals(100, histogram.getPercentileMillis(99), 1e-9);
+    final Map<String, Object> data = histogram.toMap();
+    assertEquals(100L, data.get("count"));
+    assertEquals(10.9, (Double) data.get("averageMillis"), 1e-9);
+    assertEquals(100.0, data.get("maxMillis"));
+  }
+
+  @Test
+  public void emptyHistogramReportsZeros() {
+    final Map<String, Object> data = new LatencyHistogram().toMap();
+
+    assertEquals(0L, data.get("count"));
+    assertEquals(0.0, data.get("averageMillis"));
+    assertEquals(0.0, data.get("p99Millis"));
+  }
+
+  @Test
+  public void addMergesHistograms() {
+    final LatencyHistogram first = new LatencyHistogram();
+    first.record(MILLIS);
+    final LatencyHistogram second = new LatencyHistogram();
+    second.record(3 * MILLIS);
+    second.record(0);
+
+    first.add(second);
+
+    assertEquals(3, first.getCount());
+    assertEquals(3.0, first.toMap().get("maxMillis"));
+    assertEquals(0.001, first.getPercentileMillis(1), 1e-9);
+  }
+}
@@ -0,0 +1,118 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.os.Build;
+import androidx.activity.ComponentActivity;
+import androidx.test.core.app.ApplicationProvider;
+import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.GoogleMapOptions;
+import com.google.android.gms.maps.MapView;
+import com.google.android.gms.maps.UiSettings;
+import io.flutter.plugin.common.BinaryMessenger;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class MapViewPoolTest {
+
+  private final List<MapView> createdViews = new ArrayList<>();
+  private Context context;
+  private MapViewPool pool;
+
+  @Before
+  public void before() {
+    context = ApplicationProvider.getApplicationContext();
+    pool =
+        new MapViewPool(
+            (context, options) -> {
+              final MapView mapView = mock(MapView.class);
+              createdViews.add(mapView);
+              return mapView;
+            });
+  }
+
+  private static GoogleMapOptions liteOptions() {
+    final GoogleMapOptions options = mock(GoogleMapOptions.class);
+    when(options.getLiteMode()).thenReturn(true);
+    when(options.getMapType()).thenReturn(-1);
+    return options;
+  }
+
+  @Test
+  public void prewarmedViewsAreCreatedAndBorrowedByMatchingOptions() {
+    pool.prewarm(context, liteOptions(), 2);
+
+    assertEquals(2, createdViews.size());
+    verify(createdViews.get(0)).onCreate(null);
+    verify(createdViews.get(0)).getMapAsync(any());
+    assertNull(pool.acquire(null));
+    assertSame(createdViews.get(1), pool.acquire(liteOptions()));
+    assertEquals(1, pool.getIdleCount());
+    assertEquals(2, pool.getMaxSize());
+  }
+
+  @Test
+  public void releasedViewsAreOnlyKeptUpToTheMaxSize() {
+    final MapView first = mock(MapView.class);
+    final MapView second = mock(MapView.class);
+
+    assertFalse(pool.release(first, null));
+    pool.setMaxSize(1);
+    assertTrue(pool.release(first, null));
+    assertTrue(pool.release(second, null));
+
+    verify(first).onStop();
+    verify(first).onDestroy();
+    verify(second, never()).onDestroy();
+    assertSame(second, pool.acquire(null));
+  }
+
+  @Test
+  public void controllerBorrowsAndReturnsTheView() {
+    final ComponentActivity activity = Robolectric.setupActivity(ComponentActivity.class);
+    final BinaryMessenger messenger = mock(BinaryMessenger.class);
+    final GoogleMap googleMap = mock(GoogleMap.class);
+    when(googleMap.getUiSettings()).thenReturn(mock(UiSettings.class));
+    pool.prewarm(context, null, 1);
+    final MapView pooledView = createdViews.get(0);
+
+    final GoogleMapController controller =
+        new GoogleMapController(0, context, messenger, activity::getLifecycle, null, pool);
+    controller.init();
+    controller.onMapReady(googleMap);
+
+    assertSame(pooledView, controller.getView());
+    // Replaying the lifecycle must not create the view a second time.
+    verify(pooledView).onCreate(null);
+    verify(googleMap).setMapType(GoogleMap.MAP_TYPE_NORMAL);
+
+    controller.dispose();
+
+    verify(googleMap).clear();
+    verify(pooledView, never()).onDestroy();
+    assertNull(controller.getView());
+    assertEquals(1, pool.getIdleCount());
+  }
+}
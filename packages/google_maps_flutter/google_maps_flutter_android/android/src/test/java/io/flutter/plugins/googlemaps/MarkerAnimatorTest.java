@@ -0,0 +1,148 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Build;
+import android.view.animation.LinearInterpolator;
+import com.google.android.gms.maps.model.LatLng;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowChoreographer;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class MarkerAnimatorTest {
+
+  private final List<LatLng> frames = new ArrayList<>();
+  private final List<Boolean> ends = new ArrayList<>();
+  private LatLng endPosition;
+  private MarkerAnimator animator;
+
+  @Before
+  public void before() {
+    ShadowLooper.pauseMainLooper();
+    // Frames are otherwise all run at once, as soon as the looper idles.
+    ShadowChoreographer.setPostFrameCallbackDelay(16);
+    animator =
+        new MarkerAnimator(
+            new MarkerAnimator.Listener() {
+              @Override
+              public void onMarkerAnimationFrame(String markerId, LatLng position) {
+                frames.add(position);
+              }
+
+              @Override
+              public void onMarkerAnimationEnd(
+                  String markerId, LatLng from, LatLng position, boolean finished) {
+                ends.add(finished);
+                endPosition = position;
+              }
+            });
+  }
+
+  @After
+  public void after() {
+    ShadowChoreographer.setPostFrameCallbackDelay(0);
+  }
+
+  private static MarkerAnimator.Animation animation(List<LatLng> path, long durationMillis) {
+    return new MarkerAnimator.Animation("m", path, null, durationMillis, new LinearInterpolator());
+  }
+
+  private static void runFrames(int count) {
+    for (int i = 0; i < count; i++) {
+      ShadowLooper.idleMainLooper(16, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Test
+  public void movesToTheTargetAndReportsTheEnd() {
+    final LatLng target = new LatLng(10, 10);
+    animator.start(animation(Collections.singletonList(target), 100), new LatLng(0, 0));
+
+    runFrames(20);
+
+    assertTrue(frames.size() > 2);
+    assertEquals(target, frames.get(frames.size() - 1));
+    assertEquals(Collections.singletonList(true), ends);
+    assertEquals(target, endPosition);
+    assertEquals(0, animator.getAnimationCount());
+  }
+
+  @Test
+  public void followsThePathInOrder() {
+    final List<LatLng> path = Arrays.asList(new LatLng(0, 1), new LatLng(0, 2), new LatLng(0, 3));
+    animator.start(animation(path, 200), new LatLng(0, 0));
+
+    runFrames(30);
+
+    double longitude = 0;
+    for (LatLng frame : frames) {
+      assertEquals(0, frame.latitude, 1e-9);
+      assertTrue(frame.longitude >= longitude);
+      longitude = frame.longitude;
+    }
+    assertEquals(3, longitude, 1e-9);
+  }
+
+  @Test
+  public void cancelStopsWhereTheMarkerIs() {
+    animator.start(
+        animation(Collections.singletonList(new LatLng(10, 10)), 10_000), new LatLng(0, 0));
+    runFrames(3);
+
+    animator.cancel("m");
+    runFrames(3);
+
+    assertFalse(animator.isAnimating("m"));
+    assertEquals(Collections.singletonList(false), ends);
+    assertEquals(frames.get(frames.size() - 1), endPosition);
+  }
+
+  @Test
+  public void startingAgainCancelsTheRunningAnimation() {
+    final LatLng target = new LatLng(5, 5);
+    animator.start(animation(Collections.singletonList(target), 10_000), new LatLng(0, 0));
+
+    animator.start(animation(Collections.singletonList(target), 100), new LatLng(1, 1));
+    assertTrue(animator.isStartOrTarget("m", new LatLng(1, 1)));
+    runFrames(20);
+
+    assertEquals(Arrays.asList(false, true), ends);
+    assertEquals(target, endPosition);
+  }
+
+  @Test
+  public void interpolatesAcrossTheAntimeridian() {
+    final LatLng position =
+        MarkerAnimator.interpolate(new LatLng(0, 170), new LatLng(0, -160), 0.5);
+
+    assertEquals(-175, position.longitude, 1e-9);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsMismatchedTimestamps() {
+    new MarkerAnimator.Animation(
+        "m",
+        Collections.singletonList(new LatLng(0, 0)),
+        new long[] {100, 200},
+        0,
+        new LinearInterpolator());
+  }
+}
@@ -0,0 +1,105 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import io.flutter.plugin.common.StandardMessageCodec;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Compares decoding {@code markers#update} payloads with {@link StandardMessageCodec} against
+ * decoding {@code markers#updateBinary} payloads with {@link MarkerBatch}.
+ *
+ * <p>Both paths end in the same {@link MarkerOptionsSink}, so the difference is the cost of the
+ * encoding. Run it manually, the timings are printed to stdout.
+ */
+@Ignore("Benchmark, run manually")
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class MarkerBatchBenchmark {
+
+  private static final int[] MARKER_COUNTS = {1000, 10000, 50000};
+  private static final int WARMUP_ITERATIONS = 3;
+  private static final int ITERATIONS = 10;
+
+  private CozyMarkerBuilder cozyMarkerBuilder;
+
+  @Before
+  public void before() {
+    cozyMarkerBuilder = mock(CozyMarkerBuilder.class);
+    when(cozyMarkerBuilder.buildMarker(anyString(), anyString()))
+        .thenAnswer(invocation -> Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888));
+    MarkerIconCache.setInstance(
+        new MarkerIconCache(
+            MarkerIconCache.DEFAULT_MAX_SIZE_BYTES, bitmap -> mock(BitmapDescriptor.class)));
+  }
+
+  @After
+  public void after() {
+    MarkerIconCache.setInstance(null);
+  }
+
+  @Test
+  public void compareEncodings() {
+    for (int count : MARKER_COUNTS) {
+      final List<Map<String, Object>> markers = MarkerBatchTest.createMarkers(count);
+      final ByteBuffer standard = StandardMessageCodec.INSTANCE.encodeMessage(markers);
+      final byte[] binary = MarkerBatchTest.encode(markers);
+
+      for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+        decodeStandard(standard);
+        decodeBinary(binary);
+      }
+      long standardNanos = 0;
+      long binaryNanos = 0;
+      for (int i = 0; i < ITERATIONS; i++) {
+        long start = System.nanoTime();
+        decodeStandard(standard);
+        standardNanos += System.nanoTime() - start;
+        start = System.nanoTime();
+        decodeBinary(binary);
+        binaryNanos += System.nanoTime() - start;
+      }
+      System.out.println(
+          String.format(
+              "%d markers: standard %d bytes %.2f ms, binary %d bytes %.2f ms",
+              count,
+              standard.capacity(),
+              standardNanos / 1e6 / ITERATIONS,
+              binary.length,
+              binaryNanos / 1e6 / ITERATIONS));
+    }
+  }
+
+  private void decodeStandard(ByteBuffer message) {
+    message.rewind();
+    final List<?> markers = (List<?>) StandardMessageCodec.INSTANCE.decodeMessage(message);
+    for (Object marker : markers) {
+      Convert.interpretMarkerOptions(marker, new MarkerBuilder(), cozyMarkerBuilder);
+    }
+  }
+
+  private void decodeBinary(byte[] message) {
+    final MarkerBatch batch = MarkerBatch.fromBytes(message);
+    for (int i = 0; i < batch.size(); i++) {
+      batch.interpretMarkerOptions(i, new MarkerBuilder(), cozyMarkerBuilder);
+    }
+  }
+}
@@ -0,0 +1,252 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.MarkerOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class MarkerBatchTest {
+
+  private CozyMarkerBuilder cozyMarkerBuilder;
+
+  @Before
+  public void before() {
+    cozyMarkerBuilder = mock(CozyMarkerBuilder.class);
+    when(cozyMarkerBuilder.buildMarker(anyString(), anyString()))
+        .thenAnswer(invocation -> Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888));
+    MarkerIconCache.setInstance(
+        new MarkerIconCache(1024 * 1024, bitmap -> mock(BitmapDescriptor.class)));
+  }
+
+  @After
+  public void after() {
+    MarkerIconCache.setInstance(null);
+  }
+
+  @Test
+  public void decodesTheSameOptionsAsMarkersUpdate() {
+    final List<Map<String, Object>> markers = createMarkers(3);
+    markers.get(1).put("infoWindow", infoWindow("Apartment", null));
+    markers.get(2).put("draggable", true);
+    markers.get(2).put("visible", false);
+
+    final MarkerBatch batch = MarkerBatch.fromBytes(encode(markers));
+
+    assertEquals(3, batch.size());
+    for (int i = 0; i < markers.size(); i++) {
+      final MarkerBuilder fromJson = new MarkerBuilder();
+      final MarkerBuilder fromBytes = new MarkerBuilder();
+      assertEquals(
+          Convert.interpretMarkerOptions(markers.get(i), fromJson, cozyMarkerBuilder),
+          batch.interpretMarkerOptions(i, fromBytes, cozyMarkerBuilder));
+      assertSameOptions(fromJson.build(), fromBytes.build());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsTruncatedPayloads() {
+    final byte[] bytes = encode(createMarkers(2));
+    MarkerBatch.fromBytes(Arrays.copyOf(bytes, bytes.length - 1));
+  }
+
+  @Test
+  public void rejectsHeadersAskingForMoreThanThePayloadHolds() {
+    final byte[] bytes = encode(createMarkers(2));
+    final ByteBuffer header = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+
+    header.putInt(4, Integer.MAX_VALUE);
+    assertTruncated(bytes);
+    header.putInt(4, 2).putInt(8, Integer.MAX_VALUE);
+    assertTruncated(bytes);
+  }
+
+  @Test
+  public void rejectsStringIndexesOutsideTheStringTable() {
+    final byte[] bytes = encode(createMarkers(2));
+    final int stringCount =
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).getInt(8);
+    // The label column follows the markerId, latitude, longitude and markerType columns.
+    final int labels = bytes.length - 46 * 2 + (4 + 8 + 8 + 1) * 2;
+    ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(labels + 4, stringCount);
+
+    try {
+      MarkerBatch.fromBytes(bytes);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals(
+          "Invalid label string index " + stringCount + " in marker batch", e.getMessage());
+    }
+  }
+
+  private static void assertTruncated(byte[] bytes) {
+    try {
+      MarkerBatch.fromBytes(bytes);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Truncated marker batch", e.getMessage());
+    }
+  }
+
+  private static void assertSameOptions(MarkerOptions expected, MarkerOptions actual) {
+    assertEquals(expected.getPosition(), actual.getPosition());
+    assertSame(expected.getIcon(), actual.getIcon());
+    assertEquals(expected.getTitle(), actual.getTitle());
+    assertEquals(expected.getSnippet(), actual.getSnippet());
+    assertEquals(expected.getAlpha(), actual.getAlpha(), 0);
+    assertEquals(expected.getRotation(), actual.getRotation(), 0);
+    assertEquals(expected.getZIndex(), actual.getZIndex(), 0);
+    assertEquals(expected.isDraggable(), actual.isDraggable());
+    assertEquals(expected.isFlat(), actual.isFlat());
+    assertEquals(expected.isVisible(), actual.isVisible());
+  }
+
+  private static Map<String, Object> infoWindow(String title, String snippet) {
+    final Map<String, Object> infoWindow = new HashMap<>();
+    infoWindow.put("title", title);
+    infoWindow.put("snippet", snippet);
+    return infoWindow;
+  }
+
+  /** Creates markers the way the Dart side sends them with {@code markers#update}. */
+  static List<Map<String, Object>> createMarkers(int count) {
+    final List<Map<String, Object>> markers = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      final Map<String, Object> marker = new HashMap<>();
+      marker.put("markerId", "marker_" + i);
+      marker.put("markerType", i % 10 == 0 ? "count" : "price");
+      marker.put("label", i % 10 == 0 ? String.valueOf(i % 50) : "R$ " + (i % 200) + "k");
+      marker.put("position", Arrays.asList(-23.5 + i * 1e-5, -46.6 - i * 1e-5));
+      marker.put("alpha", 1.0);
+      marker.put("rotation", 0.0);
+      marker.put("zIndex", (double) (i % 3));
+      marker.put("consumeTapEvents", true);
+      marker.put("draggable", false);
+      marker.put("flat", false);
+      marker.put("visible", true);
+      markers.add(marker);
+    }
+    return markers;
+  }
+
+  /** Packs {@code markers} in the {@link MarkerBatch} layout, as the Dart side would. */
+  static byte[] encode(List<Map<String, Object>> markers) {
+    final Charset utf8 = Charset.forName("UTF-8");
+    final Map<String, Integer> stringIndexes = new LinkedHashMap<>();
+    final int size = markers.size();
+    final int[] ids = new int[size];
+    final int[] labels = new int[size];
+    final int[] titles = new int[size];
+    final int[] snippets = new int[size];
+    for (int i = 0; i < size; i++) {
+      final Map<String, Object> marker = markers.get(i);
+      ids[i] = stringIndex(stringIndexes, (String) marker.get("markerId"));
+      labels[i] = stringIndex(stringIndexes, (String) marker.get("label"));
+      @SuppressWarnings("unchecked")
+      final Map<String, Object> infoWindow = (Map<String, Object>) marker.get("infoWindow");
+      titles[i] = stringIndex(stringIndexes, infoWindow != null ? infoWindow.get("title") : null);
+      snippets[i] =
+          stringIndex(stringIndexes, infoWindow != null ? infoWindow.get("snippet") : null);
+    }
+    final List<byte[]> strings = new ArrayList<>(stringIndexes.size());
+    int stringBytes = 0;
+    for (String string : stringIndexes.keySet()) {
+      final byte[] bytes = string.getBytes(utf8);
+      strings.add(bytes);
+      stringBytes += 4 + bytes.length;
+    }
+    final ByteBuffer buffer =
+        ByteBuffer.allocate(12 + stringBytes + size * (4 + 8 + 8 + 1 + 4 + 4 + 4 + 1 + 4 + 4 + 4))
+            .order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(MarkerBatch.VERSION).putInt(size).putInt(strings.size());
+    for (byte[] bytes : strings) {
+      buffer.putInt(bytes.length).put(bytes);
+    }
+    for (int id : ids) {
+      buffer.putInt(id);
+    }
+    for (Map<String, Object> marker : markers) {
+      buffer.putDouble(((Number) ((List<?>) marker.get("position")).get(0)).doubleValue());
+    }
+    for (Map<String, Object> marker : markers) {
+      buffer.putDouble(((Number) ((List<?>) marker.get("position")).get(1)).doubleValue());
+    }
+    for (Map<String, Object> marker : markers) {
+      buffer.put(
+          (byte)
+              ("count".equals(marker.get("markerType"))
+                  ? MarkerBatch.TYPE_COUNT
+                  : MarkerBatch.TYPE_PRICE));
+    }
+    for (int label : labels) {
+      buffer.putInt(label);
+    }
+    for (int title : titles) {
+      buffer.putInt(title);
+    }
+    for (int snippet : snippets) {
+      buffer.putInt(snippet);
+    }
+    for (Map<String, Object> marker : markers) {
+      int flags = 0;
+      if (Boolean.TRUE.equals(marker.get("consumeTapEvents"))) {
+        flags |= MarkerBatch.FLAG_CONSUME_TAP_EVENTS;
+      }
+      if (Boolean.TRUE.equals(marker.get("draggable"))) {
+        flags |= MarkerBatch.FLAG_DRAGGABLE;
+      }
+      if (Boolean.TRUE.equals(marker.get("flat"))) {
+        flags |= MarkerBatch.FLAG_FLAT;
+      }
+      if (Boolean.TRUE.equals(marker.get("visible"))) {
+        flags |= MarkerBatch.FLAG_VISIBLE;
+      }
+      buffer.put((byte) flags);
+    }
+    for (String field : new String[] {"alpha", "rotation", "zIndex"}) {
+      for (Map<String, Object> marker : markers) {
+        buffer.putFloat(((Number) marker.get(field)).floatValue());
+      }
+    }
+    return buffer.array();
+  }
+
+  private static int stringIndex(Map<String, Integer> stringIndexes, Object string) {
+    if (string == null) {
+      return -1;
+    }
+    Integer index = stringIndexes.get(string);
+    if (index == null) {
+      index = stringIndexes.size();
+      stringIndexes.put((String) string, index);
+    }
+    return index;
+  }
+}
@@ -0,0 +1,93 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MarkerClustererTest {
+
+  private final LatLngBounds world = new LatLngBounds(new LatLng(-80, -179), new LatLng(80, 179));
+  private PointQuadTree<String> index;
+  private Map<String, MarkerBuilder> markers;
+
+  @Before
+  public void before() {
+    index = new PointQuadTree<>();
+    markers = new HashMap<>();
+    // Two groups of markers far away from each other, and one isolated marker.
+    for (int i = 0; i < 50; i++) {
+      addMarker("sp" + i, -23.55 + i * 0.0001, -46.63 + i * 0.0001);
+      addMarker("rj" + i, -22.90 + i * 0.0001, -43.17 + i * 0.0001);
+    }
+    addMarker("lisbon", 38.72, -9.14);
+  }
+
+  private void addMarker(String markerId, double latitude, double longitude) {
+    final MarkerBuilder builder = new MarkerBuilder();
+    builder.setPosition(new LatLng(latitude, longitude));
+    markers.put(markerId, builder);
+    index.add(markerId, SphericalMercator.toX(longitude), SphericalMercator.toY(latitude));
+  }
+
+  @Test
+  public void gridAlgorithmGroupsCloseMarkers() {
+    final MarkerClusterer clusterer =
+        new MarkerClusterer(MarkerClusterer.Algorithm.GRID, 100, 20, 2);
+
+    final List<MarkerClusterer.Cluster> clusters = clusterer.cluster(index, markers, world, 5);
+
+    assertEquals(3, clusters.size());
+    assertEquals(101, countMarkers(clusters));
+  }
+
+  @Test
+  public void distanceAlgorithmGroupsCloseMarkers() {
+    final MarkerClusterer clusterer =
+        new MarkerClusterer(MarkerClusterer.Algorithm.DISTANCE, 100, 20, 2);
+
+    final List<MarkerClusterer.Cluster> clusters = clusterer.cluster(index, markers, world, 5);
+
+    assertEquals(3, clusters.size());
+    assertEquals(101, countMarkers(clusters));
+  }
+
+  @Test
+  public void markersAreNotClusteredAboveMaxZoom() {
+    final MarkerClusterer clusterer =
+        new MarkerClusterer(MarkerClusterer.Algorithm.GRID, 100, 4, 2);
+
+    final List<MarkerClusterer.Cluster> clusters = clusterer.cluster(index, markers, world, 5);
+
+    assertEquals(101, clusters.size());
+  }
+
+  @Test
+  public void onlyVisibleMarkersAreClustered() {
+    final MarkerClusterer clusterer =
+        new MarkerClusterer(MarkerClusterer.Algorithm.GRID, 100, 20, 2);
+    final LatLngBounds europe = new LatLngBounds(new LatLng(30, -20), new LatLng(60, 20));
+
+    final List<MarkerClusterer.Cluster> clusters = clusterer.cluster(index, markers, europe, 5);
+
+    assertEquals(1, clusters.size());
+    assertEquals("lisbon", clusters.get(0).markerIds.get(0));
+  }
+
+  private static int countMarkers(List<MarkerClusterer.Cluster> clusters) {
+    int count = 0;
+    for (MarkerClusterer.Cluster cluster : clusters) {
+      count += cluster.markerIds.size();
+    }
+    return count;
+  }
+}
@@ -0,0 +1,102 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.os.Build;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class MarkerIconBudgetTest {
+
+  private MarkerIconBudget budget;
+  private int trimCount;
+
+  @Before
+  public void before() {
+    ShadowLooper.pauseMainLooper();
+    budget = new MarkerIconBudget(100, bitmap -> mock(BitmapDescriptor.class));
+    budget.addListener(() -> trimCount++);
+  }
+
+  @After
+  public void after() {
+    MarkerIconCache.setInstance(null);
+  }
+
+  @Test
+  public void iconsAreCountedOnceWhileAnyMarkerShowsThem() {
+    budget.acquire(Arrays.asList("price", "R$ 1"), 40);
+    budget.acquire(Arrays.asList("price", "R$ 1"), 40);
+    budget.acquire(Arrays.asList("count", "2"), 30);
+    budget.acquire(MarkerIconBudget.PLACEHOLDER_KEY, 0);
+    budget.acquire(Arrays.asList("defaultMarker"), 1000);
+
+    assertEquals(70L, budget.getStats().get("sizeBytes"));
+    assertEquals(2, budget.getStats().get("iconCount"));
+
+    budget.release(Arrays.asList("price", "R$ 1"));
+    assertEquals(70L, budget.getStats().get("sizeBytes"));
+    budget.release(Arrays.asList("price", "R$ 1"));
+    assertEquals(30L, budget.getStats().get("sizeBytes"));
+  }
+
+  @Test
+  public void exceedingTheBudgetTrimsOnceOnTheNextLoop() {
+    budget.acquire(Arrays.asList("price", "R$ 1"), 60);
+    budget.acquire(Arrays.asList("price", "R$ 2"), 60);
+    budget.acquire(Arrays.asList("price", "R$ 3"), 60);
+
+    assertTrue(budget.isExceeded());
+    assertEquals(0, trimCount);
+    ShadowLooper.idleMainLooper();
+    assertEquals(1, trimCount);
+    assertEquals(1L, budget.getStats().get("exceededCount"));
+  }
+
+  @Test
+  public void trimMemoryShrinksTheIconCaches() {
+    final CozyMarkerBuilder cozyMarkerBuilder = mock(CozyMarkerBuilder.class);
+    when(cozyMarkerBuilder.buildMarker(anyString(), anyString()))
+        .thenAnswer(invocation -> Bitmap.createBitmap(2, 2, Bitmap.Config.ARGB_8888));
+    final MarkerIconCache cache = new MarkerIconCache(1024, bitmap -> mock(BitmapDescriptor.class));
+    MarkerIconCache.setInstance(cache);
+    for (int i = 0; i < 4; i++) {
+      cache.getOrBuild(cozyMarkerBuilder, "count", String.valueOf(i));
+    }
+
+    budget.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+    assertEquals(32L, cache.getSizeBytes());
+    assertFalse(cache.contains(cozyMarkerBuilder, "count", "0"));
+    assertEquals(1, trimCount);
+
+    budget.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+    assertEquals(0, cache.getEntryCount());
+    assertEquals(2, trimCount);
+  }
+
+  @Test
+  public void placeholderIsShared() {
+    assertSame(budget.getPlaceholder(), budget.getPlaceholder());
+  }
+}
@@ -0,0 +1,94 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class MarkerIconCacheTest {
+
+  private static final int BITMAP_SIZE = 10;
+  private static final int BITMAP_BYTES = BITMAP_SIZE * BITMAP_SIZE * 4;
+
+  private CozyMarkerBuilder cozyMarkerBuilder;
+  private MarkerIconCache.DescriptorFactory descriptorFactory;
+
+  @Before
+  public void before() {
+    cozyMarkerBuilder = mock(CozyMarkerBuilder.class);
+    when(cozyMarkerBuilder.getMarkerSize()).thenReturn(100);
+    when(cozyMarkerBuilder.buildMarker(anyString(), anyString()))
+        .thenAnswer(
+            invocation ->
+                Bitmap.createBitmap(BITMAP_SIZE, BITMAP_SIZE, Bitmap.Config.ARGB_8888));
+    descriptorFactory = bitmap -> mock(BitmapDescriptor.class);
+  }
+
+  @Test
+  public void repeatedLabelsSkipRendering() {
+    final MarkerIconCache cache = new MarkerIconCache(1024 * 1024, descriptorFactory);
+
+    final BitmapDescriptor first = cache.getOrBuild(cozyMarkerBuilder, "price", "R$ 450k");
+    final BitmapDescriptor second = cache.getOrBuild(cozyMarkerBuilder, "price", "R$ 450k");
+    final BitmapDescriptor third = cache.getOrBuild(cozyMarkerBuilder, "price", "R$ 450k");
+
+    assertSame(first, second);
+    assertSame(first, third);
+    verify(cozyMarkerBuilder, times(1)).buildMarker("price", "R$ 450k");
+    assertEquals(2, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(BITMAP_BYTES, cache.getSizeBytes());
+  }
+
+  @Test
+  public void markerTypeIsPartOfTheKey() {
+    final MarkerIconCache cache = new MarkerIconCache(1024 * 1024, descriptorFactory);
+
+    final BitmapDescriptor price = cache.getOrBuild(cozyMarkerBuilder, "price", "12");
+    final BitmapDescriptor count = cache.getOrBuild(cozyMarkerBuilder, "count", "12");
+
+    assertNotSame(price, count);
+    verify(cozyMarkerBuilder).buildMarker("price", "12");
+    verify(cozyMarkerBuilder).buildMarker("count", "12");
+    assertEquals(2, cache.getMissCount());
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedWhenOverBudget() {
+    final MarkerIconCache cache = new MarkerIconCache(BITMAP_BYTES * 2, descriptorFactory);
+
+    cache.getOrBuild(cozyMarkerBuilder, "count", "1");
+    cache.getOrBuild(cozyMarkerBuilder, "count", "2");
+    // Touch "1" so that "2" becomes the eldest entry.
+    cache.getOrBuild(cozyMarkerBuilder, "count", "1");
+    cache.getOrBuild(cozyMarkerBuilder, "count", "3");
+
+    assertEquals(1, cache.getEvictionCount());
+    assertEquals(2, cache.getEntryCount());
+    assertEquals(BITMAP_BYTES * 2, cache.getSizeBytes());
+
+    cache.getOrBuild(cozyMarkerBuilder, "count", "1");
+    verify(cozyMarkerBuilder, times(1)).buildMarker("count", "1");
+    cache.getOrBuild(cozyMarkerBuilder, "count", "2");
+    verify(cozyMarkerBuilder, times(2)).buildMarker("count", "2");
+  }
+}
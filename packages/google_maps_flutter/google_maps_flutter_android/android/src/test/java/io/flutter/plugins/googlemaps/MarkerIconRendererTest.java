@@ -0,0 +1,120 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class MarkerIconRendererTest {
+
+  private CozyMarkerBuilder cozyMarkerBuilder;
+  private final List<String> readyMarkerIds = new ArrayList<>();
+  private final List<String> failedMarkerIds = new ArrayList<>();
+  private final List<Runnable> tasks = new ArrayList<>();
+  private MarkerIconRenderer renderer;
+
+  @Before
+  public void before() {
+    cozyMarkerBuilder = mock(CozyMarkerBuilder.class);
+    when(cozyMarkerBuilder.buildMarker(anyString(), anyString()))
+        .thenAnswer(invocation -> Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888));
+    MarkerIconCache.setInstance(
+        new MarkerIconCache(1024 * 1024, bitmap -> mock(BitmapDescriptor.class)));
+    renderer =
+        new MarkerIconRenderer(
+            cozyMarkerBuilder,
+            (markerId, rendered) -> (rendered ? readyMarkerIds : failedMarkerIds).add(markerId),
+            tasks::add);
+  }
+
+  @After
+  public void after() {
+    renderer.dispose();
+    MarkerIconCache.setInstance(null);
+  }
+
+  @Test
+  public void rendersEachIconOnceAndReleasesWaitingMarkersOnTheMainThread() {
+    renderer.request("a", "price", "R$ 100k");
+    renderer.request("b", "price", "R$ 100k");
+    renderer.request("c", "count", "3");
+    renderer.submit();
+
+    assertEquals(2, tasks.size());
+    assertTrue(renderer.isRendering("price", "R$ 100k"));
+    assertTrue(readyMarkerIds.isEmpty());
+
+    for (Runnable task : tasks) {
+      task.run();
+    }
+    ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+    assertFalse(renderer.isRendering("price", "R$ 100k"));
+    assertEquals(Arrays.asList("a", "b", "c"), readyMarkerIds);
+    verify(cozyMarkerBuilder, times(1)).buildMarker("price", "R$ 100k");
+    verify(cozyMarkerBuilder, times(1)).buildMarker("count", "3");
+    assertTrue(MarkerIconCache.getInstance().contains(cozyMarkerBuilder, "count", "3"));
+    final Map<String, Object> stats = renderer.getStats();
+    assertEquals(2L, stats.get("renderedIconCount"));
+    assertEquals(1L, stats.get("renderBatchCount"));
+    assertEquals(3L, stats.get("appliedMarkerCount"));
+  }
+
+  @Test
+  public void markersWhoseIconFailedToRenderAreFlagged() {
+    when(cozyMarkerBuilder.buildMarker("price", "broken"))
+        .thenThrow(new IllegalStateException("Unable to draw the label"));
+    renderer.request("a", "price", "broken");
+    renderer.request("b", "count", "3");
+    renderer.submit();
+
+    for (Runnable task : tasks) {
+      task.run();
+    }
+    ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+    assertEquals(Arrays.asList("b"), readyMarkerIds);
+    assertEquals(Arrays.asList("a"), failedMarkerIds);
+    final Map<String, Object> stats = renderer.getStats();
+    assertEquals(1L, stats.get("renderedIconCount"));
+    assertEquals(1L, stats.get("failedIconCount"));
+    assertEquals(2L, stats.get("appliedMarkerCount"));
+  }
+
+  @Test
+  public void disposedRendererDoesNotReleaseMarkers() {
+    renderer.request("a", "price", "R$ 100k");
+    renderer.submit();
+
+    renderer.dispose();
+    tasks.get(0).run();
+    ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+
+    assertTrue(readyMarkerIds.isEmpty());
+  }
+}
@@ -0,0 +1,127 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Ignore;
+import org.junit.Test;
+
+/**
+ * Compares testing every marker position against a query region with looking up the candidates in
+ * a {@link PointQuadTree} first, as {@link MarkersController#queryMarkers} does.
+ *
+ * <p>Markers are spread over a city sized area and each query covers a neighbourhood of it. Run it
+ * manually, the timings are printed to stdout.
+ */
+@Ignore("Benchmark, run manually")
+public class MarkerQueryBenchmark {
+
+  private static final int[] MARKER_COUNTS = {10000, 100000};
+  private static final int WARMUP_ITERATIONS = 5;
+  private static final int ITERATIONS = 20;
+
+  private List<String> markerIds;
+  private Map<String, LatLng> positions;
+  private PointQuadTree<String> index;
+
+  @Test
+  public void compareIndexedQueries() {
+    final Map<String, MarkerQuery> queries = new LinkedHashMap<>();
+    queries.put(
+        "bounds",
+        MarkerQuery.inBounds(new LatLngBounds(new LatLng(48.84, 2.32), new LatLng(48.87, 2.37))));
+    queries.put("radius", MarkerQuery.inRadius(new LatLng(48.856, 2.352), 2000));
+    queries.put(
+        "polygon",
+        MarkerQuery.inPolygon(
+            Arrays.asList(
+                new LatLng(48.84, 2.32),
+                new LatLng(48.85, 2.38),
+                new LatLng(48.87, 2.36),
+                new LatLng(48.86, 2.30)),
+            Collections.singletonList(
+                Arrays.asList(
+                    new LatLng(48.85, 2.34),
+                    new LatLng(48.855, 2.35),
+                    new LatLng(48.86, 2.34)))));
+
+    for (int count : MARKER_COUNTS) {
+      createMarkers(count);
+      for (Map.Entry<String, MarkerQuery> entry : queries.entrySet()) {
+        final MarkerQuery query = entry.getValue();
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+          scan(query);
+          search(query);
+        }
+        long scanNanos = 0;
+        long searchNanos = 0;
+        int matches = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+          long start = System.nanoTime();
+          scan(query);
+          scanNanos += System.nanoTime() - start;
+          start = System.nanoTime();
+          matches = search(query).size();
+          searchNanos += System.nanoTime() - start;
+        }
+        System.out.println(
+            String.format(
+                "%d markers, %s: %d matches, scan %.2f ms, index %.2f ms",
+                count,
+                entry.getKey(),
+                matches,
+                scanNanos / 1e6 / ITERATIONS,
+                searchNanos / 1e6 / ITERATIONS));
+      }
+    }
+  }
+
+  private void createMarkers(int count) {
+    final Random random = new Random(42);
+    markerIds = new ArrayList<>(count);
+    positions = new HashMap<>(count);
+    index = new PointQuadTree<>();
+    for (int i = 0; i < count; i++) {
+      final String markerId = "marker_" + i;
+      final LatLng position =
+          new LatLng(48.75 + random.nextDouble() * 0.2, 2.2 + random.nextDouble() * 0.3);
+      markerIds.add(markerId);
+      positions.put(markerId, position);
+      index.add(
+          markerId,
+          SphericalMercator.toX(position.longitude),
+          SphericalMercator.toY(position.latitude));
+    }
+  }
+
+  private List<String> scan(MarkerQuery query) {
+    return query.filter(markerIds, toPositions(markerIds));
+  }
+
+  private List<String> search(MarkerQuery query) {
+    final List<String> candidates = new ArrayList<>();
+    SphericalMercator.search(index, query.minX, query.minY, query.maxX, query.maxY, candidates);
+    return query.filter(candidates, toPositions(candidates));
+  }
+
+  private double[] toPositions(List<String> ids) {
+    final double[] packed = new double[2 * ids.size()];
+    for (int i = 0; i < ids.size(); i++) {
+      final LatLng position = positions.get(ids.get(i));
+      packed[2 * i] = position.latitude;
+      packed[2 * i + 1] = position.longitude;
+    }
+    return packed;
+  }
+}
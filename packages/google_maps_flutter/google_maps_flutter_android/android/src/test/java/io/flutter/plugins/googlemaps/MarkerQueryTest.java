@@ -0,0 +1,90 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class MarkerQueryTest {
+
+  private static List<LatLng> square(double south, double west, double north, double east) {
+    return Arrays.asList(
+        new LatLng(south, west),
+        new LatLng(south, east),
+        new LatLng(north, east),
+        new LatLng(north, west));
+  }
+
+  @Test
+  public void boundsMayCrossTheAntimeridian() {
+    final MarkerQuery query =
+        MarkerQuery.inBounds(new LatLngBounds(new LatLng(-10, 170), new LatLng(10, -170)));
+
+    assertTrue(query.contains(0, 175));
+    assertTrue(query.contains(0, -175));
+    assertFalse(query.contains(0, 0));
+    assertFalse(query.contains(20, 175));
+    assertTrue(query.minX > query.maxX);
+  }
+
+  @Test
+  public void radiusIsMeasuredAlongTheSurface() {
+    // One degree of latitude is about 111 km.
+    final MarkerQuery query = MarkerQuery.inRadius(new LatLng(0, 0), 120_000);
+
+    assertTrue(query.contains(1, 0));
+    assertTrue(query.contains(0, -1));
+    assertFalse(query.contains(1, 1));
+    assertFalse(query.contains(2, 0));
+  }
+
+  @Test
+  public void radiusRectangleEnclosesTheCircle() {
+    final MarkerQuery query = MarkerQuery.inRadius(new LatLng(60, 20), 500_000);
+
+    // 500 km east of the center at 60 degrees north is about 9 degrees of longitude away.
+    assertTrue(query.contains(60, 28.9));
+    assertTrue(SphericalMercator.toX(28.9) <= query.maxX);
+    assertTrue(SphericalMercator.toX(11.1) >= query.minX);
+  }
+
+  @Test
+  public void polygonExcludesItsHoles() {
+    final MarkerQuery query =
+        MarkerQuery.inPolygon(
+            square(0, 0, 10, 10), Collections.singletonList(square(4, 4, 6, 6)));
+
+    assertTrue(query.contains(2, 2));
+    assertFalse(query.contains(5, 5));
+    assertFalse(query.contains(12, 5));
+    assertEquals(SphericalMercator.toX(0), query.minX, 1e-12);
+    assertEquals(SphericalMercator.toY(10), query.minY, 1e-12);
+  }
+
+  @Test
+  public void filterKeepsTheIdsOfMatchingPositions() {
+    final MarkerQuery query =
+        MarkerQuery.inPolygon(square(0, 0, 10, 10), Collections.<List<LatLng>>emptyList());
+
+    final List<String> matches =
+        query.filter(Arrays.asList("in", "out", "alsoIn"), new double[] {1, 1, 20, 20, 9, 9});
+
+    assertEquals(Arrays.asList("in", "alsoIn"), matches);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsPolygonsWithoutAnArea() {
+    MarkerQuery.inPolygon(
+        Arrays.asList(new LatLng(0, 0), new LatLng(1, 1)), Collections.<List<LatLng>>emptyList());
+  }
+}
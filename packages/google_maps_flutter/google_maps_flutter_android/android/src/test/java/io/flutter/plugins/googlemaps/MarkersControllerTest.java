@@ -4,15 +4,26 @@
 
 package io.flutter.plugins.googlemaps;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
+import android.graphics.Bitmap;
+import android.os.Build;
 import com.google.android.gms.maps.GoogleMap;
+import com.google.android.gms.maps.Projection;
+import com.google.android.gms.maps.model.BitmapDescriptor;
+import com.google.android.gms.maps.model.CameraPosition;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
+import com.google.android.gms.maps.model.VisibleRegion;
 import io.flutter.plugin.common.BinaryMessenger;
 import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.MethodCodec;
@@ -21,16 +32,68 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
 
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
 public class MarkersControllerTest {
 
+  private CozyMarkerBuilder cozyMarkerBuilder;
+
+  @Before
+  public void before() {
+    cozyMarkerBuilder = mock(CozyMarkerBuilder.class);
+    when(cozyMarkerBuilder.buildMarker(anyString(), anyString()))
+        .thenAnswer(invocation -> Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888));
+    MarkerIconCache.setInstance(
+        new MarkerIconCache(1024, bitmap -> mock(BitmapDescriptor.class)));
+    MarkerIconBudget.setInstance(
+        new MarkerIconBudget(
+            MarkerIconBudget.DEFAULT_MAX_BYTES, bitmap -> mock(BitmapDescriptor.class)));
+  }
+
+  @After
+  public void after() {
+    MarkerIconCache.setInstance(null);
+    MarkerIconBudget.setInstance(null);
+  }
+
+  private static Map<String, Object> countMarker(String markerId, LatLng position) {
+    final Map<String, Object> markerOptions = new HashMap<>();
+    markerOptions.put("markerId", markerId);
+    markerOptions.put("markerType", "count");
+    markerOptions.put("label", "1");
+    if (position != null) {
+      markerOptions.put("position", Arrays.asList(position.latitude, position.longitude));
+    }
+    return markerOptions;
+  }
+
+  private static Map<String, Object> priceMarker(String markerId, LatLng position) {
+    final Map<String, Object> markerOptions = countMarker(markerId, position);
+    markerOptions.put("markerType", "price");
+    markerOptions.put("label", markerId);
+    return markerOptions;
+  }
+
+  private static Object point(double latitude, double longitude) {
+    return Arrays.asList(latitude, longitude);
+  }
+
   @Test
   public void controller_OnMarkerDragStart() {
     final MethodChannel methodChannel =
         spy(new MethodChannel(mock(BinaryMessenger.class), "no-name", mock(MethodCodec.class)));
-    final MarkersController controller = new MarkersController(methodChannel);
+    final MarkersController controller = new MarkersController(methodChannel, cozyMarkerBuilder);
     final GoogleMap googleMap = mock(GoogleMap.class);
     controller.setGoogleMap(googleMap);
 
@@ -42,8 +105,7 @@ public class MarkersControllerTest {
     when(googleMap.addMarker(any(MarkerOptions.class))).thenReturn(marker);
 
     final LatLng latLng = new LatLng(1.1, 2.2);
-    final Map<String, String> markerOptions = new HashMap();
-    markerOptions.put("markerId", googleMarkerId);
+    final Map<String, Object> markerOptions = countMarker(googleMarkerId, null);
 
     final List<Object> markers = Arrays.<Object>asList(markerOptions);
     controller.addMarkers(markers);
@@ -63,7 +125,7 @@ public class MarkersControllerTest {
   public void controller_OnMarkerDragEnd() {
     final MethodChannel methodChannel =
         spy(new MethodChannel(mock(BinaryMessenger.class), "no-name", mock(MethodCodec.class)));
-    final MarkersController controller = new MarkersController(methodChannel);
+    final MarkersController controller = new MarkersController(methodChannel, cozyMarkerBuilder);
     final GoogleMap googleMap = mock(GoogleMap.class);
     controller.setGoogleMap(googleMap);
 
@@ -75,8 +137,7 @@ public class MarkersControllerTest {
     when(googleMap.addMarker(any(MarkerOptions.class))).thenReturn(marker);
 
     final LatLng latLng = new LatLng(1.1, 2.2);
-    final Map<String, String> markerOptions = new HashMap();
-    markerOptions.put("markerId", googleMarkerId);
+    final Map<String, Object> markerOptions = countMarker(googleMarkerId, null);
 
     final List<Object> markers = Arrays.<Object>asList(markerOptions);
     controller.addMarkers(markers);
@@ -96,7 +157,7 @@ public class MarkersControllerTest {
   public void controller_OnMarkerDrag() {
     final MethodChannel methodChannel =
         spy(new MethodChannel(mock(BinaryMessenger.class), "no-name", mock(MethodCodec.class)));
-    final MarkersController controller = new MarkersController(methodChannel);
+    final MarkersController controller = new MarkersController(methodChannel, cozyMarkerBuilder);
     final GoogleMap googleMap = mock(GoogleMap.class);
     controller.setGoogleMap(googleMap);
 
@@ -108,8 +169,7 @@ public class MarkersControllerTest {
     when(googleMap.addMarker(any(MarkerOptions.class))).thenReturn(marker);
 
     final LatLng latLng = new LatLng(1.1, 2.2);
-    final Map<String, String> markerOptions = new HashMap();
-    markerOptions.put("markerId", googleMarkerId);
+    final Map<String, Object> markerOptions = countMarker(googleMarkerId, null);
 
     final List<Object> markers = Arrays.<Object>asList(markerOptions);
     controller.addMarkers(markers);
@@ -124,4 +184,361 @@ public class MarkersControllerTest {
     data.put("position", points);
     Mockito.verify(methodChannel).invokeMethod("marker#onDrag", data);
   }
+
+  @Test
+  public void controller_ClustersNearbyMarkersAndReportsClusterTaps() {
+    final MethodChannel methodChannel =
+        spy(new MethodChannel(mock(BinaryMessenger.class), "no-name", mock(MethodCodec.class)));
+    final MarkersController controller = new MarkersController(methodChannel, cozyMarkerBuilder);
+    final GoogleMap googleMap = mock(GoogleMap.class);
+    final Projection projection = mock(Projection.class);
+    final LatLngBounds bounds = new LatLngBounds(new LatLng(-1, -1), new LatLng(1, 1));
+    when(googleMap.getProjection()).thenReturn(projection);
+    when(projection.getVisibleRegion())
+        .thenReturn(new VisibleRegion(null, null, null, null, bounds));
+    when(googleMap.getCameraPosition()).thenReturn(new CameraPosition(new LatLng(0, 0), 3, 0, 0));
+    final Marker clusterMarker = mock(Marker.class);
+    when(clusterMarker.getId()).thenReturn("cluster");
+    when(googleMap.addMarker(any(MarkerOptions.class))).thenReturn(clusterMarker);
+    controller.setGoogleMap(googleMap);
+    controller.setMarkerClusterer(
+        new MarkerClusterer(MarkerClusterer.Algorithm.GRID, 100, 20, 2));
+
+    controller.addMarkers(
+        Arrays.<Object>asList(
+            countMarker("a", new LatLng(0.10, 0.10)), countMarker("b", new LatLng(0.11, 0.11))));
+    controller.onCameraIdle();
+
+    assertTrue(controller.onMarkerTap("cluster"));
+    final ArgumentCaptor<Object> arguments = ArgumentCaptor.forClass(Object.class);
+    Mockito.verify(methodChannel).invokeMethod(eq("cluster#onTap"), arguments.capture());
+    final List<?> markerIds = (List<?>) ((Map<?, ?>) arguments.getValue()).get("markerIds");
+    assertEquals(2, markerIds.size());
+    assertTrue(markerIds.containsAll(Arrays.asList("a", "b")));
+  }
+
+  @Test
+  public void controller_OnlyMaterializesMarkersNearTheVisibleRegionWhenCulling() {
+    final MethodChannel methodChannel =
+        spy(new MethodChannel(mock(BinaryMessenger.class), "no-name", mock(MethodCodec.class)));
+    final MarkersController controller = new MarkersController(methodChannel, cozyMarkerBuilder);
+    final GoogleMap googleMap = mock(GoogleMap.class);
+    final Projection projection = mock(Projection.class);
+    when(googleMap.getProjection()).thenReturn(projection);
+    when(projection.getVisibleRegion())
+        .thenReturn(
+            new VisibleRegion(
+                null, null, null, null, new LatLngBounds(new LatLng(-1, -1), new LatLng(1, 1))));
+    final List<MarkerOptions> addedOptions = new ArrayList<>();
+    when(googleMap.addMarker(any(MarkerOptions.class)))
+        .thenAnswer(
+            invocation -> {
+              addedOptions.add(invocation.getArgument(0));
+              final Marker marker = mock(Marker.class);
+              when(marker.getId()).thenReturn("m" + addedOptions.size());
+              return marker;
+            });
+    controller.setGoogleMap(googleMap);
+    controller.setMarkerCulling(true, 0.5f);
+
+    controller.addMarkers(
+        Arrays.<Object>asList(
+            countMarker("near", new LatLng(0.5, 0.5)), countMarker("far", new LatLng(40, 40))));
+    controller.onCameraIdle();
+
+    assertEquals(1, addedOptions.size());
+    assertEquals(new LatLng(0.5, 0.5), addedOptions.get(0).getPosition());
+
+    when(projection.getVisibleRegion())
+        .thenReturn(
+            new VisibleRegion(
+                null, null, null, null, new LatLngBounds(new LatLng(39, 39), new LatLng(41, 41))));
+    controller.onCameraMove();
+
+    assertEquals(2, addedOptions.size());
+    assertEquals(new LatLng(40, 40), addedOptions.get(1).getPosition());
+    controller.onMarkerTap("m2");
+    Mockito.verify(methodChannel)
+        .invokeMethod("marker#onTap", Convert.markerIdToJson("far"));
+  }
+
+  @Test
+  public void removingAnAnimatedMarkerCancelsItsAnimation() {
+    ShadowLooper.pauseMainLooper();
+    final MethodChannel methodChannel =
+        spy(new MethodChannel(mock(BinaryMessenger.class), "no-name", mock(MethodCodec.class)));
+    final MarkersController controller = new MarkersController(methodChannel, cozyMarkerBuilder);
+    final GoogleMap googleMap = mock(GoogleMap.class);
+    controller.setGoogleMap(googleMap);
+    final Marker marker = mock(Marker.class);
+    when(marker.getId()).thenReturn("google");
+    when(googleMap.addMarker(any(MarkerOptions.class))).thenReturn(marker);
+    final LatLng position = new LatLng(1, 2);
+    controller.addMarkers(Arrays.<Object>asList(countMarker("a", position)));
+
+    final Map<String, Object> animation = new HashMap<>();
+    animation.put("markerId", "a");
+    animation.put("position", Arrays.asList(3.0, 4.0));
+    animation.put("duration", 1000);
+    controller.animateMarkers(Arrays.<Object>asList(animation));
+    controller.removeMarkers(Arrays.<Object>asList("a"));
+
+    Mockito.verify(methodChannel)
+        .invokeMethod("marker#onAnimationStart", Convert.markerIdToJson("a"));
+    final Map<String, Object> data = new HashMap<>();
+    data.put("markerId", "a");
+    data.put("position", Arrays.asList(1.0, 2.0));
+    Mockito.verify(methodChannel).invokeMethod("marker#onAnimationCancel", data);
+    controller.dispose();
+  }
+
+  @Test
+  public void changingMarkersOnlyAppliesTheFieldsThatChanged() {
+    final MethodChannel methodChannel =
+        spy(new MethodChannel(mock(BinaryMessenger.class), "no-name", mock(MethodCodec.class)));
+    final MarkersController controller = new MarkersController(methodChannel, cozyMarkerBuilder);
+    final GoogleMap googleMap = mock(GoogleMap.class);
+    controller.setGoogleMap(googleMap);
+    final Marker marker = mock(Marker.class);
+    when(marker.getId()).thenReturn("google");
+    when(googleMap.addMarker(any(MarkerOptions.class))).thenReturn(marker);
+    final LatLng position = new LatLng(1, 2);
+    controller.addMarkers(Arrays.<Object>asList(countMarker("a", position)));
+
+    final Map<String, Object> change = countMarker("a", position);
+    change.put("zIndex", 2.0);
+    controller.changeMarkers(Arrays.<Object>asList(change));
+
+    Mockito.verify(marker).setZIndex(2.0f);
+    Mockito.verify(marker, Mockito.never()).setIcon(any(BitmapDescriptor.class));
+    Mockito.verify(marker, Mockito.never()).setPosition(any(LatLng.class));
+    Mockito.verify(cozyMarkerBuilder).buildMarker("count", "1");
+    final Map<String, Object> stats = controller.getUpdateStats();
+    assertEquals(1L, stats.get("markerChangeCount"));
+    assertEquals(1L, stats.get("markerFieldAppliedCount"));
+    assertEquals(1L, stats.get("markerIconSkippedCount"));
+    assertTrue((Long) stats.get("markerFieldSkippedCount") > 0);
+
+    change.put("label", "2");
+    controller.changeMarkers(Arrays.<Object>asList(change));
+
+    Mockito.verify(marker).setIcon(any(BitmapDescriptor.class));
+    Mockito.verify(cozyMarkerBuilder).buildMarker("count", "2");
+  }
+
+  @Test
+  public void queryMarkersReturnsTheIdsInsideTheRegion() {
+    final MethodChannel methodChannel =
+        spy(new MethodChannel(mock(BinaryMessenger.class), "no-name", mock(MethodCodec.class)));
+    final MarkersController controller = new MarkersController(methodChannel, cozyMarkerBuilder);
+    controller.setQueryExecutor(Runnable::run);
+    final GoogleMap googleMap = mock(GoogleMap.class);
+    controller.setGoogleMap(googleMap);
+    when(googleMap.addMarker(any(MarkerOptions.class)))
+        .thenAnswer(invocation -> mock(Marker.class));
+    controller.addMarkers(
+        Arrays.<Object>asList(
+            countMarker("inside", new LatLng(5, 5)),
+            countMarker("hole", new LatLng(5.5, 5.5)),
+            countMarker("outside", new LatLng(5, 15))));
+
+    final Map<String, Object> query = new HashMap<>();
+    query.put("points", Arrays.asList(point(0, 0), point(0, 10), point(10, 10), point(10, 0)));
+    final List<Object> hole =
+        Arrays.asList(point(5.2, 5.2), point(5.2, 5.8), point(5.8, 5.8), point(5.8, 5.2));
+    query.put("holes", Arrays.asList(hole));
+    final MethodChannel.Result result = mock(MethodChannel.Result.class);
+    controller.queryMarkers(Convert.toMarkerQuery(query), result);
+    ShadowLooper.idleMainLooper();
+
+    Mockito.verify(result).success(Arrays.asList("inside"));
+  }
+
+  @Test
+  public void reportsTheMarkersEnteringAndLeavingTheVisibleRegionOnceIdle() {
+    ShadowLooper.pauseMainLooper();
+    final MethodChannel methodChannel =
+        spy(new MethodChannel(mock(BinaryMessenger.class), "no-name", mock(MethodCodec.class)));
+    final MarkersController controller = new MarkersController(methodChannel, cozyMarkerBuilder);
+    final GoogleMap googleMap = mock(GoogleMap.class);
+    final Projection projection = mock(Projection.class);
+    final LatLngBounds bounds = new LatLngBounds(new LatLng(-1, -1), new LatLng(1, 1));
+    when(googleMap.getProjection()).thenReturn(projection);
+    when(projection.getVisibleRegion())
+        .thenReturn(new VisibleRegion(null, null, null, null, bounds));
+    when(googleMap.addMarker(any(MarkerOptions.class)))
+        .thenAnswer(invocation -> mock(Marker.class));
+    controller.setGoogleMap(googleMap);
+    controller.setVisibleMarkersEvents(true, 100);
+    controller.addMarkers(
+        Arrays.<Object>asList(
+            countMarker("a", new LatLng(0.5, 0.5)),
+            countMarker("b", new LatLng(-0.5, 0.5)),
+            countMarker("far", new LatLng(40, 40))));
+
+    controller.onCameraIdle();
+    ShadowLooper.idleMainLooper(50, TimeUnit.MILLISECONDS);
+    controller.onCameraMove();
+    ShadowLooper.idleMainLooper(100, TimeUnit.MILLISECONDS);
+    Mockito.verify(methodChannel, Mockito.never())
+        .invokeMethod(eq("map#onVisibleMarkersChanged"), any());
+
+    controller.onCameraIdle();
+    ShadowLooper.idleMainLooper(100, TimeUnit.MILLISECONDS);
+    final Map<String, Object> data = new HashMap<>();
+    data.put("bounds", Convert.latlngBoundsToJson(bounds));
+    data.put("enteredMarkerIds", Arrays.asList("a", "b"));
+    data.put("leftMarkerIds", new ArrayList<>());
+    Mockito.verify(methodChannel).invokeMethod("map#onVisibleMarkersChanged", data);
+
+    controller.removeMarkers(Arrays.<Object>asList("a"));
+    controller.onCameraIdle();
+    ShadowLooper.idleMainLooper(100, TimeUnit.MILLISECONDS);
+    data.put("enteredMarkerIds", new ArrayList<>());
+    data.put("leftMarkerIds", Arrays.asList("a"));
+    Mockito.verify(methodChannel).invokeMethod("map#onVisibleMarkersChanged", data);
+  }
+
+  @Test
+  public void iconsOutOfViewAreSwappedForThePlaceholderOverBudget() {
+    ShadowLooper.pauseMainLooper();
+    final MarkerIconBudget budget =
+        new MarkerIconBudget(4, bitmap -> mock(BitmapDescriptor.class));
+    MarkerIconBudget.setInstance(budget);
+    final BitmapDescriptor placeholder = budget.getPlaceholder();
+    final MethodChannel methodChannel =
+        spy(new MethodChannel(mock(BinaryMessenger.class), "no-name", mock(MethodCodec.class)));
+    final MarkersController controller = new MarkersController(methodChannel, cozyMarkerBuilder);
+    final GoogleMap googleMap = mock(GoogleMap.class);
+    final Projection projection = mock(Projection.class);
+    when(googleMap.getProjection()).thenReturn(projection);
+    when(projection.getVisibleRegion())
+        .thenReturn(
+            new VisibleRegion(
+                null, null, null, null, new LatLngBounds(new LatLng(-1, -1), new LatLng(1, 1))));
+    final List<Marker> markers = new ArrayList<>();
+    when(googleMap.addMarker(any(MarkerOptions.class)))
+        .thenAnswer(
+            invocation -> {
+              final Marker marker = mock(Marker.class);
+              markers.add(marker);
+              return marker;
+            });
+    controller.setGoogleMap(googleMap);
+    controller.addMarkers(
+        Arrays.<Object>asList(
+            priceMarker("near", new LatLng(0.5, 0.5)), priceMarker("far", new LatLng(40, 40))));
+
+    ShadowLooper.idleMainLooper();
+    Mockito.verify(markers.get(1)).setIcon(placeholder);
+    Mockito.verify(markers.get(0), Mockito.never()).setIcon(any());
+    assertEquals(4L, budget.getStats().get("sizeBytes"));
+
+    when(projection.getVisibleRegion())
+        .thenReturn(
+            new VisibleRegion(
+                null, null, null, null, new LatLngBounds(new LatLng(39, 39), new LatLng(41, 41))));
+    controller.onCameraIdle();
+    ShadowLooper.idleMainLooper();
+
+    Mockito.verify(markers.get(1)).setIcon(Mockito.argThat(icon -> icon != placeholder));
+    Mockito.verify(markers.get(0)).setIcon(placeholder);
+    assertEquals(1L, budget.getStats().get("restoreCount"));
+    assertEquals(2L, budget.getStats().get("downgradeCount"));
+    assertEquals(4L, budget.getStats().get("sizeBytes"));
+  }
+
+  @Test
+  public void iconsEvictedFromTheIconCacheKeepTheirSizeInTheBudget() {
+    final MarkerIconBudget budget =
+        new MarkerIconBudget(
+            MarkerIconBudget.DEFAULT_MAX_BYTES, bitmap -> mock(BitmapDescriptor.class));
+    MarkerIconBudget.setInstance(budget);
+    final MethodChannel methodChannel =
+        spy(new MethodChannel(mock(BinaryMessenger.class), "no-name", mock(MethodCodec.class)));
+    final MarkersController controller = new MarkersController(methodChannel, cozyMarkerBuilder);
+    final GoogleMap googleMap = mock(GoogleMap.class);
+    final Projection projection = mock(Projection.class);
+    when(googleMap.getProjection()).thenReturn(projection);
+    when(projection.getVisibleRegion())
+        .thenReturn(
+            new VisibleRegion(
+                null, null, null, null, new LatLngBounds(new LatLng(-1, -1), new LatLng(1, 1))));
+    when(googleMap.addMarker(any(MarkerOptions.class)))
+        .thenAnswer(invocation -> mock(Marker.class));
+    controller.setGoogleMap(googleMap);
+    controller.setMarkerCulling(true, 0.5f);
+    controller.addMarkers(Arrays.<Object>asList(priceMarker("far", new LatLng(40, 40))));
+    controller.onCameraIdle();
+    assertEquals(0L, budget.getStats().get("sizeBytes"));
+
+    MarkerIconCache.getInstance().clear();
+    when(projection.getVisibleRegion())
+        .thenReturn(
+            new VisibleRegion(
+                null, null, null, null, new LatLngBounds(new LatLng(39, 39), new LatLng(41, 41))));
+    controller.onCameraMove();
+
+    Mockito.verify(googleMap).addMarker(any(MarkerOptions.class));
+    assertEquals(4L, budget.getStats().get("sizeBytes"));
+  }
+
+  @Test
+  public void markersWhoseIconFailsToRenderInTheBackgroundAreSkipped() throws Exception {
+    when(cozyMarkerBuilder.buildMarker("price", "broken"))
+        .thenThrow(new IllegalStateException("Unable to draw the label"));
+    final MethodChannel methodChannel =
+        spy(new MethodChannel(mock(BinaryMessenger.class), "no-name", mock(MethodCodec.class)));
+    final MarkersController controller = new MarkersController(methodChannel, cozyMarkerBuilder);
+    final GoogleMap googleMap = mock(GoogleMap.class);
+    when(googleMap.addMarker(any(MarkerOptions.class)))
+        .thenAnswer(invocation -> mock(Marker.class));
+    controller.setGoogleMap(googleMap);
+    controller.setBackgroundIconRenderingEnabled(true);
+
+    controller.addMarkers(
+        Arrays.<Object>asList(
+            priceMarker("broken", new LatLng(0, 0)), priceMarker("fine", new LatLng(1, 1))));
+    while ((long) controller.getIconRenderStats().get("appliedMarkerCount") < 2) {
+      ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+      Thread.sleep(5);
+    }
+
+    Mockito.verify(googleMap).addMarker(any(MarkerOptions.class));
+    assertEquals(1L, controller.getIconRenderStats().get("failedIconCount"));
+    assertEquals(1, controller.getUpdateStats().get("markerCount"));
+    controller.setBackgroundIconRenderingEnabled(false);
+  }
+
+  @Test
+  public void pendingMarkersChangedThroughABatchAreAddedOnceTheirNewIconIsRendered()
+      throws Exception {
+    final MethodChannel methodChannel =
+        spy(new MethodChannel(mock(BinaryMessenger.class), "no-name", mock(MethodCodec.class)));
+    final MarkersController controller = new MarkersController(methodChannel, cozyMarkerBuilder);
+    final GoogleMap googleMap = mock(GoogleMap.class);
+    final List<MarkerOptions> addedOptions = new ArrayList<>();
+    when(googleMap.addMarker(any(MarkerOptions.class)))
+        .thenAnswer(
+            invocation -> {
+              addedOptions.add(invocation.getArgument(0));
+              return mock(Marker.class);
+            });
+    controller.setGoogleMap(googleMap);
+    controller.setBackgroundIconRenderingEnabled(true);
+    final List<Map<String, Object>> markers = MarkerBatchTest.createMarkers(1);
+
+    controller.addMarkers(MarkerBatch.fromBytes(MarkerBatchTest.encode(markers)));
+    markers.get(0).put("label", "7");
+    controller.changeMarkers(MarkerBatch.fromBytes(MarkerBatchTest.encode(markers)));
+    final long deadline = System.currentTimeMillis() + 5000;
+    while (addedOptions.isEmpty() && System.currentTimeMillis() < deadline) {
+      ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+      Thread.sleep(5);
+    }
+
+    assertEquals(1, addedOptions.size());
+    assertTrue(MarkerIconCache.getInstance().contains(cozyMarkerBuilder, "count", "7"));
+    controller.setBackgroundIconRenderingEnabled(false);
+  }
 }
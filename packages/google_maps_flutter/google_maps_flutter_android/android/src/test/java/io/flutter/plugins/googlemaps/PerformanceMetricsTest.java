@@ -0,0 +1,79 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import android.os.Build;
+import io.flutter.plugin.common.MethodChannel;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class PerformanceMetricsTest {
+
+  private final AtomicInteger reports = new AtomicInteger();
+  private PerformanceMetrics metrics;
+
+  @Before
+  public void before() {
+    ShadowLooper.pauseMainLooper();
+    metrics = new PerformanceMetrics(reports::incrementAndGet);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void recordsNothingUntilEnabled() {
+    metrics.recordMethodCall("markers#update", 1000);
+    assertTrue(((Map<String, Object>) metrics.getStats().get("methodCalls")).isEmpty());
+
+    metrics.setOptions(true, 0);
+    metrics.recordMethodCall("markers#update", 1000);
+    metrics.recordMethodCall("markers#update", 2000);
+
+    final Map<String, Object> methodCalls =
+        (Map<String, Object>) metrics.getStats().get("methodCalls");
+    final Map<String, Object> markersUpdate =
+        (Map<String, Object>) methodCalls.get("markers#update");
+    assertEquals(2L, markersUpdate.get("count"));
+  }
+
+  @Test
+  public void reportsPeriodicallyWhileEnabled() {
+    metrics.setOptions(true, 1000);
+
+    ShadowLooper.idleMainLooper(3500, TimeUnit.MILLISECONDS);
+    assertEquals(3, reports.get());
+
+    metrics.setOptions(false, 1000);
+    ShadowLooper.idleMainLooper(3000, TimeUnit.MILLISECONDS);
+    assertEquals(3, reports.get());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void timesSnapshotsUntilAnswered() {
+    metrics.setOptions(true, 0);
+    final MethodChannel.Result result = mock(MethodChannel.Result.class);
+
+    metrics.timeSnapshot(result).success(null);
+
+    verify(result).success(null);
+    final Map<String, Object> snapshots =
+        (Map<String, Object>) metrics.getStats().get("snapshots");
+    assertEquals(1L, snapshots.get("count"));
+  }
+}
@@ -4,12 +4,18 @@
 
 package io.flutter.plugins.googlemaps;
 
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 
 import com.google.android.gms.internal.maps.zzag;
+import com.google.android.gms.maps.model.LatLng;
 import com.google.android.gms.maps.model.Polyline;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 public class PolylineControllerTest {
@@ -26,4 +32,29 @@ public class PolylineControllerTest {
 
     Mockito.verify(polyline).setWidth(density * strokeWidth);
   }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void controller_SimplifiesPointsPerZoomBucket() {
+    final zzag z = mock(zzag.class);
+    final Polyline polyline = spy(new Polyline(z));
+    final List<LatLng> points = new ArrayList<>();
+    for (int i = 0; i <= 100; i++) {
+      points.add(new LatLng(Math.sin(i / 10.0) * 0.01, i * 0.001));
+    }
+    final PolylineController controller =
+        new PolylineController(polyline, false, 1, new SimplifiedPath(points), 1, 8);
+
+    controller.setSimplification(1, 8);
+    Mockito.verify(polyline, never()).setPoints(Mockito.<List<LatLng>>any());
+
+    controller.setSimplification(1, 4);
+    final ArgumentCaptor<List<LatLng>> drawn = ArgumentCaptor.forClass(List.class);
+    Mockito.verify(polyline).setPoints(drawn.capture());
+    assertTrue(drawn.getValue().size() < points.size());
+
+    controller.setSimplification(0, 4);
+    Mockito.verify(polyline).setPoints(points);
+    Mockito.verify(polyline, never()).getPoints();
+  }
 }
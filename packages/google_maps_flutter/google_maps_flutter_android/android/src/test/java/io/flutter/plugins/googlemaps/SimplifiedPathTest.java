@@ -0,0 +1,135 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.google.android.gms.maps.model.LatLng;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class SimplifiedPathTest {
+
+  /** A GPS trace wandering around Berlin, with a point every few meters. */
+  private static List<LatLng> createTrace(int size) {
+    final Random random = new Random(42);
+    final List<LatLng> points = new ArrayList<>(size);
+    double latitude = 52.52;
+    double longitude = 13.40;
+    double heading = 0;
+    for (int i = 0; i < size; i++) {
+      heading += (random.nextDouble() - 0.5) * 0.3;
+      latitude += Math.cos(heading) * 0.00003 + (random.nextDouble() - 0.5) * 0.00001;
+      longitude += Math.sin(heading) * 0.00005 + (random.nextDouble() - 0.5) * 0.00001;
+      points.add(new LatLng(latitude, longitude));
+    }
+    return points;
+  }
+
+  private static double distanceInPixels(LatLng point, LatLng start, LatLng end, int zoom) {
+    final double x = SphericalMercator.toX(point.longitude);
+    final double y = SphericalMercator.toY(point.latitude);
+    final double startX = SphericalMercator.toX(start.longitude);
+    final double startY = SphericalMercator.toY(start.latitude);
+    final double dx = SphericalMercator.toX(end.longitude) - startX;
+    final double dy = SphericalMercator.toY(end.latitude) - startY;
+    final double lengthSquared = dx * dx + dy * dy;
+    final double t =
+        lengthSquared == 0
+            ? 0
+            : Math.max(0, Math.min(1, ((x - startX) * dx + (y - startY) * dy) / lengthSquared));
+    return Math.hypot(x - startX - t * dx, y - startY - t * dy) / SphericalMercator.pixelSize(zoom);
+  }
+
+  /** Returns the largest distance of a point of {@code full} to the simplified path, in pixels. */
+  private static double maxError(List<LatLng> full, List<LatLng> simplified, int zoom) {
+    double maxError = 0;
+    int segment = 0;
+    for (LatLng point : full) {
+      if (segment + 1 < simplified.size() - 1 && point == simplified.get(segment + 1)) {
+        segment++;
+      }
+      final LatLng end = simplified.get(Math.min(segment + 1, simplified.size() - 1));
+      maxError = Math.max(maxError, distanceInPixels(point, simplified.get(segment), end, zoom));
+    }
+    return maxError;
+  }
+
+  @Test
+  public void reducesVerticesWithinTolerance() {
+    final List<LatLng> trace = createTrace(20000);
+    final SimplifiedPath path = new SimplifiedPath(trace);
+
+    int previousSize = 0;
+    for (int zoom = 0; zoom <= SimplifiedPath.MAX_ZOOM_BUCKET; zoom++) {
+      final List<LatLng> simplified = path.getPoints(zoom, 1);
+      assertSame(trace.get(0), simplified.get(0));
+      assertSame(trace.get(trace.size() - 1), simplified.get(simplified.size() - 1));
+      assertTrue("zoom " + zoom, simplified.size() >= previousSize);
+      // The error bound holds for the whole bucket, up to the next zoom level.
+      assertTrue("zoom " + zoom, maxError(trace, simplified, zoom + 1) <= 1 + 1e-6);
+      previousSize = simplified.size();
+    }
+    assertTrue(path.getPoints(10, 1).size() < trace.size() / 100);
+    assertTrue(path.getPoints(15, 1).size() < trace.size() / 4);
+  }
+
+  @Test
+  public void largerTolerancesDropMorePoints() {
+    final SimplifiedPath path = new SimplifiedPath(createTrace(5000));
+
+    final int fine = path.getPoints(14, 1).size();
+    final int coarse = path.getPoints(14, 4).size();
+
+    assertTrue(coarse < fine);
+    assertTrue(maxError(path.getPoints(), path.getPoints(14, 4), 15) <= 4 + 1e-6);
+  }
+
+  @Test
+  public void cachesSimplifiedPoints() {
+    final SimplifiedPath path = new SimplifiedPath(createTrace(1000));
+
+    assertSame(path.getPoints(12, 1), path.getPoints(12, 1));
+  }
+
+  @Test
+  public void returnsTheFullPointsWhenNothingIsDropped() {
+    final List<LatLng> points = Arrays.asList(new LatLng(0, 0), new LatLng(10, 10));
+    final SimplifiedPath path = new SimplifiedPath(points);
+
+    assertSame(points, path.getPoints(0, 1));
+    assertEquals(0, new SimplifiedPath(new ArrayList<LatLng>()).getPoints(0, 1).size());
+  }
+
+  @Test
+  public void dropsCollinearPointsOfClosedRings() {
+    final List<LatLng> square =
+        Arrays.asList(
+            new LatLng(0, 0),
+            new LatLng(0, 1),
+            new LatLng(0.0000001, 1.5),
+            new LatLng(1, 1),
+            new LatLng(1, 0),
+            new LatLng(0, 0));
+
+    final List<LatLng> simplified = new SimplifiedPath(square).getPoints(5, 1);
+
+    assertEquals(5, simplified.size());
+    assertSame(square.get(2), simplified.get(1));
+    assertSame(square.get(5), simplified.get(4));
+  }
+
+  @Test
+  public void toZoomBucket() {
+    assertEquals(0, SimplifiedPath.toZoomBucket(-1));
+    assertEquals(12, SimplifiedPath.toZoomBucket(12.9f));
+    assertEquals(SimplifiedPath.MAX_ZOOM_BUCKET, SimplifiedPath.toZoomBucket(30));
+  }
+}
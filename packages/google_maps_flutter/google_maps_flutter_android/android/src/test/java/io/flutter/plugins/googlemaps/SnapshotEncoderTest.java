@@ -0,0 +1,135 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import io.flutter.plugin.common.MethodChannel;
+import java.io.File;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class SnapshotEncoderTest {
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final SnapshotEncoder encoder = new SnapshotEncoder(Runnable::run);
+
+  private static Bitmap createSnapshot() {
+    return Bitmap.createBitmap(1080, 1920, Bitmap.Config.ARGB_8888);
+  }
+
+  @Test
+  public void scale_FitsWithinTheMaximumSize() {
+    final SnapshotEncoder.Options options = new SnapshotEncoder.Options();
+    options.maxWidth = 270;
+    options.maxHeight = 1000;
+
+    final Bitmap scaled = SnapshotEncoder.scale(createSnapshot(), options);
+
+    assertEquals(270, scaled.getWidth());
+    assertEquals(480, scaled.getHeight());
+  }
+
+  @Test
+  public void scale_UsesTheSmallestScale() {
+    final SnapshotEncoder.Options options = new SnapshotEncoder.Options();
+    options.scale = 0.1f;
+    options.maxWidth = 540;
+
+    final Bitmap scaled = SnapshotEncoder.scale(createSnapshot(), options);
+
+    assertEquals(108, scaled.getWidth());
+    assertEquals(192, scaled.getHeight());
+  }
+
+  @Test
+  public void scale_NeverScalesUp() {
+    final SnapshotEncoder.Options options = new SnapshotEncoder.Options();
+    options.scale = 2;
+    options.maxWidth = 4000;
+    final Bitmap snapshot = createSnapshot();
+
+    assertSame(snapshot, SnapshotEncoder.scale(snapshot, options));
+  }
+
+  @Test
+  public void encode_ReturnsBytes() {
+    final MethodChannel.Result result = mock(MethodChannel.Result.class);
+    final SnapshotEncoder.Options options = new SnapshotEncoder.Options();
+    options.format = Bitmap.CompressFormat.JPEG;
+    options.quality = 80;
+
+    encoder.encode(createSnapshot(), options, result);
+
+    final ArgumentCaptor<Object> encoded = ArgumentCaptor.forClass(Object.class);
+    verify(result).success(encoded.capture());
+    assertTrue(encoded.getValue() instanceof byte[]);
+  }
+
+  @Test
+  public void encode_WritesToTheFilePath() throws Exception {
+    final MethodChannel.Result result = mock(MethodChannel.Result.class);
+    final File file = new File(temporaryFolder.getRoot(), "snapshots/map.webp");
+    final SnapshotEncoder.Options options = new SnapshotEncoder.Options();
+    options.format = SnapshotEncoder.webpFormat(90);
+    options.filePath = file.getPath();
+    options.maxWidth = 200;
+
+    encoder.encode(createSnapshot(), options, result);
+
+    verify(result).success(file.getAbsolutePath());
+    assertTrue(file.length() > 0);
+  }
+
+  @Test
+  public void encode_ReportsMissingSnapshots() {
+    final MethodChannel.Result result = mock(MethodChannel.Result.class);
+
+    encoder.encode(null, new SnapshotEncoder.Options(), result);
+
+    verify(result).error(any(String.class), any(String.class), any());
+  }
+
+  @Test
+  public void encode_ReportsUnexpectedFailures() {
+    final MethodChannel.Result result = mock(MethodChannel.Result.class);
+    final Bitmap snapshot = mock(Bitmap.class);
+    when(snapshot.getWidth()).thenThrow(new IllegalStateException("recycled"));
+    final SnapshotEncoder.Options options = new SnapshotEncoder.Options();
+    options.maxWidth = 200;
+
+    encoder.encode(snapshot, options, result);
+
+    verify(result).error(any(String.class), any(String.class), any());
+    verify(snapshot).recycle();
+  }
+
+  @Test
+  public void encode_ReportsWriteErrors() throws Exception {
+    final MethodChannel.Result result = mock(MethodChannel.Result.class);
+    final SnapshotEncoder.Options options = new SnapshotEncoder.Options();
+    options.filePath = temporaryFolder.newFile("file").getPath() + "/map.png";
+
+    encoder.encode(createSnapshot(), options, result);
+
+    verify(result).error(any(String.class), any(String.class), any());
+  }
+}
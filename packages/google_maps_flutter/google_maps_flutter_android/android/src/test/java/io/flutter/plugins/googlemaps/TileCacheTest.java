@@ -0,0 +1,186 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Build;
+import com.google.android.gms.maps.model.Tile;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class TileCacheTest {
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File directory;
+  private long now;
+
+  @Before
+  public void before() throws IOException {
+    directory = temporaryFolder.newFolder();
+    now = 1_000_000;
+  }
+
+  private TileCache createCache(String version, long maxMemoryBytes, long ttlMillis) {
+    return new TileCache(
+        directory, version, maxMemoryBytes, 1024, ttlMillis, () -> now, Runnable::run);
+  }
+
+  private static Tile tile(int size) {
+    return new Tile(256, 256, new byte[size]);
+  }
+
+  @Test
+  public void tilesSurviveANewCacheInstance() {
+    createCache("1", 1024, 0).put(1, 2, 3, new Tile(256, 256, new byte[] {1, 2, 3}));
+
+    final TileCache cache = createCache("1", 1024, 0);
+    final Tile tile = cache.get(1, 2, 3);
+
+    assertNotNull(tile);
+    assertEquals(256, tile.width);
+    assertArrayEquals(new byte[] {1, 2, 3}, tile.data);
+    assertEquals(1L, cache.getStats().get("diskHitCount"));
+    cache.get(1, 2, 3);
+    assertEquals(1L, cache.getStats().get("memoryHitCount"));
+  }
+
+  @Test
+  public void containsDoesNotCountHitsOrMisses() {
+    final TileCache cache = createCache("1", 1024, 1000);
+    cache.put(1, 2, 3, tile(10));
+
+    assertTrue(cache.contains(1, 2, 3));
+    assertFalse(cache.contains(2, 2, 3));
+    now += 2000;
+    assertFalse(cache.contains(1, 2, 3));
+    assertEquals(0L, cache.getStats().get("memoryHitCount"));
+    assertEquals(0L, cache.getStats().get("cacheMissCount"));
+  }
+
+  @Test
+  public void memoryTierEvictsLeastRecentlyUsedTiles() {
+    final TileCache cache = createCache("1", 200, 0);
+    cache.put(0, 0, 1, tile(100));
+    cache.put(1, 0, 1, tile(100));
+    cache.get(0, 0, 1);
+    cache.put(2, 0, 1, tile(100));
+
+    assertEquals(200L, cache.getStats().get("memoryCacheBytes"));
+    cache.get(0, 0, 1);
+    cache.get(2, 0, 1);
+    assertEquals(3L, cache.getStats().get("memoryHitCount"));
+    assertNotNull(cache.get(1, 0, 1));
+    assertEquals(1L, cache.getStats().get("diskHitCount"));
+  }
+
+  @Test
+  public void diskTierIsBoundedBySize() {
+    final TileCache cache = createCache("1", 0, 0);
+    for (int i = 0; i < 10; i++) {
+      cache.put(i, 0, 1, tile(192));
+    }
+
+    assertEquals(5 * 200L, cache.getStats().get("diskCacheBytes"));
+    assertNull(cache.get(0, 0, 1));
+    assertNotNull(cache.get(9, 0, 1));
+  }
+
+  @Test
+  public void expiredTilesAreMisses() {
+    final TileCache cache = createCache("1", 1024, 1000);
+    cache.put(1, 2, 3, tile(10));
+
+    now += 1001;
+
+    assertNull(cache.get(1, 2, 3));
+    assertNull(createCache("1", 1024, 1000).get(1, 2, 3));
+  }
+
+  @Test
+  public void changingTheVersionInvalidatesTiles() {
+    createCache("1", 1024, 0).put(1, 2, 3, tile(10));
+
+    final TileCache cache = createCache("2", 1024, 0);
+
+    assertNull(cache.get(1, 2, 3));
+    assertEquals(0, directory.listFiles().length);
+  }
+
+  @Test
+  public void diskWritesDoNotHoldUpMemoryHits() {
+    final List<Runnable> pendingWrites = new ArrayList<>();
+    final TileCache cache =
+        new TileCache(directory, "1", 1024, 1024, 0, () -> now, pendingWrites::add);
+    pendingWrites.remove(0).run();
+
+    cache.put(1, 2, 3, tile(10));
+
+    assertNotNull(cache.get(1, 2, 3));
+    assertEquals(0, directory.listFiles().length);
+    pendingWrites.remove(0).run();
+    assertEquals(1, directory.listFiles().length);
+    assertEquals(18L, cache.getStats().get("diskCacheBytes"));
+  }
+
+  @Test
+  public void overlaysWithTheSameIdShareOneCache() throws IOException {
+    final File cacheDir = temporaryFolder.newFolder();
+    final TileCache first = TileCache.obtain(cacheDir, "a/b", "1", 1024, 0, 0);
+    final TileCache second = TileCache.obtain(cacheDir, "a/b", "1", 1024, 0, 0);
+    final TileCache other = TileCache.obtain(cacheDir, "a:b", "1", 1024, 0, 0);
+
+    assertSame(first, second);
+    assertNotSame(first, other);
+    first.release();
+    assertSame(second, TileCache.obtain(cacheDir, "a/b", "1", 1024, 0, 0));
+    second.release();
+    second.release();
+    other.release();
+    assertNotSame(second, TileCache.obtain(cacheDir, "a/b", "1", 1024, 0, 0));
+  }
+
+  @Test
+  public void directoriesAreNamedAfterAHashOfTheId() {
+    final String name = TileCache.directoryName("a/b");
+
+    assertEquals(64, name.length());
+    assertTrue(name.matches("[0-9a-f]+"));
+    assertEquals(name, TileCache.directoryName("a/b"));
+    assertNotEquals(name, TileCache.directoryName("a:b"));
+    assertNotEquals(name, TileCache.directoryName("a-b"));
+  }
+
+  @Test
+  public void clearRemovesBothTiers() {
+    final TileCache cache = createCache("1", 1024, 0);
+    cache.put(1, 2, 3, tile(10));
+
+    cache.clear();
+
+    assertNull(cache.get(1, 2, 3));
+    assertNull(createCache("1", 1024, 0).get(1, 2, 3));
+  }
+}
@@ -0,0 +1,113 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.junit.Test;
+
+public class TilePrefetcherTest {
+
+  // Covers the single tile x = 2, y = 1 at zoom 2.
+  private static final LatLngBounds TILE_2_1 =
+      new LatLngBounds(new LatLng(10, 10), new LatLng(50, 80));
+
+  @Test
+  public void ringSurroundsTheVisibleTilesNearestFirst() {
+    final List<int[]> tiles = TilePrefetcher.tilesAround(TILE_2_1, 2, 2, false);
+
+    // 8 tiles in the first ring, the second one is cut by the poles and wraps around.
+    assertEquals(8, tiles.size() - countRing(tiles, 2, 1, 2));
+    for (int i = 0; i < 8; i++) {
+      assertEquals(1, chebyshevDistance(tiles.get(i), 2, 1));
+    }
+    for (int[] tile : tiles) {
+      assertTrue(tile[0] >= 0 && tile[0] < 4 && tile[1] >= 0 && tile[1] < 4);
+      assertTrue(tile[0] != 2 || tile[1] != 1);
+    }
+  }
+
+  @Test
+  public void nextZoomLevelFollowsTheRing() {
+    final List<int[]> tiles = TilePrefetcher.tilesAround(TILE_2_1, 2, 1, true);
+
+    assertEquals(8 + 4, tiles.size());
+    assertArrayEquals(new int[] {4, 2, 3}, tiles.get(8));
+    assertArrayEquals(new int[] {5, 3, 3}, tiles.get(11));
+  }
+
+  @Test
+  public void ringWrapsAcrossTheAntimeridian() {
+    final LatLngBounds bounds = new LatLngBounds(new LatLng(10, -170), new LatLng(50, -100));
+
+    final List<int[]> tiles = TilePrefetcher.tilesAround(bounds, 2, 1, false);
+
+    boolean wrapped = false;
+    for (int[] tile : tiles) {
+      wrapped |= tile[0] == 3;
+    }
+    assertTrue(wrapped);
+  }
+
+  @Test
+  public void cancelStopsThePrefetch() {
+    final TileProviderController tileProviderController = mock(TileProviderController.class);
+    final List<Runnable> tasks = new ArrayList<>();
+    final Executor executor = tasks::add;
+    final TilePrefetcher prefetcher =
+        new TilePrefetcher(tileProviderController, 1, false, executor);
+
+    prefetcher.prefetch(TILE_2_1, 2.4f);
+    prefetcher.cancel();
+    tasks.get(0).run();
+
+    verify(tileProviderController).cancelPrefetch();
+    verify(tileProviderController, never()).prefetchTile(anyInt(), anyInt(), anyInt());
+  }
+
+  @Test
+  public void prefetchesEveryTileOfTheLatestIdle() {
+    final TileProviderController tileProviderController = mock(TileProviderController.class);
+    when(tileProviderController.prefetchTile(anyInt(), anyInt(), anyInt())).thenReturn(true);
+    final List<Runnable> tasks = new ArrayList<>();
+    final TilePrefetcher prefetcher =
+        new TilePrefetcher(tileProviderController, 1, false, tasks::add);
+
+    prefetcher.prefetch(TILE_2_1, 2.4f);
+    prefetcher.prefetch(TILE_2_1, 2.4f);
+    tasks.get(0).run();
+    tasks.get(1).run();
+
+    verify(tileProviderController).prefetchTile(1, 0, 2);
+    verify(tileProviderController).prefetchTile(3, 2, 2);
+  }
+
+  private static int countRing(List<int[]> tiles, int x, int y, int distance) {
+    int count = 0;
+    for (int[] tile : tiles) {
+      if (chebyshevDistance(tile, x, y) == distance) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static int chebyshevDistance(int[] tile, int x, int y) {
+    final int dx = Math.min(Math.abs(tile[0] - x), 4 - Math.abs(tile[0] - x));
+    return Math.max(dx, Math.abs(tile[1] - y));
+  }
+}
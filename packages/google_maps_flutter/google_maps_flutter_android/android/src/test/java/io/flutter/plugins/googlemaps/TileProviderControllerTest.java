@@ -0,0 +1,230 @@
+// Copyright 2013 The Flutter Authors. All rights reserved.
+// Use of this source code is governed by a BSD-style license that can be
+// found in the LICENSE file.
+
+package io.flutter.plugins.googlemaps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import android.os.Build;
+import com.google.android.gms.maps.model.Tile;
+import io.flutter.plugin.common.MethodChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = Build.VERSION_CODES.P)
+public class TileProviderControllerTest {
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final List<MethodChannel.Result> pendingResults = new ArrayList<>();
+  private MethodChannel methodChannel;
+  private ExecutorService tileThreads;
+
+  @Before
+  public void before() {
+    methodChannel = mock(MethodChannel.class);
+    doAnswer(
+            invocation -> {
+              pendingResults.add(invocation.getArgument(2));
+              return null;
+            })
+        .when(methodChannel)
+        .invokeMethod(eq("tileOverlay#getTile"), any(), any(MethodChannel.Result.class));
+    tileThreads = Executors.newFixedThreadPool(2);
+  }
+
+  @After
+  public void after() {
+    tileThreads.shutdownNow();
+  }
+
+  @Test
+  public void returnsTheTileSentByDart() throws Exception {
+    final TileProviderController controller =
+        new TileProviderController(methodChannel, "overlay", null, 5000, 4);
+
+    final Future<Tile> tile = tileThreads.submit(() -> controller.getTile(1, 2, 3));
+    awaitPendingResults(1);
+    pendingResults.get(0).success(tileData());
+
+    assertEquals(256, tile.get().width);
+    assertEquals(1L, controller.getStats().get("successCount"));
+  }
+
+  @Test
+  public void slowTilesTimeOutAndAreRetriedLater() throws Exception {
+    final TileProviderController controller =
+        new TileProviderController(methodChannel, "overlay", null, 50, 4);
+
+    final Future<Tile> tile = tileThreads.submit(() -> controller.getTile(1, 2, 3));
+
+    assertNull(tile.get());
+    // The request was still waiting to be sent, so it never is.
+    ShadowLooper.idleMainLooper();
+    final Map<String, Object> stats = controller.getStats();
+    assertEquals(1L, stats.get("timeoutCount"));
+    assertEquals(0, stats.get("inFlightCount"));
+    assertTrue(pendingResults.isEmpty());
+  }
+
+  @Test
+  public void timedOutRequestsKeepTheirSlotUntilDartAnswers() throws Exception {
+    final TileProviderController controller =
+        new TileProviderController(methodChannel, "overlay", null, 500, 1);
+
+    final Future<Tile> first = tileThreads.submit(() -> controller.getTile(1, 2, 3));
+    awaitPendingResults(1);
+    assertNull(first.get());
+    assertEquals(1, controller.getStats().get("inFlightCount"));
+    assertNull(tileThreads.submit(() -> controller.getTile(2, 2, 3)).get());
+    assertEquals(1, pendingResults.size());
+
+    pendingResults.get(0).success(tileData());
+    assertEquals(0, controller.getStats().get("inFlightCount"));
+    tileThreads.submit(() -> controller.getTile(3, 2, 3));
+    awaitPendingResults(2);
+
+    final Map<String, Object> stats = controller.getStats();
+    assertEquals(2L, stats.get("timeoutCount"));
+    assertEquals(0L, stats.get("successCount"));
+  }
+
+  @Test
+  public void limitsConcurrentRequests() throws Exception {
+    final TileProviderController controller =
+        new TileProviderController(methodChannel, "overlay", null, 5000, 1);
+
+    final Future<Tile> first = tileThreads.submit(() -> controller.getTile(1, 2, 3));
+    awaitPendingResults(1);
+    final Future<Tile> second = tileThreads.submit(() -> controller.getTile(2, 2, 3));
+    while (!Integer.valueOf(1).equals(controller.getStats().get("queueDepth"))) {
+      Thread.sleep(5);
+    }
+    assertEquals(1, pendingResults.size());
+
+    pendingResults.get(0).success(tileData());
+    awaitPendingResults(2);
+    pendingResults.get(1).success(tileData());
+
+    assertEquals(256, first.get().width);
+    assertEquals(256, second.get().width);
+    assertEquals(1, controller.getStats().get("maxQueueDepth"));
+  }
+
+  @Test
+  public void cancelsTilesOfZoomLevelsThatAreNoLongerVisible() throws Exception {
+    final TileProviderController controller =
+        new TileProviderController(methodChannel, "overlay", null, 5000, 4);
+
+    final Future<Tile> tile = tileThreads.submit(() -> controller.getTile(1, 2, 3));
+    awaitPendingResults(1);
+    controller.setVisibleZoomRange(5, 6);
+
+    assertNull(tile.get());
+    assertNull(controller.getTile(1, 2, 4));
+    assertEquals(2L, controller.getStats().get("cancelledCount"));
+    assertEquals(1, controller.getStats().get("inFlightCount"));
+
+    pendingResults.get(0).success(tileData());
+    assertEquals(0, controller.getStats().get("inFlightCount"));
+  }
+
+  @Test
+  public void cachedTilesAreNotRequestedAgain() throws Exception {
+    final TileCache tileCache =
+        new TileCache(temporaryFolder.newFolder(), "1", 1024 * 1024, 1024 * 1024, 0);
+    final TileProviderController controller =
+        new TileProviderController(methodChannel, "overlay", tileCache, 5000, 4);
+
+    final Future<Tile> tile = tileThreads.submit(() -> controller.getTile(1, 2, 3));
+    awaitPendingResults(1);
+    pendingResults.get(0).success(tileData());
+    tile.get();
+
+    assertEquals(256, controller.getTile(1, 2, 3).width);
+    assertEquals(1, pendingResults.size());
+    assertEquals(1L, controller.getStats().get("memoryHitCount"));
+  }
+
+  @Test
+  public void prefetchedTilesAreServedFromTheCache() throws Exception {
+    final TileCache tileCache = new TileCache(temporaryFolder.newFolder(), "1", 1024 * 1024, 0, 0);
+    final TileProviderController controller =
+        new TileProviderController(methodChannel, "overlay", tileCache, 5000, 1);
+    // Tiles of zoom levels that are not visible are prefetched too.
+    controller.setVisibleZoomRange(5, 5);
+
+    final Future<Boolean> prefetched = tileThreads.submit(() -> controller.prefetchTile(1, 2, 6));
+    awaitPendingResults(1);
+    assertFalse(controller.prefetchTile(2, 2, 6));
+    pendingResults.get(0).success(tileData());
+
+    assertTrue(prefetched.get());
+    assertTrue(controller.prefetchTile(1, 2, 6));
+    assertEquals(1, pendingResults.size());
+    assertEquals(1L, controller.getStats().get("prefetchCount"));
+    assertEquals(0, controller.getStats().get("inFlightCount"));
+  }
+
+  @Test
+  public void cancelledPrefetchesKeepTheirSlotUntilDartAnswers() throws Exception {
+    final TileCache tileCache = new TileCache(temporaryFolder.newFolder(), "1", 1024 * 1024, 0, 0);
+    final TileProviderController controller =
+        new TileProviderController(methodChannel, "overlay", tileCache, 5000, 4);
+
+    final Future<Boolean> prefetched = tileThreads.submit(() -> controller.prefetchTile(1, 2, 3));
+    awaitPendingResults(1);
+    controller.cancelPrefetch();
+
+    assertTrue(prefetched.get());
+    assertEquals(1L, controller.getStats().get("cancelledCount"));
+    assertEquals(1, controller.getStats().get("inFlightCount"));
+    // Panning again doesn't send another prefetch while the cancelled one is outstanding.
+    assertFalse(controller.prefetchTile(2, 2, 3));
+    assertEquals(1, pendingResults.size());
+
+    pendingResults.get(0).success(tileData());
+    assertEquals(0, controller.getStats().get("inFlightCount"));
+    assertFalse(tileCache.contains(1, 2, 3));
+    tileThreads.submit(() -> controller.prefetchTile(2, 2, 3));
+    awaitPendingResults(2);
+  }
+
+  private void awaitPendingResults(int count) throws InterruptedException {
+    while (pendingResults.size() < count) {
+      ShadowLooper.idleMainLooper();
+      Thread.sleep(5);
+    }
+  }
+
+  private static Map<String, Object> tileData() {
+    final Map<String, Object> data = new HashMap<>();
+    data.put("width", 256);
+    data.put("height", 256);
+    data.put("data", new byte[] {1, 2, 3});
+    return data;
+  }
+}